@@ -260,6 +260,10 @@ public class Exchange {
 	//If object security option is used, the Cryptographic context identifier is stored here
     // for request/response mapping of contexts
     private byte[] cryptoContextId;
+
+	// If object security option is used, the per exchange state of the
+	// cryptographic context is stored here
+	private volatile Object cryptoContextState;
 	
 	/**
 	 * Creates a new exchange with the specified request and origin.
@@ -1141,4 +1145,26 @@ public class Exchange {
 	public byte[] getCryptographicContextID() {
 		return this.cryptoContextId;
 	}
+
+	/**
+	 * Sets the state of the cryptographic context for this exchange.
+	 * 
+	 * Used by object security to keep the per message values of a received
+	 * request for protecting the response, instead of storing them in the
+	 * shared cryptographic context.
+	 * 
+	 * @param cryptoContextState the state, or {@code null} to clear it
+	 */
+	public void setCryptographicContextState(Object cryptoContextState) {
+		this.cryptoContextState = cryptoContextState;
+	}
+
+	/**
+	 * Gets the state of the cryptographic context for this exchange.
+	 * 
+	 * @return the state, or {@code null}, if not available
+	 */
+	public Object getCryptographicContextState() {
+		return this.cryptoContextState;
+	}
 }
@@ -201,6 +201,17 @@ public final class NetworkConfig {
 		public static final String PROTOCOL_STAGE_THREAD_COUNT = "PROTOCOL_STAGE_THREAD_COUNT";
 		public static final String NETWORK_STAGE_RECEIVER_THREAD_COUNT = "NETWORK_STAGE_RECEIVER_THREAD_COUNT";
 		public static final String NETWORK_STAGE_SENDER_THREAD_COUNT = "NETWORK_STAGE_SENDER_THREAD_COUNT";
+		/**
+		 * The number of threads to protect and verify OSCORE messages. The
+		 * messages of one security context are processed in order.
+		 * <p>
+		 * The default value of this property is
+		 * {@link NetworkConfigDefaults#DEFAULT_OSCORE_CRYPTO_THREAD_COUNT}.
+		 * <p>
+		 * A value of {@code 0} processes the messages on the protocol stage
+		 * thread.
+		 */
+		public static final String OSCORE_CRYPTO_THREAD_COUNT = "OSCORE_CRYPTO_THREAD_COUNT";
 
 		public static final String UDP_CONNECTOR_DATAGRAM_SIZE = "UDP_CONNECTOR_DATAGRAM_SIZE";
 		public static final String UDP_CONNECTOR_RECEIVE_BUFFER = "UDP_CONNECTOR_RECEIVE_BUFFER";
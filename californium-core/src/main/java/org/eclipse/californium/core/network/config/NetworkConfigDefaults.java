@@ -168,6 +168,14 @@ public class NetworkConfigDefaults {
 	public static final String DEFAULT_DTLS_CONNECTION_ID_LENGTH = ""; // disabled
 	public static final String DEFAULT_DTLS_CONNECTION_ID_NODE_ID = ""; // disabled
 
+	/**
+	 * The default number of threads to protect and verify OSCORE messages.
+	 * <p>
+	 * The default value is 0, the messages are processed on the protocol
+	 * stage thread.
+	 */
+	public static final int DEFAULT_OSCORE_CRYPTO_THREAD_COUNT = 0;
+
 	public static void setDefaults(final NetworkConfig config) {
 
 		final int CORES = Runtime.getRuntime().availableProcessors();
@@ -216,6 +224,7 @@ public class NetworkConfigDefaults {
 		config.setInt(Keys.PROTOCOL_STAGE_THREAD_COUNT, CORES);
 		config.setInt(Keys.NETWORK_STAGE_RECEIVER_THREAD_COUNT, WINDOWS ? CORES : 1);
 		config.setInt(Keys.NETWORK_STAGE_SENDER_THREAD_COUNT, WINDOWS ? CORES : 1);
+		config.setInt(Keys.OSCORE_CRYPTO_THREAD_COUNT, DEFAULT_OSCORE_CRYPTO_THREAD_COUNT);
 
 		config.setInt(Keys.UDP_CONNECTOR_DATAGRAM_SIZE, 2048);
 		config.setInt(Keys.UDP_CONNECTOR_RECEIVE_BUFFER, UDPConnector.UNDEFINED);
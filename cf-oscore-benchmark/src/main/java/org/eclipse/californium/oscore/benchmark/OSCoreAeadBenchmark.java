@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreEngine;
+import org.eclipse.californium.oscore.OSSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Microbenchmark comparing the AEAD algorithms supported by OSCORE, AES-CCM
+ * using the {@link org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher}
+ * and AES-GCM using the cipher of the JCE.
+ *
+ * Every operation uses a new sequence number and so a new nonce, as the
+ * protection of OSCORE messages does.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSCoreAeadBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] CLIENT_ID = new byte[0];
+	private static final byte[] SERVER_ID = new byte[] { 0x01 };
+	private static final OptionSet OPTIONS = new OptionSet();
+
+	@Param({ "AES_CCM_16_64_128", "AES_CCM_16_128_128", "AES_CCM_16_64_256", "AES_GCM_128", "AES_GCM_256" })
+	public AlgorithmID algorithm;
+
+	@Param({ "0", "16", "64", "256", "1024" })
+	public int payloadSize;
+
+	private byte[] payload;
+	private OSCoreCtx clientCtx;
+	private OSCoreCtx serverCtx;
+	private byte[] nonce;
+	private byte[] aad;
+	private byte[] cipherText;
+	private int seq;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		payload = new byte[payloadSize];
+		clientCtx = new OSCoreCtx(MASTER_SECRET, true, algorithm, CLIENT_ID, SERVER_ID, null, null, null, null);
+		serverCtx = new OSCoreCtx(MASTER_SECRET, false, algorithm, SERVER_ID, CLIENT_ID, null, null, null, null);
+		nonce = new byte[clientCtx.getIVLength()];
+		OSSerializer.nonceGeneration(seq, clientCtx.getSenderNonceBase(), nonce);
+		aad = OSSerializer.serializeEncStructure(CoAP.VERSION, algorithm, seq, CLIENT_ID, OPTIONS);
+		cipherText = OSCoreEngine.encrypt(clientCtx, nonce, aad, payload);
+	}
+
+	@Benchmark
+	public byte[] encrypt() throws Exception {
+		seq = (seq + 1) & 0xffffff;
+		byte[] nonce = new byte[clientCtx.getIVLength()];
+		OSSerializer.nonceGeneration(seq, clientCtx.getSenderNonceBase(), nonce);
+		return OSCoreEngine.encrypt(clientCtx, nonce, aad, payload);
+	}
+
+	@Benchmark
+	public byte[] decrypt() throws Exception {
+		return OSCoreEngine.decrypt(serverCtx, nonce, aad, cipherText);
+	}
+}
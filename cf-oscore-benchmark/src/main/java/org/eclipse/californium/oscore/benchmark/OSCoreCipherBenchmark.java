@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.cose.Attribute;
+import org.eclipse.californium.cose.CoseException;
+import org.eclipse.californium.cose.Encrypt0Message;
+import org.eclipse.californium.cose.HeaderKeys;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.upokecenter.cbor.CBORObject;
+
+/**
+ *
+ * Microbenchmark for the per message AES-CCM en- and decryption of OSCORE.
+ *
+ * Compares the cipher initialized with the key for every message with the
+ * per context and thread prepared cipher of {@link OSCoreCtx}, once for the
+ * complete COSE processing and once for the CCM en- and decryption only. The
+ * OSCoreEngine, which bypasses the COSE objects, is measured by the
+ * {@link OSCoreAeadBenchmark}.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSCoreCipherBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] NONCE = new byte[13];
+	private static final byte[] AAD = new byte[20];
+
+	@Param({ "0", "64", "1024" })
+	public int payloadSize;
+
+	private byte[] payload;
+	private OSCoreCtx ctx;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		payload = new byte[payloadSize];
+		ctx = new OSCoreCtx(MASTER_SECRET, true);
+	}
+
+	@Benchmark
+	public byte[] coseKeyPerMessage() throws Exception {
+		Encrypt0Message enc = createMessage();
+		enc.SetContent(payload);
+		enc.encrypt(ctx.getSenderKey());
+		Encrypt0Message dec = createMessage();
+		dec.setEncryptedContent(enc.getEncryptedContent());
+		return dec.decrypt(ctx.getSenderKey());
+	}
+
+	@Benchmark
+	public byte[] cosePreparedCipher() throws Exception {
+		Encrypt0Message enc = createMessage();
+		enc.SetContent(payload);
+		enc.encrypt(ctx.getSenderCipher());
+		Encrypt0Message dec = createMessage();
+		dec.setEncryptedContent(enc.getEncryptedContent());
+		return dec.decrypt(ctx.getSenderCipher());
+	}
+
+	@Benchmark
+	public byte[] ccmKeyPerMessage() throws Exception {
+		byte[] encrypted = CCMBlockCipher.encrypt(new SecretKeySpec(ctx.getSenderKey(), "AES"), NONCE, AAD, payload,
+				8);
+		return CCMBlockCipher.decrypt(new SecretKeySpec(ctx.getSenderKey(), "AES"), NONCE, AAD, encrypted, 8);
+	}
+
+	@Benchmark
+	public byte[] ccmPreparedCipher() throws Exception {
+		byte[] encrypted = CCMBlockCipher.encrypt(ctx.getSenderCipher(), NONCE, AAD, payload, 8);
+		return CCMBlockCipher.decrypt(ctx.getSenderCipher(), NONCE, AAD, encrypted, 8);
+	}
+
+	private static Encrypt0Message createMessage() throws CoseException {
+		Encrypt0Message enc = new Encrypt0Message(false, true);
+		enc.setExternal(AAD);
+		enc.addAttribute(HeaderKeys.IV, CBORObject.FromObject(NONCE), Attribute.DO_NOT_SEND);
+		enc.addAttribute(HeaderKeys.Algorithm, AlgorithmID.AES_CCM_16_64_128.AsCBOR(), Attribute.DO_NOT_SEND);
+		return enc;
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.HashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.eclipse.californium.oscore.ObjectSecurityLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Microbenchmark for the client send path of OSCORE requests.
+ *
+ * Measures the steps of ObjectSecurityLayer.sendRequest for IPv4 and IPv6
+ * destinations: the context lookup by the request uri and the complete send
+ * path including the lookup and the protection of the request. The request
+ * is created for every operation, {@link #createRequest()} measures that
+ * part of the results.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSCoreClientSendBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] PAYLOAD = "client says hi".getBytes(CoAP.UTF8_CHARSET);
+
+	@Param({ "127.0.0.1", "::1" })
+	public String host;
+
+	@Param({ "HashMap", "ConcurrentHashMap" })
+	public String db;
+
+	private InetAddress address;
+	private OSCoreCtxDB ctxDb;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		address = InetAddress.getByName(host);
+		if ("HashMap".equals(db)) {
+			ctxDb = new HashMapCtxDB();
+		} else {
+			ctxDb = new ConcurrentHashMapCtxDB();
+		}
+		OSCoreCtx ctx = new OSCoreCtx(MASTER_SECRET, true, AlgorithmID.AES_CCM_16_64_128, new byte[0],
+				new byte[] { 0x01 }, null, null, null, null);
+		ctxDb.addContext(createRequest().getURI(), ctx);
+	}
+
+	@Benchmark
+	public Request createRequest() {
+		Request request = new Request(CoAP.Code.POST);
+		request.getOptions().setOscore(new byte[0]);
+		request.getOptions().setUriPath("test");
+		request.setDestinationContext(new AddressEndpointContext(address, CoAP.DEFAULT_COAP_PORT));
+		request.setPayload(PAYLOAD);
+		return request;
+	}
+
+	@Benchmark
+	public OSCoreCtx contextLookup() throws Exception {
+		return ctxDb.getContext(createRequest().getURI());
+	}
+
+	@Benchmark
+	public Request sendPath() throws Exception {
+		Request request = createRequest();
+		OSCoreCtx ctx = ctxDb.getContext(request.getURI());
+		return ObjectSecurityLayer.prepareSend(request, ctx);
+	}
+}
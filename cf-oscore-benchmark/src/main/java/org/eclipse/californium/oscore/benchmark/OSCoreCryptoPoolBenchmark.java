@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.MessageObserverAdapter;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.server.MessageDeliverer;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCoapStackFactory;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.eclipse.californium.oscore.ReplayWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark for the OSCORE crypto pool of the
+ * {@link org.eclipse.californium.oscore.ObjectSecurityLayer}.
+ *
+ * Sends bursts of protected requests over the loopback interface to a server
+ * and measures the time until all responses of a burst are received, once
+ * with the messages processed on the stack's thread ({@code cryptoThreads}
+ * 0) and once with the crypto pool. The protocol stage of client and server
+ * uses a single thread.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OSCoreCryptoPoolBenchmark {
+
+	private static final AlgorithmID ALG = AlgorithmID.AES_CCM_16_64_128;
+	private static final AlgorithmID KDF = AlgorithmID.HKDF_HMAC_SHA_256;
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+
+	@Param({ "0", "4" })
+	public int cryptoThreads;
+
+	@Param({ "200" })
+	public int burst;
+
+	@Param({ "1000" })
+	public int payloadSize;
+
+	private byte[] payload;
+	private CoapServer server;
+	private CoapEndpoint clientEndpoint;
+	private AddressEndpointContext destination;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setInt(NetworkConfig.Keys.PROTOCOL_STAGE_THREAD_COUNT, 1);
+		config.setInt(NetworkConfig.Keys.OSCORE_CRYPTO_THREAD_COUNT, cryptoThreads);
+		config.setInt(NetworkConfig.Keys.MAX_MESSAGE_SIZE, payloadSize + 100);
+		config.setInt(NetworkConfig.Keys.PREFERRED_BLOCK_SIZE, 1024);
+		config.setInt(NetworkConfig.Keys.MAX_ACTIVE_PEERS, burst * 2);
+		config.setLong(NetworkConfig.Keys.EXCHANGE_LIFETIME, 1000);
+
+		payload = new byte[payloadSize];
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+
+		OSCoreCtxDB serverDb = new ConcurrentHashMapCtxDB();
+		serverDb.addContext(new OSCoreCtx(MASTER_SECRET, false, ALG, new byte[] { 0x01 }, new byte[0], KDF,
+				ReplayWindow.MAX_SIZE, null, null));
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(new InetSocketAddress(loopback, 0));
+		builder.setNetworkConfig(config);
+		builder.setCoapStackFactory(new OSCoreCoapStackFactory(serverDb));
+		CoapEndpoint serverEndpoint = builder.build();
+		server = new CoapServer(config);
+		server.addEndpoint(serverEndpoint);
+		server.setMessageDeliverer(new MessageDeliverer() {
+
+			@Override
+			public void deliverRequest(Exchange exchange) {
+				Response response = new Response(ResponseCode.CONTENT);
+				response.setPayload(payload);
+				exchange.sendResponse(response);
+			}
+
+			@Override
+			public void deliverResponse(Exchange exchange, Response response) {
+			}
+		});
+		server.start();
+
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		clientDb.addContext("coap://" + loopback.getHostAddress(), new OSCoreCtx(MASTER_SECRET, true, ALG,
+				new byte[0], new byte[] { 0x01 }, KDF, ReplayWindow.MAX_SIZE, null, null));
+		builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(new InetSocketAddress(loopback, 0));
+		builder.setNetworkConfig(config);
+		builder.setCoapStackFactory(new OSCoreCoapStackFactory(clientDb));
+		clientEndpoint = builder.build();
+		clientEndpoint.start();
+
+		destination = new AddressEndpointContext(loopback, serverEndpoint.getAddress().getPort());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (clientEndpoint != null) {
+			clientEndpoint.destroy();
+		}
+		if (server != null) {
+			server.destroy();
+		}
+	}
+
+	@Benchmark
+	public int sendBurst() throws Exception {
+		final CountDownLatch done = new CountDownLatch(burst);
+		final AtomicInteger received = new AtomicInteger();
+		for (int index = 0; index < burst; index++) {
+			Request request = new Request(CoAP.Code.POST);
+			request.getOptions().setOscore(new byte[0]);
+			request.setDestinationContext(destination);
+			request.setPayload(payload);
+			request.addMessageObserver(new MessageObserverAdapter() {
+
+				@Override
+				public void onResponse(Response response) {
+					received.incrementAndGet();
+					done.countDown();
+				}
+
+				@Override
+				protected void failed() {
+					done.countDown();
+				}
+			});
+			request.send(clientEndpoint);
+		}
+		if (!done.await(10, TimeUnit.SECONDS) || received.get() < burst) {
+			throw new IllegalStateException(received.get() + " of " + burst + " responses received!");
+		}
+		return received.get();
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.HashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Contention benchmark for the OSCORE context databases.
+ *
+ * Each thread repeatedly performs the database accesses of one protected
+ * request/response exchange: the recipient lookup by RID on the server side
+ * and the token registration, lookup and removal on the client side. The
+ * database is shared by all threads, use the option {@code -t} to measure the
+ * throughput with other numbers of threads.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class OSCoreCtxDBBenchmark {
+
+	private static final int TOKENS_PER_THREAD = 1024;
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+
+	@Param({ "HashMap", "ConcurrentHashMap" })
+	public String db;
+
+	@Param({ "1000" })
+	public int peers;
+
+	private OSCoreCtxDB ctxDb;
+	private OSCoreCtx[] contexts;
+	private final AtomicInteger threads = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		if ("HashMap".equals(db)) {
+			ctxDb = new HashMapCtxDB();
+		} else {
+			ctxDb = new ConcurrentHashMapCtxDB();
+		}
+		contexts = new OSCoreCtx[peers];
+		for (int i = 0; i < peers; i++) {
+			byte[] rid = new byte[] { 0x01, (byte) (i >> 16), (byte) (i >> 8), (byte) i };
+			contexts[i] = new OSCoreCtx(MASTER_SECRET, false, AlgorithmID.AES_CCM_16_64_128, new byte[] { 0x00 }, rid,
+					null, null, null, null);
+			ctxDb.addContext(contexts[i]);
+		}
+	}
+
+	/**
+	 * Tokens and peer offset of a thread.
+	 */
+	@State(Scope.Thread)
+	public static class Exchanges {
+
+		private Token[] tokens;
+		private int offset;
+		private int index;
+
+		@Setup(Level.Trial)
+		public void setup(OSCoreCtxDBBenchmark benchmark) {
+			int thread = benchmark.threads.getAndIncrement();
+			Random random = new Random(thread);
+			tokens = new Token[TOKENS_PER_THREAD];
+			for (int i = 0; i < tokens.length; i++) {
+				byte[] token = new byte[8];
+				random.nextBytes(token);
+				tokens[i] = new Token(token);
+			}
+			offset = thread * 7919;
+		}
+	}
+
+	@Benchmark
+	public Integer exchange(Exchanges exchanges) {
+		int index = exchanges.index++;
+		OSCoreCtx ctx = contexts[(exchanges.offset + index) % contexts.length];
+		Token token = exchanges.tokens[index & (TOKENS_PER_THREAD - 1)];
+
+		// server side
+		OSCoreCtx recipient = ctxDb.getContext(ctx.getRecipientId());
+		// client side
+		ctxDb.addContext(token, recipient);
+		ctxDb.addSeqByToken(token, index);
+		ctxDb.getContextByToken(token);
+		Integer seq = ctxDb.getSeqByToken(token);
+		ctxDb.removeToken(token);
+		return seq;
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtxParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Start-up benchmark for the provisioning of many OSCORE contexts.
+ *
+ * Compares creating the contexts one by one with
+ * {@link OSCoreCtxDB#addContexts(Iterable)}, which derives the keys in
+ * parallel.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OSCoreCtxProvisioningBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] SID = new byte[] { 0x00 };
+
+	@Param({ "100000" })
+	public int contexts;
+
+	private List<OSCoreCtxParameters> parameters;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		parameters = new ArrayList<OSCoreCtxParameters>(contexts);
+		for (int i = 0; i < contexts; i++) {
+			byte[] rid = new byte[] { (byte) (i >> 16), (byte) (i >> 8), (byte) i };
+			parameters.add(new OSCoreCtxParameters(MASTER_SECRET, false, null, SID, rid, null, null, null, null));
+		}
+	}
+
+	@Benchmark
+	public OSCoreCtxDB oneByOne() throws Exception {
+		OSCoreCtxDB db = new ConcurrentHashMapCtxDB(contexts, 32);
+		for (OSCoreCtxParameters parameter : parameters) {
+			db.addContext(parameter.createContext());
+		}
+		return db;
+	}
+
+	@Benchmark
+	public OSCoreCtxDB bulk() throws Exception {
+		OSCoreCtxDB db = new ConcurrentHashMapCtxDB(contexts, 32);
+		db.addContexts(parameters);
+		return db;
+	}
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.eclipse.californium.oscore.OSCoreRequestState;
+import org.eclipse.californium.oscore.RequestDecryptor;
+import org.eclipse.californium.oscore.RequestEncryptor;
+import org.eclipse.californium.oscore.ResponseDecryptor;
+import org.eclipse.californium.oscore.ResponseEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Microbenchmark for the protection and verification of OSCORE requests and
+ * responses.
+ *
+ * Client and server use a pair of contexts. The protected request and
+ * response are prepared once and copied for every verification, because the
+ * verification modifies the message. The replay window of the server and the
+ * token of the client are reset for every verification, which is included
+ * in the measurement.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSCorePipelineBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] MASTER_SALT = { (byte) 0x9e, 0x7c, (byte) 0xa9, 0x22, 0x23, 0x78, 0x63, 0x40 };
+	private static final byte[] CLIENT_ID = new byte[0];
+	private static final byte[] SERVER_ID = new byte[] { 0x01 };
+	private static final Token TOKEN = new Token(new byte[] { 0x01, 0x02, 0x03, 0x04 });
+
+	@Param({ "0", "16", "64", "256", "1024" })
+	public int payloadSize;
+
+	private byte[] payload;
+	private OSCoreCtx clientCtx;
+	private OSCoreCtx serverCtx;
+	private OSCoreCtxDB clientDb;
+	private OSCoreCtxDB serverDb;
+
+	private int requestSeq;
+	private OptionSet protectedRequestOptions;
+	private byte[] protectedRequestPayload;
+	private OSCoreRequestState requestState;
+	private OptionSet protectedResponseOptions;
+	private byte[] protectedResponsePayload;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		payload = new byte[payloadSize];
+		clientCtx = new OSCoreCtx(MASTER_SECRET, true, null, CLIENT_ID, SERVER_ID, null, null, MASTER_SALT, null);
+		serverCtx = new OSCoreCtx(MASTER_SECRET, false, null, SERVER_ID, CLIENT_ID, null, null, MASTER_SALT, null);
+		clientDb = new ConcurrentHashMapCtxDB();
+		clientDb.addContext(clientCtx);
+		serverDb = new ConcurrentHashMapCtxDB();
+		serverDb.addContext(serverCtx);
+
+		requestSeq = clientCtx.reserveSenderSeq();
+		Request request = RequestEncryptor.encrypt(createRequest(), clientCtx, requestSeq);
+		protectedRequestOptions = new OptionSet(request.getOptions());
+		protectedRequestPayload = request.getPayload();
+
+		requestState = RequestDecryptor.decryptRequest(serverDb, copyRequest());
+		Response response = ResponseEncryptor.encrypt(createResponse(), requestState, false);
+		protectedResponseOptions = new OptionSet(response.getOptions());
+		protectedResponsePayload = response.getPayload();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetSequenceNumbers() {
+		clientCtx.setSenderSeq(requestSeq + 1);
+	}
+
+	@Benchmark
+	public Request protectRequest() throws Exception {
+		return RequestEncryptor.encrypt(createRequest(), clientCtx);
+	}
+
+	@Benchmark
+	public OSCoreRequestState verifyRequest() throws Exception {
+		serverCtx.setReceiverSeq(-1);
+		return RequestDecryptor.decryptRequest(serverDb, copyRequest());
+	}
+
+	@Benchmark
+	public Response protectResponse() throws Exception {
+		return ResponseEncryptor.encrypt(createResponse(), requestState, false);
+	}
+
+	@Benchmark
+	public Response verifyResponse() throws Exception {
+		clientDb.addContext(TOKEN, clientCtx);
+		clientDb.addSeqByToken(TOKEN, requestSeq);
+		Response response = new Response(ResponseCode.CHANGED);
+		response.setToken(TOKEN);
+		response.setOptions(new OptionSet(protectedResponseOptions));
+		response.setPayload(protectedResponsePayload);
+		return ResponseDecryptor.decrypt(clientDb, response);
+	}
+
+	private Request createRequest() {
+		Request request = new Request(Code.POST);
+		request.setToken(TOKEN);
+		request.getOptions().setOscore(new byte[0]);
+		request.getOptions().addUriPath("sensors").addUriPath("temperature");
+		request.getOptions().setContentFormat(MediaTypeRegistry.APPLICATION_CBOR);
+		request.setPayload(payload);
+		return request;
+	}
+
+	private Request copyRequest() {
+		Request request = new Request(Code.POST);
+		request.setToken(TOKEN);
+		request.setOptions(new OptionSet(protectedRequestOptions));
+		request.setPayload(protectedRequestPayload);
+		return request;
+	}
+
+	private Response createResponse() {
+		Response response = new Response(ResponseCode.CONTENT);
+		response.setToken(TOKEN);
+		response.getOptions().setOscore(new byte[0]);
+		response.getOptions().setContentFormat(MediaTypeRegistry.APPLICATION_CBOR);
+		response.setPayload(payload);
+		return response;
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.server.MessageDeliverer;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCoapStackFactory;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark for complete OSCORE request/response exchanges through the
+ * {@link org.eclipse.californium.oscore.ObjectSecurityLayer} of a client and
+ * a server endpoint, which communicate over the loopback interface.
+ *
+ * In difference to the microbenchmarks, the results include the CoAP stacks,
+ * the message serialization and the UDP transport.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSCoreRoundTripBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final byte[] MASTER_SALT = { (byte) 0x9e, 0x7c, (byte) 0xa9, 0x22, 0x23, 0x78, 0x63, 0x40 };
+	private static final byte[] CLIENT_ID = new byte[0];
+	private static final byte[] SERVER_ID = new byte[] { 0x01 };
+
+	@Param({ "0", "16", "64", "256", "1024" })
+	public int payloadSize;
+
+	private byte[] payload;
+	private CoapServer server;
+	private CoapEndpoint clientEndpoint;
+	private AddressEndpointContext destination;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		payload = new byte[payloadSize];
+		String uri = "coap://" + InetAddress.getLoopbackAddress().getHostAddress();
+
+		OSCoreCtxDB serverDb = new ConcurrentHashMapCtxDB();
+		serverDb.addContext(uri,
+				new OSCoreCtx(MASTER_SECRET, false, null, SERVER_ID, CLIENT_ID, null, null, MASTER_SALT, null));
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		builder.setCoapStackFactory(new OSCoreCoapStackFactory(serverDb));
+		CoapEndpoint serverEndpoint = builder.build();
+		server = new CoapServer();
+		server.addEndpoint(serverEndpoint);
+		server.setMessageDeliverer(new MessageDeliverer() {
+
+			@Override
+			public void deliverRequest(Exchange exchange) {
+				Response response = new Response(ResponseCode.CHANGED);
+				response.setPayload(exchange.getRequest().getPayload());
+				exchange.sendResponse(response);
+			}
+
+			@Override
+			public void deliverResponse(Exchange exchange, Response response) {
+			}
+		});
+		server.start();
+
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		clientDb.addContext(uri,
+				new OSCoreCtx(MASTER_SECRET, true, null, CLIENT_ID, SERVER_ID, null, null, MASTER_SALT, null));
+		builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		builder.setCoapStackFactory(new OSCoreCoapStackFactory(clientDb));
+		clientEndpoint = builder.build();
+		clientEndpoint.start();
+
+		destination = new AddressEndpointContext(InetAddress.getLoopbackAddress(),
+				serverEndpoint.getAddress().getPort());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (clientEndpoint != null) {
+			clientEndpoint.destroy();
+		}
+		if (server != null) {
+			server.destroy();
+		}
+	}
+
+	@Benchmark
+	public Response exchange() throws Exception {
+		Request request = new Request(Code.POST);
+		request.getOptions().setOscore(new byte[0]);
+		request.setConfirmable(true);
+		request.setDestinationContext(destination);
+		request.setPayload(payload);
+		request.send(clientEndpoint);
+		Response response = request.waitForResponse(1000);
+		if (response == null) {
+			throw new IllegalStateException("no response received!");
+		}
+		return response;
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSSerializer;
+import org.eclipse.californium.oscore.OptionJuggle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Microbenchmark for the per message serialization of OSCORE, the additional
+ * authenticated data, the nonce and the handling of the inner and outer
+ * options.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSCoreSerializerBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+
+	private OSCoreCtx ctx;
+	private OptionSet options;
+	private OptionSet eOptions;
+	private byte[] nonce;
+	private int seq;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		ctx = new OSCoreCtx(MASTER_SECRET, true);
+		nonce = new byte[ctx.getIVLength()];
+		options = new OptionSet();
+		options.setUriHost("localhost");
+		options.addUriPath("sensors").addUriPath("temperature");
+		options.setContentFormat(MediaTypeRegistry.APPLICATION_CBOR);
+		options.setAccept(MediaTypeRegistry.APPLICATION_CBOR);
+		options.setOscore(new byte[0]);
+		eOptions = OptionJuggle.prepareEoptions(options);
+	}
+
+	@Benchmark
+	public byte[] serializeAAD() {
+		return OSSerializer.serializeAAD(CoAP.VERSION, AlgorithmID.AES_CCM_16_64_128, nextSeq(), ctx.getSenderId(),
+				options);
+	}
+
+	@Benchmark
+	public byte[] serializeEncStructure() {
+		return OSSerializer.serializeEncStructure(CoAP.VERSION, AlgorithmID.AES_CCM_16_64_128, nextSeq(),
+				ctx.getSenderId(), options);
+	}
+
+	@Benchmark
+	public byte[] nonceGeneration() {
+		OSSerializer.nonceGeneration(nextSeq(), ctx.getSenderNonceBase(), nonce);
+		return nonce;
+	}
+
+	@Benchmark
+	public OptionSet prepareEoptions() {
+		return OptionJuggle.prepareEoptions(options);
+	}
+
+	@Benchmark
+	public OptionSet prepareUoptions() {
+		return OptionJuggle.prepareUoptions(options);
+	}
+
+	@Benchmark
+	public OptionSet merge() {
+		// merge modifies the prioritized options
+		return OptionJuggle.merge(new OptionSet(eOptions), options);
+	}
+
+	private int nextSeq() {
+		seq = (seq + 1) & 0xffffff;
+		return seq;
+	}
+}
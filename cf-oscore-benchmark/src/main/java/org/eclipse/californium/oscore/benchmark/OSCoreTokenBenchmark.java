@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *
+ ******************************************************************************/
+package org.eclipse.californium.oscore.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.oscore.ConcurrentHashMapCtxDB;
+import org.eclipse.californium.oscore.HashMapCtxDB;
+import org.eclipse.californium.oscore.OSCoreCtx;
+import org.eclipse.californium.oscore.OSCoreCtxDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Microbenchmark for the token bookkeeping of the OSCORE context databases,
+ * as done by the ObjectSecurityLayer for every sent request and received
+ * response.
+ *
+ * The cost is expected to be independent of the number of outstanding
+ * tokens. The tokens are random 8 bytes, as generated by the default token
+ * generator.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OSCoreTokenBenchmark {
+
+	private static final byte[] MASTER_SECRET = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private static final int TOKENS = 4096;
+
+	@Param({ "HashMap", "ConcurrentHashMap" })
+	public String db;
+
+	@Param({ "10", "100000" })
+	public int outstanding;
+
+	private OSCoreCtxDB ctxDb;
+	private OSCoreCtx ctx;
+	private Token[] tokens;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		if ("HashMap".equals(db)) {
+			ctxDb = new HashMapCtxDB();
+		} else {
+			ctxDb = new ConcurrentHashMapCtxDB();
+		}
+		ctx = new OSCoreCtx(MASTER_SECRET, true, AlgorithmID.AES_CCM_16_64_128, null, null, null, null, null, null);
+		Random random = new Random(outstanding);
+		for (int i = 0; i < outstanding; i++) {
+			Token token = createToken(random);
+			ctxDb.addContext(token, ctx);
+			ctxDb.addSeqByToken(token, i);
+		}
+		tokens = new Token[TOKENS];
+		for (int i = 0; i < TOKENS; i++) {
+			tokens[i] = createToken(random);
+		}
+	}
+
+	@Benchmark
+	public boolean sendAndComplete() {
+		Token token = tokens[index++ & (TOKENS - 1)];
+		// ObjectSecurityLayer.sendRequest
+		ctxDb.addContext(token, ctx);
+		ctxDb.addSeqByToken(token, index);
+		boolean exists = ctxDb.tokenExist(token);
+		// response received, keep the number of outstanding tokens
+		ctxDb.removeToken(token);
+		ctxDb.removeSeqByToken(token);
+		return exists;
+	}
+
+	private static Token createToken(Random random) {
+		byte[] token = new byte[8];
+		random.nextBytes(token);
+		return new Token(token);
+	}
+}
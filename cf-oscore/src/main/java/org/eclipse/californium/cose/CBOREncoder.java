@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.cose;
+
+/**
+ * Minimal CBOR encoder for fixed-shape structures, which are encoded for
+ * every message and therefore are written directly into byte arrays instead
+ * of building {@link com.upokecenter.cbor.CBORObject} trees.
+ * 
+ * Only the definite length encoding of RFC 7049, section 2.1, is supported.
+ * The resulting bytes are the same as encoded by
+ * {@link com.upokecenter.cbor.CBORObject#EncodeToBytes()}.
+ */
+public final class CBOREncoder {
+
+	/**
+	 * Major type unsigned integer.
+	 */
+	public static final int UNSIGNED_INTEGER = 0;
+	/**
+	 * Major type negative integer.
+	 */
+	public static final int NEGATIVE_INTEGER = 1;
+	/**
+	 * Major type byte string.
+	 */
+	public static final int BYTE_STRING = 2;
+	/**
+	 * Major type text string.
+	 */
+	public static final int TEXT_STRING = 3;
+	/**
+	 * Major type array.
+	 */
+	public static final int ARRAY = 4;
+	/**
+	 * Encoded simple value null.
+	 */
+	public static final byte NULL = (byte) 0xf6;
+
+	private CBOREncoder() {
+	}
+
+	/**
+	 * Get the length of the encoded head of a data item.
+	 * 
+	 * @param value the value, length or number of elements of the data item.
+	 *            Must not be negative.
+	 * @return the length of the head in bytes
+	 */
+	public static int headLength(long value) {
+		if (value < 24) {
+			return 1;
+		} else if (value <= 0xffL) {
+			return 2;
+		} else if (value <= 0xffffL) {
+			return 3;
+		} else if (value <= 0xffffffffL) {
+			return 5;
+		} else {
+			return 9;
+		}
+	}
+
+	/**
+	 * Write the head of a data item.
+	 * 
+	 * @param majorType the major type
+	 * @param value the value, length or number of elements of the data item.
+	 *            Must not be negative.
+	 * @param buffer the buffer to write to
+	 * @param offset the offset in the buffer
+	 * @return the offset after the head
+	 */
+	public static int writeHead(int majorType, long value, byte[] buffer, int offset) {
+		int length = headLength(value);
+		int type = majorType << 5;
+		if (length == 1) {
+			buffer[offset] = (byte) (type | value);
+			return offset + 1;
+		}
+		switch (length) {
+		case 2:
+			buffer[offset] = (byte) (type | 24);
+			break;
+		case 3:
+			buffer[offset] = (byte) (type | 25);
+			break;
+		case 5:
+			buffer[offset] = (byte) (type | 26);
+			break;
+		default:
+			buffer[offset] = (byte) (type | 27);
+			break;
+		}
+		int end = offset + length;
+		for (int index = end - 1; index > offset; --index) {
+			buffer[index] = (byte) value;
+			value >>>= 8;
+		}
+		return end;
+	}
+
+	/**
+	 * Get the length of an encoded integer.
+	 * 
+	 * @param value the integer
+	 * @return the length in bytes
+	 */
+	public static int intLength(int value) {
+		return headLength(value < 0 ? -1L - value : value);
+	}
+
+	/**
+	 * Write an integer.
+	 * 
+	 * @param value the integer
+	 * @param buffer the buffer to write to
+	 * @param offset the offset in the buffer
+	 * @return the offset after the integer
+	 */
+	public static int writeInt(int value, byte[] buffer, int offset) {
+		if (value < 0) {
+			return writeHead(NEGATIVE_INTEGER, -1L - value, buffer, offset);
+		} else {
+			return writeHead(UNSIGNED_INTEGER, value, buffer, offset);
+		}
+	}
+
+	/**
+	 * Get the length of an encoded byte string.
+	 * 
+	 * @param length the length of the byte string
+	 * @return the length of the encoded byte string in bytes
+	 */
+	public static int byteStringLength(int length) {
+		return headLength(length) + length;
+	}
+
+	/**
+	 * Write a byte string.
+	 * 
+	 * @param data the content of the byte string
+	 * @param buffer the buffer to write to
+	 * @param offset the offset in the buffer
+	 * @return the offset after the byte string
+	 */
+	public static int writeByteString(byte[] data, byte[] buffer, int offset) {
+		offset = writeHead(BYTE_STRING, data.length, buffer, offset);
+		System.arraycopy(data, 0, buffer, offset, data.length);
+		return offset + data.length;
+	}
+}
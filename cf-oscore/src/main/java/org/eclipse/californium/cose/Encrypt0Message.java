@@ -35,6 +35,8 @@ package org.eclipse.californium.cose;
 import com.upokecenter.cbor.CBORObject;
 import com.upokecenter.cbor.CBORType;
 
+import javax.crypto.Cipher;
+
 /**
  * 
  * This class is copied from the COSE Java repository to force use of the
@@ -144,4 +146,28 @@ public class Encrypt0Message extends EncryptCommon {
 	public void encrypt(byte[] rgbKey) throws CoseException, IllegalStateException {
 		super.encryptWithKey(rgbKey);
 	}
+
+	/**
+	 * Decrypt the message using the passed in block cipher, which is already
+	 * initialized for encryption with the key.
+	 * 
+	 * @param cipher block cipher used for decryption
+	 * @return the decrypted content
+	 * @throws CoseException
+	 */
+	public byte[] decrypt(Cipher cipher) throws CoseException {
+		return super.decryptWithCipher(cipher);
+	}
+
+	/**
+	 * Encrypt the message using the passed in block cipher, which is already
+	 * initialized for encryption with the key.
+	 * 
+	 * @param cipher block cipher used for encryption
+	 * @throws CoseException
+	 * @throws IllegalStateException
+	 */
+	public void encrypt(Cipher cipher) throws CoseException, IllegalStateException {
+		super.encryptWithCipher(cipher);
+	}
 }
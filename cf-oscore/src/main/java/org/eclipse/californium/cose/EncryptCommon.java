@@ -37,24 +37,37 @@ package org.eclipse.californium.cose;
 import com.upokecenter.cbor.CBORObject;
 import com.upokecenter.cbor.CBORType;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
+import org.eclipse.californium.scandium.dtls.cipher.CipherManager;
 
 /**
  * 
  * This class is copied from the COSE Java repository. Changes made: Directly
  * changed the used cipher to Scandiums CCMBlockCipher code. Removing support
- * for a wider array of AES algorithms.
+ * for a wider array of AES algorithms. Added en- and decryption with an
+ * already initialized block cipher. Encodes the Enc_structure directly.
+ * Supports the AES-CCM variants and AES-GCM, the later using the JCE cipher.
  *
  */
 public abstract class EncryptCommon extends Message {
 
-	private final int AES_CCM_16_IV_LENGTH = 13;
+	private static final String ENCRYPT0 = "Encrypt0";
+	private static final byte[] ENCRYPT0_BYTES = ENCRYPT0.getBytes(StandardCharsets.UTF_8);
+
+	private static final int AES_CCM_16_IV_LENGTH = 13;
+	private static final int AES_CCM_64_IV_LENGTH = 7;
+	private static final int AES_GCM_IV_LENGTH = 12;
+	private static final String AES_GCM = "AES/GCM/NoPadding";
 	protected String context;
 	protected byte[] rgbEncrypt;
 
@@ -67,7 +80,55 @@ public abstract class EncryptCommon extends Message {
 
 		switch (alg) {
 		case AES_CCM_16_64_128:
-			AES_CCM_Decrypt(alg, rgbKey);
+		case AES_CCM_16_64_256:
+		case AES_CCM_16_128_128:
+		case AES_CCM_16_128_256:
+		case AES_CCM_64_64_128:
+		case AES_CCM_64_64_256:
+		case AES_CCM_64_128_128:
+		case AES_CCM_64_128_256:
+			AES_CCM_Decrypt(alg, initCipher(alg, rgbKey));
+			break;
+
+		case AES_GCM_128:
+		case AES_GCM_192:
+		case AES_GCM_256:
+			AES_GCM_Decrypt(alg, rgbKey);
+			break;
+
+		default:
+			throw new CoseException("Unsupported Algorithm Specified");
+		}
+
+		return rgbContent;
+	}
+
+	/**
+	 * Decrypt with a block cipher, which is already initialized with the key.
+	 * Supports AES-CCM only.
+	 * 
+	 * @param cipher the block cipher ({@link CCMBlockCipher#CIPHER_NAME})
+	 *            initialized for encryption with the key
+	 * @return the decrypted content
+	 * @throws CoseException if decryption fails
+	 */
+	protected byte[] decryptWithCipher(Cipher cipher) throws CoseException {
+		CBORObject algX = findAttribute(HeaderKeys.Algorithm);
+		AlgorithmID alg = AlgorithmID.FromCBOR(algX);
+
+		if (rgbEncrypt == null)
+			throw new CoseException("No Encrypted Content Specified");
+
+		switch (alg) {
+		case AES_CCM_16_64_128:
+		case AES_CCM_16_64_256:
+		case AES_CCM_16_128_128:
+		case AES_CCM_16_128_256:
+		case AES_CCM_64_64_128:
+		case AES_CCM_64_64_256:
+		case AES_CCM_64_128_128:
+		case AES_CCM_64_128_256:
+			AES_CCM_Decrypt(alg, cipher);
 			break;
 
 		default:
@@ -86,7 +147,20 @@ public abstract class EncryptCommon extends Message {
 
 		switch (alg) {
 		case AES_CCM_16_64_128:
-			AES_CCM_Encrypt(alg, rgbKey);
+		case AES_CCM_16_64_256:
+		case AES_CCM_16_128_128:
+		case AES_CCM_16_128_256:
+		case AES_CCM_64_64_128:
+		case AES_CCM_64_64_256:
+		case AES_CCM_64_128_128:
+		case AES_CCM_64_128_256:
+			AES_CCM_Encrypt(alg, initCipher(alg, rgbKey));
+			break;
+
+		case AES_GCM_128:
+		case AES_GCM_192:
+		case AES_GCM_256:
+			AES_GCM_Encrypt(alg, rgbKey);
 			break;
 
 		default:
@@ -94,38 +168,115 @@ public abstract class EncryptCommon extends Message {
 		}
 	}
 
+	/**
+	 * Encrypt with a block cipher, which is already initialized with the key.
+	 * Supports AES-CCM only.
+	 * 
+	 * @param cipher the block cipher ({@link CCMBlockCipher#CIPHER_NAME})
+	 *            initialized for encryption with the key
+	 * @throws CoseException if encryption fails
+	 */
+	void encryptWithCipher(Cipher cipher) throws CoseException, IllegalStateException {
+		CBORObject algX = findAttribute(HeaderKeys.Algorithm);
+		AlgorithmID alg = AlgorithmID.FromCBOR(algX);
+
+		if (rgbContent == null)
+			throw new CoseException("No Content Specified");
+
+		switch (alg) {
+		case AES_CCM_16_64_128:
+		case AES_CCM_16_64_256:
+		case AES_CCM_16_128_128:
+		case AES_CCM_16_128_256:
+		case AES_CCM_64_64_128:
+		case AES_CCM_64_64_256:
+		case AES_CCM_64_128_128:
+		case AES_CCM_64_128_256:
+			AES_CCM_Encrypt(alg, cipher);
+			break;
+
+		default:
+			throw new CoseException("Unsupported Algorithm Specified");
+		}
+	}
+
+	/**
+	 * Get the thread local block cipher and initialize it with the key.
+	 * 
+	 * @param alg the algorithm
+	 * @param rgbKey the key
+	 * @return the initialized block cipher
+	 * @throws CoseException if the key doesn't match the algorithm or is not
+	 *             supported
+	 */
+	private static Cipher initCipher(AlgorithmID alg, byte[] rgbKey) throws CoseException {
+		// validate key
+		if (rgbKey.length != alg.getKeySize() / 8) {
+			throw new CoseException("Key Size is incorrect");
+		}
+
+		try {
+			Cipher cipher = CipherManager.getInstance(CCMBlockCipher.CIPHER_NAME);
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(rgbKey, "AES"));
+			return cipher;
+		} catch (NoSuchAlgorithmException ex) {
+			throw new CoseException("Algorithm not supported", ex);
+		} catch (InvalidKeyException ex) {
+			if ("Illegal key size".equals(ex.getMessage())) {
+				throw new CoseException("Unsupported key size", ex);
+			}
+			throw new CoseException("Invalid key", ex);
+		} catch (GeneralSecurityException ex) {
+			throw new CoseException("Cipher not supported", ex);
+		}
+	}
+
 	private int getAES_CCM_IVSize(AlgorithmID alg) throws CoseException {
 		switch (alg) {
 		case AES_CCM_16_64_128:
+		case AES_CCM_16_64_256:
+		case AES_CCM_16_128_128:
+		case AES_CCM_16_128_256:
 			return AES_CCM_16_IV_LENGTH;
+		case AES_CCM_64_64_128:
+		case AES_CCM_64_64_256:
+		case AES_CCM_64_128_128:
+		case AES_CCM_64_128_256:
+			return AES_CCM_64_IV_LENGTH;
 		default:
 			throw new CoseException("Unsupported Algorithm Specified");
 		}
 	}
 	
 	//Method taken from EncryptCommon in COSE. This will provide the full AAD / Encrypt0-structure.
+	//Modified to encode the structure directly, if there are no protected attributes.
     private byte[] getAADBytes() {
+        if (objProtected.size() == 0) {
+            byte[] contextBytes = ENCRYPT0.equals(context) ? ENCRYPT0_BYTES : context.getBytes(StandardCharsets.UTF_8);
+            byte[] aad = new byte[1 + CBOREncoder.headLength(contextBytes.length) + contextBytes.length + 1
+                    + CBOREncoder.byteStringLength(externalData.length)];
+            aad[0] = (byte) (CBOREncoder.ARRAY << 5 | 3);
+            int offset = CBOREncoder.writeHead(CBOREncoder.TEXT_STRING, contextBytes.length, aad, 1);
+            System.arraycopy(contextBytes, 0, aad, offset, contextBytes.length);
+            offset += contextBytes.length;
+            // empty protected attributes
+            aad[offset++] = (byte) (CBOREncoder.BYTE_STRING << 5);
+            CBOREncoder.writeByteString(externalData, aad, offset);
+            return aad;
+        }
+
         CBORObject obj = CBORObject.NewArray();
         
         obj.Add(context);
         
-        if (objProtected.size() == 0) {
-        	obj.Add(CBORObject.FromObject(new byte[0]));
-        } else {
-        	obj.Add(objProtected.EncodeToBytes());
-        }
+        obj.Add(objProtected.EncodeToBytes());
         
         obj.Add(CBORObject.FromObject(externalData));
         
         return obj.EncodeToBytes();
     }
 
-	private void AES_CCM_Decrypt(AlgorithmID alg, byte[] rgbKey) throws CoseException, IllegalStateException {
-		// validate key
-		if (rgbKey.length != alg.getKeySize() / 8) {
-			throw new CoseException("Key Size is incorrect");
-		}
-
+	private void AES_CCM_Decrypt(AlgorithmID alg, Cipher cipher) throws CoseException, IllegalStateException {
 		// obtain and validate IV
 		final int ivLen = getAES_CCM_IVSize(alg);
 		CBORObject iv = findAttribute(HeaderKeys.IV);
@@ -140,36 +291,24 @@ public abstract class EncryptCommon extends Message {
 		}
 
 		//Modified to use the full AAD here rather than just the external AAD
-		//Tag length (last parameter) was also changed to 8 from 0
+		//Tag length (last parameter) was also changed from 0 to the tag size of the algorithm
 		byte[] aad = getAADBytes();
 		
 		try {
-			rgbContent = CCMBlockCipher.decrypt(new SecretKeySpec(rgbKey, "AES"), iv.GetByteString(), aad, getEncryptedContent(), 8);
-		} catch (NoSuchAlgorithmException ex) {
-			throw new CoseException("Algorithm not supported", ex);
-		} catch (InvalidKeyException ex) {
-			if (ex.getMessage().equals("Illegal key size")) {
-				throw new CoseException("Unsupported key size", ex);
-			}
-			throw new CoseException("Decryption failure", ex);
+			rgbContent = CCMBlockCipher.decrypt(cipher, iv.GetByteString(), aad, getEncryptedContent(),
+					alg.getTagSize() / 8);
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			throw new CoseException("Decryption failure", ex);
 		}
 	}
 
-	private void AES_CCM_Encrypt(AlgorithmID alg, byte[] rgbKey) throws CoseException, IllegalStateException {
-		SecureRandom random = new SecureRandom();
-
-		// validate key
-		if (rgbKey.length != alg.getKeySize() / 8) {
-			throw new CoseException("Key Size is incorrect");
-		}
-
+	private void AES_CCM_Encrypt(AlgorithmID alg, Cipher cipher) throws CoseException, IllegalStateException {
 		// obtain and validate iv
 		CBORObject iv = findAttribute(HeaderKeys.IV);
 		int ivLen = getAES_CCM_IVSize(alg);
 		if (iv == null) {
+			SecureRandom random = new SecureRandom();
 			byte[] tmp = new byte[ivLen];
 			random.nextBytes(tmp);
 			iv = CBORObject.FromObject(tmp);
@@ -184,11 +323,80 @@ public abstract class EncryptCommon extends Message {
 		}
 		
 		//Modified to use the full AAD here rather than just the external AAD
-		//Tag length (last parameter) was also changed to 8 from 0
+		//Tag length (last parameter) was also changed from 0 to the tag size of the algorithm
 		byte[] aad = getAADBytes();
 		
 		try {
-			rgbEncrypt = CCMBlockCipher.encrypt(new SecretKeySpec(rgbKey, "AES"), iv.GetByteString(), aad, GetContent(), 8);
+			rgbEncrypt = CCMBlockCipher.encrypt(cipher, iv.GetByteString(), aad, GetContent(), alg.getTagSize() / 8);
+		} catch (Exception ex) {
+			throw new CoseException("Encryption failure", ex);
+		}
+	}
+
+	private void AES_GCM_Decrypt(AlgorithmID alg, byte[] rgbKey) throws CoseException, IllegalStateException {
+		// validate key
+		if (rgbKey.length != alg.getKeySize() / 8) {
+			throw new CoseException("Key Size is incorrect");
+		}
+
+		// obtain and validate IV
+		CBORObject iv = findAttribute(HeaderKeys.IV);
+		if (iv == null) {
+			throw new CoseException("Missing IV during decryption");
+		}
+		if (iv.getType() != CBORType.ByteString) {
+			throw new CoseException("IV is incorrectly formed");
+		}
+		if (iv.GetByteString().length != AES_GCM_IV_LENGTH) {
+			throw new CoseException("IV size is incorrect");
+		}
+
+		byte[] aad = getAADBytes();
+
+		try {
+			Cipher cipher = CipherManager.getInstance(AES_GCM);
+			cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(rgbKey, "AES"),
+					new GCMParameterSpec(alg.getTagSize(), iv.GetByteString()));
+			cipher.updateAAD(aad);
+			rgbContent = cipher.doFinal(getEncryptedContent());
+		} catch (NoSuchAlgorithmException ex) {
+			throw new CoseException("Algorithm not supported", ex);
+		} catch (Exception ex) {
+			throw new CoseException("Decryption failure", ex);
+		}
+	}
+
+	private void AES_GCM_Encrypt(AlgorithmID alg, byte[] rgbKey) throws CoseException, IllegalStateException {
+		// validate key
+		if (rgbKey.length != alg.getKeySize() / 8) {
+			throw new CoseException("Key Size is incorrect");
+		}
+
+		// obtain and validate iv
+		CBORObject iv = findAttribute(HeaderKeys.IV);
+		if (iv == null) {
+			SecureRandom random = new SecureRandom();
+			byte[] tmp = new byte[AES_GCM_IV_LENGTH];
+			random.nextBytes(tmp);
+			iv = CBORObject.FromObject(tmp);
+			addAttribute(HeaderKeys.IV, iv, Attribute.UNPROTECTED);
+		} else {
+			if (iv.getType() != CBORType.ByteString) {
+				throw new CoseException("IV is incorreclty formed.");
+			}
+			if (iv.GetByteString().length != AES_GCM_IV_LENGTH) {
+				throw new CoseException("IV size is incorrect.");
+			}
+		}
+
+		byte[] aad = getAADBytes();
+
+		try {
+			Cipher cipher = CipherManager.getInstance(AES_GCM);
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(rgbKey, "AES"),
+					new GCMParameterSpec(alg.getTagSize(), iv.GetByteString()));
+			cipher.updateAAD(aad);
+			rgbEncrypt = cipher.doFinal(GetContent());
 		} catch (NoSuchAlgorithmException ex) {
 			throw new CoseException("Algorithm not supported", ex);
 		} catch (Exception ex) {
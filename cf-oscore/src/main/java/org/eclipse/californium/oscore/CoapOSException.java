@@ -38,7 +38,18 @@ public class CoapOSException extends OSException {
 	 * @param message the message
 	 */
 	public CoapOSException(String message, ResponseCode coapResponseCode) {
-		super(message);
+		this(message, coapResponseCode, Reason.UNSPECIFIED);
+	}
+
+	/**
+	 * Constructor, sets the error message, the coapReponseCode and the reason
+	 * 
+	 * @param message the message
+	 * @param coapResponseCode the response code
+	 * @param reason the reason of the failure
+	 */
+	public CoapOSException(String message, ResponseCode coapResponseCode, Reason reason) {
+		super(message, reason);
 		this.responseCode = coapResponseCode;
 	}
 
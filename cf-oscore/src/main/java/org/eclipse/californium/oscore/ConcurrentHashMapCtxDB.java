@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eclipse.californium.core.coap.Token;
+
+/**
+ *
+ * Implements the OSCoreCtxDB interface with ConcurrentHashMaps.
+ *
+ * Lookups never block. Updates only lock the bin of the affected key, so
+ * endpoints serving many peers don't serialize on a single monitor as with
+ * {@link HashMapCtxDB}.
+ *
+ * The context and sequence number associated with a token are kept in one
+ * immutable {@link TokenEntry}, which is exchanged atomically. A token
+ * therefore exists as long as it has an entry, even if both, context and
+ * sequence number, have been removed by {@link #removeToken(Token)}.
+ *
+ */
+public class ConcurrentHashMapCtxDB implements OSCoreCtxDB {
+
+	/**
+	 * The logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentHashMapCtxDB.class.getName());
+
+	/**
+	 * Default initial capacity of the maps.
+	 */
+	private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+	/**
+	 * Default number of concurrently updating threads.
+	 */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 32;
+
+	private final ContextIndex contextIndex;
+	private final ConcurrentMap<String, OSCoreCtx> uriMap;
+	private final ConcurrentMap<Token, TokenEntry> tokenMap;
+	private final NormalizedUriCache normalizedUris;
+
+	/**
+	 * Create the database with default capacity and concurrency level.
+	 */
+	public ConcurrentHashMapCtxDB() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Create the database.
+	 *
+	 * @param initialCapacity the initial capacity of the maps
+	 * @param concurrencyLevel the estimated number of concurrently updating
+	 *            threads
+	 */
+	public ConcurrentHashMapCtxDB(int initialCapacity, int concurrencyLevel) {
+		this.contextIndex = new ContextIndex(initialCapacity);
+		this.uriMap = new ConcurrentHashMap<String, OSCoreCtx>(initialCapacity, 0.75f, concurrencyLevel);
+		this.tokenMap = new ConcurrentHashMap<Token, TokenEntry>(initialCapacity, 0.75f, concurrencyLevel);
+		this.normalizedUris = new NormalizedUriCache();
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] rid) {
+		if (rid != null) {
+			// the index is thread-safe on its own
+			return contextIndex.getByRecipientId(rid, 0, rid.length);
+		} else {
+			LOGGER.error(ErrorDescriptions.BYTE_ARRAY_NULL);
+			throw new NullPointerException(ErrorDescriptions.BYTE_ARRAY_NULL);
+		}
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] rid, byte[] IDContext) {
+		if (rid != null) {
+			// the index is thread-safe on its own
+			return contextIndex.get(rid, IDContext);
+		} else {
+			LOGGER.error(ErrorDescriptions.BYTE_ARRAY_NULL);
+			throw new NullPointerException(ErrorDescriptions.BYTE_ARRAY_NULL);
+		}
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] rid, int ridOffset, int ridLength, byte[] IDContext, int IDContextOffset,
+			int IDContextLength) {
+		if (rid != null) {
+			if (IDContext == null) {
+				return contextIndex.getByRecipientId(rid, ridOffset, ridLength);
+			}
+			return contextIndex.get(rid, ridOffset, ridLength, IDContext, IDContextOffset, IDContextLength);
+		} else {
+			LOGGER.error(ErrorDescriptions.BYTE_ARRAY_NULL);
+			throw new NullPointerException(ErrorDescriptions.BYTE_ARRAY_NULL);
+		}
+	}
+
+	@Override
+	public OSCoreCtx getContextByToken(Token token) {
+		if (token != null) {
+			TokenEntry entry = tokenMap.get(token);
+			return entry == null ? null : entry.ctx;
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public OSCoreCtx getContext(String uri) throws OSException {
+		if (uri != null) {
+			return uriMap.get(uriKey(uri));
+		} else {
+			LOGGER.error(ErrorDescriptions.STRING_NULL);
+			throw new NullPointerException(ErrorDescriptions.STRING_NULL);
+		}
+	}
+
+	@Override
+	public void addContext(Token token, OSCoreCtx ctx) {
+		if (token != null) {
+			while (true) {
+				TokenEntry entry = tokenMap.get(token);
+				if (entry == null) {
+					if (tokenMap.putIfAbsent(token, new TokenEntry(ctx, null)) == null) {
+						break;
+					}
+				} else if (tokenMap.replace(token, entry, new TokenEntry(ctx, entry.seq))) {
+					break;
+				}
+			}
+		}
+		addContext(ctx);
+	}
+
+	@Override
+	public void addContext(String uri, OSCoreCtx ctx) throws OSException {
+		if (uri != null) {
+			uriMap.put(uriKey(uri), ctx);
+		}
+		addContext(ctx);
+	}
+
+	@Override
+	public void addContext(OSCoreCtx ctx) {
+		if (ctx != null) {
+			contextIndex.put(ctx);
+		} else {
+			LOGGER.error(ErrorDescriptions.CONTEXT_NULL);
+			throw new NullPointerException(ErrorDescriptions.CONTEXT_NULL);
+		}
+	}
+
+	@Override
+	public List<OSCoreCtx> addContexts(Iterable<OSCoreCtxParameters> parameters) throws OSException {
+		// derive the keys before updating the map
+		List<OSCoreCtx> contexts = OSCoreCtxProvisioner.createContexts(parameters);
+		for (OSCoreCtx ctx : contexts) {
+			addContext(ctx);
+		}
+		return contexts;
+	}
+
+	@Override
+	public Integer getSeqByToken(Token token) {
+		if (token != null) {
+			TokenEntry entry = tokenMap.get(token);
+			return entry == null ? null : entry.seq;
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public void addSeqByToken(Token token, Integer seq) {
+		if (seq == null || seq < 0) {
+			throw new NullPointerException(ErrorDescriptions.SEQ_NBR_INVALID);
+		}
+		if (token == null) {
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+		while (true) {
+			TokenEntry entry = tokenMap.get(token);
+			if (entry == null) {
+				if (tokenMap.putIfAbsent(token, new TokenEntry(null, seq)) == null) {
+					break;
+				}
+			} else if (tokenMap.replace(token, entry, new TokenEntry(entry.ctx, seq))) {
+				LOGGER.debug("Token exists, but this could be a refresh if not there is a problem");
+				break;
+			}
+		}
+	}
+
+	@Override
+	public boolean tokenExist(Token token) {
+		if (token != null) {
+			return tokenMap.containsKey(token);
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public void removeSeqByToken(Token token) {
+		if (token != null) {
+			while (true) {
+				TokenEntry entry = tokenMap.get(token);
+				if (entry == null) {
+					break;
+				} else if (entry.ctx == null) {
+					// neither context nor sequence number left
+					if (tokenMap.remove(token, entry)) {
+						break;
+					}
+				} else if (tokenMap.replace(token, entry, new TokenEntry(entry.ctx, null))) {
+					break;
+				}
+			}
+		} else {
+			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
+			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
+		}
+	}
+
+	@Override
+	public void updateSeqByToken(Token token, Integer seq) {
+		if (tokenExist(token)) {
+			addSeqByToken(token, seq);
+		}
+	}
+
+	/**
+	 * Get the key of the uri map. URIs without host normalize to
+	 * {@code null}, which is mapped to an empty string, since the
+	 * ConcurrentHashMap doesn't support {@code null} keys.
+	 * 
+	 * @param uri the request uri
+	 * @return the normalized uri
+	 * @throws OSException if the uri is malformed
+	 */
+	private String uriKey(String uri) throws OSException {
+		String normalized = normalizedUris.normalize(uri);
+		return normalized == null ? "" : normalized;
+	}
+
+	/**
+	 * Removes associations for this token, except for the generator
+	 *
+	 * @param token
+	 */
+	@Override
+	public void removeToken(Token token) {
+		while (true) {
+			TokenEntry entry = tokenMap.get(token);
+			if (entry == null || entry == TokenEntry.EMPTY) {
+				break;
+			} else if (tokenMap.replace(token, entry, TokenEntry.EMPTY)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Used mainly for test purpose, to purge the db of all contexts
+	 */
+	@Override
+	public void purge() {
+		contextIndex.clear();
+		tokenMap.clear();
+		uriMap.clear();
+		normalizedUris.clear();
+	}
+
+	/**
+	 * Immutable association of a token with the context and the sequence
+	 * number of the request it was sent with. Compared by identity, so that
+	 * {@link ConcurrentMap#replace(Object, Object, Object)} only succeeds for
+	 * the entry read before.
+	 */
+	private static final class TokenEntry {
+
+		private static final TokenEntry EMPTY = new TokenEntry(null, null);
+
+		private final OSCoreCtx ctx;
+		private final Integer seq;
+
+		private TokenEntry(OSCoreCtx ctx, Integer seq) {
+			this.ctx = ctx;
+			this.seq = seq;
+		}
+	}
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ *
+ * Index of OSCORE contexts by ID context and recipient id.
+ *
+ * Recipient ids may be reused with different ID contexts, so both together
+ * identify a context. The index is an open addressing hash table with
+ * linear probing, which keeps a 64 bit hash of the ID context and recipient
+ * id as primitive key. A lookup therefore doesn't create key objects and
+ * usually resolves the context with one probe.
+ *
+ * For requests without kid context, the contexts are indexed by the
+ * recipient id only as well. If recipient ids are reused, that's the last
+ * added context of the recipient id.
+ *
+ * Lookups are lock-free. Updates are synchronized, so both views are
+ * updated together.
+ *
+ */
+public final class ContextIndex {
+
+	private static final int MIN_CAPACITY = 16;
+
+	/**
+	 * Current table. Replaced, when the table grows or is cleared.
+	 */
+	private volatile Table table;
+
+	/**
+	 * Current table by recipient id only. Replaced, when the table grows or
+	 * is cleared.
+	 */
+	private volatile Table ridTable;
+
+	/**
+	 * Number of contexts. Guarded by this.
+	 */
+	private int size;
+
+	/**
+	 * Number of recipient ids. Guarded by this.
+	 */
+	private int ridSize;
+
+	/**
+	 * Create the index.
+	 */
+	public ContextIndex() {
+		this(MIN_CAPACITY / 2);
+	}
+
+	/**
+	 * Create the index for the expected number of contexts.
+	 * 
+	 * @param expectedSize the expected number of contexts
+	 */
+	public ContextIndex(int expectedSize) {
+		this.table = new Table(capacity(expectedSize));
+		this.ridTable = new Table(capacity(expectedSize));
+	}
+
+	/**
+	 * Get the context.
+	 * 
+	 * @param rid the recipient id
+	 * @param idContext the ID context, or {@code null} for contexts without
+	 *            ID context
+	 * @return the context, or {@code null}, if not available
+	 */
+	public OSCoreCtx get(byte[] rid, byte[] idContext) {
+		if (idContext == null) {
+			return get(rid, 0, rid.length, null, -1, 0);
+		} else {
+			return get(rid, 0, rid.length, idContext, 0, idContext.length);
+		}
+	}
+
+	/**
+	 * Get the context by ranges of byte arrays, e.g. of a received OSCORE
+	 * option, without copying them.
+	 * 
+	 * @param rid byte array with the recipient id
+	 * @param ridOffset offset of the recipient id
+	 * @param ridLength length of the recipient id
+	 * @param idContext byte array with the ID context
+	 * @param idContextOffset offset of the ID context. Negative for contexts
+	 *            without ID context.
+	 * @param idContextLength length of the ID context
+	 * @return the context, or {@code null}, if not available
+	 */
+	public OSCoreCtx get(byte[] rid, int ridOffset, int ridLength, byte[] idContext, int idContextOffset,
+			int idContextLength) {
+		long hash = hash(rid, ridOffset, ridLength, idContext, idContextOffset, idContextLength);
+		return find(table, hash, rid, ridOffset, ridLength, idContext, idContextOffset, idContextLength, false);
+	}
+
+	/**
+	 * Get the last added context of the recipient id, regardless of its ID
+	 * context.
+	 * 
+	 * @param rid byte array with the recipient id
+	 * @param ridOffset offset of the recipient id
+	 * @param ridLength length of the recipient id
+	 * @return the context, or {@code null}, if not available
+	 */
+	public OSCoreCtx getByRecipientId(byte[] rid, int ridOffset, int ridLength) {
+		long hash = hash(rid, ridOffset, ridLength, null, -1, 0);
+		return find(ridTable, hash, rid, ridOffset, ridLength, null, -1, 0, true);
+	}
+
+	/**
+	 * Add the context. Replaces a context with the same ID context and
+	 * recipient id.
+	 * 
+	 * @param ctx the context
+	 * @return the replaced context, or {@code null}, if not available
+	 */
+	public synchronized OSCoreCtx put(OSCoreCtx ctx) {
+		byte[] rid = ctx.getRecipientId();
+		byte[] idContext = ctx.getIdContext();
+		int idContextOffset = idContext == null ? -1 : 0;
+		int idContextLength = idContext == null ? 0 : idContext.length;
+		long hash = hash(rid, 0, rid.length, idContext, idContextOffset, idContextLength);
+		OSCoreCtx previous = replace(table, hash, ctx, idContext, idContextOffset, idContextLength, false);
+		if (previous == null) {
+			if ((size + 1) * 2 > table.values.length()) {
+				table = table.resize();
+			}
+			table.insert(hash, ctx);
+			++size;
+		}
+		long ridHash = hash(rid, 0, rid.length, null, -1, 0);
+		if (replace(ridTable, ridHash, ctx, null, -1, 0, true) == null) {
+			if ((ridSize + 1) * 2 > ridTable.values.length()) {
+				ridTable = ridTable.resize();
+			}
+			ridTable.insert(ridHash, ctx);
+			++ridSize;
+		}
+		return previous;
+	}
+
+	/**
+	 * Remove all contexts.
+	 */
+	public synchronized void clear() {
+		table = new Table(MIN_CAPACITY);
+		ridTable = new Table(MIN_CAPACITY);
+		size = 0;
+		ridSize = 0;
+	}
+
+	/**
+	 * @return the number of contexts
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	private static int capacity(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2 && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Find the context in the table.
+	 * 
+	 * @param anyIdContext {@code true}, to match the recipient id only
+	 */
+	private static OSCoreCtx find(Table current, long hash, byte[] rid, int ridOffset, int ridLength,
+			byte[] idContext, int idContextOffset, int idContextLength, boolean anyIdContext) {
+		int index = (int) hash & current.mask;
+		while (true) {
+			// the volatile read of the value makes the key visible
+			OSCoreCtx ctx = current.values.get(index);
+			if (ctx == null) {
+				return null;
+			}
+			if (current.keys[index] == hash && matches(ctx, rid, ridOffset, ridLength, idContext, idContextOffset,
+					idContextLength, anyIdContext)) {
+				return ctx;
+			}
+			index = (index + 1) & current.mask;
+		}
+	}
+
+	/**
+	 * Replace the matching context in the table.
+	 * 
+	 * @param anyIdContext {@code true}, to match the recipient id only
+	 * @return the replaced context, or {@code null}, if not available
+	 */
+	private static OSCoreCtx replace(Table current, long hash, OSCoreCtx ctx, byte[] idContext,
+			int idContextOffset, int idContextLength, boolean anyIdContext) {
+		byte[] rid = ctx.getRecipientId();
+		int index = (int) hash & current.mask;
+		while (true) {
+			OSCoreCtx previous = current.values.get(index);
+			if (previous == null) {
+				return null;
+			}
+			if (current.keys[index] == hash && matches(previous, rid, 0, rid.length, idContext, idContextOffset,
+					idContextLength, anyIdContext)) {
+				current.values.set(index, ctx);
+				return previous;
+			}
+			index = (index + 1) & current.mask;
+		}
+	}
+
+	private static boolean matches(OSCoreCtx ctx, byte[] rid, int ridOffset, int ridLength, byte[] idContext,
+			int idContextOffset, int idContextLength, boolean anyIdContext) {
+		if (!anyIdContext) {
+			byte[] ctxIdContext = ctx.getIdContext();
+			if (idContextOffset < 0) {
+				if (ctxIdContext != null) {
+					return false;
+				}
+			} else if (ctxIdContext == null || !equals(ctxIdContext, idContext, idContextOffset, idContextLength)) {
+				return false;
+			}
+		}
+		return equals(ctx.getRecipientId(), rid, ridOffset, ridLength);
+	}
+
+	private static boolean equals(byte[] value, byte[] data, int offset, int length) {
+		if (value.length != length) {
+			return false;
+		}
+		for (int index = 0; index < length; ++index) {
+			if (value[index] != data[offset + index]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hash the ID context and recipient id. FNV-1a with a final mix of the
+	 * bits, so that the lower bits are usable as index.
+	 */
+	private static long hash(byte[] rid, int ridOffset, int ridLength, byte[] idContext, int idContextOffset,
+			int idContextLength) {
+		long hash = 0xcbf29ce484222325L;
+		if (idContextOffset < 0) {
+			hash = (hash ^ 0x1ff) * 0x100000001b3L;
+		} else {
+			hash = (hash ^ idContextLength) * 0x100000001b3L;
+			for (int index = 0; index < idContextLength; ++index) {
+				hash = (hash ^ (idContext[idContextOffset + index] & 0xff)) * 0x100000001b3L;
+			}
+		}
+		for (int index = 0; index < ridLength; ++index) {
+			hash = (hash ^ (rid[ridOffset + index] & 0xff)) * 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Hash table. Slots are only added, never removed.
+	 */
+	private static final class Table {
+
+		private final long[] keys;
+		private final AtomicReferenceArray<OSCoreCtx> values;
+		private final int mask;
+
+		private Table(int capacity) {
+			this.keys = new long[capacity];
+			this.values = new AtomicReferenceArray<OSCoreCtx>(capacity);
+			this.mask = capacity - 1;
+		}
+
+		/**
+		 * Insert into a free slot. The key is written before the value is
+		 * published.
+		 */
+		private void insert(long hash, OSCoreCtx ctx) {
+			int index = (int) hash & mask;
+			while (values.get(index) != null) {
+				index = (index + 1) & mask;
+			}
+			keys[index] = hash;
+			values.set(index, ctx);
+		}
+
+		private Table resize() {
+			Table larger = new Table(values.length() * 2);
+			for (int index = 0; index < keys.length; ++index) {
+				OSCoreCtx ctx = values.get(index);
+				if (ctx != null) {
+					larger.insert(keys[index], ctx);
+				}
+			}
+			return larger;
+		}
+	}
+}
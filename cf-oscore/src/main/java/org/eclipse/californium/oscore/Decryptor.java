@@ -19,7 +19,6 @@
  ******************************************************************************/
 package org.eclipse.californium.oscore;
 
-import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.slf4j.Logger;
@@ -29,13 +28,7 @@ import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Message;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
-import org.eclipse.californium.cose.Encrypt0Message;
-
-import com.upokecenter.cbor.CBORObject;
-
-import org.eclipse.californium.cose.Attribute;
-import org.eclipse.californium.cose.CoseException;
-import org.eclipse.californium.cose.HeaderKeys;
+import org.eclipse.californium.elements.util.StringUtil;
 
 /**
  * 
@@ -62,7 +55,8 @@ public abstract class Decryptor {
 	/**
 	 * Decrypts and decodes the message.
 	 * 
-	 * @param enc the COSE structure
+	 * @param option the decoded OSCORE option
+	 * @param cipherText the encrypted data
 	 * @param message the message
 	 * @param ctx the OSCore context
 	 * @param seqByToken the sequence number
@@ -71,33 +65,29 @@ public abstract class Decryptor {
 	 *
 	 * @throws OSException if decryption or decoding fails
 	 */
-	protected static byte[] decryptAndDecode(Encrypt0Message enc, Message message, OSCoreCtx ctx, Integer seqByToken)
-			throws OSException {
+	protected static byte[] decryptAndDecode(DecodedOption option, byte[] cipherText, Message message, OSCoreCtx ctx,
+			Integer seqByToken) throws OSException {
 		int seq = -2;
 		boolean isRequest = message instanceof Request;
-		byte[] nonce = null;
-		byte[] partialIV = null;
+		byte[] nonce = new byte[ctx.getIVLength()];
 		byte[] aad = null;
 
 		if (isRequest) {
 
-			CBORObject piv = enc.findAttribute(HeaderKeys.PARTIAL_IV);
-
-			if (piv == null) {
+			if (!option.hasPartialIV()) {
 				LOGGER.error("Decryption failed: no partialIV in request");
 				throw new OSException(ErrorDescriptions.DECRYPTION_FAILED);
 			} else {
 
-				partialIV = piv.GetByteString();
-				partialIV = expandToIntSize(partialIV);
-				seq = ByteBuffer.wrap(partialIV).getInt();
+				seq = option.readPartialIV();
 				
-				//Note that the code below can throw an OSException when replays are detected
-				ctx.checkIncomingSeq(seq);
+				//Note that the code below can throw an OSException when replays are detected.
+				//The replay window is only updated after successful decryption.
+				ctx.verifyIncomingSeq(seq);
 
-				nonce = OSSerializer.nonceGeneration(partialIV, ctx.getRecipientId(), ctx.getCommonIV(),
-						ctx.getIVLength());
-				aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), seq, ctx.getRecipientId(), message.getOptions());
+				OSSerializer.nonceGeneration(seq, ctx.getRecipientNonceBase(), nonce);
+				aad = OSSerializer.serializeEncStructure(CoAP.VERSION, ctx.getAlg(), seq, ctx.getRecipientId(),
+						message.getOptions());
 			}
 		} else {
 			if (seqByToken == null) {
@@ -105,99 +95,37 @@ public abstract class Decryptor {
 				throw new OSException(ErrorDescriptions.DECRYPTION_FAILED);
 			}
 
-			CBORObject piv = enc.findAttribute(HeaderKeys.PARTIAL_IV);
-		
 			//Sequence number taken from original request
 			seq = seqByToken;
 			
-			if (piv == null) {
+			if (!option.hasPartialIV()) {
 				//Use the partialIV that arrived in the original request (response has no partial IV)
-				
-				partialIV = ByteBuffer.allocate(INTEGER_BYTES).putInt(seq).array();
-				nonce = OSSerializer.nonceGeneration(partialIV,	ctx.getSenderId(), ctx.getCommonIV(), 
-						ctx.getIVLength());
+				OSSerializer.nonceGeneration(seq, ctx.getSenderNonceBase(), nonce);
 			} else {
 				//Since the response contains a partial IV use it for nonce calculation
-				
-				partialIV = piv.GetByteString();
-				partialIV = expandToIntSize(partialIV);
-				nonce = OSSerializer.nonceGeneration(partialIV, ctx.getRecipientId(), ctx.getCommonIV(),
-						ctx.getIVLength());
+				OSSerializer.nonceGeneration(option.readPartialIV(), ctx.getRecipientNonceBase(), nonce);
 			}
 			
 			//Nonce calculation uses partial IV in response (if present).
 			//AAD calculation always uses partial IV (seq. nr.) of original request.  
-			aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), seq, ctx.getSenderId(), message.getOptions());
-		}
-
-		byte[] plaintext = null;
-		byte[] key = ctx.getRecipientKey();
-
-		enc.setExternal(aad);
-			
-		try {
-
-			enc.addAttribute(HeaderKeys.Algorithm, ctx.getAlg().AsCBOR(), Attribute.DO_NOT_SEND);
-			enc.addAttribute(HeaderKeys.IV, CBORObject.FromObject(nonce), Attribute.DO_NOT_SEND);
-			plaintext = enc.decrypt(key);
-
-		} catch (CoseException e) {
-			LOGGER.error(ErrorDescriptions.DECRYPTION_FAILED + " " + e.getMessage());
-			throw new OSException(ErrorDescriptions.DECRYPTION_FAILED + " " + e.getMessage());
-		}
-
-		return plaintext;
-	}
-
-	/**
-	 * @param partialIV partial IV to expand
-	 * @return partial IV as byte array length of int
-	 * 
-	 * @throws OSException if the partial IV is longer than length of int
-	 */
-	private static byte[] expandToIntSize(byte[] partialIV) throws OSException {
-		if (partialIV.length > INTEGER_BYTES) {
-			LOGGER.error("The partial IV is: " + partialIV.length + " long, " + INTEGER_BYTES + " was expected");
-			throw new OSException("Partial IV too long");
-		} else if (partialIV.length == INTEGER_BYTES) {
-			return partialIV;
-		}
-		byte[] ret = new byte[INTEGER_BYTES];
-		for (int i = 0; i < partialIV.length; i++) {
-			ret[INTEGER_BYTES - partialIV.length + i] = partialIV[i];
+			aad = OSSerializer.serializeEncStructure(CoAP.VERSION, ctx.getAlg(), seq, ctx.getSenderId(),
+					message.getOptions());
 		}
-		return ret;
 
-	}
-
-	/**
-	 * @param protectedData the protected data to decrypt
-	 * @return the COSE structure
-	 */
-	protected static Encrypt0Message prepareCOSEStructure(byte[] protectedData) {
-		Encrypt0Message enc = new Encrypt0Message(false, true);
-		try {
-			enc.DecodeFromCBORObject(CBORObject.DecodeFromBytes(protectedData));
-		} catch (CoseException e) {
-			e.printStackTrace();
-		}
-		return enc;
+		return OSCoreEngine.decrypt(ctx, nonce, aad, cipherText);
 	}
 
 	/**
 	 * Decompress the message.
 	 * 
-	 * @param cipherText the encrypted data
 	 * @param message the received message
-	 * @return the Encrypt0Message
+	 * @return the decoded OSCORE option
 	 * @throws OSException if OSCORE option fails to decode
 	 */
-	protected static Encrypt0Message decompression(byte[] cipherText, Message message) throws OSException {
-		Encrypt0Message enc = new Encrypt0Message(false, true);
-
+	protected static DecodedOption decompression(Message message) throws OSException {
 		//Added try-catch for general Exception. The array manipulation can cause exceptions.
 		try {
-			decodeObjectSecurity(message, enc);
+			return decodeObjectSecurity(message.getOptions().getOscore(), message instanceof Request);
 		} catch (OSException e) {
 			LOGGER.error(e.getMessage());
 			throw e;
@@ -205,99 +133,107 @@ public abstract class Decryptor {
 			LOGGER.error("Failed to decode object security option.");
 			throw new OSException("Failed to decode object security option.");
 		}
-
-		if (cipherText != null)
-			enc.setEncryptedContent(cipherText);
-		return enc;
 	}
 
 	/**
-	 * Decodes the Object-Security value.
+	 * Decodes the Object-Security value in a single pass. The returned view
+	 * refers to the fields by their offsets in the option value instead of
+	 * copying them.
 	 * 
-	 * @param message the received message
-	 * @param enc the Encrypt0Message object
+	 * See https://tools.ietf.org/html/rfc8613#section-6.1
+	 * 
+	 * @param total the value of the OSCORE option
+	 * @param request {@code true}, if the option is from a request, which
+	 *            requires the kid
+	 * @return the decoded OSCORE option
 	 * @throws OSException if OSCORE option fails to decode
 	 */
-	private static void decodeObjectSecurity(Message message, Encrypt0Message enc) throws OSException {
-		byte[] total = message.getOptions().getOscore();
-
+	protected static DecodedOption decodeObjectSecurity(byte[] total, boolean request) throws OSException {
 		/**
 		 * If the OSCORE option value is a zero length byte array
 		 * it represents a byte array of length 1 with a byte 0x00
 		 * See https://tools.ietf.org/html/draft-ietf-core-object-security-16#section-2  
 		 */
-		if(total.length == 0) {
-			total = new byte[] { 0x00 };
+		if (total.length == 0) {
+			if (request) {
+				LOGGER.error("Kid is missing from message when it is expected.");
+				throw new OSException(ErrorDescriptions.FAILED_TO_DECODE_COSE);
+			}
+			return new DecodedOption(total, 1, 0, -1, 0, -1);
 		}
-		
+
 		byte flagByte = total[0];
 
 		int n = flagByte & 0x07;
 		int k = flagByte & 0x08;
 		int h = flagByte & 0x10;
 
-		byte[] partialIV = null;
-		byte[] kid = null;
-		byte[] contextID = null;
+		int kidContextOffset = -1;
+		int kidContextLength = 0;
+		int kidOffset = -1;
 		int index = 1;
 
 		//Parsing Partial IV
 		if (n > 0) {
-			try {
-				partialIV = Arrays.copyOfRange(total, index, index + n);
-				index += n;
-			} catch (Exception e) {
+			if (n > 5 || index + n > total.length) {
+				// n = 6 and n = 7 are reserved
 				LOGGER.error("Partial_IV is missing from message when it is expected.");
 				throw new OSException(ErrorDescriptions.FAILED_TO_DECODE_COSE);
 			}
+			index += n;
 		}
 
 		//Parsing KID Context
 		if (h != 0) {
-			int s = total[index];
-
-			contextID = Arrays.copyOfRange(total, index + 1, index + 1 + s);
-
-			index += s + 1;
-
-			if (s > 0) {
-				System.out.print("Received KID Context: 0x");
-				for(int i = 0 ; i < contextID.length ; i++) {
-					System.out.print(String.format("%02X", contextID[i])); }
-				System.out.println("");
-			} else {
+			int s = index < total.length ? total[index] & 0xff : 0;
+			if (s == 0 || index + 1 + s > total.length) {
 				LOGGER.error("Kid context is missing from message when it is expected.");
 				throw new OSException(ErrorDescriptions.FAILED_TO_DECODE_COSE);
 			}
+			kidContextOffset = index + 1;
+			kidContextLength = s;
+			index += s + 1;
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Received KID Context: 0x" + StringUtil.byteArray2Hex(
+						Arrays.copyOfRange(total, kidContextOffset, kidContextOffset + kidContextLength)));
+			}
 		}
 
 		//Parsing KID
 		if (k != 0) {
-			kid = Arrays.copyOfRange(total, index, total.length);
-		} else {
-			if (message instanceof Request) {
-				LOGGER.error("Kid is missing from message when it is expected.");
-				throw new OSException(ErrorDescriptions.FAILED_TO_DECODE_COSE);
-			}
+			kidOffset = index;
+		} else if (request) {
+			LOGGER.error("Kid is missing from message when it is expected.");
+			throw new OSException(ErrorDescriptions.FAILED_TO_DECODE_COSE);
+		} else if (index < total.length) {
+			LOGGER.error("Unexpected data at the end of the OSCORE option.");
+			throw new OSException(ErrorDescriptions.FAILED_TO_DECODE_COSE);
 		}
 
-		//Adding parsed data to Encrypt0Message object
-		try {
-			if (partialIV != null) {
-				enc.addAttribute(HeaderKeys.PARTIAL_IV, CBORObject.FromObject(partialIV), Attribute.UNPROTECTED);
-			}
-			if (kid != null) {
-				enc.addAttribute(HeaderKeys.KID, CBORObject.FromObject(kid), Attribute.UNPROTECTED);
-			}
-			//COSE Header parameter for KID Context defined with label 10
-			//https://www.iana.org/assignments/cose/cose.xhtml
-			if (contextID != null) {
-				enc.addAttribute(CBORObject.FromObject(10), CBORObject.FromObject(contextID), Attribute.UNPROTECTED);
-			}
-		} catch (CoseException e) {
-			LOGGER.error("COSE processing of message failed.");
-			e.printStackTrace();
+		return new DecodedOption(total, 1, n, kidContextOffset, kidContextLength, kidOffset);
+	}
+
+	/**
+	 * Get the context of a request. If the OSCORE option contains a kid
+	 * context, the context is looked up by kid context and kid, otherwise by
+	 * the kid only. A kid context therefore doesn't match a context without
+	 * ID context, as its keys are derived without the ID context. The kid
+	 * only matches the last added context of that recipient id, see
+	 * {@link OSCoreCtxDB#getContext(byte[])}.
+	 * 
+	 * @param db the context database
+	 * @param option the decoded OSCORE option of the request
+	 * @return the context, or {@code null}, if not available
+	 */
+	protected static OSCoreCtx getContext(OSCoreCtxDB db, DecodedOption option) {
+		if (option.kidOffset < 0) {
+			return null;
 		}
+		// lookup by the ranges of the option value, without copying them
+		byte[] value = option.value;
+		byte[] kidContext = option.kidContextOffset < 0 ? null : value;
+		return db.getContext(value, option.kidOffset, value.length - option.kidOffset, kidContext,
+				option.kidContextOffset, option.kidContextLength);
 	}
 
 	/**
@@ -310,4 +246,73 @@ public abstract class Decryptor {
 		OptionSet newOptions = OptionJuggle.discardEOptions(message.getOptions());
 		message.setOptions(newOptions);
 	}
+
+	/**
+	 * The decoded fields of the OSCORE option. View on the option value,
+	 * which refers to the fields by their offsets.
+	 */
+	protected static final class DecodedOption {
+
+		private final byte[] value;
+		private final int partialIVOffset;
+		private final int partialIVLength;
+		private final int kidContextOffset;
+		private final int kidContextLength;
+		private final int kidOffset;
+
+		private DecodedOption(byte[] value, int partialIVOffset, int partialIVLength, int kidContextOffset,
+				int kidContextLength, int kidOffset) {
+			this.value = value;
+			this.partialIVOffset = partialIVOffset;
+			this.partialIVLength = partialIVLength;
+			this.kidContextOffset = kidContextOffset;
+			this.kidContextLength = kidContextLength;
+			this.kidOffset = kidOffset;
+		}
+
+		/**
+		 * @return {@code true}, if the partial IV is present
+		 */
+		public boolean hasPartialIV() {
+			return partialIVLength > 0;
+		}
+
+		/**
+		 * Reads the sequence number from the partial IV without copying it.
+		 * 
+		 * @return the sequence number
+		 * @throws OSException if the partial IV is not present or longer
+		 *             than an int
+		 */
+		public int readPartialIV() throws OSException {
+			if (!hasPartialIV()) {
+				LOGGER.error(ErrorDescriptions.PARTIAL_IV_NULL);
+				throw new OSException(ErrorDescriptions.PARTIAL_IV_NULL);
+			}
+			return OSSerializer.readPartialIV(value, partialIVOffset, partialIVLength);
+		}
+
+		/**
+		 * @return copy of the partial IV, or {@code null}, if not present
+		 */
+		public byte[] getPartialIV() {
+			return hasPartialIV() ? Arrays.copyOfRange(value, partialIVOffset, partialIVOffset + partialIVLength)
+					: null;
+		}
+
+		/**
+		 * @return copy of the kid, or {@code null}, if not present
+		 */
+		public byte[] getKid() {
+			return kidOffset < 0 ? null : Arrays.copyOfRange(value, kidOffset, value.length);
+		}
+
+		/**
+		 * @return copy of the kid context, or {@code null}, if not present
+		 */
+		public byte[] getKidContext() {
+			return kidContextOffset < 0 ? null
+					: Arrays.copyOfRange(value, kidContextOffset, kidContextOffset + kidContextLength);
+		}
+	}
 }
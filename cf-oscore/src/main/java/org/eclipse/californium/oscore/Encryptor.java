@@ -20,21 +20,11 @@
 package org.eclipse.californium.oscore;
 
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Message;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
-import org.eclipse.californium.cose.Encrypt0Message;
-
-import com.upokecenter.cbor.CBORObject;
-
-import org.eclipse.californium.cose.Attribute;
-import org.eclipse.californium.cose.CoseException;
-import org.eclipse.californium.cose.HeaderKeys;
 import org.eclipse.californium.elements.util.Bytes;
 
 /**
@@ -46,79 +36,47 @@ import org.eclipse.californium.elements.util.Bytes;
 public abstract class Encryptor {
 
 	/**
-	 * The logger
-	 */
-	private static final Logger LOGGER = LoggerFactory.getLogger(Encryptor.class.getName());
-
-	/**
-	 * Encrypt the COSE message using the OSCore context.
+	 * Encrypt the confidential data using the OSCore context.
 	 * 
-	 * @param enc the encrypt structure
+	 * @param confidential the plaintext to be encrypted
 	 * @param ctx the OSCore context
 	 * @param message the message
 	 * @param newPartialIV if response contains partialIV
+	 * @param seq the reserved sender sequence number used as partial IV of
+	 *            requests and of responses with new partial IV, see
+	 *            {@link OSCoreCtx#reserveSenderSeq()}
+	 * @param requestSeq the sequence number of the request a response is
+	 *            protected for. Not used for requests.
 	 *
-	 * @return the COSE message
+	 * @return the ciphertext
 	 * 
 	 * @throws OSException if encryption or encoding fails
 	 */
-	protected static byte[] encryptAndEncode(Encrypt0Message enc, OSCoreCtx ctx, Message message, boolean newPartialIV)
-			throws OSException {
+	protected static byte[] encryptAndEncode(byte[] confidential, OSCoreCtx ctx, Message message, boolean newPartialIV,
+			int seq, int requestSeq) throws OSException {
 		boolean isRequest = message instanceof Request;
 
-		try {
-			byte[] key = ctx.getSenderKey();
-			byte[] partialIV = null;
-			byte[] nonce = null;
-			byte[] aad = null;
-
-			if (isRequest) {
-				partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
-				nonce = OSSerializer.nonceGeneration(partialIV, ctx.getSenderId(), ctx.getCommonIV(),
-						ctx.getIVLength());
-				aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), ctx.getSenderSeq(), ctx.getSenderId(), message.getOptions());
-				enc.addAttribute(HeaderKeys.PARTIAL_IV, CBORObject.FromObject(partialIV), Attribute.UNPROTECTED);
-				enc.addAttribute(HeaderKeys.KID, CBORObject.FromObject(ctx.getSenderId()), Attribute.UNPROTECTED);
-			} else {
-
-				if (!newPartialIV) {
-					// use nonce from request
-					partialIV = OSSerializer.processPartialIV(ctx.getReceiverSeq());
-					nonce = OSSerializer.nonceGeneration(partialIV, ctx.getRecipientId(), ctx.getCommonIV(),
-							ctx.getIVLength());
-				} else {
-					// response creates its own partialIV
-					partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
-					nonce = OSSerializer.nonceGeneration(partialIV, ctx.getSenderId(), ctx.getCommonIV(),
-							ctx.getIVLength());
-				}
-				aad = OSSerializer.serializeAAD(CoAP.VERSION, ctx.getAlg(), ctx.getReceiverSeq(), ctx.getRecipientId(), message.getOptions());
-			}
+		byte[] nonce = new byte[ctx.getIVLength()];
+		byte[] aad = null;
 
-			enc.setExternal(aad);
-			
-			enc.addAttribute(HeaderKeys.IV, CBORObject.FromObject(nonce), Attribute.DO_NOT_SEND);
-			enc.addAttribute(HeaderKeys.Algorithm, ctx.getAlg().AsCBOR(), Attribute.DO_NOT_SEND);
-			enc.encrypt(key);
+		if (isRequest) {
+			OSSerializer.nonceGeneration(seq, ctx.getSenderNonceBase(), nonce);
+			aad = OSSerializer.serializeEncStructure(CoAP.VERSION, ctx.getAlg(), seq, ctx.getSenderId(),
+					message.getOptions());
+		} else {
 
-			return enc.getEncryptedContent();
-		} catch (CoseException e) {
-			LOGGER.error("COSE/Crypto exception: " + e.getMessage());
-			throw new OSException(e.getMessage());
+			if (!newPartialIV) {
+				// use nonce from request
+				OSSerializer.nonceGeneration(requestSeq, ctx.getRecipientNonceBase(), nonce);
+			} else {
+				// response creates its own partialIV
+				OSSerializer.nonceGeneration(seq, ctx.getSenderNonceBase(), nonce);
+			}
+			aad = OSSerializer.serializeEncStructure(CoAP.VERSION, ctx.getAlg(), requestSeq, ctx.getRecipientId(),
+					message.getOptions());
 		}
-	}
 
-	/**
-	 * Initiates the encrypt0message object and sets the confidential (plaintext
-	 * to be encrypted).
-	 * 
-	 * @param confidential the plaintext to be encrypted
-	 * @return the initiated and prepared encrypt0message object
-	 */
-	protected static Encrypt0Message prepareCOSEStructure(byte[] confidential) {
-		Encrypt0Message enc = new Encrypt0Message(false, true);
-		enc.SetContent(confidential);
-		return enc;
+		return OSCoreEngine.encrypt(ctx, nonce, aad, confidential);
 	}
 
 	/**
@@ -129,18 +87,20 @@ public abstract class Encryptor {
 	 * @param cipherText the cipher text to be appended to this compression
 	 * @param message the message
 	 * @param newPartialIV if response contains partialIV
+	 * @param seq the reserved sender sequence number used as partial IV
 	 * @return the entire message's byte array
 	 */
-	protected static byte[] compression(OSCoreCtx ctx, byte[] cipherText, Message message, final boolean newPartialIV) {
+	protected static byte[] compression(OSCoreCtx ctx, byte[] cipherText, Message message, final boolean newPartialIV,
+			int seq) {
 		boolean request = message instanceof Request;
 		ByteArrayOutputStream bRes = new ByteArrayOutputStream();
 		OptionSet options = message.getOptions();
 		options.removeOscore();
 
 		if (request) {
-			message.getOptions().setOscore(encodeOSCoreRequest(ctx));
+			message.getOptions().setOscore(encodeOSCoreRequest(ctx, seq));
 		} else {
-			message.getOptions().setOscore(encodeOSCoreResponse(ctx, newPartialIV));
+			message.getOptions().setOscore(encodeOSCoreResponse(seq, newPartialIV));
 		}
 
 		if (cipherText != null) {
@@ -157,21 +117,26 @@ public abstract class Encryptor {
 	 * @return the Object-Security value as byte array
 	 */
 	public static byte[] encodeOSCoreRequest(OSCoreCtx ctx) {
-		int firstByte = 0x00;
-		ByteArrayOutputStream bRes = new ByteArrayOutputStream();
-		byte[] partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
-		firstByte = firstByte | (partialIV.length & 0x07);
-		firstByte = firstByte | 0x08;
-
-		bRes.write(firstByte);
-		try {
-			bRes.write(partialIV);
-			bRes.write(ctx.getSenderId());
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		
-		return bRes.toByteArray();
+		return encodeOSCoreRequest(ctx, ctx.getSenderSeq());
+	}
+
+	/**
+	 * Encodes the Object-Security value for a Request.
+	 * 
+	 * @param ctx the context
+	 * @param seq the sender sequence number of the request
+	 * @return the Object-Security value as byte array
+	 */
+	public static byte[] encodeOSCoreRequest(OSCoreCtx ctx, int seq) {
+		byte[] senderId = ctx.getSenderId();
+		int length = OSSerializer.partialIVLength(seq);
+		byte[] optionBytes = new byte[1 + length + senderId.length];
+
+		optionBytes[0] = (byte) (0x08 | (length & 0x07));
+		OSSerializer.writePartialIV(seq, optionBytes, 1);
+		System.arraycopy(senderId, 0, optionBytes, 1 + length, senderId.length);
+
+		return optionBytes;
 	}
 
 	/**
@@ -183,29 +148,29 @@ public abstract class Encryptor {
 	 * @return the Object-Security value as byte array
 	 */
 	public static byte[] encodeOSCoreResponse(OSCoreCtx ctx, final boolean newPartialIV) {
-		int firstByte = 0x00;
-		ByteArrayOutputStream bRes = new ByteArrayOutputStream();
+		return encodeOSCoreResponse(ctx.getSenderSeq(), newPartialIV);
+	}
 
+	/**
+	 * Encodes the Object-Security value for a Response.
+	 * 
+	 * @param seq the sender sequence number of the response
+	 * @param newPartialIV if true encodes the partialIV, otherwise partialIV is
+	 *            not encoded
+	 * @return the Object-Security value as byte array
+	 */
+	public static byte[] encodeOSCoreResponse(int seq, final boolean newPartialIV) {
 		if (newPartialIV) {
-			byte[] partialIV = OSSerializer.processPartialIV(ctx.getSenderSeq());
-			firstByte = firstByte | (partialIV.length & 0x07);
-			bRes.write(firstByte);
-			try {
-				bRes.write(partialIV);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			int length = OSSerializer.partialIVLength(seq);
+			byte[] optionBytes = new byte[1 + length];
+
+			optionBytes[0] = (byte) (length & 0x07);
+			OSSerializer.writePartialIV(seq, optionBytes, 1);
+			return optionBytes;
 		} else {
-			bRes.write(firstByte);
-		}
-		
-		//If the OSCORE option is length 1 and 0x00, it should be empty
-		//See https://tools.ietf.org/html/draft-ietf-core-object-security-16#section-2
-		byte[] optionBytes = bRes.toByteArray();
-		if(optionBytes.length == 1 && optionBytes[0] == 0x00) {
+			//If the OSCORE option is length 1 and 0x00, it should be empty
+			//See https://tools.ietf.org/html/draft-ietf-core-object-security-16#section-2
 			return Bytes.EMPTY;
-		} else {
-			return optionBytes;
 		}
 	}
 }
@@ -29,6 +29,7 @@ public final class ErrorDescriptions {
 	public static final String REPLAY_DETECT = ("Replay detected");
 	public static final String DECRYPTION_FAILED = ("Decryption failed");
 	public static final String MAC_CCM_FAILED = ("MAC check in CCM failed");
+	public static final String MAC_GCM_FAILED = ("MAC check in GCM failed");
 	public static final String TOKEN_NULL = ("Token is null");
 	public static final String TOKEN_INVALID = ("Token is invalid");
 	public static final String SEQ_NBR_INVALID = ("Sequence number is invalid");
@@ -58,6 +59,7 @@ public final class ErrorDescriptions {
 	public static final String STRING_NULL = "String is null";
 	public static final String CONTEXT_NULL = "Context is null";
 	public static final String ALGORITHM_NOT_DEFINED = "Algorithm not defined";
+	public static final String REPLAY_WINDOW_SIZE_INVALID = "Replay window size is invalid";
 
 	public static final String CANNOT_CREATE_ERROR_MESS = ("Cannot create error message for this error");
 
@@ -0,0 +1,731 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.cose.CoseException;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+
+import com.upokecenter.cbor.CBORObject;
+
+/**
+ *
+ * Implements the OSCoreCtxDB interface with a file, which keeps the contexts
+ * and their sender sequence numbers across restarts.
+ *
+ * The contexts are kept in memory by a {@link ConcurrentHashMapCtxDB}.
+ * Additionally they are appended with their derived keys to the file, so
+ * loading them doesn't repeat the key derivation. The file is read at once
+ * for loading and rewritten compacted afterwards.
+ *
+ * The sender sequence number is persisted as described in
+ * <a href="https://tools.ietf.org/html/rfc8613#appendix-B.1.1">RFC 8613,
+ * Appendix B.1.1</a>. The file contains for each context a limit, below which
+ * the sender sequence numbers may be used. When the half of the
+ * checkpoint interval K is left, a new limit, K above the reserved sequence
+ * number, is written in the background. Sending only waits for the disk, if
+ * the background writer falls more than K/2 sequence numbers behind. After a
+ * restart the sender sequence number continues at the persisted limit.
+ *
+ * Tokens and their sequence numbers are not persisted. The replay windows of
+ * the recipients start empty after a restart, see
+ * <a href="https://tools.ietf.org/html/rfc8613#appendix-B.1.2">RFC 8613,
+ * Appendix B.1.2</a>.
+ *
+ * Note: the file contains the master secrets and the derived keys of the
+ * contexts! It's created readable and writable for the owner only, where the
+ * file system supports POSIX permissions, but must be protected as any other
+ * private key material.
+ *
+ */
+public class FileCtxDB implements OSCoreCtxDB {
+
+	/**
+	 * The logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileCtxDB.class.getName());
+
+	/**
+	 * Default checkpoint interval K of the sender sequence numbers.
+	 */
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+
+	/**
+	 * "OSC" and format version 1.
+	 */
+	private static final int MAGIC = 0x4F534301;
+
+	private static final int HEADER_SIZE = 4;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Permissions of the file. The file contains the keys of the contexts.
+	 */
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+	private final ConcurrentHashMapCtxDB memory = new ConcurrentHashMapCtxDB();
+	private final ConcurrentMap<ByteId, Entry> entries = new ConcurrentHashMap<ByteId, Entry>();
+	private final File file;
+	private final int interval;
+	private final ExecutorService writer;
+	private final FileChannel channel;
+
+	/**
+	 * End of the file. Guarded by the channel.
+	 */
+	private long end;
+
+	private volatile boolean closed;
+
+	/**
+	 * Open the database with the default checkpoint interval.
+	 * 
+	 * @param file the file. Created, if not existing.
+	 * @throws IOException if the file could not be read or written
+	 * @see #DEFAULT_CHECKPOINT_INTERVAL
+	 */
+	public FileCtxDB(File file) throws IOException {
+		this(file, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * Open the database and load the contexts of the file.
+	 * 
+	 * @param file the file. Created, if not existing.
+	 * @param checkpointInterval the checkpoint interval K of the sender
+	 *            sequence numbers. Larger values write less often, but skip
+	 *            more sequence numbers on restart.
+	 * @throws IOException if the file could not be read or written
+	 * @throws IllegalArgumentException if the checkpoint interval is less
+	 *             than 2
+	 */
+	public FileCtxDB(File file, int checkpointInterval) throws IOException {
+		if (file == null) {
+			throw new NullPointerException("file must not be null");
+		}
+		if (checkpointInterval < 2) {
+			throw new IllegalArgumentException("checkpoint interval " + checkpointInterval + " must be at least 2");
+		}
+		this.file = file;
+		this.interval = checkpointInterval;
+		List<Entry> loaded = load();
+		rewrite(loaded);
+		this.channel = new RandomAccessFile(file, "rw").getChannel();
+		this.end = channel.size();
+		this.writer = Executors.newSingleThreadExecutor(new DaemonThreadFactory("OSCoreCtxDB#")); //$NON-NLS-1$
+		for (Entry entry : loaded) {
+			register(entry);
+		}
+		LOGGER.info("loaded {} OSCORE contexts from {}", loaded.size(), file);
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] cid) {
+		return memory.getContext(cid);
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] rid, byte[] IDContext) {
+		return memory.getContext(rid, IDContext);
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] rid, int ridOffset, int ridLength, byte[] IDContext, int IDContextOffset,
+			int IDContextLength) {
+		return memory.getContext(rid, ridOffset, ridLength, IDContext, IDContextOffset, IDContextLength);
+	}
+
+	@Override
+	public OSCoreCtx getContextByToken(Token token) {
+		return memory.getContextByToken(token);
+	}
+
+	@Override
+	public void addContext(Token token, OSCoreCtx ctx) {
+		memory.addContext(token, ctx);
+		persist(ctx, null);
+	}
+
+	@Override
+	public void addContext(String uri, OSCoreCtx ctx) throws OSException {
+		memory.addContext(uri, ctx);
+		persist(ctx, uri);
+	}
+
+	@Override
+	public void addContext(OSCoreCtx ctx) {
+		memory.addContext(ctx);
+		persist(ctx, null);
+	}
+
+	@Override
+	public List<OSCoreCtx> addContexts(Iterable<OSCoreCtxParameters> parameters) throws OSException {
+		List<OSCoreCtx> contexts = OSCoreCtxProvisioner.createContexts(parameters);
+		for (OSCoreCtx ctx : contexts) {
+			addContext(ctx);
+		}
+		return contexts;
+	}
+
+	@Override
+	public OSCoreCtx getContext(String uri) throws OSException {
+		return memory.getContext(uri);
+	}
+
+	@Override
+	public Integer getSeqByToken(Token token) {
+		return memory.getSeqByToken(token);
+	}
+
+	@Override
+	public void addSeqByToken(Token token, Integer seq) {
+		memory.addSeqByToken(token, seq);
+	}
+
+	@Override
+	public boolean tokenExist(Token token) {
+		return memory.tokenExist(token);
+	}
+
+	@Override
+	public void removeSeqByToken(Token token) {
+		memory.removeSeqByToken(token);
+	}
+
+	@Override
+	public void updateSeqByToken(Token token, Integer seq) {
+		memory.updateSeqByToken(token, seq);
+	}
+
+	@Override
+	public void removeToken(Token token) {
+		memory.removeToken(token);
+	}
+
+	/**
+	 * Purge all contexts, also from the file.
+	 */
+	@Override
+	public void purge() {
+		synchronized (channel) {
+			for (Entry entry : entries.values()) {
+				entry.ctx.setSenderSeqCheckpoint(null);
+			}
+			entries.clear();
+			memory.purge();
+			try {
+				channel.truncate(HEADER_SIZE);
+				channel.force(false);
+				end = HEADER_SIZE;
+			} catch (IOException e) {
+				LOGGER.error("Failed to purge " + file + ": " + e.getMessage());
+				throw new IllegalStateException("Failed to purge " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Close the database. Waits for pending checkpoints of the sender
+	 * sequence numbers. The contexts must not be used for sending afterwards.
+	 */
+	public void close() {
+		closed = true;
+		writer.shutdown();
+		try {
+			if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+				LOGGER.warn("Pending sequence number checkpoints of {} not written!", file);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * Append the context to the file, if it's not already persisted with the
+	 * same uri.
+	 * 
+	 * @param ctx the context
+	 * @param uri the uri of the recipient, or {@code null}
+	 */
+	private void persist(OSCoreCtx ctx, String uri) {
+		ByteId key = key(ctx);
+		Entry entry = entries.get(key);
+		if (entry != null && entry.ctx == ctx && (uri == null || uri.equals(entry.uri))) {
+			return;
+		}
+		synchronized (channel) {
+			entry = entries.get(key);
+			if (entry != null && entry.ctx == ctx && (uri == null || uri.equals(entry.uri))) {
+				return;
+			}
+			try {
+				int limit = addLimit(ctx.getSenderSeq());
+				byte[] record = encode(ctx, uri, limit);
+				ByteBuffer buffer = ByteBuffer.allocate(4 + record.length);
+				buffer.putInt(record.length).put(record).flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, end + buffer.position());
+				}
+				channel.force(false);
+				Entry created = new Entry(ctx, uri, end + 4, limit);
+				end += buffer.limit();
+				Entry previous = entries.put(key, created);
+				if (previous != null && previous.ctx != ctx) {
+					previous.ctx.setSenderSeqCheckpoint(null);
+				}
+				ctx.setSenderSeqCheckpoint(created);
+			} catch (IOException e) {
+				LOGGER.error("Failed to persist context: " + e.getMessage());
+				throw new IllegalStateException("Failed to persist context", e);
+			}
+		}
+	}
+
+	/**
+	 * Add the loaded context to the memory and set its checkpoint.
+	 * 
+	 * @param entry the loaded entry
+	 */
+	private void register(Entry entry) throws IOException {
+		entries.put(key(entry.ctx), entry);
+		entry.ctx.setSenderSeqCheckpoint(entry);
+		if (entry.uri != null) {
+			try {
+				memory.addContext(entry.uri, entry.ctx);
+			} catch (OSException e) {
+				throw new IOException("Invalid uri " + entry.uri, e);
+			}
+		} else {
+			memory.addContext(entry.ctx);
+		}
+	}
+
+	/**
+	 * Load the contexts of the file. The sender sequence numbers continue at
+	 * the persisted limits, the new limits are K above.
+	 * 
+	 * @return the loaded contexts. The latest one, if a recipient id is
+	 *         contained more than once.
+	 * @throws IOException if the file could not be read or is corrupted
+	 */
+	private List<Entry> load() throws IOException {
+		Map<ByteId, Entry> loaded = new LinkedHashMap<ByteId, Entry>();
+		if (file.length() == 0) {
+			return new ArrayList<Entry>();
+		}
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			// read into the heap instead of mapping the file. A mapping is
+			// only released by the garbage collector and would prevent
+			// replacing the file on some platforms, e.g. Windows.
+			long size = in.length();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large!");
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			FileChannel channel = in.getChannel();
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException(file + " was truncated while loading!");
+				}
+			}
+			buffer.flip();
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+				throw new IOException(file + " is no OSCORE context file!");
+			}
+			while (buffer.remaining() >= 4) {
+				int length = buffer.getInt();
+				if (length <= 0 || length > buffer.remaining()) {
+					// incomplete append, the context was not added
+					LOGGER.warn("{} ends with an incomplete context, dropped.", file);
+					break;
+				}
+				int next = buffer.position() + length;
+				Entry entry = decode(buffer);
+				if (buffer.position() != next) {
+					throw new IOException(file + " contains a corrupted context!");
+				}
+				ByteId key = key(entry.ctx);
+				loaded.remove(key);
+				loaded.put(key, entry);
+			}
+		} catch (RuntimeException e) {
+			throw new IOException(file + " contains a corrupted context!", e);
+		} finally {
+			in.close();
+		}
+		return new ArrayList<Entry>(loaded.values());
+	}
+
+	/**
+	 * Write the entries compacted to a temporary file and replace the file
+	 * with it.
+	 * 
+	 * @param entries the entries. The offsets of their limits are updated.
+	 * @throws IOException if writing fails
+	 */
+	private void rewrite(List<Entry> entries) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		createOwnerOnly(temp);
+		FileOutputStream stream = new FileOutputStream(temp);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+			out.writeInt(MAGIC);
+			long position = HEADER_SIZE;
+			for (Entry entry : entries) {
+				byte[] record = encode(entry.ctx, entry.uri, entry.limit);
+				out.writeInt(record.length);
+				out.write(record);
+				entry.offset = position + 4;
+				position += 4 + record.length;
+			}
+			out.flush();
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		syncDirectory(file);
+	}
+
+	/**
+	 * Sync the directory of the file, so that the rename of the rewritten file
+	 * is durable as well. Otherwise a crash may restore the previous file with
+	 * outdated sequence number limits.
+	 * 
+	 * Not supported on all platforms, e.g. Windows can't open directories.
+	 * Failures are therefore only logged.
+	 * 
+	 * @param file the file
+	 */
+	private static void syncDirectory(File file) {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory == null) {
+			return;
+		}
+		try {
+			FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("{} could not be synced: {}", directory, e.getMessage());
+		}
+	}
+
+	/**
+	 * Create an empty file readable and writable for the owner only, before
+	 * any context is written to it. Replaces a left over file.
+	 * 
+	 * @param file the file
+	 * @throws IOException if the file could not be created
+	 */
+	private static void createOwnerOnly(File file) throws IOException {
+		Path path = file.toPath();
+		Files.deleteIfExists(path);
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+		} catch (UnsupportedOperationException e) {
+			LOGGER.warn("{} doesn't support POSIX permissions, protect the contexts otherwise!", file);
+			Files.createFile(path);
+		}
+	}
+
+	/**
+	 * Encode the context without the leading length.
+	 * 
+	 * @param ctx the context
+	 * @param uri the uri of the recipient, or {@code null}
+	 * @param limit the limit of the sender sequence numbers
+	 * @return the encoded context
+	 */
+	private static byte[] encode(OSCoreCtx ctx, String uri, int limit) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(limit);
+		out.writeInt(ctx.getAlg().AsCBOR().AsInt32());
+		out.writeInt(ctx.getKdf().AsCBOR().AsInt32());
+		out.writeInt(ctx.getRecipientReplaySize());
+		write(out, ctx.getMasterSecret());
+		write(out, ctx.getSalt());
+		write(out, ctx.getSenderId());
+		write(out, ctx.getRecipientId());
+		write(out, ctx.getIdContext());
+		write(out, ctx.getSenderKey());
+		write(out, ctx.getRecipientKey());
+		write(out, ctx.getCommonIV());
+		write(out, uri == null ? null : uri.getBytes(UTF_8));
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void write(DataOutputStream out, byte[] value) throws IOException {
+		if (value == null) {
+			out.writeShort(-1);
+		} else {
+			out.writeShort(value.length);
+			out.write(value);
+		}
+	}
+
+	/**
+	 * Decode the context after the leading length. The sender sequence number
+	 * continues at the persisted limit.
+	 * 
+	 * @param buffer the buffer positioned after the leading length
+	 * @return the decoded entry
+	 * @throws IOException if the context is corrupted
+	 */
+	private Entry decode(ByteBuffer buffer) throws IOException {
+		int limit = buffer.getInt();
+		try {
+			AlgorithmID alg = AlgorithmID.FromCBOR(CBORObject.FromObject(buffer.getInt()));
+			AlgorithmID kdf = AlgorithmID.FromCBOR(CBORObject.FromObject(buffer.getInt()));
+			int replaySize = buffer.getInt();
+			byte[] masterSecret = read(buffer);
+			byte[] masterSalt = read(buffer);
+			byte[] senderId = read(buffer);
+			byte[] recipientId = read(buffer);
+			byte[] contextId = read(buffer);
+			byte[] senderKey = read(buffer);
+			byte[] recipientKey = read(buffer);
+			byte[] commonIV = read(buffer);
+			byte[] uri = read(buffer);
+			OSCoreCtx ctx = new OSCoreCtx(alg, kdf, masterSecret, masterSalt, senderId, recipientId, contextId,
+					replaySize, senderKey, recipientKey, commonIV);
+			ctx.setSenderSeq(limit);
+			return new Entry(ctx, uri == null ? null : new String(uri, UTF_8), 0, addLimit(limit));
+		} catch (CoseException e) {
+			throw new IOException(file + " contains an unsupported algorithm!", e);
+		} catch (OSException e) {
+			throw new IOException(file + " contains an invalid context!", e);
+		}
+	}
+
+	private static byte[] read(ByteBuffer buffer) {
+		int length = buffer.getShort();
+		if (length < 0) {
+			return null;
+		}
+		byte[] value = new byte[length];
+		buffer.get(value);
+		return value;
+	}
+
+	/**
+	 * Key of the context. Contexts with the same recipient id but different
+	 * ID contexts are persisted separately.
+	 * 
+	 * @param ctx the context
+	 * @return the key of ID context and recipient id
+	 */
+	private static ByteId key(OSCoreCtx ctx) {
+		byte[] rid = ctx.getRecipientId();
+		byte[] idContext = ctx.getIdContext();
+		int length = idContext == null ? 0 : idContext.length;
+		byte[] key = new byte[2 + length + rid.length];
+		if (idContext != null) {
+			key[0] = 1;
+			key[1] = (byte) length;
+			System.arraycopy(idContext, 0, key, 2, length);
+		}
+		System.arraycopy(rid, 0, key, 2 + length, rid.length);
+		return new ByteId(key);
+	}
+
+	/**
+	 * @param seq the sender sequence number
+	 * @return the limit K above the sequence number
+	 */
+	private int addLimit(int seq) {
+		return (int) Math.min((long) seq + interval, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Persisted context. Checkpoints the sender sequence numbers of the
+	 * context.
+	 */
+	private final class Entry implements SenderSeqCheckpoint {
+
+		private final OSCoreCtx ctx;
+		private final String uri;
+		/**
+		 * Offset of the limit in the file.
+		 */
+		private long offset;
+		/**
+		 * Persisted limit of the sender sequence numbers.
+		 */
+		private volatile int limit;
+		/**
+		 * Indicates a pending write of a new limit. Guarded by this.
+		 */
+		private boolean pending;
+		/**
+		 * Failure of the last write. Guarded by this.
+		 */
+		private IOException failure;
+
+		private Entry(OSCoreCtx ctx, String uri, long offset, int limit) {
+			this.ctx = ctx;
+			this.uri = uri;
+			this.offset = offset;
+			this.limit = limit;
+		}
+
+		@Override
+		public void reserved(OSCoreCtx ctx, int seq) throws OSException {
+			int current = limit;
+			if (seq >= current - interval / 2 && current < Integer.MAX_VALUE) {
+				checkpoint(seq);
+				if (seq >= current) {
+					await(seq);
+				}
+			}
+		}
+
+		/**
+		 * Schedule to write a new limit K above the sequence number, if no
+		 * write is pending.
+		 * 
+		 * @param seq the reserved sender sequence number
+		 */
+		private synchronized void checkpoint(int seq) {
+			if (!pending && !closed) {
+				final int next = addLimit(seq);
+				try {
+					writer.execute(new Runnable() {
+
+						@Override
+						public void run() {
+							write(next);
+						}
+					});
+					pending = true;
+				} catch (RejectedExecutionException e) {
+					LOGGER.debug("OSCORE context DB already closed!");
+				}
+			}
+		}
+
+		/**
+		 * Wait until the sequence number is below the persisted limit. If a
+		 * completed write was not sufficient for the sequence number, a new
+		 * limit is written.
+		 * 
+		 * @param seq the reserved sender sequence number
+		 * @throws OSException if the limit could not be persisted
+		 */
+		private synchronized void await(int seq) throws OSException {
+			try {
+				while (seq >= limit) {
+					if (!pending && failure == null) {
+						checkpoint(seq);
+					}
+					if (!pending) {
+						LOGGER.error("Sender sequence number " + seq + " not persisted: "
+								+ (failure == null ? "closed" : failure.getMessage()));
+						throw new OSException("Sender sequence number not persisted");
+					}
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OSException("Sender sequence number not persisted");
+			}
+		}
+
+		/**
+		 * Write the new limit to the file.
+		 * 
+		 * @param next the new limit
+		 */
+		private void write(int next) {
+			IOException error = null;
+			try {
+				ByteBuffer buffer = ByteBuffer.allocate(4);
+				buffer.putInt(next).flip();
+				synchronized (channel) {
+					if (entries.get(key(ctx)) == this) {
+						while (buffer.hasRemaining()) {
+							channel.write(buffer, offset + buffer.position());
+						}
+						channel.force(false);
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.error("Failed to persist sender sequence number: " + e.getMessage());
+				error = e;
+			}
+			synchronized (this) {
+				if (error == null) {
+					limit = next;
+				}
+				failure = error;
+				pending = false;
+				notifyAll();
+			}
+		}
+	}
+}
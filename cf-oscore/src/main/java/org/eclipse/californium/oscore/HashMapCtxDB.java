@@ -24,8 +24,9 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,34 +47,37 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(HashMapCtxDB.class.getName());
 
-	private HashMap<ByteId, OSCoreCtx> ridMap;
+	/**
+	 * Pattern to find the scope of an IPv6 address in an uri.
+	 */
+	private static final Pattern IPV6_SCOPE = Pattern.compile("(%.*)]");
+
+	private ContextIndex contextIndex;
 	private HashMap<Token, OSCoreCtx> tokenMap;
 	private HashMap<String, OSCoreCtx> uriMap;
 	private HashMap<Token, Integer> seqMap;
+	private final NormalizedUriCache normalizedUris;
 
-	private ArrayList<Token> allTokens;
+	private HashSet<Token> allTokens;
 
 	private static volatile HashMapCtxDB singleton = null;
 
 	/**
-	 * Create the database
+	 * Create the database. Endpoints, which should not share their contexts
+	 * with others, use their own instance instead of {@link #getInstance()}.
 	 */
-	private HashMapCtxDB() {
-
-		// Prevent form the reflection api.
-		if (singleton != null) {
-			throw new RuntimeException("Use getInstance() method to get the single instance of this class.");
-		}
-
+	public HashMapCtxDB() {
 		this.tokenMap = new HashMap<>();
-		this.ridMap = new HashMap<>();
+		this.contextIndex = new ContextIndex();
 		this.uriMap = new HashMap<>();
 		this.seqMap = new HashMap<>();
-		this.allTokens = new ArrayList<Token>();
+		this.allTokens = new HashSet<Token>();
+		this.normalizedUris = new NormalizedUriCache();
 	}
 
 	/**
-	 * @return the singleton instance of this context database
+	 * @return the singleton instance of this context database, used by
+	 *         default by all OSCORE endpoints
 	 */
 	public static HashMapCtxDB getInstance() {
 		if (singleton == null) {
@@ -88,9 +92,35 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	}
 
 	@Override
-	public synchronized OSCoreCtx getContext(byte[] rid) {
+	public OSCoreCtx getContext(byte[] rid) {
+		if (rid != null) {
+			// the index is thread-safe on its own
+			return contextIndex.getByRecipientId(rid, 0, rid.length);
+		} else {
+			LOGGER.error(ErrorDescriptions.BYTE_ARRAY_NULL);
+			throw new NullPointerException(ErrorDescriptions.BYTE_ARRAY_NULL);
+		}
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] rid, byte[] IDContext) {
+		if (rid != null) {
+			// the index is thread-safe on its own
+			return contextIndex.get(rid, IDContext);
+		} else {
+			LOGGER.error(ErrorDescriptions.BYTE_ARRAY_NULL);
+			throw new NullPointerException(ErrorDescriptions.BYTE_ARRAY_NULL);
+		}
+	}
+
+	@Override
+	public OSCoreCtx getContext(byte[] rid, int ridOffset, int ridLength, byte[] IDContext, int IDContextOffset,
+			int IDContextLength) {
 		if (rid != null) {
-			return ridMap.get(new ByteId(rid));
+			if (IDContext == null) {
+				return contextIndex.getByRecipientId(rid, ridOffset, ridLength);
+			}
+			return contextIndex.get(rid, ridOffset, ridLength, IDContext, IDContextOffset, IDContextLength);
 		} else {
 			LOGGER.error(ErrorDescriptions.BYTE_ARRAY_NULL);
 			throw new NullPointerException(ErrorDescriptions.BYTE_ARRAY_NULL);
@@ -110,7 +140,7 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	@Override
 	public synchronized OSCoreCtx getContext(String uri) throws OSException {
 		if (uri != null) {
-			return uriMap.get(normalizeServerUri(uri));
+			return uriMap.get(normalizedUris.normalize(uri));
 		} else {
 			LOGGER.error(ErrorDescriptions.STRING_NULL);
 			throw new NullPointerException(ErrorDescriptions.STRING_NULL);
@@ -120,9 +150,7 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	@Override
 	public synchronized void addContext(Token token, OSCoreCtx ctx) {
 		if (token != null) {
-			if (!tokenExist(token)) {
-				allTokens.add(token);
-			}
+			allTokens.add(token);
 			tokenMap.put(token, ctx);
 		}
 		addContext(ctx);
@@ -131,7 +159,7 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	@Override
 	public synchronized void addContext(String uri, OSCoreCtx ctx) throws OSException {
 		if (uri != null) {
-			uriMap.put(normalizeServerUri(uri), ctx);
+			uriMap.put(normalizedUris.normalize(uri), ctx);
 		}
 		addContext(ctx);
 	}
@@ -139,13 +167,25 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	@Override
 	public synchronized void addContext(OSCoreCtx ctx) {
 		if (ctx != null) {
-			ridMap.put(new ByteId(ctx.getRecipientId()), ctx);
+			contextIndex.put(ctx);
 		} else {
 			LOGGER.error(ErrorDescriptions.CONTEXT_NULL);
 			throw new NullPointerException(ErrorDescriptions.CONTEXT_NULL);
 		}
 	}
 
+	@Override
+	public List<OSCoreCtx> addContexts(Iterable<OSCoreCtxParameters> parameters) throws OSException {
+		// derive the keys outside of the lock
+		List<OSCoreCtx> contexts = OSCoreCtxProvisioner.createContexts(parameters);
+		synchronized (this) {
+			for (OSCoreCtx ctx : contexts) {
+				addContext(ctx);
+			}
+		}
+		return contexts;
+	}
+
 	@Override
 	public synchronized Integer getSeqByToken(Token token) {
 		if (token != null) {
@@ -164,10 +204,8 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 		if (token == null) {
 			throw new NullPointerException(ErrorDescriptions.TOKEN_NULL);
 		}
-		if (tokenExist(token)) {
-			LOGGER.info("Token exists, but this could be a refresh if not there is a problem");
-		} else {
-			allTokens.add(token);
+		if (!allTokens.add(token)) {
+			LOGGER.debug("Token exists, but this could be a refresh if not there is a problem");
 		}
 		seqMap.put(token, seq);
 	}
@@ -201,14 +239,14 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	}
 
 	/**
-	 * Normalize the request uri.
+	 * Normalize the request uri without using the cache.
 	 * 
 	 * @param uri the request uri
 	 * @return the normalized uri
 	 *
 	 * @throws OSException
 	 */
-	private static String normalizeServerUri(String uri) throws OSException {
+	static String resolveServerUri(String uri) throws OSException {
 		String normalized = null;
 
 		try {
@@ -217,11 +255,8 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 			// workaround for openjdk bug JDK-8199396.
 			// some characters are not supported for the ipv6 scope.
 			try {
-				String patternString = "(%.*)]";
-				Pattern pattern = Pattern.compile(patternString);
-
 				//Save the original scope
-				Matcher matcher = pattern.matcher(uri);
+				Matcher matcher = IPV6_SCOPE.matcher(uri);
 				String originalScope = null;
 				if(matcher.find()) {
 					originalScope = matcher.group(1);
@@ -231,7 +266,7 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 				normalized = (new URI(uri.replaceAll("[-._~]", ""))).getHost();
 
 				//Find the modified new scope
-				matcher = pattern.matcher(normalized);
+				matcher = IPV6_SCOPE.matcher(normalized);
 				String newScope = null;
 				if(matcher.find()) {
 					newScope = matcher.group(1);
@@ -287,10 +322,11 @@ public class HashMapCtxDB implements OSCoreCtxDB {
 	 */
 	@Override
 	public synchronized void purge() {
-		ridMap.clear();
+		contextIndex.clear();
 		tokenMap.clear();
 		uriMap.clear();
 		seqMap.clear();
-		allTokens = new ArrayList<Token>();
+		allTokens.clear();
+		normalizedUris.clear();
 	}
 }
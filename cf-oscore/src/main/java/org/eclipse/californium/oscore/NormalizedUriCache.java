@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.util.ClockUtil;
+
+/**
+ * Bounded cache for normalized server uris.
+ *
+ * The normalized uri depends only on the host of the request uri, so the
+ * results are cached by the authority of the uri. That avoids to parse the
+ * uri and to resolve its host for every sent request. Results of uris
+ * without authority are cached as well, by the complete uri.
+ *
+ * If the cache is full, the expired results are evicted. If none is expired,
+ * the oldest results are evicted.
+ *
+ * Each context database uses its own instance. Lookups are lock free.
+ */
+class NormalizedUriCache {
+
+	/**
+	 * Default maximum number of cached results.
+	 */
+	static final int DEFAULT_MAX_CAPACITY = 1000;
+
+	/**
+	 * Default expiration of cached results in seconds. Limits the use of
+	 * outdated host name resolutions.
+	 */
+	static final long DEFAULT_TIMEOUT_IN_SECONDS = 10 * 60;
+
+	/**
+	 * Fraction of the capacity to evict, if the cache is full and none of the
+	 * results is expired.
+	 */
+	private static final int EVICTION_DIVISOR = 10;
+
+	private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+	private final int maxCapacity;
+	private final long timeoutNanos;
+
+	/**
+	 * Create cache with default capacity and timeout.
+	 */
+	NormalizedUriCache() {
+		this(DEFAULT_MAX_CAPACITY, DEFAULT_TIMEOUT_IN_SECONDS);
+	}
+
+	/**
+	 * Create cache.
+	 *
+	 * @param maxCapacity maximum number of cached results
+	 * @param timeoutInSeconds expiration of cached results in seconds
+	 */
+	NormalizedUriCache(int maxCapacity, long timeoutInSeconds) {
+		this.maxCapacity = maxCapacity;
+		this.timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+	}
+
+	/**
+	 * Normalize the request uri. The results are cached.
+	 *
+	 * @param uri the request uri
+	 * @return the normalized uri, {@code null}, if the uri has no host
+	 * @throws OSException if the uri is malformed
+	 */
+	String normalize(String uri) throws OSException {
+		String key = getKey(uri);
+		long now = ClockUtil.nanoRealtime();
+		Entry entry = cache.get(key);
+		if (entry == null || now - entry.expires > 0) {
+			entry = new Entry(HashMapCtxDB.resolveServerUri(uri), now + timeoutNanos);
+			if (cache.size() >= maxCapacity) {
+				evict(now);
+			}
+			cache.put(key, entry);
+		}
+		return entry.normalized;
+	}
+
+	/**
+	 * Check, if the result for the uri is cached.
+	 *
+	 * @param uri the request uri
+	 * @return {@code true}, if cached, {@code false}, otherwise.
+	 */
+	boolean isCached(String uri) {
+		return cache.containsKey(getKey(uri));
+	}
+
+	/**
+	 * Get the number of cached results.
+	 *
+	 * @return number of cached results
+	 */
+	int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Clear the cache.
+	 */
+	void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Evict the expired results. If none is expired, evict the oldest results,
+	 * at least one.
+	 *
+	 * @param now current realtime in nanoseconds
+	 */
+	private void evict(long now) {
+		Iterator<Entry> iterator = cache.values().iterator();
+		while (iterator.hasNext()) {
+			if (now - iterator.next().expires > 0) {
+				iterator.remove();
+			}
+		}
+		int size = cache.size();
+		if (size < maxCapacity) {
+			return;
+		}
+		// the entries expire in the order of their creation
+		long[] remaining = new long[size];
+		int count = 0;
+		for (Entry entry : cache.values()) {
+			if (count == size) {
+				break;
+			}
+			remaining[count++] = entry.expires - now;
+		}
+		if (count == 0) {
+			return;
+		}
+		Arrays.sort(remaining, 0, count);
+		int evict = Math.max(1, count / EVICTION_DIVISOR);
+		long threshold = remaining[evict - 1];
+		// first the older ones, then the ones at the threshold
+		iterator = cache.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().expires - now < threshold) {
+				iterator.remove();
+				--evict;
+			}
+		}
+		iterator = cache.values().iterator();
+		while (evict > 0 && iterator.hasNext()) {
+			if (iterator.next().expires - now == threshold) {
+				iterator.remove();
+				--evict;
+			}
+		}
+	}
+
+	/**
+	 * Get the key of the uri in the cache.
+	 *
+	 * @param uri the uri
+	 * @return the authority of the uri. If the uri has no authority, the uri
+	 *         prefixed with {@code "/"}, which doesn't clash with an
+	 *         authority.
+	 */
+	private static String getKey(String uri) {
+		String authority = getAuthority(uri);
+		if (authority == null) {
+			return "/" + uri;
+		}
+		return authority;
+	}
+
+	/**
+	 * Get the authority of the uri.
+	 *
+	 * @param uri the uri
+	 * @return the authority, or {@code null}, if the uri has no authority
+	 */
+	static String getAuthority(String uri) {
+		int start = uri.indexOf("://");
+		if (start < 0) {
+			return null;
+		}
+		start += 3;
+		int end = start;
+		int length = uri.length();
+		while (end < length) {
+			char c = uri.charAt(end);
+			if (c == '/' || c == '?' || c == '#') {
+				break;
+			}
+			++end;
+		}
+		return uri.substring(start, end);
+	}
+
+	private static class Entry {
+
+		private final String normalized;
+		private final long expires;
+
+		private Entry(String normalized, long expires) {
+			this.normalized = normalized;
+			this.expires = expires;
+		}
+	}
+}
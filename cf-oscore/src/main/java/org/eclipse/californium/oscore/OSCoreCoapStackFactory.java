@@ -25,19 +25,46 @@ import org.eclipse.californium.core.network.config.NetworkConfig;
 import org.eclipse.californium.core.network.stack.CoapStack;
 
 /**
- * Coap stack factory creating a {@link OSCoreStack} including a
+ * Coap stack factory creating a {@link OSCoreStack} for UDP and DTLS, or a
+ * {@link OSCoreTcpStack} for TCP and TLS, including a
  * {@link ObjectSecurityLayer}.
+ * 
+ * All stacks created by one factory share the factory's OSCORE context
+ * database. Use separate factories to provide endpoints with separate
+ * databases, e.g. by {@link CoapEndpoint.Builder#setCoapStackFactory}.
  */
 public class OSCoreCoapStackFactory implements CoapStackFactory {
 
 	private static AtomicBoolean init = new AtomicBoolean();
-	
+
+	private final OSCoreCtxDB ctxDb;
+
+	/**
+	 * Create a factory for stacks using the {@link HashMapCtxDB} singleton.
+	 */
+	public OSCoreCoapStackFactory() {
+		this(HashMapCtxDB.getInstance());
+	}
+
+	/**
+	 * Create a factory for stacks using the provided OSCORE context database.
+	 * 
+	 * @param ctxDb the OSCORE context database
+	 * @throws NullPointerException if the database is null
+	 */
+	public OSCoreCoapStackFactory(OSCoreCtxDB ctxDb) {
+		if (ctxDb == null) {
+			throw new NullPointerException(ErrorDescriptions.DB_NULL);
+		}
+		this.ctxDb = ctxDb;
+	}
+
 	@Override
 	public CoapStack createCoapStack(String protocol, NetworkConfig config, Outbox outbox) {
 		if (CoAP.isTcpProtocol(protocol)) {
-			throw new IllegalArgumentException("protocol \"" + protocol + "\" is not supported!");
+			return new OSCoreTcpStack(config, outbox, ctxDb);
 		}
-		return new OSCoreStack(config, outbox);
+		return new OSCoreStack(config, outbox, ctxDb);
 	}
 
 	/**
@@ -46,8 +73,20 @@ public class OSCoreCoapStackFactory implements CoapStackFactory {
 	 * @see CoapEndpoint#setDefaultCoapStackFactory(CoapStackFactory)
 	 */
 	public static void useAsDefault() {
+		useAsDefault(HashMapCtxDB.getInstance());
+	}
+
+	/**
+	 * Use {@link OSCoreStack} with the provided OSCORE context database as
+	 * default for {@link CoapEndpoint}. Only the first call, including calls
+	 * of {@link #useAsDefault()}, takes effect.
+	 * 
+	 * @param ctxDb the OSCORE context database
+	 * @see CoapEndpoint#setDefaultCoapStackFactory(CoapStackFactory)
+	 */
+	public static void useAsDefault(OSCoreCtxDB ctxDb) {
 		if (init.compareAndSet(false, true)) {
-			CoapEndpoint.setDefaultCoapStackFactory(new OSCoreCoapStackFactory());
+			CoapEndpoint.setDefaultCoapStackFactory(new OSCoreCoapStackFactory(ctxDb));
 		}
 	}
 }
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * Counts the OSCORE statistics.
+ *
+ * The counters are atomics, the latencies are kept in histograms with
+ * buckets of powers of two microseconds. No message is formatted. The
+ * message counters of the contexts are kept weakly, so contexts which are
+ * not used otherwise are garbage collected together with their counters.
+ * The counters may be read with the getters, or by JMX, if the instance is
+ * registered as MBean:
+ * 
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(statistics,
+ * 		new ObjectName("org.eclipse.californium.oscore:type=OSCoreCounterStatistics"));
+ * </pre>
+ *
+ */
+public class OSCoreCounterStatistics implements OSCoreStatistics, OSCoreCounterStatisticsMBean {
+
+	private final AtomicLong protectedRequests = new AtomicLong();
+	private final AtomicLong protectedResponses = new AtomicLong();
+	private final AtomicLong verifiedRequests = new AtomicLong();
+	private final AtomicLong verifiedResponses = new AtomicLong();
+	private final AtomicLong protectionFailures = new AtomicLong();
+	private final AtomicLong contextsNotFound = new AtomicLong();
+	private final AtomicLong replaysRejected = new AtomicLong();
+	private final AtomicLong verificationFailures = new AtomicLong();
+	private final LatencyHistogram protectLatency = new LatencyHistogram();
+	private final LatencyHistogram verifyLatency = new LatencyHistogram();
+	private final ConcurrentMap<ContextKey, ContextStatistic> contexts = new ConcurrentHashMap<ContextKey, ContextStatistic>();
+	/**
+	 * Queue of the keys of garbage collected contexts.
+	 */
+	private final ReferenceQueue<OSCoreCtx> staleContexts = new ReferenceQueue<OSCoreCtx>();
+
+	@Override
+	public void protectedRequest(OSCoreCtx ctx, long nanos) {
+		protectedRequests.incrementAndGet();
+		protectLatency.add(nanos);
+		getContextStatistic(ctx).protectedMessages.incrementAndGet();
+	}
+
+	@Override
+	public void protectedResponse(OSCoreCtx ctx, long nanos) {
+		protectedResponses.incrementAndGet();
+		protectLatency.add(nanos);
+		getContextStatistic(ctx).protectedMessages.incrementAndGet();
+	}
+
+	@Override
+	public void verifiedRequest(OSCoreCtx ctx, long nanos) {
+		verifiedRequests.incrementAndGet();
+		verifyLatency.add(nanos);
+		getContextStatistic(ctx).verifiedMessages.incrementAndGet();
+	}
+
+	@Override
+	public void verifiedResponse(OSCoreCtx ctx, long nanos) {
+		verifiedResponses.incrementAndGet();
+		verifyLatency.add(nanos);
+		getContextStatistic(ctx).verifiedMessages.incrementAndGet();
+	}
+
+	@Override
+	public void protectionFailed(OSCoreCtx ctx) {
+		protectionFailures.incrementAndGet();
+	}
+
+	@Override
+	public void contextNotFound() {
+		contextsNotFound.incrementAndGet();
+	}
+
+	@Override
+	public void replayRejected() {
+		replaysRejected.incrementAndGet();
+	}
+
+	@Override
+	public void verificationFailed() {
+		verificationFailures.incrementAndGet();
+	}
+
+	@Override
+	public long getProtectedRequests() {
+		return protectedRequests.get();
+	}
+
+	@Override
+	public long getProtectedResponses() {
+		return protectedResponses.get();
+	}
+
+	@Override
+	public long getVerifiedRequests() {
+		return verifiedRequests.get();
+	}
+
+	@Override
+	public long getVerifiedResponses() {
+		return verifiedResponses.get();
+	}
+
+	@Override
+	public long getProtectionFailures() {
+		return protectionFailures.get();
+	}
+
+	@Override
+	public long getContextsNotFound() {
+		return contextsNotFound.get();
+	}
+
+	@Override
+	public long getReplaysRejected() {
+		return replaysRejected.get();
+	}
+
+	@Override
+	public long getVerificationFailures() {
+		return verificationFailures.get();
+	}
+
+	@Override
+	public int getContexts() {
+		expungeStaleContexts();
+		return contexts.size();
+	}
+
+	@Override
+	public long getMinimumSenderSeqHeadroom() {
+		expungeStaleContexts();
+		long headroom = Integer.MAX_VALUE;
+		for (ContextStatistic statistic : contexts.values()) {
+			headroom = Math.min(headroom, statistic.getSenderSeqHeadroom());
+		}
+		return headroom;
+	}
+
+	@Override
+	public long[] getProtectLatencyHistogram() {
+		return protectLatency.getCounts();
+	}
+
+	@Override
+	public long[] getVerifyLatencyHistogram() {
+		return verifyLatency.getCounts();
+	}
+
+	@Override
+	public long getProtectLatency99thPercentileMicros() {
+		return protectLatency.getPercentileMicros(0.99);
+	}
+
+	@Override
+	public long getVerifyLatency99thPercentileMicros() {
+		return verifyLatency.getPercentileMicros(0.99);
+	}
+
+	/**
+	 * Get the statistic of a context.
+	 * 
+	 * @param ctx the context
+	 * @return the statistic, or {@code null}, if no message of the context
+	 *         has been protected or verified
+	 */
+	public ContextStatistic getStatistic(OSCoreCtx ctx) {
+		return contexts.get(new ContextKey(ctx, null));
+	}
+
+	@Override
+	public void reset() {
+		protectedRequests.set(0);
+		protectedResponses.set(0);
+		verifiedRequests.set(0);
+		verifiedResponses.set(0);
+		protectionFailures.set(0);
+		contextsNotFound.set(0);
+		replaysRejected.set(0);
+		verificationFailures.set(0);
+		protectLatency.reset();
+		verifyLatency.reset();
+		contexts.clear();
+		expungeStaleContexts();
+	}
+
+	private ContextStatistic getContextStatistic(OSCoreCtx ctx) {
+		ContextStatistic statistic = contexts.get(new ContextKey(ctx, null));
+		if (statistic == null) {
+			expungeStaleContexts();
+			ContextKey key = new ContextKey(ctx, staleContexts);
+			statistic = new ContextStatistic(key);
+			ContextStatistic previous = contexts.putIfAbsent(key, statistic);
+			if (previous != null) {
+				statistic = previous;
+			}
+		}
+		return statistic;
+	}
+
+	/**
+	 * Remove the counters of garbage collected contexts.
+	 */
+	private void expungeStaleContexts() {
+		Reference<? extends OSCoreCtx> key;
+		while ((key = staleContexts.poll()) != null) {
+			contexts.remove(key);
+		}
+	}
+
+	/**
+	 * Weak key of a context. Compares the contexts by identity. Keys of
+	 * garbage collected contexts are only equal to themselves.
+	 */
+	private static final class ContextKey extends WeakReference<OSCoreCtx> {
+
+		private final int hash;
+
+		private ContextKey(OSCoreCtx ctx, ReferenceQueue<OSCoreCtx> queue) {
+			super(ctx, queue);
+			this.hash = System.identityHashCode(ctx);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ContextKey)) {
+				return false;
+			}
+			OSCoreCtx ctx = get();
+			return ctx != null && ctx == ((ContextKey) obj).get();
+		}
+	}
+
+	/**
+	 * Message counters of one context.
+	 */
+	public static final class ContextStatistic {
+
+		private final ContextKey key;
+		private final AtomicLong protectedMessages = new AtomicLong();
+		private final AtomicLong verifiedMessages = new AtomicLong();
+
+		private ContextStatistic(ContextKey key) {
+			this.key = key;
+		}
+
+		/**
+		 * @return the number of protected messages
+		 */
+		public long getProtectedMessages() {
+			return protectedMessages.get();
+		}
+
+		/**
+		 * @return the number of verified messages
+		 */
+		public long getVerifiedMessages() {
+			return verifiedMessages.get();
+		}
+
+		/**
+		 * @return the number of sender sequence numbers left before the
+		 *         context must be renewed
+		 */
+		public long getSenderSeqHeadroom() {
+			OSCoreCtx ctx = key.get();
+			if (ctx == null) {
+				return Integer.MAX_VALUE;
+			}
+			return (long) ctx.getSeqMax() - ctx.getSenderSeq();
+		}
+	}
+
+	/**
+	 * Histogram of latencies. Bucket {@code i} counts the latencies below
+	 * {@code 2^i} microseconds, which are not counted by a lower bucket. The
+	 * last bucket counts all larger latencies.
+	 */
+	public static final class LatencyHistogram {
+
+		private static final int BUCKETS = 32;
+
+		private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+		/**
+		 * Add a latency.
+		 * 
+		 * @param nanos the latency in nanoseconds
+		 */
+		public void add(long nanos) {
+			long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+			int bucket = micros <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+			counts.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+		}
+
+		/**
+		 * @return the counts of the buckets
+		 */
+		public long[] getCounts() {
+			long[] result = new long[BUCKETS];
+			for (int index = 0; index < BUCKETS; ++index) {
+				result[index] = counts.get(index);
+			}
+			return result;
+		}
+
+		/**
+		 * Get the upper bound of the percentile.
+		 * 
+		 * @param percentile the percentile, {@code 0.0} to {@code 1.0}
+		 * @return the upper bound of the bucket with the percentile in
+		 *         microseconds, or {@code 0}, if no latency is added
+		 */
+		public long getPercentileMicros(double percentile) {
+			long[] current = getCounts();
+			long total = 0;
+			for (long count : current) {
+				total += count;
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(total * percentile);
+			long sum = 0;
+			for (int index = 0; index < BUCKETS; ++index) {
+				sum += current[index];
+				if (sum >= rank) {
+					return 1L << index;
+				}
+			}
+			return 1L << (BUCKETS - 1);
+		}
+
+		/**
+		 * Reset the counts.
+		 */
+		public void reset() {
+			for (int index = 0; index < BUCKETS; ++index) {
+				counts.set(index, 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+/**
+ *
+ * Management interface of {@link OSCoreCounterStatistics}.
+ *
+ */
+public interface OSCoreCounterStatisticsMBean {
+
+	long getProtectedRequests();
+
+	long getProtectedResponses();
+
+	long getVerifiedRequests();
+
+	long getVerifiedResponses();
+
+	long getProtectionFailures();
+
+	long getContextsNotFound();
+
+	long getReplaysRejected();
+
+	long getVerificationFailures();
+
+	/**
+	 * @return number of contexts with protected or verified messages
+	 */
+	int getContexts();
+
+	/**
+	 * @return the smallest number of sender sequence numbers left before a
+	 *         context must be renewed
+	 */
+	long getMinimumSenderSeqHeadroom();
+
+	/**
+	 * @return the protection latency histogram, see
+	 *         {@link OSCoreCounterStatistics.LatencyHistogram#getCounts()}
+	 */
+	long[] getProtectLatencyHistogram();
+
+	/**
+	 * @return the verification latency histogram, see
+	 *         {@link OSCoreCounterStatistics.LatencyHistogram#getCounts()}
+	 */
+	long[] getVerifyLatencyHistogram();
+
+	/**
+	 * @return upper bound of the 99th percentile of the protection latency in
+	 *         microseconds
+	 */
+	long getProtectLatency99thPercentileMicros();
+
+	/**
+	 * @return upper bound of the 99th percentile of the verification latency
+	 *         in microseconds
+	 */
+	long getVerifyLatency99thPercentileMicros();
+
+	/**
+	 * Reset all counters.
+	 */
+	void reset();
+}
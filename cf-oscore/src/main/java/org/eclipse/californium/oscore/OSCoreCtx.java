@@ -20,20 +20,25 @@
 package org.eclipse.californium.oscore;
 
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.crypto.Cipher;
 import javax.crypto.Mac;
+import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.eclipse.californium.core.coap.CoAP.Code;
 
 import com.upokecenter.cbor.CBORObject;
 
 import org.eclipse.californium.cose.AlgorithmID;
 import org.eclipse.californium.cose.CoseException;
+import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
+import org.eclipse.californium.scandium.dtls.cipher.CipherManager;
 
 /**
  * 
@@ -48,6 +53,12 @@ public class OSCoreCtx {
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(OSCoreCtx.class.getName());
 
+	/**
+	 * HMACs of the current thread for the HKDF key derivation.
+	 */
+	private static final ThreadLocal<Mac> HMAC_SHA_256 = prepareMac("HmacSHA256");
+	private static final ThreadLocal<Mac> HMAC_SHA_512 = prepareMac("HmacSHA512");
+
 	private AlgorithmID common_alg;
 	private byte[] common_master_secret;
 	private byte[] common_master_salt;
@@ -56,28 +67,27 @@ public class OSCoreCtx {
 
 	private byte[] sender_id;
 	private byte[] sender_key;
-	private int sender_seq;
+	private SecretKey sender_secret_key;
+	private byte[] sender_nonce_base;
+	private final AtomicInteger sender_seq = new AtomicInteger();
 
 	private byte[] recipient_id;
 	private byte[] recipient_key;
-	private int recipient_seq;
-	private int recipient_replay_window_size;
-	private int recipient_replay_window;
+	private SecretKey recipient_secret_key;
+	private byte[] recipient_nonce_base;
+	private ReplayWindow recipient_replay_window;
 
 	private AlgorithmID kdf;
 
-	private int rollback_recipient_seq = -1;
-	private int rollback_recipient_replay = -1;
-	private byte[] rollback_last_block_tag = null;
 
 	private byte[] last_block_tag = null;
-	private int seqMax = Integer.MAX_VALUE;
+	private volatile int seqMax = Integer.MAX_VALUE;
+	private volatile SenderSeqCheckpoint senderSeqCheckpoint;
 
 	private int id_length;
 	private int iv_length;
 	private int key_length;
 
-	private Code CoAPCode = null;
 
 	/**
 	 * Constructor. Generates the context from the base parameters with the
@@ -101,11 +111,14 @@ public class OSCoreCtx {
 	 * @param recipient_id the recipient id or null for default
 	 * @param kdf the COSE algorithm abbreviation of the kdf or null for the
 	 *            default
-	 * @param replay_size the replay window size or null for the default
+	 * @param replay_size the replay window size or null for the default.
+	 *            {@link ReplayWindow#MIN_SIZE} to
+	 *            {@link ReplayWindow#MAX_SIZE}.
 	 * @param master_salt the optional master salt, can be null
 	 * @param contextId the context id, can be null
 	 *
-	 * @throws OSException if the KDF is not supported
+	 * @throws OSException if the KDF is not supported or the replay window
+	 *             size is invalid
 	 */
 	public OSCoreCtx(byte[] master_secret, boolean client, AlgorithmID alg, byte[] sender_id, byte[] recipient_id,
 			AlgorithmID kdf, Integer replay_size, byte[] master_salt, byte[] contextId) throws OSException {
@@ -118,9 +131,6 @@ public class OSCoreCtx {
 
 		setLengths();
 
-		this.sender_seq = 0;
-		this.recipient_seq = -1;
-
 		if (master_secret != null) {
 			this.common_master_secret = master_secret.clone();
 		} else {
@@ -153,12 +163,12 @@ public class OSCoreCtx {
 			this.kdf = kdf;
 		}
 
-		if (replay_size == null) {
-			this.recipient_replay_window_size = 32;
-		} else {
-			this.recipient_replay_window_size = replay_size.intValue();
+		int replaySize = replay_size == null ? ReplayWindow.DEFAULT_SIZE : replay_size.intValue();
+		if (replaySize < ReplayWindow.MIN_SIZE || replaySize > ReplayWindow.MAX_SIZE) {
+			LOGGER.error(ErrorDescriptions.REPLAY_WINDOW_SIZE_INVALID + ": " + replaySize);
+			throw new OSException(ErrorDescriptions.REPLAY_WINDOW_SIZE_INVALID);
 		}
-		this.recipient_replay_window = 0;
+		this.recipient_replay_window = new ReplayWindow(replaySize);
 
 		if (master_salt == null) {
 			// Default value. Automatically initialized with 0-es.
@@ -199,6 +209,7 @@ public class OSCoreCtx {
 		try {
 			this.sender_key = deriveKey(this.common_master_secret, this.common_master_salt, this.key_length, digest,
 					info.EncodeToBytes());
+			this.sender_secret_key = new SecretKeySpec(this.sender_key, "AES");
 		} catch (CoseException e) {
 			LOGGER.error(e.getMessage());
 			throw new OSException(e.getMessage());
@@ -215,6 +226,7 @@ public class OSCoreCtx {
 		try {
 			this.recipient_key = deriveKey(this.common_master_secret, this.common_master_salt, this.key_length, digest,
 					info.EncodeToBytes());
+			this.recipient_secret_key = new SecretKeySpec(this.recipient_key, "AES");
 		} catch (CoseException e) {
 			LOGGER.error(e.getMessage());
 			throw new OSException(e.getMessage());
@@ -236,6 +248,51 @@ public class OSCoreCtx {
 			throw new OSException(e.getMessage());
 		}
 
+		// Precompute the per message independent parts of the nonces
+		this.sender_nonce_base = OSSerializer.nonceBase(this.sender_id, this.common_iv, this.iv_length);
+		this.recipient_nonce_base = OSSerializer.nonceBase(this.recipient_id, this.common_iv, this.iv_length);
+	}
+
+	/**
+	 * Constructor. Restores a context from its already derived keys, without
+	 * repeating the key derivation. The arrays are not copied.
+	 * 
+	 * @param alg the encryption algorithm as defined in COSE
+	 * @param kdf the COSE algorithm abbreviation of the kdf
+	 * @param master_secret the master secret
+	 * @param master_salt the master salt
+	 * @param sender_id the sender id
+	 * @param recipient_id the recipient id
+	 * @param contextId the context id, can be null
+	 * @param replay_size the replay window size
+	 * @param sender_key the derived sender key
+	 * @param recipient_key the derived recipient key
+	 * @param common_iv the derived common IV
+	 * @throws OSException if the replay window size is invalid
+	 */
+	OSCoreCtx(AlgorithmID alg, AlgorithmID kdf, byte[] master_secret, byte[] master_salt, byte[] sender_id,
+			byte[] recipient_id, byte[] contextId, int replay_size, byte[] sender_key, byte[] recipient_key,
+			byte[] common_iv) throws OSException {
+		this.common_alg = alg;
+		setLengths();
+		if (replay_size < ReplayWindow.MIN_SIZE || replay_size > ReplayWindow.MAX_SIZE) {
+			LOGGER.error(ErrorDescriptions.REPLAY_WINDOW_SIZE_INVALID + ": " + replay_size);
+			throw new OSException(ErrorDescriptions.REPLAY_WINDOW_SIZE_INVALID);
+		}
+		this.kdf = kdf;
+		this.common_master_secret = master_secret;
+		this.common_master_salt = master_salt;
+		this.sender_id = sender_id;
+		this.recipient_id = recipient_id;
+		this.context_id = contextId;
+		this.recipient_replay_window = new ReplayWindow(replay_size);
+		this.sender_key = sender_key;
+		this.sender_secret_key = new SecretKeySpec(sender_key, "AES");
+		this.recipient_key = recipient_key;
+		this.recipient_secret_key = new SecretKeySpec(recipient_key, "AES");
+		this.common_iv = common_iv;
+		this.sender_nonce_base = OSSerializer.nonceBase(sender_id, common_iv, iv_length);
+		this.recipient_nonce_base = OSSerializer.nonceBase(recipient_id, common_iv, iv_length);
 	}
 
 	/**
@@ -276,6 +333,44 @@ public class OSCoreCtx {
 		return recipient_key;
 	}
 
+	/**
+	 * @return the sender key for the AEAD ciphers of the JCE
+	 */
+	SecretKey getSenderSecretKey() {
+		return sender_secret_key;
+	}
+
+	/**
+	 * @return the recipient key for the AEAD ciphers of the JCE
+	 */
+	SecretKey getRecipientSecretKey() {
+		return recipient_secret_key;
+	}
+
+	/**
+	 * Get the block cipher for AES-CCM. AES-GCM uses the AEAD cipher of the
+	 * JCE with the {@link #getSenderKey() sender key} instead.
+	 * 
+	 * @return the block cipher of the current thread initialized with the
+	 *         sender key
+	 * @throws OSException if the cipher is not supported
+	 */
+	public Cipher getSenderCipher() throws OSException {
+		return getCipher(sender_secret_key);
+	}
+
+	/**
+	 * Get the block cipher for AES-CCM. AES-GCM uses the AEAD cipher of the
+	 * JCE with the {@link #getRecipientKey() recipient key} instead.
+	 * 
+	 * @return the block cipher of the current thread initialized with the
+	 *         recipient key
+	 * @throws OSException if the cipher is not supported
+	 */
+	public Cipher getRecipientCipher() throws OSException {
+		return getCipher(recipient_secret_key);
+	}
+
 	/**
 	 * @return the encryption algorithm
 	 */
@@ -284,17 +379,42 @@ public class OSCoreCtx {
 	}
 
 	/**
-	 * @return the sender sequence number
+	 * @return the sender sequence number, which is used next
 	 */
-	public synchronized int getSenderSeq() {
-		return sender_seq;
+	public int getSenderSeq() {
+		return sender_seq.get();
+	}
+
+	/**
+	 * Reserve the next sender sequence number. Each sequence number is
+	 * returned only once, also for concurrent callers, and must be used as
+	 * partial IV for the nonce, AAD and OSCORE option of one message.
+	 * 
+	 * @return the reserved sender sequence number
+	 * @throws OSException if the sequence number wraps
+	 */
+	public int reserveSenderSeq() throws OSException {
+		while (true) {
+			int seq = sender_seq.get();
+			if (seq >= seqMax) {
+				LOGGER.error("Sequence number wrapped, get a new OSCore context");
+				throw new OSException("Sequence number wrapped");
+			}
+			if (sender_seq.compareAndSet(seq, seq + 1)) {
+				SenderSeqCheckpoint checkpoint = senderSeqCheckpoint;
+				if (checkpoint != null) {
+					checkpoint.reserved(this, seq);
+				}
+				return seq;
+			}
+		}
 	}
 
 	/**
 	 * @return the receiver sequence number
 	 */
-	public synchronized int getReceiverSeq() {
-		return recipient_seq;
+	public int getReceiverSeq() {
+		return recipient_replay_window.getHighest();
 	}
 
 	/**
@@ -325,6 +445,22 @@ public class OSCoreCtx {
 		return common_iv;
 	}
 
+	/**
+	 * @return the common_iv XORed with the padded sender id, see
+	 *         {@link OSSerializer#nonceBase(byte[], byte[], int)}
+	 */
+	public byte[] getSenderNonceBase() {
+		return sender_nonce_base;
+	}
+
+	/**
+	 * @return the common_iv XORed with the padded recipient id, see
+	 *         {@link OSSerializer#nonceBase(byte[], byte[], int)}
+	 */
+	public byte[] getRecipientNonceBase() {
+		return recipient_nonce_base;
+	}
+
 	/**
 	 * @return the set length of IV:s
 	 */
@@ -336,14 +472,16 @@ public class OSCoreCtx {
 	 * @return size of recipient replay window
 	 */
 	public int getRecipientReplaySize() {
-		return recipient_replay_window_size;
+		return recipient_replay_window.getSize();
 	}
 
 	/**
-	 * @return recipient replay window
+	 * @return recipient replay window of the 32 sequence numbers below the
+	 *         receiver sequence number, see
+	 *         {@link ReplayWindow#getRecentWindow()}
 	 */
 	public int getRecipientReplayWindow() {
-		return recipient_replay_window;
+		return recipient_replay_window.getRecentWindow();
 	}
 
 	public byte[] getMasterSecret() {
@@ -367,26 +505,21 @@ public class OSCoreCtx {
 		return context_id;
 	}
 
-	public int rollbackRecipientSeq() {
-		return rollback_recipient_seq;
-	}
-
-	public int rollbackRecipientReplay() {
-		return rollback_recipient_replay;
-	}
-
 	/**
 	 * @param seq the sender sequence number to set
 	 */
-	public synchronized void setSenderSeq(int seq) {
-		sender_seq = seq;
+	public void setSenderSeq(int seq) {
+		sender_seq.set(seq);
 	}
 
 	/**
+	 * Set the recipient sequence number. Resets the replay window, must not
+	 * be called concurrently to {@link #checkIncomingSeq(int)}.
+	 * 
 	 * @param seq the recipient sequence number to set
 	 */
-	public synchronized void setReceiverSeq(int seq) {
-		recipient_seq = seq;
+	public void setReceiverSeq(int seq) {
+		recipient_replay_window.reset(seq);
 	}
 
 	/**
@@ -405,6 +538,7 @@ public class OSCoreCtx {
 	 */
 	public void setSenderKey(byte[] senderKey) {
 		this.sender_key = senderKey.clone();
+		this.sender_secret_key = new SecretKeySpec(this.sender_key, "AES");
 	}
 	
 	/**
@@ -414,8 +548,16 @@ public class OSCoreCtx {
 	 */
 	public void setRecipientKey(byte[] recipientKey) {
 		this.recipient_key = recipientKey.clone();
+		this.recipient_secret_key = new SecretKeySpec(this.recipient_key, "AES");
 	}
 	
+	/**
+	 * @return the maximum sequence number
+	 */
+	public int getSeqMax() {
+		return seqMax;
+	}
+
 	/**
 	 * Set the maximum sequence number.
 	 * 
@@ -425,6 +567,16 @@ public class OSCoreCtx {
 		this.seqMax = seqMax;
 	}
 
+	/**
+	 * Set the checkpoint, which is called for every reserved sender sequence
+	 * number.
+	 * 
+	 * @param checkpoint the checkpoint, or {@code null} to remove it
+	 */
+	public void setSenderSeqCheckpoint(SenderSeqCheckpoint checkpoint) {
+		this.senderSeqCheckpoint = checkpoint;
+	}
+
 	/**
 	 * Sets the valid lengths, in bytes, of constrained variables(ids, IVs and
 	 * keys).
@@ -433,13 +585,15 @@ public class OSCoreCtx {
 	 */
 	private void setLengths() {
 		if (common_alg != null) {
-			if (common_alg.equals(AlgorithmID.AES_CCM_16_64_128)) {
-				iv_length = ivLength(common_alg);
-				id_length = 7;
-				key_length = common_alg.getKeySize() / 8; // 16;
+			int length = ivLength(common_alg);
+			if (length > 0) {
+				iv_length = length;
+				// see RFC 8613, section 3.3
+				id_length = length - 6;
+				key_length = common_alg.getKeySize() / 8;
 			} else {
-				LOGGER.error("Unable to set lengths, since algorithm");
-				throw new RuntimeException("Unable to set lengths, since algorithm");
+				LOGGER.error("Unable to set lengths, since algorithm " + common_alg + " is not supported");
+				throw new RuntimeException("Unable to set lengths, since algorithm " + common_alg + " is not supported");
 			}
 		} else {
 			LOGGER.error("Common_alg has not yet been initiated.");
@@ -451,91 +605,166 @@ public class OSCoreCtx {
 	 * Increase the sender's sequence number by one
 	 *
 	 * @throws OSException if the sequence number wraps
+	 * @see #reserveSenderSeq()
 	 */
-	public synchronized void increaseSenderSeq() throws OSException {
-		if (sender_seq >= seqMax) {
-			LOGGER.error("Sequence number wrapped, get a new OSCore context");
-			throw new OSException("Sequence number wrapped");
-		}
-		sender_seq++;
+	public void increaseSenderSeq() throws OSException {
+		reserveSenderSeq();
 	}
 
 	/**
-	 * Checks and sets the sequence number for incoming messages.
+	 * Checks and sets the sequence number for incoming messages. The replay
+	 * window is updated atomically, so a sequence number is accepted only
+	 * once, also for concurrent callers.
 	 * 
 	 * @param seq the incoming sequence number
 	 * 
 	 * @throws OSException if the sequence number wraps or if for a replay
 	 */
-	public synchronized void checkIncomingSeq(int seq) throws OSException {
+	public void checkIncomingSeq(int seq) throws OSException {
+		verifyIncomingSeq(seq);
+		acceptIncomingSeq(seq);
+	}
+
+	/**
+	 * Checks the sequence number of an incoming message without updating the
+	 * replay window. Used before the message is decrypted, so that messages,
+	 * which fail to decrypt, don't advance the replay window.
+	 * 
+	 * @param seq the incoming sequence number
+	 * 
+	 * @throws OSException if the sequence number wraps or if for a replay
+	 * @see #acceptIncomingSeq(int)
+	 */
+	public void verifyIncomingSeq(int seq) throws OSException {
 		if (seq >= seqMax) {
 			LOGGER.error("Sequence number wrapped, get new OSCore context");
-			throw new OSException(ErrorDescriptions.REPLAY_DETECT);
+			throw new OSException(ErrorDescriptions.REPLAY_DETECT, OSException.Reason.REPLAY_DETECTED);
 		}
-		rollback_recipient_seq = recipient_seq;
-		rollback_recipient_replay = recipient_replay_window;
-		if (seq > recipient_seq) {
-			// Update the replay window
-			int shift = seq - recipient_seq;
-			recipient_replay_window = recipient_replay_window << shift;
-			recipient_seq = seq;
-		} else if (seq == recipient_seq) {
+		if (recipient_replay_window.isTooOld(seq)) {
+			LOGGER.error("Message too old");
+			throw new OSException(ErrorDescriptions.REPLAY_DETECT, OSException.Reason.REPLAY_DETECTED);
+		} else if (recipient_replay_window.isReplay(seq)) {
 			LOGGER.error("Sequence number is replay");
-			throw new OSException(ErrorDescriptions.REPLAY_DETECT);
-		} else { // seq < recipient_seq
-			if (seq + recipient_replay_window_size < recipient_seq) {
-				LOGGER.error("Message too old");
-				throw new OSException(ErrorDescriptions.REPLAY_DETECT);
-			}
-			// seq+replay_window_size > recipient_seq
-			int shift = this.recipient_seq - seq;
-			int pattern = 1 << shift;
-			int verifier = recipient_replay_window & pattern;
-			verifier = verifier >> shift;
-			if (verifier == 1) {
-				throw new OSException(ErrorDescriptions.REPLAY_DETECT);
-			}
-			recipient_replay_window = recipient_replay_window | pattern;
+			throw new OSException(ErrorDescriptions.REPLAY_DETECT, OSException.Reason.REPLAY_DETECTED);
 		}
 	}
 
 	/**
-	 * Rolls back the latest recipient sequence number update if any
+	 * Marks the sequence number of a successfully decrypted incoming message
+	 * as received. The replay window is updated atomically, so a sequence
+	 * number is accepted only once, also for concurrent callers.
+	 * 
+	 * @param seq the incoming sequence number
+	 * @return the receiver sequence number before the update. Intended to be
+	 *         kept with the message for {@link #rollbackIncomingSeq(int, int)}.
+	 * 
+	 * @throws OSException if the sequence number has been accepted
+	 *             concurrently or is too old
 	 */
-	public synchronized void rollBack() {
-		if (rollback_recipient_replay != -1) {
-			recipient_replay_window = rollback_recipient_replay;
-			rollback_recipient_replay = -1;
-		}
-		if (rollback_recipient_seq != -1) {
-			recipient_seq = rollback_recipient_seq;
-			rollback_recipient_seq = -1;
+	public int acceptIncomingSeq(int seq) throws OSException {
+		int previous = recipient_replay_window.getHighest();
+		if (!recipient_replay_window.update(seq)) {
+			LOGGER.error("Sequence number is replay");
+			throw new OSException(ErrorDescriptions.REPLAY_DETECT, OSException.Reason.REPLAY_DETECTED);
 		}
-		if (this.rollback_last_block_tag != null) {
-			this.last_block_tag = this.rollback_last_block_tag;
-			this.rollback_last_block_tag = null;
+		return previous;
+	}
+
+	/**
+	 * Rolls back the acceptance of an incoming sequence number.
+	 * 
+	 * @param seq the accepted sequence number
+	 * @param previousSeq the receiver sequence number before the sequence
+	 *            number has been accepted, as returned by
+	 *            {@link #acceptIncomingSeq(int)}
+	 */
+	public void rollbackIncomingSeq(int seq, int previousSeq) {
+		recipient_replay_window.undo(seq, previousSeq);
+	}
+
+	/**
+	 * Get the block cipher of the current thread for a key. The key schedule
+	 * is computed once for the recently used keys of a thread instead of for
+	 * every message, see {@link CipherManager#getInstance(String, SecretKey)}.
+	 * 
+	 * @param secretKey the key
+	 * @return the block cipher initialized with the key
+	 * @throws OSException if the cipher is not supported
+	 */
+	private static Cipher getCipher(SecretKey secretKey) throws OSException {
+		try {
+			return CipherManager.getInstance(CCMBlockCipher.CIPHER_NAME, secretKey);
+		} catch (GeneralSecurityException e) {
+			LOGGER.error("Unable to initialize cipher: " + e.getMessage());
+			throw new OSException("Cipher not supported");
 		}
 	}
 
 	/**
 	 * Get IV length in bytes.
+	 * 
+	 * @param alg the AEAD algorithm
+	 * @return the length of the IV, or {@code -1}, if the algorithm is not
+	 *         supported
 	 */
-	private static int ivLength(AlgorithmID alg) {
+	static int ivLength(AlgorithmID alg) {
 		switch (alg) {
 		case AES_CCM_16_64_128:
+		case AES_CCM_16_64_256:
+		case AES_CCM_16_128_128:
+		case AES_CCM_16_128_256:
 			return 13;
+		case AES_CCM_64_64_128:
+		case AES_CCM_64_64_256:
+		case AES_CCM_64_128_128:
+		case AES_CCM_64_128_256:
+			return 7;
+		case AES_GCM_128:
+		case AES_GCM_192:
+		case AES_GCM_256:
+			return 12;
 		default:
 			return -1;
 		}
 	}
 
+	/**
+	 * Prepare a thread local HMAC. {@link Mac#getInstance(String)} looks up
+	 * the provider on every call, which dominates the key derivation, if many
+	 * contexts are created.
+	 * 
+	 * @param algorithm the HMAC algorithm name
+	 * @return the thread local HMAC. The value is {@code null}, if the
+	 *         algorithm is not supported.
+	 */
+	private static ThreadLocal<Mac> prepareMac(final String algorithm) {
+		return new ThreadLocal<Mac>() {
+
+			@Override
+			protected Mac initialValue() {
+				try {
+					return Mac.getInstance(algorithm);
+				} catch (NoSuchAlgorithmException e) {
+					LOGGER.error("Unable to initialize HMAC: " + e.getMessage());
+					return null;
+				}
+			}
+		};
+	}
+
 	private byte[] deriveKey(byte[] secret, byte[] salt, int cbitKey, String digest, byte[] rgbContext)
 			throws CoseException {
 
 		final String HMAC_ALG_NAME = "Hmac" + digest;
+		ThreadLocal<Mac> macs = "SHA512".equals(digest) ? HMAC_SHA_512 : HMAC_SHA_256;
 
 		try {
-			Mac hmac = Mac.getInstance(HMAC_ALG_NAME);
+			Mac hmac = macs.get();
+			if (hmac == null) {
+				// retry initialization on next use
+				macs.remove();
+				throw new NoSuchAlgorithmException(HMAC_ALG_NAME);
+			}
 			int hashLen = hmac.getMacLength();
 
 			// Perform extract
@@ -564,20 +793,4 @@ public class OSCoreCtx {
 			throw new CoseException("Derivation failure", ex);
 		}
 	}
-
-	/**
-	 * Returns this CoAPCode
-	 */
-	public Code getCoAPCode() {
-		return CoAPCode;
-	}
-
-	/**
-	 * Sets this CoAPCode to CoAPCode
-	 */
-	public void setCoAPCode(Code CoAPCode) {
-		if (CoAPCode != null) {
-			this.CoAPCode = CoAPCode;
-		}
-	}
 }
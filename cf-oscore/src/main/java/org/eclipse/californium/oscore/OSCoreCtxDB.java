@@ -17,6 +17,8 @@
  ******************************************************************************/
 package org.eclipse.californium.oscore;
 
+import java.util.List;
+
 import org.eclipse.californium.core.coap.Token;
 
 /**
@@ -27,11 +29,46 @@ import org.eclipse.californium.core.coap.Token;
 public interface OSCoreCtxDB {
 
 	/**
-	 * @param cid the context identifier
+	 * Get the context by recipient id only, e.g. for a request without kid
+	 * context.
+	 * 
+	 * If the recipient id is reused with different ID contexts, the last
+	 * added context of the recipient id is returned, regardless of its ID
+	 * context. Use {@link #getContext(byte[], byte[])} to get a specific one.
+	 * 
+	 * @param cid the recipient id
 	 * @return the OSCore context
 	 */
 	public OSCoreCtx getContext(byte[] cid);
 
+	/**
+	 * Get the context by recipient id and ID context. Recipient ids may be
+	 * reused with different ID contexts.
+	 * 
+	 * @param rid the recipient id
+	 * @param IDContext the ID context, or {@code null} for a context without
+	 *            ID context
+	 * @return the OSCore context
+	 */
+	public OSCoreCtx getContext(byte[] rid, byte[] IDContext);
+
+	/**
+	 * Get the context by ranges of byte arrays, e.g. of the received OSCORE
+	 * option, without copying them.
+	 * 
+	 * @param rid byte array with the recipient id
+	 * @param ridOffset offset of the recipient id
+	 * @param ridLength length of the recipient id
+	 * @param IDContext byte array with the ID context, or {@code null} to get
+	 *            the context by the recipient id only, as
+	 *            {@link #getContext(byte[])} does
+	 * @param IDContextOffset offset of the ID context
+	 * @param IDContextLength length of the ID context
+	 * @return the OSCore context
+	 */
+	public OSCoreCtx getContext(byte[] rid, int ridOffset, int ridLength, byte[] IDContext, int IDContextOffset,
+			int IDContextLength);
+
 	/**
 	 * @param token the token of the request
 	 * @return the OSCore context
@@ -58,6 +95,17 @@ public interface OSCoreCtxDB {
 	 */
 	public void addContext(OSCoreCtx ctx);
 
+	/**
+	 * Create the contexts and save them by cid. The keys of the contexts are
+	 * derived in parallel, see {@link OSCoreCtxProvisioner}.
+	 * 
+	 * @param parameters the parameters of the contexts
+	 * @return the created contexts in the order of the parameters
+	 * @throws OSException if one of the contexts could not be created. None
+	 *             of the contexts is saved then.
+	 */
+	public List<OSCoreCtx> addContexts(Iterable<OSCoreCtxParameters> parameters) throws OSException;
+
 	/**
 	 * @param uri the recipient's uri
 	 * @return the OSCore context
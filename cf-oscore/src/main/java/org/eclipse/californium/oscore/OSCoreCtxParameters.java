@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import org.eclipse.californium.cose.AlgorithmID;
+
+/**
+ *
+ * Base parameters of an {@link OSCoreCtx}.
+ *
+ * Used to provision many contexts at once, see
+ * {@link OSCoreCtxDB#addContexts(Iterable)}. The keys are derived, when the
+ * context is created, not when the parameters are.
+ *
+ */
+public final class OSCoreCtxParameters {
+
+	private final byte[] masterSecret;
+	private final boolean client;
+	private final AlgorithmID alg;
+	private final byte[] senderId;
+	private final byte[] recipientId;
+	private final AlgorithmID kdf;
+	private final Integer replaySize;
+	private final byte[] masterSalt;
+	private final byte[] contextId;
+
+	/**
+	 * Create the parameters with the default values.
+	 * 
+	 * @param masterSecret the master secret
+	 * @param client is this originally the client's context
+	 */
+	public OSCoreCtxParameters(byte[] masterSecret, boolean client) {
+		this(masterSecret, client, null, null, null, null, null, null, null);
+	}
+
+	/**
+	 * Create the parameters. The arrays are not copied, they are copied when
+	 * the context is created.
+	 * 
+	 * @param masterSecret the master secret
+	 * @param client is this originally the client's context
+	 * @param alg the encryption algorithm as defined in COSE or null for the
+	 *            default
+	 * @param senderId the sender id or null for default
+	 * @param recipientId the recipient id or null for default
+	 * @param kdf the COSE algorithm abbreviation of the kdf or null for the
+	 *            default
+	 * @param replaySize the replay window size or null for the default
+	 * @param masterSalt the optional master salt, can be null
+	 * @param contextId the context id, can be null
+	 * 
+	 * @see OSCoreCtx#OSCoreCtx(byte[], boolean, AlgorithmID, byte[], byte[],
+	 *      AlgorithmID, Integer, byte[], byte[])
+	 */
+	public OSCoreCtxParameters(byte[] masterSecret, boolean client, AlgorithmID alg, byte[] senderId,
+			byte[] recipientId, AlgorithmID kdf, Integer replaySize, byte[] masterSalt, byte[] contextId) {
+		this.masterSecret = masterSecret;
+		this.client = client;
+		this.alg = alg;
+		this.senderId = senderId;
+		this.recipientId = recipientId;
+		this.kdf = kdf;
+		this.replaySize = replaySize;
+		this.masterSalt = masterSalt;
+		this.contextId = contextId;
+	}
+
+	/**
+	 * Create the context and derive its keys.
+	 * 
+	 * @return the created context
+	 * @throws OSException if the KDF is not supported or the replay window
+	 *             size is invalid
+	 */
+	public OSCoreCtx createContext() throws OSException {
+		return new OSCoreCtx(masterSecret, client, alg, senderId, recipientId, kdf, replaySize, masterSalt,
+				contextId);
+	}
+}
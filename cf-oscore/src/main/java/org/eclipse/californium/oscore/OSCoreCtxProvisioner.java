@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * Creates many {@link OSCoreCtx} in parallel.
+ *
+ * Each context derives three keys with HKDF, which makes creating the
+ * contexts the dominant part of provisioning a large number of peers at
+ * start-up. The derivation is therefore split across a shared fork-join pool.
+ * The HMACs used by the derivation are kept per thread by {@link OSCoreCtx}.
+ *
+ */
+public final class OSCoreCtxProvisioner {
+
+	/**
+	 * Number of contexts, which are created by a single task without further
+	 * splitting.
+	 */
+	private static final int THRESHOLD = 64;
+
+	private OSCoreCtxProvisioner() {
+	}
+
+	/**
+	 * Lazy initialized pool. The workers of a {@link ForkJoinPool} are daemon
+	 * threads and terminate when idle, so the pool is not shut down.
+	 */
+	private static final class PoolHolder {
+
+		private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create the contexts in parallel.
+	 * 
+	 * @param parameters the parameters of the contexts
+	 * @return the created contexts in the order of the parameters
+	 * @throws OSException if one of the contexts could not be created
+	 * @throws NullPointerException if parameters, one of the parameters or a
+	 *             master secret is {@code null}
+	 */
+	public static List<OSCoreCtx> createContexts(Iterable<OSCoreCtxParameters> parameters) throws OSException {
+		if (parameters == null) {
+			throw new NullPointerException("parameters must not be null");
+		}
+		List<OSCoreCtxParameters> list = new ArrayList<OSCoreCtxParameters>();
+		for (OSCoreCtxParameters parameter : parameters) {
+			list.add(parameter);
+		}
+		OSCoreCtx[] contexts = new OSCoreCtx[list.size()];
+		if (contexts.length > THRESHOLD) {
+			try {
+				PoolHolder.POOL.invoke(new CreateTask(list, contexts, 0, contexts.length));
+			} catch (DerivationFailure failure) {
+				throw failure.getCause();
+			}
+		} else {
+			for (int index = 0; index < contexts.length; ++index) {
+				contexts[index] = list.get(index).createContext();
+			}
+		}
+		return Arrays.asList(contexts);
+	}
+
+	/**
+	 * Task creating the contexts of a range of the parameters.
+	 */
+	private static final class CreateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<OSCoreCtxParameters> parameters;
+		private final OSCoreCtx[] contexts;
+		private final int from;
+		private final int to;
+
+		private CreateTask(List<OSCoreCtxParameters> parameters, OSCoreCtx[] contexts, int from, int to) {
+			this.parameters = parameters;
+			this.contexts = contexts;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				try {
+					for (int index = from; index < to; ++index) {
+						contexts[index] = parameters.get(index).createContext();
+					}
+				} catch (OSException e) {
+					throw new DerivationFailure(e);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new CreateTask(parameters, contexts, from, middle),
+						new CreateTask(parameters, contexts, middle, to));
+			}
+		}
+	}
+
+	/**
+	 * Unchecked wrapper to pass an {@link OSException} out of the pool.
+	 */
+	private static final class DerivationFailure extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private DerivationFailure(OSException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized OSException getCause() {
+			return (OSException) super.getCause();
+		}
+	}
+}
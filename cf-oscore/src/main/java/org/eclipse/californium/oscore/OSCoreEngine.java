@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
+import org.eclipse.californium.scandium.dtls.cipher.CipherManager;
+import org.eclipse.californium.scandium.dtls.cipher.InvalidMacException;
+
+/**
+ * 
+ * Protects and unprotects the plaintext of OSCORE messages.
+ * 
+ * OSCORE always uses COSE Encrypt0 objects with the same shape. Therefore the
+ * plaintext is directly en- and decrypted with the prepared ciphers of the
+ * {@link OSCoreCtx}, the nonce and the Enc_structure (see
+ * {@link OSSerializer#serializeEncStructure}), without creating the COSE
+ * message and its attributes.
+ * 
+ * AES-CCM uses the {@link CCMBlockCipher}, with the prepared block ciphers
+ * for short messages and with the bulk processing for messages of at least
+ * {@link CCMBlockCipher#BULK_THRESHOLD} bytes. AES-GCM uses the AEAD cipher
+ * of the JCE, which is usually hardware accelerated.
+ * 
+ * A nonce must not be used twice with the same key. For AES-GCM the JCE
+ * rejects encrypting twice in a row with the same key and nonce, that fails
+ * the protection. The {@link ResponseEncryptor} therefore protects further
+ * responses for the same request with a new partial IV.
+ *
+ */
+public final class OSCoreEngine {
+
+	/**
+	 * The logger
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(OSCoreEngine.class.getName());
+
+	/**
+	 * Transformation of the JCE AES-GCM cipher.
+	 */
+	private static final String AES_GCM = "AES/GCM/NoPadding";
+
+	private OSCoreEngine() {
+	}
+
+	/**
+	 * Encrypt the plaintext with the sender key of the context.
+	 * 
+	 * @param ctx the OSCore context
+	 * @param nonce the nonce
+	 * @param aad the Enc_structure
+	 * @param plaintext the plaintext
+	 * @return the ciphertext including the authentication tag
+	 * @throws OSException if the algorithm is not supported or the
+	 *             encryption fails
+	 */
+	public static byte[] encrypt(OSCoreCtx ctx, byte[] nonce, byte[] aad, byte[] plaintext) throws OSException {
+		AlgorithmID alg = ctx.getAlg();
+		int tagLength = tagLength(alg);
+		try {
+			if (isGcm(alg)) {
+				return gcmEncrypt(ctx.getSenderSecretKey(), nonce, aad, plaintext, tagLength);
+			}
+			if (plaintext.length >= CCMBlockCipher.BULK_THRESHOLD) {
+				return CCMBlockCipher.encrypt(ctx.getSenderSecretKey(), nonce, aad, plaintext, tagLength);
+			}
+			return CCMBlockCipher.encrypt(ctx.getSenderCipher(), nonce, aad, plaintext, tagLength);
+		} catch (GeneralSecurityException e) {
+			LOGGER.error("Encryption failed: " + e.getMessage());
+			throw new OSException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Decrypt the ciphertext with the recipient key of the context.
+	 * 
+	 * @param ctx the OSCore context
+	 * @param nonce the nonce
+	 * @param aad the Enc_structure
+	 * @param ciphertext the ciphertext including the authentication tag
+	 * @return the plaintext
+	 * @throws OSException if the algorithm is not supported or the
+	 *             decryption fails
+	 */
+	public static byte[] decrypt(OSCoreCtx ctx, byte[] nonce, byte[] aad, byte[] ciphertext) throws OSException {
+		AlgorithmID alg = ctx.getAlg();
+		int tagLength = tagLength(alg);
+		if (ciphertext == null || ciphertext.length < tagLength) {
+			LOGGER.error(ErrorDescriptions.DECRYPTION_FAILED + " ciphertext too short");
+			throw new OSException(ErrorDescriptions.DECRYPTION_FAILED);
+		}
+		try {
+			if (isGcm(alg)) {
+				return gcmDecrypt(ctx.getRecipientSecretKey(), nonce, aad, ciphertext, tagLength);
+			}
+			if (ciphertext.length - tagLength >= CCMBlockCipher.BULK_THRESHOLD) {
+				return CCMBlockCipher.decrypt(ctx.getRecipientSecretKey(), nonce, aad, ciphertext, tagLength);
+			}
+			return CCMBlockCipher.decrypt(ctx.getRecipientCipher(), nonce, aad, ciphertext, tagLength);
+		} catch (InvalidMacException e) {
+			LOGGER.error(ErrorDescriptions.MAC_CCM_FAILED);
+			throw new OSException(ErrorDescriptions.DECRYPTION_FAILED + " " + ErrorDescriptions.MAC_CCM_FAILED);
+		} catch (AEADBadTagException e) {
+			LOGGER.error(ErrorDescriptions.MAC_GCM_FAILED);
+			throw new OSException(ErrorDescriptions.DECRYPTION_FAILED + " " + ErrorDescriptions.MAC_GCM_FAILED);
+		} catch (GeneralSecurityException e) {
+			LOGGER.error(ErrorDescriptions.DECRYPTION_FAILED + " " + e.getMessage());
+			throw new OSException(ErrorDescriptions.DECRYPTION_FAILED + " " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the length of the authentication tag.
+	 * 
+	 * @param alg the AEAD algorithm
+	 * @return the length of the tag in bytes
+	 * @throws OSException if the algorithm is not supported
+	 */
+	private static int tagLength(AlgorithmID alg) throws OSException {
+		if (OSCoreCtx.ivLength(alg) > 0) {
+			return alg.getTagSize() / 8;
+		}
+		LOGGER.error(ErrorDescriptions.ALGORITHM_NOT_DEFINED + ": " + alg);
+		throw new OSException(ErrorDescriptions.ALGORITHM_NOT_DEFINED);
+	}
+
+	/**
+	 * @param alg the AEAD algorithm
+	 * @return {@code true}, if the algorithm is AES-GCM
+	 */
+	static boolean isGcm(AlgorithmID alg) {
+		return alg == AlgorithmID.AES_GCM_128 || alg == AlgorithmID.AES_GCM_192 || alg == AlgorithmID.AES_GCM_256;
+	}
+
+	/**
+	 * Encrypt with the JCE AES-GCM cipher.
+	 * 
+	 * @param key the key
+	 * @param nonce the nonce
+	 * @param aad the Enc_structure
+	 * @param plaintext the plaintext
+	 * @param tagLength the length of the authentication tag in bytes
+	 * @return the ciphertext including the authentication tag
+	 * @throws GeneralSecurityException if the encryption fails, e.g. if the
+	 *             key and nonce are reused
+	 */
+	private static byte[] gcmEncrypt(SecretKey key, byte[] nonce, byte[] aad, byte[] plaintext, int tagLength)
+			throws GeneralSecurityException {
+		Cipher cipher = CipherManager.getInstance(AES_GCM);
+		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(tagLength * 8, nonce));
+		cipher.updateAAD(aad);
+		return cipher.doFinal(plaintext);
+	}
+
+	/**
+	 * Decrypt with the JCE AES-GCM cipher.
+	 * 
+	 * @param key the key
+	 * @param nonce the nonce
+	 * @param aad the Enc_structure
+	 * @param ciphertext the ciphertext including the authentication tag
+	 * @param tagLength the length of the authentication tag in bytes
+	 * @return the plaintext
+	 * @throws GeneralSecurityException if the decryption fails
+	 */
+	private static byte[] gcmDecrypt(SecretKey key, byte[] nonce, byte[] aad, byte[] ciphertext, int tagLength)
+			throws GeneralSecurityException {
+		Cipher cipher = CipherManager.getInstance(AES_GCM);
+		cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(tagLength * 8, nonce));
+		cipher.updateAAD(aad);
+		return cipher.doFinal(ciphertext);
+	}
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.Request;
+
+/**
+ * 
+ * State of a decrypted OSCORE request. Keeps the per message values, which
+ * are required to protect the response, with the request instead of the
+ * shared context, so requests of one context can be decrypted concurrently.
+ * Carried on the exchange, see
+ * {@link org.eclipse.californium.core.network.Exchange#setCryptographicContextState(Object)}.
+ *
+ */
+public final class OSCoreRequestState {
+
+	private final Request request;
+	private final OSCoreCtx ctx;
+	private final int seq;
+	private final int previousSeq;
+	private final Code code;
+	/**
+	 * Indicates, that a response has been protected with the nonce of the
+	 * request.
+	 */
+	private final AtomicBoolean requestNonceUsed = new AtomicBoolean();
+
+	/**
+	 * Create the state of a decrypted request.
+	 * 
+	 * @param request the decrypted request
+	 * @param ctx the context used to decrypt the request
+	 * @param seq the sequence number (partial IV) of the request
+	 * @param previousSeq the receiver sequence number before the request has
+	 *            been accepted
+	 * @param code the decrypted inner code of the request
+	 */
+	OSCoreRequestState(Request request, OSCoreCtx ctx, int seq, int previousSeq, Code code) {
+		this.request = request;
+		this.ctx = ctx;
+		this.seq = seq;
+		this.previousSeq = previousSeq;
+		this.code = code;
+	}
+
+	/**
+	 * @return the decrypted request
+	 */
+	public Request getRequest() {
+		return request;
+	}
+
+	/**
+	 * @return the context used to decrypt the request
+	 */
+	public OSCoreCtx getContext() {
+		return ctx;
+	}
+
+	/**
+	 * @return the sequence number (partial IV) of the request. Used for the
+	 *         AAD of the response and for its nonce, if the response has no
+	 *         partial IV of its own.
+	 */
+	public int getSeq() {
+		return seq;
+	}
+
+	/**
+	 * @return the decrypted inner code of the request
+	 */
+	public Code getCode() {
+		return code;
+	}
+
+	/**
+	 * Use the nonce of the request to protect a response. The nonce of the
+	 * request must only be used for one response, further responses must use
+	 * a new partial IV.
+	 * 
+	 * @return {@code true}, if the nonce of the request is used for the first
+	 *         time, {@code false}, if it has been used before.
+	 */
+	boolean useRequestNonce() {
+		return requestNonceUsed.compareAndSet(false, true);
+	}
+
+	/**
+	 * Rolls back the acceptance of the sequence number of this request in
+	 * the replay window of the context.
+	 */
+	public void rollBack() {
+		ctx.rollbackIncomingSeq(seq, previousSeq);
+	}
+}
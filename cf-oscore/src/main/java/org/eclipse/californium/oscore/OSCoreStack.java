@@ -42,14 +42,29 @@ public class OSCoreStack extends BaseCoapStack {
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(OSCoreStack.class.getName());
 
+	private final ObjectSecurityLayer objectSecurityLayer;
+
 	/**
-	 * Creates a new stack for UDP as the transport.
+	 * Creates a new stack for UDP as the transport using the
+	 * {@link HashMapCtxDB} singleton as OSCORE context database.
 	 * 
 	 * @param config The configuration values to use.
 	 * @param outbox The adapter for submitting outbound messages to the
 	 *            transport.
 	 */
 	public OSCoreStack(final NetworkConfig config, final Outbox outbox) {
+		this(config, outbox, HashMapCtxDB.getInstance());
+	}
+
+	/**
+	 * Creates a new stack for UDP as the transport.
+	 * 
+	 * @param config The configuration values to use.
+	 * @param outbox The adapter for submitting outbound messages to the
+	 *            transport.
+	 * @param ctxDb The OSCORE context database of this stack.
+	 */
+	public OSCoreStack(final NetworkConfig config, final Outbox outbox, final OSCoreCtxDB ctxDb) {
 		super(outbox);
 		ReliabilityLayer reliabilityLayer;
 		if (config.getBoolean(NetworkConfig.Keys.USE_CONGESTION_CONTROL)) {
@@ -59,8 +74,16 @@ public class OSCoreStack extends BaseCoapStack {
 			reliabilityLayer = new ReliabilityLayer(config);
 		}
 
+		objectSecurityLayer = new ObjectSecurityLayer(ctxDb, config);
 		Layer layers[] = new Layer[] { new ExchangeCleanupLayer(config), new ObserveLayer(config), new BlockwiseLayer(config),
-				reliabilityLayer, new ObjectSecurityLayer(), };
+				reliabilityLayer, objectSecurityLayer, };
 		setLayers(layers);
 	}
+
+	/**
+	 * @return the OSCORE layer of this stack
+	 */
+	public ObjectSecurityLayer getObjectSecurityLayer() {
+		return objectSecurityLayer;
+	}
 }
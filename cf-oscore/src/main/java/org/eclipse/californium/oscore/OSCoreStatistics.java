@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+/**
+ *
+ * Collector of OSCORE statistics.
+ *
+ * Called by the {@link ObjectSecurityLayer} for every protected and verified
+ * message and for every failure, see
+ * {@link ObjectSecurityLayer#setStatistics(OSCoreStatistics)}. The callbacks
+ * are executed on the hot path, possibly concurrently, and must therefore be
+ * cheap and thread-safe. {@link OSCoreCounterStatistics} counts the events.
+ *
+ */
+public interface OSCoreStatistics {
+
+	/**
+	 * A request has been protected.
+	 * 
+	 * @param ctx the context of the request
+	 * @param nanos the time to protect the request in nanoseconds
+	 */
+	void protectedRequest(OSCoreCtx ctx, long nanos);
+
+	/**
+	 * A response has been protected.
+	 * 
+	 * @param ctx the context of the response
+	 * @param nanos the time to protect the response in nanoseconds
+	 */
+	void protectedResponse(OSCoreCtx ctx, long nanos);
+
+	/**
+	 * A request has been verified and decrypted.
+	 * 
+	 * @param ctx the context of the request
+	 * @param nanos the time to verify the request in nanoseconds
+	 */
+	void verifiedRequest(OSCoreCtx ctx, long nanos);
+
+	/**
+	 * A response has been verified and decrypted.
+	 * 
+	 * @param ctx the context of the response
+	 * @param nanos the time to verify the response in nanoseconds
+	 */
+	void verifiedResponse(OSCoreCtx ctx, long nanos);
+
+	/**
+	 * A message could not be protected.
+	 * 
+	 * @param ctx the context of the message
+	 */
+	void protectionFailed(OSCoreCtx ctx);
+
+	/**
+	 * No context has been found for a received message, either for the kid
+	 * of a request or for the token of a response.
+	 */
+	void contextNotFound();
+
+	/**
+	 * A received request has been rejected as replay.
+	 */
+	void replayRejected();
+
+	/**
+	 * A received message failed to decode or decrypt.
+	 */
+	void verificationFailed();
+}
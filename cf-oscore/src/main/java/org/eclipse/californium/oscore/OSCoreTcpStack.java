@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import org.eclipse.californium.core.network.Outbox;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.stack.BaseCoapStack;
+import org.eclipse.californium.core.network.stack.BlockwiseLayer;
+import org.eclipse.californium.core.network.stack.CoapTcpStack;
+import org.eclipse.californium.core.network.stack.Layer;
+import org.eclipse.californium.core.network.stack.TcpAdaptionLayer;
+import org.eclipse.californium.core.network.stack.TcpExchangeCleanupLayer;
+import org.eclipse.californium.core.network.stack.TcpObserveLayer;
+
+/**
+ * 
+ * Stack for CoAP over TCP with the ObjectSecurityLayer. Uses the layers of
+ * the {@link CoapTcpStack}, the reliability is left to the TCP connection.
+ *
+ */
+public class OSCoreTcpStack extends BaseCoapStack {
+
+	private final ObjectSecurityLayer objectSecurityLayer;
+
+	/**
+	 * Creates a new stack for TCP as the transport using the
+	 * {@link HashMapCtxDB} singleton as OSCORE context database.
+	 * 
+	 * @param config The configuration values to use.
+	 * @param outbox The adapter for submitting outbound messages to the
+	 *            transport.
+	 */
+	public OSCoreTcpStack(final NetworkConfig config, final Outbox outbox) {
+		this(config, outbox, HashMapCtxDB.getInstance());
+	}
+
+	/**
+	 * Creates a new stack for TCP as the transport.
+	 * 
+	 * @param config The configuration values to use.
+	 * @param outbox The adapter for submitting outbound messages to the
+	 *            transport.
+	 * @param ctxDb The OSCORE context database of this stack.
+	 */
+	public OSCoreTcpStack(final NetworkConfig config, final Outbox outbox, final OSCoreCtxDB ctxDb) {
+		super(outbox);
+
+		objectSecurityLayer = new ObjectSecurityLayer(ctxDb, config);
+		Layer layers[] = new Layer[] { new TcpExchangeCleanupLayer(), new TcpObserveLayer(config),
+				new BlockwiseLayer(config), new TcpAdaptionLayer(), objectSecurityLayer, };
+		setLayers(layers);
+	}
+
+	/**
+	 * @return the OSCORE layer of this stack
+	 */
+	public ObjectSecurityLayer getObjectSecurityLayer() {
+		return objectSecurityLayer;
+	}
+}
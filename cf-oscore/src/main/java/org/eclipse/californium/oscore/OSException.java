@@ -29,12 +29,52 @@ public class OSException extends Exception {
 	 */
 	private static final long serialVersionUID = -6170819091814613099L;
 
+	/**
+	 * Reasons of failures, which are distinguished by the
+	 * {@link OSCoreStatistics}.
+	 */
+	public enum Reason {
+		/**
+		 * No specific reason.
+		 */
+		UNSPECIFIED,
+		/**
+		 * No context found for the kid of a request or the token of a
+		 * response.
+		 */
+		CONTEXT_NOT_FOUND,
+		/**
+		 * Replay of a received sequence number.
+		 */
+		REPLAY_DETECTED
+	}
+
+	private final Reason reason;
+
 	/**
 	 * Constructor, sets the message
 	 * 
 	 * @param message the message
 	 */
 	public OSException(String message) {
+		this(message, Reason.UNSPECIFIED);
+	}
+
+	/**
+	 * Constructor, sets the message and the reason
+	 * 
+	 * @param message the message
+	 * @param reason the reason of the failure
+	 */
+	public OSException(String message, Reason reason) {
 		super(message);
+		this.reason = reason;
+	}
+
+	/**
+	 * @return the reason of the failure
+	 */
+	public Reason getReason() {
+		return reason;
 	}
 }
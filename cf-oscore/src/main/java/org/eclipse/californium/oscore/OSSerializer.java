@@ -19,7 +19,6 @@
  ******************************************************************************/
 package org.eclipse.californium.oscore;
 
-import java.nio.ByteBuffer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,10 +27,9 @@ import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.network.serialization.DataSerializer;
 import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.cose.CBOREncoder;
 import org.eclipse.californium.elements.util.DatagramWriter;
 
-import com.upokecenter.cbor.CBORObject;
-
 /**
  * 
  * Implements methods for serializing OSCORE data, creating AAD, reading data
@@ -43,6 +41,13 @@ public class OSSerializer {
 	private static final byte[] ONE_ZERO = new byte[] { 0x00 };
 	private static final byte[] EMPTY = new byte[0];
 
+	/**
+	 * Encoded start of the Enc_structure up to the external_aad: an array of 3
+	 * elements, the context "Encrypt0" and the empty protected attributes.
+	 */
+	private static final byte[] ENC_STRUCTURE_PREFIX = { (byte) 0x83, 0x68, 'E', 'n', 'c', 'r', 'y', 'p', 't', '0',
+			0x40 };
+
 	/**
 	 * The logger
 	 */
@@ -88,28 +93,91 @@ public class OSSerializer {
 	 * @param version the CoAP version number
 	 * @param algorithm AEAD algorithm
 	 * @param requestSeq the sequence number (request PIV)
-	 * @param requestSenderId sender ID (request KID)
+	 * @param requestSenderId sender ID (request KID). {@code null} is encoded
+	 *            as CBOR null
 	 * @param options the option set
 	 * @return byte array with AAD
 	 */
 	public static byte[] serializeAAD(int version, AlgorithmID algorithm, int requestSeq, byte[] requestSenderId, OptionSet options) {
+		return encodeAAD(version, algorithm, requestSeq, requestSenderId, options, false);
+	}
+
+	/**
+	 * Prepare the complete additional authenticated data of a message for the
+	 * AEAD algorithm. That is the COSE Enc_structure for Encrypt0 messages
+	 * without protected attributes, which contains the external_aad, see
+	 * {@link #serializeAAD(int, AlgorithmID, int, byte[], OptionSet)}.
+	 * 
+	 * Enc_structure = [ context : "Encrypt0", protected : h'', external_aad :
+	 * bstr ]
+	 * 
+	 * @param version the CoAP version number
+	 * @param algorithm AEAD algorithm
+	 * @param requestSeq the sequence number (request PIV)
+	 * @param requestSenderId sender ID (request KID). {@code null} is encoded
+	 *            as CBOR null
+	 * @param options the option set
+	 * @return byte array with the Enc_structure
+	 */
+	public static byte[] serializeEncStructure(int version, AlgorithmID algorithm, int requestSeq,
+			byte[] requestSenderId, OptionSet options) {
+		return encodeAAD(version, algorithm, requestSeq, requestSenderId, options, true);
+	}
+
+	/**
+	 * Encodes the external_aad, optionally embedded in the Enc_structure.
+	 * 
+	 * @param version the CoAP version number
+	 * @param algorithm AEAD algorithm
+	 * @param requestSeq the sequence number (request PIV)
+	 * @param requestSenderId sender ID (request KID). {@code null} is encoded
+	 *            as CBOR null
+	 * @param options the option set
+	 * @param encStructure {@code true} to embed the external_aad in the
+	 *            Enc_structure
+	 * @return byte array with AAD
+	 */
+	private static byte[] encodeAAD(int version, AlgorithmID algorithm, int requestSeq, byte[] requestSenderId,
+			OptionSet options, boolean encStructure) {
 		if (version == CoAP.VERSION) {
 			if (requestSeq > -1) {
 				if (algorithm != null) {
 					if (options != null) {
-						CBORObject algorithms = CBORObject.NewArray();
-						algorithms.Add(algorithm.AsCBOR());
-
-						CBORObject aad = CBORObject.NewArray();
-						aad.Add(version);
-						aad.Add(algorithms);
-						aad.Add(requestSenderId);
-						aad.Add(processPartialIV(requestSeq));
-						
+						// encoded directly, without building the CBORObject array
+						int alg = algorithm.AsCBOR().AsInt32();
+						int pivLength = partialIVLength(requestSeq);
+						// a missing sender ID is encoded as CBOR null
+						int senderIdLength = requestSenderId == null ? 1
+								: CBOREncoder.byteStringLength(requestSenderId.length);
+						int length = 1 + CBOREncoder.intLength(version) + 1 + CBOREncoder.intLength(alg)
+								+ senderIdLength + CBOREncoder.byteStringLength(pivLength) + 1;
+						int offset = 0;
+						byte[] aad;
+						if (encStructure) {
+							aad = new byte[ENC_STRUCTURE_PREFIX.length + CBOREncoder.headLength(length) + length];
+							System.arraycopy(ENC_STRUCTURE_PREFIX, 0, aad, 0, ENC_STRUCTURE_PREFIX.length);
+							offset = CBOREncoder.writeHead(CBOREncoder.BYTE_STRING, length, aad,
+									ENC_STRUCTURE_PREFIX.length);
+						} else {
+							aad = new byte[length];
+						}
+
+						aad[offset] = (byte) (CBOREncoder.ARRAY << 5 | 5);
+						offset = CBOREncoder.writeInt(version, aad, offset + 1);
+						aad[offset++] = (byte) (CBOREncoder.ARRAY << 5 | 1);
+						offset = CBOREncoder.writeInt(alg, aad, offset);
+						if (requestSenderId == null) {
+							aad[offset++] = CBOREncoder.NULL;
+						} else {
+							offset = CBOREncoder.writeByteString(requestSenderId, aad, offset);
+						}
+						offset = CBOREncoder.writeHead(CBOREncoder.BYTE_STRING, pivLength, aad, offset);
+						offset += writePartialIV(requestSeq, aad, offset);
+
 						//I-class options (currently none)
-						aad.Add(CBORObject.FromObject(EMPTY));
-						
-						return aad.EncodeToBytes();
+						aad[offset] = (byte) (CBOREncoder.BYTE_STRING << 5);
+
+						return aad;
 					} else {
 						LOGGER.error(ErrorDescriptions.OPTIONSET_NULL);
 						throw new NullPointerException(ErrorDescriptions.OPTIONSET_NULL);
@@ -200,6 +268,43 @@ public class OSSerializer {
 		}
 	}
 
+	/**
+	 * Precomputes the part of the nonce, which only depends on the context:
+	 * the common IV XORed with the padded ID and its length. The nonce of a
+	 * message is then generated by
+	 * {@link #nonceGeneration(int, byte[], byte[])}.
+	 * 
+	 * @param id sender ID of the messages (either sender or recipient ID)
+	 * @param commonIV common IV shared between sender and recipient
+	 * @param nonceLength the algorithm dependent length of nonce
+	 * @return the nonce base
+	 * @throws OSException if any of the parameters are invalid
+	 */
+	public static byte[] nonceBase(byte[] id, byte[] commonIV, int nonceLength) throws OSException {
+		return nonceGeneration(ONE_ZERO, id, commonIV, nonceLength);
+	}
+
+	/**
+	 * Generates the nonce of a message from the precomputed nonce base
+	 * without allocating memory.
+	 * 
+	 * @param seq the sequence number used as partial IV
+	 * @param nonceBase the nonce base of the sender ID, see
+	 *            {@link #nonceBase(byte[], byte[], int)}
+	 * @param nonce the buffer for the nonce. At least as long as the nonce
+	 *            base.
+	 */
+	public static void nonceGeneration(int seq, byte[] nonceBase, byte[] nonce) {
+		int index = nonceBase.length;
+		System.arraycopy(nonceBase, 0, nonce, 0, index);
+		// the partial IV is left padded to the last 5 bytes, the sequence
+		// number uses at most the last 4 of them
+		for (int i = 0; i < Decryptor.INTEGER_BYTES; ++i) {
+			nonce[--index] ^= (byte) seq;
+			seq >>>= 8;
+		}
+	}
+
 	/**
 	 * Padds the left side of the byte array paddMe with zeros as the int zeros
 	 * has
@@ -221,8 +326,74 @@ public class OSSerializer {
 	 * @return the processed partialIV
 	 */
 	public static byte[] processPartialIV(int value) {
-		byte[] partialIV = ByteBuffer.allocate(Decryptor.INTEGER_BYTES).putInt(value).array();
-		return stripZeroes(partialIV);
+		byte[] partialIV = new byte[partialIVLength(value)];
+		writePartialIV(value, partialIV, 0);
+		return partialIV;
+	}
+
+	/**
+	 * Get the length of the partial IV of a sequence number, which is encoded
+	 * without leading zeroes.
+	 * 
+	 * @param seq the sequence number
+	 * @return the length of the partial IV in bytes, at least 1
+	 */
+	public static int partialIVLength(int seq) {
+		int length = 1;
+		while ((seq >>>= 8) != 0) {
+			++length;
+		}
+		return length;
+	}
+
+	/**
+	 * Writes the partial IV of a sequence number into a buffer.
+	 * 
+	 * @param seq the sequence number
+	 * @param buffer the buffer
+	 * @param offset the offset in the buffer
+	 * @return the length of the written partial IV, see
+	 *         {@link #partialIVLength(int)}
+	 */
+	public static int writePartialIV(int seq, byte[] buffer, int offset) {
+		int length = partialIVLength(seq);
+		for (int index = offset + length - 1; index >= offset; --index) {
+			buffer[index] = (byte) seq;
+			seq >>>= 8;
+		}
+		return length;
+	}
+
+	/**
+	 * Reads the sequence number from a partial IV.
+	 * 
+	 * @param partialIV the partial IV
+	 * @return the sequence number
+	 * @throws OSException if the partial IV is longer than an int
+	 */
+	public static int readPartialIV(byte[] partialIV) throws OSException {
+		return readPartialIV(partialIV, 0, partialIV.length);
+	}
+
+	/**
+	 * Reads the sequence number from a partial IV within a buffer.
+	 * 
+	 * @param buffer the buffer containing the partial IV
+	 * @param offset the offset of the partial IV in the buffer
+	 * @param length the length of the partial IV
+	 * @return the sequence number
+	 * @throws OSException if the partial IV is longer than an int
+	 */
+	public static int readPartialIV(byte[] buffer, int offset, int length) throws OSException {
+		if (length > Decryptor.INTEGER_BYTES) {
+			LOGGER.error("The partial IV is: " + length + " long, " + Decryptor.INTEGER_BYTES + " was expected");
+			throw new OSException("Partial IV too long");
+		}
+		int seq = 0;
+		for (int index = offset; index < offset + length; ++index) {
+			seq = (seq << 8) | (buffer[index] & 0xff);
+		}
+		return seq;
 	}
 
 	/**
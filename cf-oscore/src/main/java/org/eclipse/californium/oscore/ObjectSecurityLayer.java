@@ -18,6 +18,15 @@
  ******************************************************************************/
 package org.eclipse.californium.oscore;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,12 +39,31 @@ import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.config.NetworkConfigDefaults;
 import org.eclipse.californium.core.network.stack.AbstractLayer;
+import org.eclipse.californium.elements.util.ClockUtil;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
+import org.eclipse.californium.elements.util.SerialExecutor;
 
 /**
  * 
  * Applies OSCORE mechanics at stack layer.
  *
+ * The token of a protected request is associated with its context and
+ * sequence number in the context database, until the exchange completes or
+ * fails. Associations of requests, for which no completion is reported, are
+ * expired after the exchange lifetime, so the database only keeps the tokens
+ * of exchanges in flight. Observe registrations are kept until cancelled.
+ *
+ * Protection and verification are executed on the stack's thread by
+ * default. If {@link NetworkConfig.Keys#OSCORE_CRYPTO_THREAD_COUNT} is
+ * configured, they are executed by a dedicated pool instead, so the AES-CCM
+ * processing doesn't delay the processing of other exchanges. The jobs of one
+ * context are executed in order, and the messages re-enter the stack using
+ * the executor of their exchange.
+ *
  */
 public class ObjectSecurityLayer extends AbstractLayer {
 
@@ -58,6 +86,185 @@ public class ObjectSecurityLayer extends AbstractLayer {
 	 */
 	private static boolean responseWithPartialIV = false; 
 
+	/**
+	 * Default interval in milliseconds to check for expired tokens.
+	 */
+	private static final long DEFAULT_TOKEN_SWEEP_INTERVAL = 10 * 1000;
+
+	/**
+	 * The OSCORE context database of this layer.
+	 */
+	private final OSCoreCtxDB ctxDb;
+
+	/**
+	 * Lifetime of token associations in milliseconds.
+	 */
+	private final long tokenLifetime;
+
+	/**
+	 * Interval in milliseconds to check for expired tokens.
+	 */
+	private final long tokenSweepInterval;
+
+	/**
+	 * Tokens of sent requests, which are not observe registrations, with the
+	 * nano-timestamp of their last transmission.
+	 */
+	private final ConcurrentMap<Token, Long> pendingTokens = new ConcurrentHashMap<Token, Long>();
+
+	/**
+	 * Number of token associations released on completion or failure of
+	 * their exchange.
+	 */
+	private final AtomicLong releasedTokens = new AtomicLong();
+
+	/**
+	 * Number of token associations released after their lifetime.
+	 */
+	private final AtomicLong expiredTokens = new AtomicLong();
+
+	private volatile ScheduledFuture<?> tokenSweepJob;
+
+	/**
+	 * Pool for the protection and verification of messages. {@code null}, if
+	 * messages are processed on the stack's thread.
+	 */
+	private final ExecutorService cryptoExecutor;
+
+	/**
+	 * Serial executors on the {@link #cryptoExecutor}. The jobs of one
+	 * context are executed by the same serial executor, and so in order.
+	 */
+	private final SerialExecutor[] cryptoStripes;
+
+	/**
+	 * Statistics collector. {@code null}, if no statistic is collected.
+	 */
+	private volatile OSCoreStatistics statistics;
+
+	/**
+	 * Creates a layer using the {@link HashMapCtxDB} singleton as OSCORE
+	 * context database.
+	 */
+	public ObjectSecurityLayer() {
+		this(HashMapCtxDB.getInstance());
+	}
+
+	/**
+	 * Creates a layer using the provided OSCORE context database and the
+	 * default exchange lifetime.
+	 * 
+	 * @param ctxDb the OSCORE context database
+	 * @throws NullPointerException if the database is null
+	 */
+	public ObjectSecurityLayer(OSCoreCtxDB ctxDb) {
+		this(ctxDb, NetworkConfigDefaults.DEFAULT_EXCHANGE_LIFETIME, DEFAULT_TOKEN_SWEEP_INTERVAL, 0);
+	}
+
+	/**
+	 * Creates a layer using the provided OSCORE context database.
+	 * <p>
+	 * The following configuration values are used:
+	 * <ul>
+	 * <li>{@link NetworkConfig.Keys#EXCHANGE_LIFETIME} - the token of a
+	 * request is released, if no completion of its exchange has been reported
+	 * for this number of milliseconds</li>
+	 * <li>{@link NetworkConfig.Keys#MARK_AND_SWEEP_INTERVAL} - the interval at
+	 * which to check for expired tokens in milliseconds</li>
+	 * <li>{@link NetworkConfig.Keys#OSCORE_CRYPTO_THREAD_COUNT} - the number
+	 * of threads to protect and verify messages. {@code 0} to process them on
+	 * the stack's thread</li>
+	 * </ul>
+	 * 
+	 * @param ctxDb the OSCORE context database
+	 * @param config the configuration to use
+	 * @throws NullPointerException if the database is null
+	 */
+	public ObjectSecurityLayer(OSCoreCtxDB ctxDb, NetworkConfig config) {
+		this(ctxDb, config.getLong(NetworkConfig.Keys.EXCHANGE_LIFETIME),
+				config.getLong(NetworkConfig.Keys.MARK_AND_SWEEP_INTERVAL),
+				config.getInt(NetworkConfig.Keys.OSCORE_CRYPTO_THREAD_COUNT,
+						NetworkConfigDefaults.DEFAULT_OSCORE_CRYPTO_THREAD_COUNT));
+	}
+
+	private ObjectSecurityLayer(OSCoreCtxDB ctxDb, long tokenLifetime, long tokenSweepInterval,
+			int cryptoThreads) {
+		if (ctxDb == null) {
+			throw new NullPointerException(ErrorDescriptions.DB_NULL);
+		}
+		this.ctxDb = ctxDb;
+		this.tokenLifetime = tokenLifetime;
+		this.tokenSweepInterval = tokenSweepInterval;
+		if (cryptoThreads > 0) {
+			this.cryptoExecutor = ExecutorsUtil.newFixedThreadPool(cryptoThreads,
+					new DaemonThreadFactory("OSCoreCrypto#")); //$NON-NLS-1$
+			// more stripes than threads, so busy contexts rarely share one
+			this.cryptoStripes = new SerialExecutor[cryptoThreads * 4];
+			for (int index = 0; index < cryptoStripes.length; ++index) {
+				cryptoStripes[index] = new SerialExecutor(cryptoExecutor);
+			}
+		} else {
+			this.cryptoExecutor = null;
+			this.cryptoStripes = null;
+		}
+	}
+
+	/**
+	 * @return {@code true}, if messages are protected and verified by a
+	 *         dedicated pool, {@code false}, if on the stack's thread
+	 */
+	public boolean isAsynchronous() {
+		return cryptoExecutor != null;
+	}
+
+	/**
+	 * Set the statistics collector.
+	 * 
+	 * @param statistics the collector, or {@code null} to disable the
+	 *            collection
+	 */
+	public void setStatistics(OSCoreStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the statistics collector, or {@code null}, if not set
+	 */
+	public OSCoreStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return the OSCORE context database of this layer
+	 */
+	public OSCoreCtxDB getCtxDb() {
+		return ctxDb;
+	}
+
+	/**
+	 * @return the number of tokens of sent requests, which are waiting for
+	 *         completion of their exchange
+	 */
+	public int getPendingTokenCount() {
+		return pendingTokens.size();
+	}
+
+	/**
+	 * @return the number of token associations released on completion or
+	 *         failure of their exchange
+	 */
+	public long getReleasedTokenCount() {
+		return releasedTokens.get();
+	}
+
+	/**
+	 * @return the number of token associations released after the exchange
+	 *         lifetime without reported completion
+	 */
+	public long getExpiredTokenCount() {
+		return expiredTokens.get();
+	}
+
 	/**
 	 * Encrypt an outgoing request using the OSCore context.
 	 * 
@@ -87,7 +294,8 @@ public class ObjectSecurityLayer extends AbstractLayer {
 	}
 
 	/**
-	 * Decrypt an incoming request using the right OSCore context
+	 * Decrypt an incoming request using the right OSCore context from the
+	 * {@link HashMapCtxDB} singleton
 	 * 
 	 * @param request the incoming request
 	 * 
@@ -96,11 +304,26 @@ public class ObjectSecurityLayer extends AbstractLayer {
 	 * @throws OSException error while decrypting request
 	 */
 	public static Request prepareReceive(Request request) throws CoapOSException {
-		return RequestDecryptor.decrypt(request);
+		return prepareReceive(HashMapCtxDB.getInstance(), request);
 	}
 
 	/**
-	 * Decrypt an incoming response using the right OSCore context
+	 * Decrypt an incoming request using the right OSCore context
+	 * 
+	 * @param ctxDb the OSCore context database
+	 * @param request the incoming request
+	 * 
+	 * @return the decrypted and verified request
+	 * 
+	 * @throws OSException error while decrypting request
+	 */
+	public static Request prepareReceive(OSCoreCtxDB ctxDb, Request request) throws CoapOSException {
+		return RequestDecryptor.decrypt(ctxDb, request);
+	}
+
+	/**
+	 * Decrypt an incoming response using the right OSCore context from the
+	 * {@link HashMapCtxDB} singleton
 	 * 
 	 * @param response the incoming request
 	 * @return the decrypted and verified response
@@ -108,48 +331,39 @@ public class ObjectSecurityLayer extends AbstractLayer {
 	 * @throws OSException error while decrypting response
 	 */
 	public static Response prepareReceive(Response response) throws OSException {
-		return ResponseDecryptor.decrypt(response);
+		return prepareReceive(HashMapCtxDB.getInstance(), response);
+	}
+
+	/**
+	 * Decrypt an incoming response using the right OSCore context
+	 * 
+	 * @param ctxDb the OSCore context database
+	 * @param response the incoming request
+	 * @return the decrypted and verified response
+	 * 
+	 * @throws OSException error while decrypting response
+	 */
+	public static Response prepareReceive(OSCoreCtxDB ctxDb, Response response) throws OSException {
+		return ResponseDecryptor.decrypt(ctxDb, response);
 	}
 
 	@Override
-	public void sendRequest(Exchange exchange, Request request) {
-		Request req = request;
+	public void sendRequest(final Exchange exchange, final Request request) {
 		if (shouldProtectRequest(request)) {
+			final OSCoreCtx ctx;
 			try {
 				String uri = request.getURI();
-				final OSCoreCtxDB db = HashMapCtxDB.getInstance();
 
 				if (uri == null) {
 					LOGGER.error(ErrorDescriptions.URI_NULL);
 					throw new OSException(ErrorDescriptions.URI_NULL);
 				}
-				if (db == null) {
-					LOGGER.error(ErrorDescriptions.DB_NULL);
-					throw new OSException(ErrorDescriptions.DB_NULL);
-				}
 
-				final OSCoreCtx ctx = db.getContext(uri);
+				ctx = ctxDb.getContext(uri);
 				if (ctx == null) {
 					LOGGER.error(ErrorDescriptions.CTX_NULL);
 					throw new OSException(ErrorDescriptions.CTX_NULL);
 				}
-
-				exchange.setCryptographicContextID(ctx.getRecipientId());
-				final int seqByToken = ctx.getSenderSeq();
-
-				final Request preparedRequest = prepareSend(request, ctx);
-				preparedRequest.addMessageObserver(new MessageObserverAdapter() {
-
-					@Override
-					public void onReadyToSend() {
-						Token token = preparedRequest.getToken();
-						db.addContext(token, ctx);
-						db.addSeqByToken(token, seqByToken);
-					}
-				});
-
-				req = preparedRequest;
-
 			} catch (OSException e) {
 				LOGGER.error("Error sending request: " + e.getMessage());
 				return;
@@ -157,30 +371,135 @@ public class ObjectSecurityLayer extends AbstractLayer {
 				LOGGER.error("Unable to send request because of illegal argument: " + e.getMessage());
 				return;
 			}
+			executeCrypto(ctx, new Runnable() {
+
+				@Override
+				public void run() {
+					protectRequest(exchange, request, ctx);
+				}
+			});
+		} else {
+			forwardRequest(exchange, request);
+		}
+	}
+
+	/**
+	 * Protect the request and forward it to the lower layer.
+	 * 
+	 * @param exchange the exchange
+	 * @param request the request
+	 * @param ctx the context to protect the request
+	 */
+	private void protectRequest(final Exchange exchange, final Request request, final OSCoreCtx ctx) {
+		final Request preparedRequest;
+		OSCoreStatistics statistics = this.statistics;
+		long start = statistics == null ? 0 : System.nanoTime();
+		try {
+			exchange.setCryptographicContextID(ctx.getRecipientId());
+			final int seqByToken = ctx.reserveSenderSeq();
+
+			preparedRequest = RequestEncryptor.encrypt(request, ctx, seqByToken);
+			TokenObserver tokenObserver = new TokenObserver(preparedRequest, ctx, seqByToken);
+			preparedRequest.addMessageObserver(tokenObserver);
+			if (preparedRequest != request) {
+				// completion is reported to the request of the exchange
+				request.addMessageObserver(tokenObserver);
+			}
+		} catch (OSException e) {
+			LOGGER.error("Error sending request: " + e.getMessage());
+			if (statistics != null) {
+				statistics.protectionFailed(ctx);
+			}
+			return;
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("Unable to send request because of illegal argument: " + e.getMessage());
+			if (statistics != null) {
+				statistics.protectionFailed(ctx);
+			}
+			return;
+		}
+		if (statistics != null) {
+			statistics.protectedRequest(ctx, System.nanoTime() - start);
 		}
-		LOGGER.info("Request: " + exchange.getRequest().toString());
-		super.sendRequest(exchange, req);
+		reenter(exchange, new Runnable() {
+
+			@Override
+			public void run() {
+				forwardRequest(exchange, preparedRequest);
+			}
+		});
+	}
+
+	private void forwardRequest(Exchange exchange, Request request) {
+		LOGGER.debug("Request: {}", exchange.getRequest());
+		super.sendRequest(exchange, request);
 	}
 
 	@Override
-	public void sendResponse(Exchange exchange, Response response) {
-		/* Check if the request contained the Observe option.
-		 * If so always add a partial IV to the response.
-		 * A partial IV will also be added if the responseWithPartialIV flag is set. */
-		boolean addPartialIV = responseWithPartialIV || exchange.getRequest().getOptions().hasObserve();
-		
+	public void sendResponse(final Exchange exchange, final Response response) {
 		if (shouldProtectResponse(exchange)) {
-			try {
-				HashMapCtxDB db = HashMapCtxDB.getInstance();
-				OSCoreCtx ctx = db.getContext(exchange.getCryptographicContextID());
+			/* Check if the request contained the Observe option.
+			 * If so always add a partial IV to the response.
+			 * A partial IV will also be added if the responseWithPartialIV flag is set. */
+			final boolean addPartialIV = responseWithPartialIV || exchange.getRequest().getOptions().hasObserve();
+			final Object state = exchange.getCryptographicContextState();
+			final OSCoreCtx ctx;
+			if (state instanceof OSCoreRequestState) {
+				ctx = ((OSCoreRequestState) state).getContext();
+			} else {
+				ctx = ctxDb.getContext(exchange.getCryptographicContextID());
+			}
+			executeCrypto(ctx, new Runnable() {
+
+				@Override
+				public void run() {
+					protectResponse(exchange, response, ctx, state, addPartialIV);
+				}
+			});
+		} else {
+			super.sendResponse(exchange, response);
+		}
+	}
+
+	/**
+	 * Protect the response and forward it to the lower layer.
+	 * 
+	 * @param exchange the exchange
+	 * @param response the response
+	 * @param ctx the context to protect the response
+	 * @param state the state of the request of the exchange. Only used, if
+	 *            it's a {@link OSCoreRequestState}.
+	 * @param addPartialIV {@code true}, to add a partial IV to the response
+	 */
+	private void protectResponse(final Exchange exchange, Response response, OSCoreCtx ctx, Object state,
+			boolean addPartialIV) {
+		OSCoreStatistics statistics = this.statistics;
+		long start = statistics == null ? 0 : System.nanoTime();
+		try {
+			if (state instanceof OSCoreRequestState) {
+				response = ResponseEncryptor.encrypt(response, (OSCoreRequestState) state, addPartialIV);
+			} else {
 				response = prepareSend(response, ctx, addPartialIV);
-				exchange.setResponse(response);
-			} catch (OSException e) {
-				LOGGER.error("Error sending response: " + e.getMessage());
-				return;
 			}
+		} catch (OSException e) {
+			LOGGER.error("Error sending response: " + e.getMessage());
+			if (statistics != null) {
+				statistics.protectionFailed(ctx);
+			}
+			return;
+		}
+		if (statistics != null) {
+			statistics.protectedResponse(ctx, System.nanoTime() - start);
 		}
-		super.sendResponse(exchange, response);
+		final Response preparedResponse = response;
+		reenter(exchange, new Runnable() {
+
+			@Override
+			public void run() {
+				exchange.setResponse(preparedResponse);
+				ObjectSecurityLayer.super.sendResponse(exchange, preparedResponse);
+			}
+		});
 	}
 
 	@Override
@@ -189,62 +508,190 @@ public class ObjectSecurityLayer extends AbstractLayer {
 	}
 
 	@Override
-	public void receiveRequest(Exchange exchange, Request request) {
+	public void receiveRequest(final Exchange exchange, final Request request) {
 		if (isProtected(request)) {
-			byte[] rid = null;
-			try {
-				request = prepareReceive(request);
-				rid = request.getOptions().getOscore();
-				request.getOptions().setOscore(EMPTY);
-				exchange.setRequest(request);
-			} catch (CoapOSException e) {
-				LOGGER.error("Error while receiving OSCore request: " + e.getMessage());
-				Response error;
-				error = CoapOSExceptionHandler.manageError(e, request);
-				if (error != null) {
-					super.sendResponse(exchange, error);
+			OSCoreCtx ctx = null;
+			if (cryptoExecutor != null) {
+				// the context is only required to order the jobs
+				try {
+					ctx = Decryptor.getContext(ctxDb,
+							Decryptor.decodeObjectSecurity(request.getOptions().getOscore(), true));
+				} catch (OSException e) {
+					// reported by the decryption
 				}
-				return;
 			}
-			exchange.setCryptographicContextID(rid);
+			executeCrypto(ctx, new Runnable() {
+
+				@Override
+				public void run() {
+					verifyRequest(exchange, request);
+				}
+			});
+		} else {
+			super.receiveRequest(exchange, request);
 		}
-		super.receiveRequest(exchange, request);
+	}
+
+	/**
+	 * Verify and decrypt the request and forward it to the upper layer.
+	 * 
+	 * @param exchange the exchange
+	 * @param request the request
+	 */
+	private void verifyRequest(final Exchange exchange, Request request) {
+		final OSCoreRequestState state;
+		OSCoreStatistics statistics = this.statistics;
+		long start = statistics == null ? 0 : System.nanoTime();
+		try {
+			state = RequestDecryptor.decryptRequest(ctxDb, request);
+		} catch (final CoapOSException e) {
+			LOGGER.error("Error while receiving OSCore request: " + e.getMessage());
+			if (statistics != null) {
+				verificationFailed(statistics, e);
+			}
+			final Response error = CoapOSExceptionHandler.manageError(e, request);
+			if (error != null) {
+				reenter(exchange, new Runnable() {
+
+					@Override
+					public void run() {
+						ObjectSecurityLayer.super.sendResponse(exchange, error);
+					}
+				});
+			}
+			return;
+		}
+		if (statistics != null) {
+			statistics.verifiedRequest(state.getContext(), System.nanoTime() - start);
+		}
+		final Request decrypted = state.getRequest();
+		final byte[] rid = decrypted.getOptions().getOscore();
+		decrypted.getOptions().setOscore(EMPTY);
+		reenter(exchange, new Runnable() {
+
+			@Override
+			public void run() {
+				exchange.setRequest(decrypted);
+				exchange.setCryptographicContextID(rid);
+				exchange.setCryptographicContextState(state);
+				ObjectSecurityLayer.super.receiveRequest(exchange, decrypted);
+			}
+		});
 	}
 
 	//Always accepts unprotected responses, which is needed for reception of error messages
 	@Override
-	public void receiveResponse(Exchange exchange, Response response) {
+	public void receiveResponse(final Exchange exchange, final Response response) {
 		Request request = exchange.getCurrentRequest();
 		if (request == null) {
 			LOGGER.error("No request tied to this response");
 			return;
 		}
-		try {
-			//Printing of status information.
-			//Warns when expecting OSCORE response but unprotected response is received
-			if (!isProtected(response) && responseShouldBeProtected(exchange, response)) {
-				LOGGER.warn("Incoming response is NOT OSCORE protected!");
-			} else if (isProtected(response)) {
-				LOGGER.info("Incoming response is OSCORE protected");
+		//Printing of status information.
+		//Warns when expecting OSCORE response but unprotected response is received
+		if (isProtected(response)) {
+			LOGGER.debug("Incoming response is OSCORE protected");
+			OSCoreCtx ctx = null;
+			if (cryptoExecutor != null && response.getToken() != null) {
+				// the context is only required to order the jobs
+				ctx = ctxDb.getContextByToken(response.getToken());
 			}
+			executeCrypto(ctx, new Runnable() {
+
+				@Override
+				public void run() {
+					verifyResponse(exchange, response);
+				}
+			});
+		} else {
+			try {
+				if (responseShouldBeProtected(exchange, response)) {
+					LOGGER.warn("Incoming response is NOT OSCORE protected!");
+				}
+			} catch (OSException e) {
+				LOGGER.error("Error while receiving OSCore response: " + e.getMessage());
+				EmptyMessage error = CoapOSExceptionHandler.manageError(e, response);
+				if (error != null) {
+					sendEmptyMessage(exchange, error);
+				}
+				return;
+			}
+			forwardResponse(exchange, response);
+		}
+	}
 
-			//If response is protected with OSCORE parse it first with prepareReceive
-			if (isProtected(response)) {
-				response = prepareReceive(response);
+	/**
+	 * Verify and decrypt the response and forward it to the upper layer.
+	 * 
+	 * @param exchange the exchange
+	 * @param response the response
+	 */
+	private void verifyResponse(final Exchange exchange, final Response response) {
+		final Response decrypted;
+		OSCoreStatistics statistics = this.statistics;
+		long start = 0;
+		OSCoreCtx ctx = null;
+		if (statistics != null) {
+			start = System.nanoTime();
+			if (response.getToken() != null) {
+				ctx = ctxDb.getContextByToken(response.getToken());
 			}
+		}
+		try {
+			decrypted = prepareReceive(ctxDb, response);
 		} catch (OSException e) {
 			LOGGER.error("Error while receiving OSCore response: " + e.getMessage());
-			EmptyMessage error = CoapOSExceptionHandler.manageError(e, response);
+			if (statistics != null) {
+				verificationFailed(statistics, e);
+			}
+			final EmptyMessage error = CoapOSExceptionHandler.manageError(e, response);
 			if (error != null) {
-				sendEmptyMessage(exchange, error);
+				reenter(exchange, new Runnable() {
+
+					@Override
+					public void run() {
+						sendEmptyMessage(exchange, error);
+					}
+				});
 			}
 			return;
 		}
-		
+		if (statistics != null && ctx != null) {
+			statistics.verifiedResponse(ctx, System.nanoTime() - start);
+		}
+		reenter(exchange, new Runnable() {
+
+			@Override
+			public void run() {
+				forwardResponse(exchange, decrypted);
+			}
+		});
+	}
+
+	/**
+	 * Report a failed verification to the statistics collector.
+	 * 
+	 * @param statistics the statistics collector
+	 * @param error the failure
+	 */
+	private static void verificationFailed(OSCoreStatistics statistics, OSException error) {
+		switch (error.getReason()) {
+		case CONTEXT_NOT_FOUND:
+			statistics.contextNotFound();
+			break;
+		case REPLAY_DETECTED:
+			statistics.replayRejected();
+			break;
+		default:
+			statistics.verificationFailed();
+			break;
+		}
+	}
+
+	private void forwardResponse(Exchange exchange, Response response) {
 		//Remove token if this is a response to a Observe cancellation request
 		if(exchange.getRequest().isObserveCancel()) {
-			OSCoreCtxDB db = HashMapCtxDB.getInstance();
-			db.removeToken(response.getToken());
+			ctxDb.removeToken(response.getToken());
 		}
 		
 		super.receiveResponse(exchange, response);
@@ -255,12 +702,176 @@ public class ObjectSecurityLayer extends AbstractLayer {
 		super.receiveEmptyMessage(exchange, message);
 	}
 
+	@Override
+	public void destroy() {
+		synchronized (this) {
+			if (tokenSweepJob != null) {
+				tokenSweepJob.cancel(false);
+				tokenSweepJob = null;
+			}
+		}
+		if (cryptoExecutor != null) {
+			cryptoExecutor.shutdown();
+		}
+		super.destroy();
+	}
+
+	/**
+	 * Execute a protection or verification job. Executed on the current
+	 * thread, if no pool is configured. Otherwise executed by the pool, in
+	 * order with the other jobs of the context.
+	 * 
+	 * @param ctx the context of the job. May be {@code null}, if the context
+	 *            is not known before the job is executed.
+	 * @param job the job
+	 */
+	private void executeCrypto(OSCoreCtx ctx, Runnable job) {
+		if (cryptoExecutor == null) {
+			job.run();
+		} else {
+			int hash = ctx == null ? 0 : System.identityHashCode(ctx);
+			// spread the bits of the identity hash over the stripes
+			hash ^= (hash >>> 16);
+			try {
+				cryptoStripes[(hash & 0x7fffffff) % cryptoStripes.length].execute(job);
+			} catch (RejectedExecutionException e) {
+				LOGGER.debug("OSCORE crypto pool already shutdown!");
+			}
+		}
+	}
+
+	/**
+	 * Continue the processing of a message in the stack after it has been
+	 * protected or verified. Uses the executor of the exchange, if the
+	 * message has been processed by the pool.
+	 * 
+	 * @param exchange the exchange of the message
+	 * @param job the job to continue the processing
+	 */
+	private void reenter(Exchange exchange, Runnable job) {
+		if (cryptoExecutor == null) {
+			job.run();
+		} else {
+			exchange.execute(job);
+		}
+	}
+
+	/**
+	 * Start the periodic check for expired tokens, if not already started.
+	 * Requires the executor of the stack.
+	 */
+	private void startTokenSweep() {
+		if (tokenSweepJob == null && executor != null) {
+			synchronized (this) {
+				if (tokenSweepJob == null) {
+					tokenSweepJob = executor.scheduleAtFixedRate(new Runnable() {
+
+						@Override
+						public void run() {
+							sweepTokens();
+						}
+					}, tokenSweepInterval, tokenSweepInterval, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Release all token associations, which exceeded the token lifetime.
+	 */
+	private void sweepTokens() {
+		long expireNanos = ClockUtil.nanoRealtime() - TimeUnit.MILLISECONDS.toNanos(tokenLifetime);
+		int expired = 0;
+		for (Map.Entry<Token, Long> entry : pendingTokens.entrySet()) {
+			if (entry.getValue() - expireNanos < 0 && pendingTokens.remove(entry.getKey(), entry.getValue())) {
+				ctxDb.removeToken(entry.getKey());
+				ctxDb.removeSeqByToken(entry.getKey());
+				++expired;
+			}
+		}
+		if (expired > 0) {
+			expiredTokens.addAndGet(expired);
+			LOGGER.debug("Expired {} OSCORE tokens, {} pending", expired, pendingTokens.size());
+		}
+	}
+
+	/**
+	 * Release the association of the token with context and sequence number.
+	 * 
+	 * @param token the token
+	 */
+	private void releaseToken(Token token) {
+		pendingTokens.remove(token);
+		if (ctxDb.tokenExist(token)) {
+			ctxDb.removeToken(token);
+			ctxDb.removeSeqByToken(token);
+			releasedTokens.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Associates the token of a protected request with its context and
+	 * sequence number, when it is sent, and releases that association, when
+	 * the exchange completes or fails. Observe registrations are only
+	 * released, if they fail. Otherwise the association is kept for the
+	 * notifications and removed, when the observation is cancelled.
+	 */
+	private class TokenObserver extends MessageObserverAdapter {
+
+		private final Request request;
+		private final OSCoreCtx ctx;
+		private final int seq;
+
+		private TokenObserver(Request request, OSCoreCtx ctx, int seq) {
+			this.request = request;
+			this.ctx = ctx;
+			this.seq = seq;
+		}
+
+		@Override
+		public void onReadyToSend() {
+			Token token = request.getToken();
+			ctxDb.addContext(token, ctx);
+			ctxDb.addSeqByToken(token, seq);
+			if (!request.isObserve()) {
+				pendingTokens.put(token, ClockUtil.nanoRealtime());
+				startTokenSweep();
+			}
+		}
+
+		@Override
+		public void onComplete() {
+			if (!request.isObserve()) {
+				release();
+			}
+		}
+
+		@Override
+		public void onCancel() {
+			if (!request.isObserve()) {
+				release();
+			}
+		}
+
+		@Override
+		protected void failed() {
+			release();
+		}
+
+		private void release() {
+			Token token = request.getToken();
+			if (token != null) {
+				releaseToken(token);
+			}
+		}
+	}
+
 	private static boolean shouldProtectResponse(Exchange exchange) {
 		return exchange.getCryptographicContextID() != null;
 	}
 
 	//Method that checks if a response is expected to be protected with OSCORE
-	private static boolean responseShouldBeProtected(Exchange exchange, Response response) throws OSException {
+	private boolean responseShouldBeProtected(Exchange exchange, Response response) throws OSException {
 		Request request = exchange.getCurrentRequest();
 		OptionSet options = request.getOptions();
 		if (exchange.getCryptographicContextID() == null) {
@@ -270,10 +881,9 @@ public class ObjectSecurityLayer extends AbstractLayer {
 				// cryptographic id doesn't exist
 				if (options.hasOscore()) {
 					String uri = request.getURI();
-					OSCoreCtxDB db = HashMapCtxDB.getInstance();
 					OSCoreCtx ctx = null;
 					try {
-						ctx = db.getContext(uri);
+						ctx = ctxDb.getContext(uri);
 					} catch (OSException e) {
 						LOGGER.error("Error when re-creating exchange at OSCORE level");
 						throw new OSException("Error when re-creating exchange at OSCORE level");
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 
+ * Replay window of an OSCORE recipient context.
+ * 
+ * Keeps track of the received sequence numbers within the window below the
+ * highest received sequence number, see
+ * https://tools.ietf.org/html/rfc8613#section-7.4. The window is a ring of
+ * words. Each word contains the bits of a block of 32 sequence numbers
+ * together with the index of that block. Words of older blocks are stale and
+ * are reused without clearing the ring, so both, the check and the advance of
+ * the window, take constant time, independent of the window size.
+ * 
+ * Thread safe without locks. A sequence number is marked as received by a
+ * compare-and-set of its word, so concurrent updates of the same sequence
+ * number are accepted only once.
+ *
+ */
+public final class ReplayWindow {
+
+	/**
+	 * Default size of the replay window.
+	 */
+	public static final int DEFAULT_SIZE = 32;
+
+	/**
+	 * Minimum size of the replay window.
+	 */
+	public static final int MIN_SIZE = 32;
+
+	/**
+	 * Maximum size of the replay window.
+	 */
+	public static final int MAX_SIZE = 4096;
+
+	private static final int BLOCK_BITS = 5;
+	private static final int BLOCK_MASK = 31;
+	/**
+	 * Word of no block. The block index -1 is lower than all others.
+	 */
+	private static final long EMPTY_WORD = ((long) -1) << 32;
+
+	private final int size;
+	/**
+	 * Words with the block index in the upper and the bits of the received
+	 * sequence numbers of that block in the lower 32 bits.
+	 */
+	private final AtomicLongArray words;
+
+	private final AtomicInteger highest = new AtomicInteger(-1);
+
+	/**
+	 * Create a replay window.
+	 * 
+	 * @param size the size of the window. {@link #MIN_SIZE} to
+	 *            {@link #MAX_SIZE}.
+	 * @throws IllegalArgumentException if the size is out of range
+	 */
+	public ReplayWindow(int size) {
+		if (size < MIN_SIZE || size > MAX_SIZE) {
+			throw new IllegalArgumentException(ErrorDescriptions.REPLAY_WINDOW_SIZE_INVALID + ": " + size);
+		}
+		this.size = size;
+		// one additional word ensures, that the word of the oldest sequence
+		// number in the window is not reused by the block of the highest
+		this.words = new AtomicLongArray(((size + BLOCK_MASK) >> BLOCK_BITS) + 1);
+		clear();
+	}
+
+	/**
+	 * @return the size of the window
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the highest received sequence number, or -1, if none has been
+	 *         received
+	 */
+	public int getHighest() {
+		return highest.get();
+	}
+
+	/**
+	 * Check, if the sequence number is too old for the window.
+	 * 
+	 * @param seq the sequence number
+	 * @return {@code true}, if the sequence number is below the window
+	 */
+	public boolean isTooOld(int seq) {
+		return seq < 0 || seq <= highest.get() - size;
+	}
+
+	/**
+	 * Check, if the sequence number must be rejected as replay.
+	 * 
+	 * @param seq the sequence number
+	 * @return {@code true}, if the sequence number has already been received
+	 *         or is too old for the window
+	 */
+	public boolean isReplay(int seq) {
+		if (seq > highest.get()) {
+			return false;
+		} else if (isTooOld(seq)) {
+			return true;
+		}
+		int block = seq >>> BLOCK_BITS;
+		long word = words.get(block % words.length());
+		int wordBlock = (int) (word >>> 32);
+		// word reused by a newer block, consider the sequence number as too old
+		return wordBlock > block || (wordBlock == block && (word & bit(seq)) != 0);
+	}
+
+	/**
+	 * Mark the sequence number as received, if it is no replay, and advance
+	 * the window, if the sequence number is higher than the highest received
+	 * one.
+	 * 
+	 * @param seq the sequence number
+	 * @return {@code true}, if the sequence number is marked as received,
+	 *         {@code false}, if it is a replay or too old for the window
+	 */
+	public boolean update(int seq) {
+		if (isTooOld(seq)) {
+			return false;
+		}
+		int block = seq >>> BLOCK_BITS;
+		int slot = block % words.length();
+		long bit = bit(seq);
+		while (true) {
+			long word = words.get(slot);
+			int wordBlock = (int) (word >>> 32);
+			long update;
+			if (wordBlock == block) {
+				if ((word & bit) != 0) {
+					return false;
+				}
+				update = word | bit;
+			} else if (wordBlock > block) {
+				// word reused by a newer block, too old
+				return false;
+			} else {
+				// reuse stale word
+				update = ((long) block << 32) | bit;
+			}
+			if (words.compareAndSet(slot, word, update)) {
+				break;
+			}
+		}
+		while (true) {
+			int current = highest.get();
+			if (seq <= current || highest.compareAndSet(current, seq)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Undo an {@link #update(int)}. Marks the sequence number as not received
+	 * and restores the previous highest sequence number, if the sequence
+	 * number is still the highest one.
+	 * 
+	 * @param seq the sequence number to mark as not received
+	 * @param previousHighest the highest sequence number before the update
+	 */
+	public void undo(int seq, int previousHighest) {
+		int block = seq >>> BLOCK_BITS;
+		int slot = block % words.length();
+		long bit = bit(seq);
+		while (true) {
+			long word = words.get(slot);
+			if ((int) (word >>> 32) != block || (word & bit) == 0
+					|| words.compareAndSet(slot, word, word & ~bit)) {
+				break;
+			}
+		}
+		highest.compareAndSet(seq, previousHighest);
+	}
+
+	/**
+	 * Reset the window to a highest received sequence number. All other
+	 * sequence numbers are considered as not received.
+	 * 
+	 * Must not be called concurrently to other updates.
+	 * 
+	 * @param seq the highest received sequence number, or -1 for none.
+	 */
+	public void reset(int seq) {
+		clear();
+		if (seq >= 0) {
+			update(seq);
+		}
+	}
+
+	/**
+	 * Get the state of the 32 sequence numbers below the highest received
+	 * sequence number.
+	 * 
+	 * @return bit n is set, if the sequence number n below the highest one
+	 *         has been received. Bit 0 is not used.
+	 */
+	public int getRecentWindow() {
+		int top = highest.get();
+		int window = 0;
+		for (int index = 1; index < Integer.SIZE; ++index) {
+			int seq = top - index;
+			if (seq < 0 || seq <= top - size) {
+				break;
+			}
+			int block = seq >>> BLOCK_BITS;
+			long word = words.get(block % words.length());
+			if ((int) (word >>> 32) == block && (word & bit(seq)) != 0) {
+				window |= 1 << index;
+			}
+		}
+		return window;
+	}
+
+	private void clear() {
+		highest.set(-1);
+		for (int index = 0; index < words.length(); ++index) {
+			words.set(index, EMPTY_WORD);
+		}
+	}
+
+	private static long bit(int seq) {
+		return 1L << (seq & BLOCK_MASK);
+	}
+}
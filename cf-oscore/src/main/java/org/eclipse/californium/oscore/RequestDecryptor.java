@@ -26,7 +26,6 @@ import org.slf4j.LoggerFactory;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.network.serialization.DataParser;
-import org.eclipse.californium.cose.Encrypt0Message;
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.CoAP.Code;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
@@ -35,11 +34,6 @@ import org.eclipse.californium.oscore.OSCoreCtx;
 import org.eclipse.californium.oscore.OSCoreCtxDB;
 import org.eclipse.californium.oscore.OptionJuggle;
 
-import com.upokecenter.cbor.CBORObject;
-import com.upokecenter.cbor.CBORType;
-
-import org.eclipse.californium.cose.HeaderKeys;
-
 /**
  * 
  * Decrypts an OSCORE encrypted Request.
@@ -53,6 +47,9 @@ public class RequestDecryptor extends Decryptor {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RequestDecryptor.class.getName());
 
 	/**
+	 * Decrypt the request using the contexts of the {@link HashMapCtxDB}
+	 * singleton.
+	 * 
 	 * @param request the request to decrypt
 	 * 
 	 * @return the decrypted request
@@ -60,43 +57,75 @@ public class RequestDecryptor extends Decryptor {
 	 * @throws CoapOSException if decryption fails
 	 */
 	public static Request decrypt(Request request) throws CoapOSException {
-		
-		LOGGER.info("Removes E options from outer options which are not allowed there");
+		return decrypt(HashMapCtxDB.getInstance(), request);
+	}
+
+	/**
+	 * @param db the context database used to look up the recipient context
+	 * @param request the request to decrypt
+	 * 
+	 * @return the decrypted request
+	 * 
+	 * @throws CoapOSException if decryption fails
+	 */
+	public static Request decrypt(OSCoreCtxDB db, Request request) throws CoapOSException {
+		return decryptRequest(db, request).getRequest();
+	}
+
+	/**
+	 * Decrypt the request and keep the per message values required to
+	 * protect the response in the returned state instead of the shared
+	 * context.
+	 * 
+	 * @param db the context database used to look up the recipient context
+	 * @param request the request to decrypt
+	 * 
+	 * @return the state with the decrypted request
+	 * 
+	 * @throws CoapOSException if decryption fails
+	 */
+	public static OSCoreRequestState decryptRequest(OSCoreCtxDB db, Request request) throws CoapOSException {
+
+		LOGGER.debug("Removes E options from outer options which are not allowed there");
 		discardEOptions(request);
 
-		OSCoreCtxDB db = HashMapCtxDB.getInstance();
 		byte[] protectedData = request.getPayload();
-		Encrypt0Message enc;
+		DecodedOption option;
 		OptionSet uOptions = request.getOptions();
 		try {
-			enc = decompression(protectedData, request);
+			option = decompression(request);
 		} catch (OSException e) {
 			LOGGER.error(ErrorDescriptions.FAILED_TO_DECODE_COSE);
 			throw new CoapOSException(ErrorDescriptions.FAILED_TO_DECODE_COSE, ResponseCode.BAD_OPTION);
 		}
 
-		CBORObject kid = enc.findAttribute(HeaderKeys.KID);
-		if (kid == null || !kid.getType().equals(CBORType.ByteString)) {
+		byte[] rid = option.getKid();
+		if (rid == null) {
 			LOGGER.error(ErrorDescriptions.MISSING_KID);
 			throw new CoapOSException(ErrorDescriptions.FAILED_TO_DECODE_COSE, ResponseCode.BAD_OPTION);
 		}
-		byte[] rid = kid.GetByteString();
 
-		OSCoreCtx ctx = db.getContext(rid);
+		OSCoreCtx ctx = getContext(db, option);
 
 		if (ctx == null) {
 			LOGGER.error(ErrorDescriptions.CONTEXT_NOT_FOUND);
-			throw new CoapOSException(ErrorDescriptions.CONTEXT_NOT_FOUND, ResponseCode.UNAUTHORIZED);
+			throw new CoapOSException(ErrorDescriptions.CONTEXT_NOT_FOUND, ResponseCode.UNAUTHORIZED,
+					OSException.Reason.CONTEXT_NOT_FOUND);
 		}
 
 		byte[] plaintext;
+		int seq;
+		int previousSeq;
 		try {
-			plaintext = decryptAndDecode(enc, request, ctx, null);
+			plaintext = decryptAndDecode(option, protectedData, request, ctx, null);
+			seq = option.readPartialIV();
+			previousSeq = ctx.acceptIncomingSeq(seq);
 		} catch (OSException e) {
 			//First check for replay exceptions
-			if(e.getMessage().equals(ErrorDescriptions.REPLAY_DETECT)) { 
+			if (e.getReason() == OSException.Reason.REPLAY_DETECTED) {
 				LOGGER.error(ErrorDescriptions.REPLAY_DETECT);
-				throw new CoapOSException(ErrorDescriptions.REPLAY_DETECT, ResponseCode.UNAUTHORIZED);
+				throw new CoapOSException(ErrorDescriptions.REPLAY_DETECT, ResponseCode.UNAUTHORIZED,
+						OSException.Reason.REPLAY_DETECTED);
 			}
 			//Otherwise return generic error message
 			LOGGER.error(ErrorDescriptions.DECRYPTION_FAILED);
@@ -104,9 +133,10 @@ public class RequestDecryptor extends Decryptor {
 		}
 		
 		//Check if parsing of request plaintext succeeds
+		Code code;
 		try {
 			DatagramReader reader = new DatagramReader(new ByteArrayInputStream(plaintext));
-			ctx.setCoAPCode(Code.valueOf(reader.read(CoAP.MessageFormat.CODE_BITS)));
+			code = Code.valueOf(reader.read(CoAP.MessageFormat.CODE_BITS));
 			// resets option so eOptions gets priority during parse
 			request.setOptions(EMPTY);
 			DataParser.parseOptionsAndPayload(reader, request);
@@ -121,6 +151,7 @@ public class RequestDecryptor extends Decryptor {
 
 		// We need the kid value on layer level
 		request.getOptions().setOscore(rid);
-		return OptionJuggle.setRealCodeRequest(request, ctx.getCoAPCode());
+		request = OptionJuggle.setRealCodeRequest(request, code);
+		return new OSCoreRequestState(request, ctx, seq, previousSeq, code);
 	}
 }
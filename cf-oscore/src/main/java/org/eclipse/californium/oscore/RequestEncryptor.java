@@ -23,7 +23,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
-import org.eclipse.californium.cose.Encrypt0Message;
 
 /**
  * 
@@ -52,18 +51,36 @@ public class RequestEncryptor extends Encryptor {
 			throw new OSException(ErrorDescriptions.CTX_NULL);
 		}
 
+		return encrypt(request, ctx, ctx.reserveSenderSeq());
+	}
+
+	/**
+	 * @param request the request
+	 * @param ctx the OSCore context
+	 * @param seq the reserved sender sequence number, see
+	 *            {@link OSCoreCtx#reserveSenderSeq()}
+	 * 
+	 * @return the request with the OSCore option
+	 * @throws OSException if encryption fails
+	 *
+	 */
+	public static Request encrypt(Request request, OSCoreCtx ctx, int seq) throws OSException {
+
+		if (ctx == null) {
+			LOGGER.error(ErrorDescriptions.CTX_NULL);
+			throw new OSException(ErrorDescriptions.CTX_NULL);
+		}
+
 		int realCode = request.getCode().value;
 		request = OptionJuggle.setFakeCodeRequest(request);
 
 		OptionSet options = request.getOptions();
 		byte[] confidential = OSSerializer.serializeConfidentialData(options, request.getPayload(), realCode);
-		Encrypt0Message enc = prepareCOSEStructure(confidential);
-		byte[] cipherText = encryptAndEncode(enc, ctx, request, false);
-		compression(ctx, cipherText, request, false);
+		byte[] cipherText = encryptAndEncode(confidential, ctx, request, false, seq, -1);
+		compression(ctx, cipherText, request, false, seq);
 
 		request.setOptions(OptionJuggle.prepareUoptions(request.getOptions()));
 
-		ctx.increaseSenderSeq();
 		return request;
 	}
 
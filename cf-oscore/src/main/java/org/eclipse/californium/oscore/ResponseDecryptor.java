@@ -28,7 +28,6 @@ import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.core.network.serialization.DataParser;
-import org.eclipse.californium.cose.Encrypt0Message;
 import org.eclipse.californium.elements.util.DatagramReader;
 
 /**
@@ -44,7 +43,8 @@ public class ResponseDecryptor extends Decryptor {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ResponseDecryptor.class.getName());
 
 	/**
-	 * Decrypt the response.
+	 * Decrypt the response using the contexts of the {@link HashMapCtxDB}
+	 * singleton.
 	 * 
 	 * @param response the response
 	 * 
@@ -54,14 +54,27 @@ public class ResponseDecryptor extends Decryptor {
 	 * 
 	 */
 	public static Response decrypt(Response response) throws OSException {
+		return decrypt(HashMapCtxDB.getInstance(), response);
+	}
 
-		LOGGER.info("Removes E options from outer options which are not allowed there");
-		discardEOptions(response);
+	/**
+	 * Decrypt the response.
+	 * 
+	 * @param db the context database the request was registered in
+	 * @param response the response
+	 * 
+	 * @return the decrypted response
+	 * 
+	 * @throws OSException when decryption fails
+	 * 
+	 */
+	public static Response decrypt(OSCoreCtxDB db, Response response) throws OSException {
 
-		OSCoreCtxDB db = HashMapCtxDB.getInstance();
+		LOGGER.debug("Removes E options from outer options which are not allowed there");
+		discardEOptions(response);
 
 		byte[] protectedData = response.getPayload();
-		Encrypt0Message enc = null;
+		DecodedOption option = null;
 		Token token = response.getToken();
 		OSCoreCtx ctx = null;
 		OptionSet uOptions = response.getOptions();
@@ -70,9 +83,9 @@ public class ResponseDecryptor extends Decryptor {
 			ctx = db.getContextByToken(token);
 			if (ctx == null) {
 				LOGGER.error(ErrorDescriptions.TOKEN_INVALID);
-				throw new OSException(ErrorDescriptions.TOKEN_INVALID);
+				throw new OSException(ErrorDescriptions.TOKEN_INVALID, OSException.Reason.CONTEXT_NOT_FOUND);
 			}
-			enc = decompression(protectedData, response);
+			option = decompression(response);
 		} else {
 			LOGGER.error(ErrorDescriptions.TOKEN_NULL);
 			throw new OSException(ErrorDescriptions.TOKEN_NULL);
@@ -80,7 +93,7 @@ public class ResponseDecryptor extends Decryptor {
 
 		//Check if parsing of response plaintext succeeds
 		try {
-			byte[] plaintext = decryptAndDecode(enc, response, ctx, db.getSeqByToken(token));
+			byte[] plaintext = decryptAndDecode(option, protectedData, response, ctx, db.getSeqByToken(token));
 	
 			DatagramReader reader = new DatagramReader(new ByteArrayInputStream(plaintext));
 			
@@ -23,7 +23,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Response;
-import org.eclipse.californium.cose.Encrypt0Message;
 
 /**
  * 
@@ -38,12 +37,20 @@ public class ResponseEncryptor extends Encryptor {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ResponseEncryptor.class.getName());
 
 	/**
+	 * Encrypt the response for the latest request received with the
+	 * context.
+	 * 
+	 * AES-GCM responses are always protected with a new partial IV, the
+	 * context doesn't know, if the nonce of the request has already been used
+	 * for a response.
+	 * 
 	 * @param response the response
 	 * @param ctx the OSCore context
 	 * 
 	 * @return the response with the encrypted OSCore option
 	 * 
 	 * @throws OSException when encryption fails
+	 * @see #encrypt(Response, OSCoreRequestState, boolean)
 	 */
 	public static Response encrypt(Response response, OSCoreCtx ctx, final boolean newPartialIV) throws OSException {
 		if (ctx == null) {
@@ -51,24 +58,56 @@ public class ResponseEncryptor extends Encryptor {
 			throw new OSException(ErrorDescriptions.CTX_NULL);
 		}
 
+		return encrypt(response, ctx, ctx.getReceiverSeq(), newPartialIV || OSCoreEngine.isGcm(ctx.getAlg()));
+	}
+
+	/**
+	 * Encrypt the response for a decrypted request. Uses the context and
+	 * sequence number of that request, independent of other requests
+	 * received concurrently with the same context.
+	 * 
+	 * Only the first response uses the nonce of the request, further
+	 * responses for the same request are protected with a new partial IV.
+	 * 
+	 * @param response the response
+	 * @param state the state of the decrypted request
+	 * 
+	 * @return the response with the encrypted OSCore option
+	 * 
+	 * @throws OSException when encryption fails
+	 */
+	public static Response encrypt(Response response, OSCoreRequestState state, final boolean newPartialIV)
+			throws OSException {
+		if (state == null) {
+			LOGGER.error(ErrorDescriptions.CTX_NULL);
+			throw new OSException(ErrorDescriptions.CTX_NULL);
+		}
+
+		boolean partialIV = newPartialIV;
+		if (!partialIV && !state.useRequestNonce()) {
+			LOGGER.debug("nonce of request {} already used, response with new partial IV", state.getSeq());
+			partialIV = true;
+		}
+		return encrypt(response, state.getContext(), state.getSeq(), partialIV);
+	}
+
+	private static Response encrypt(Response response, OSCoreCtx ctx, int requestSeq, final boolean newPartialIV)
+			throws OSException {
+
 		int realCode = response.getCode().value;
 		response = OptionJuggle.setFakeCodeResponse(response);
 
 		OptionSet options = response.getOptions();
 
 		byte[] confidential = OSSerializer.serializeConfidentialData(options, response.getPayload(), realCode);
-		Encrypt0Message enc = prepareCOSEStructure(confidential);
-		byte[] cipherText = encryptAndEncode(enc, ctx, response, newPartialIV);
-		compression(ctx, cipherText, response, newPartialIV);
+		//If new partial IV is generated for response reserve a sender seq nr.
+		int seq = newPartialIV ? ctx.reserveSenderSeq() : -1;
+		byte[] cipherText = encryptAndEncode(confidential, ctx, response, newPartialIV, seq, requestSeq);
+		compression(ctx, cipherText, response, newPartialIV, seq);
 
 		options = response.getOptions();
 		response.setOptions(OptionJuggle.prepareUoptions(options));
 
-		//If new partial IV was generated for response increment sender seq nr.
-		if(newPartialIV) {
-			ctx.increaseSenderSeq();
-		}
-		
 		return response;
 	}
 }
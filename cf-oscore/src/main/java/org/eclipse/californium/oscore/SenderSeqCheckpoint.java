@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+/**
+ *
+ * Callback for reserved sender sequence numbers.
+ *
+ * Used to persist the sender sequence number as described in
+ * <a href="https://tools.ietf.org/html/rfc8613#appendix-B.1.1">RFC 8613,
+ * Appendix B.1.1</a>. See {@link OSCoreCtx#setSenderSeqCheckpoint}.
+ *
+ */
+public interface SenderSeqCheckpoint {
+
+	/**
+	 * Called for every reserved sender sequence number, before the sequence
+	 * number is used. Executed on the hot send path, so implementations
+	 * should only block, if the sequence number is not yet covered by the
+	 * persisted state.
+	 * 
+	 * @param ctx the context
+	 * @param seq the reserved sender sequence number
+	 * @throws OSException if the sequence number must not be used
+	 */
+	void reserved(OSCoreCtx ctx, int seq) throws OSException;
+}
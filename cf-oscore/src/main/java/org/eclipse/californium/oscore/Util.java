@@ -50,7 +50,7 @@ public class Util {
 	 * 
 	 * 
 	 */
-	public static void printOSCOREKeyInformation(HashMapCtxDB db, String baseUri) {
+	public static void printOSCOREKeyInformation(OSCoreCtxDB db, String baseUri) {
 		byte[] master_secret, master_salt, common_iv, id_context;
 		byte[] sender_id, sender_key;
 		int sender_seq_number;
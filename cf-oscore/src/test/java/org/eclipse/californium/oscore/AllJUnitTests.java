@@ -28,7 +28,10 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({ ByteIdTest.class, HashMapCtxDBTest.class, OptionJuggleTest.class, OSCoreCtxTest.class,
 	OSCoreTest.class, OSSerializerTest.class, OSCoreServerClientTest.class, OSCoreObserveTest.class,
-	EncryptorTest.class, DecryptorTest.class, OSCoreMessageExchangeTest.class })
+	EncryptorTest.class, DecryptorTest.class, OSCoreMessageExchangeTest.class, ConcurrentHashMapCtxDBTest.class,
+	DecodedOptionTest.class, ReplayWindowTest.class, ConcurrentDecryptionTest.class,
+	OSCoreTcpServerClientTest.class, FileCtxDBTest.class, ContextIndexTest.class,
+	OSCoreCounterStatisticsTest.class })
 public class AllJUnitTests {
 
 }
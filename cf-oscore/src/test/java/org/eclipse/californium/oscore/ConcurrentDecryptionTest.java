@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.CoAP.Type;
+import org.eclipse.californium.core.coap.Message;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.serialization.UdpDataParser;
+import org.eclipse.californium.core.network.serialization.UdpDataSerializer;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Stress test for the decryption of requests of one context by several
+ * threads. The per message state of a request must not be mixed up with the
+ * state of other requests decrypted concurrently.
+ *
+ */
+public class ConcurrentDecryptionTest {
+
+	private final static byte[] master_secret = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private final static byte[] client_id = new byte[] { 0x01 };
+	private final static byte[] server_id = new byte[] { 0x02 };
+	private final static AlgorithmID alg = AlgorithmID.AES_CCM_16_64_128;
+	private final static AlgorithmID kdf = AlgorithmID.HKDF_HMAC_SHA_256;
+	private final static Code[] CODES = { Code.GET, Code.POST, Code.PUT, Code.DELETE };
+
+	private static final int THREADS = 8;
+	private static final int REQUESTS = 2000;
+
+	private OSCoreCtx clientCtx;
+	private OSCoreCtx serverCtx;
+	private OSCoreCtxDB clientDb;
+	private OSCoreCtxDB serverDb;
+
+	@Before
+	public void setUp() throws OSException {
+		clientCtx = new OSCoreCtx(master_secret, true, alg, client_id, server_id, kdf, ReplayWindow.MAX_SIZE, null,
+				null);
+		serverCtx = new OSCoreCtx(master_secret, false, alg, server_id, client_id, kdf, ReplayWindow.MAX_SIZE, null,
+				null);
+		clientDb = new ConcurrentHashMapCtxDB();
+		serverDb = new ConcurrentHashMapCtxDB();
+		serverDb.addContext(serverCtx);
+	}
+
+	/**
+	 * Decrypt every request twice in random order by several threads and
+	 * protect the responses with the state of the decrypted requests. Each
+	 * request must be accepted exactly once with its own code and payload,
+	 * and each response must be decryptable by the client with the sequence
+	 * number of its request.
+	 */
+	@Test
+	public void testConcurrentRequestDecryption() throws Exception {
+		UdpDataSerializer serializer = new UdpDataSerializer();
+		final List<byte[]> messages = new ArrayList<byte[]>();
+		for (int index = 0; index < REQUESTS; index++) {
+			Request request = new Request(CODES[index % CODES.length], Type.CON);
+			request.setMID(index);
+			request.setToken(token(index));
+			request.getOptions().setUriPath("request/" + index);
+			request = RequestEncryptor.encrypt(request, clientCtx);
+			clientDb.addContext(request.getToken(), clientCtx);
+			clientDb.addSeqByToken(request.getToken(), index);
+			byte[] data = serializer.getByteArray(request);
+			// the replay must be rejected
+			messages.add(data);
+			messages.add(data.clone());
+		}
+		Collections.shuffle(messages, new Random(4711));
+
+		final AtomicReferenceArray<OSCoreRequestState> states = new AtomicReferenceArray<OSCoreRequestState>(
+				REQUESTS);
+		final AtomicReferenceArray<byte[]> responses = new AtomicReferenceArray<byte[]>(REQUESTS);
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger replays = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		for (int thread = 0; thread < THREADS; thread++) {
+			new Thread() {
+
+				@Override
+				public void run() {
+					UdpDataParser parser = new UdpDataParser();
+					UdpDataSerializer serializer = new UdpDataSerializer();
+					try {
+						start.await();
+						int index;
+						while ((index = next.getAndIncrement()) < messages.size()) {
+							Request request = (Request) parser.parseMessage(messages.get(index));
+							OSCoreRequestState state;
+							try {
+								state = RequestDecryptor.decryptRequest(serverDb, request);
+							} catch (CoapOSException e) {
+								assertEquals(ErrorDescriptions.REPLAY_DETECT, e.getMessage());
+								replays.incrementAndGet();
+								continue;
+							}
+							int seq = state.getSeq();
+							assertNull("seq " + seq, states.getAndSet(seq, state));
+							Response response = new Response(ResponseCode.CONTENT);
+							response.setType(Type.ACK);
+							response.setMID(request.getMID());
+							response.setToken(request.getToken());
+							response.setPayload("response " + seq);
+							response = ResponseEncryptor.encrypt(response, state, false);
+							responses.set(seq, serializer.getByteArray(response));
+						}
+					} catch (Throwable t) {
+						error.compareAndSet(null, t);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+		if (error.get() != null) {
+			throw new AssertionError(error.get());
+		}
+
+		assertEquals(REQUESTS, replays.get());
+		UdpDataParser parser = new UdpDataParser();
+		for (int seq = 0; seq < REQUESTS; seq++) {
+			OSCoreRequestState state = states.get(seq);
+			assertNotNull("seq " + seq, state);
+			assertEquals(CODES[seq % CODES.length], state.getCode());
+			assertEquals(CODES[seq % CODES.length], state.getRequest().getCode());
+			assertEquals("request/" + seq, state.getRequest().getOptions().getUriPathString());
+			Message message = parser.parseMessage(responses.get(seq));
+			Response response = ResponseDecryptor.decrypt(clientDb, (Response) message);
+			assertEquals(ResponseCode.CONTENT, response.getCode());
+			assertEquals("response " + seq, response.getPayloadString());
+		}
+		assertEquals(REQUESTS - 1, serverCtx.getReceiverSeq());
+	}
+
+	/**
+	 * A request, which fails to decrypt, must not advance the replay window.
+	 */
+	@Test
+	public void testFailedDecryptionDoesNotUpdateReplayWindow() throws Exception {
+		clientCtx.setSenderSeq(1000);
+		Request request = new Request(Code.GET, Type.CON);
+		request.setMID(1);
+		request.setToken(token(1));
+		request = RequestEncryptor.encrypt(request, clientCtx);
+		byte[] payload = request.getPayload();
+		payload[0] ^= 1;
+		request.setPayload(payload);
+		try {
+			RequestDecryptor.decryptRequest(serverDb, request);
+			fail("manipulated request must fail to decrypt");
+		} catch (CoapOSException e) {
+			assertEquals(ErrorDescriptions.DECRYPTION_FAILED, e.getMessage());
+		}
+		assertEquals(-1, serverCtx.getReceiverSeq());
+	}
+
+	@Test
+	public void testRollBack() throws Exception {
+		Request request = new Request(Code.GET, Type.CON);
+		request.setMID(1);
+		request.setToken(token(1));
+		request = RequestEncryptor.encrypt(request, clientCtx);
+		byte[] data = new UdpDataSerializer().getByteArray(request);
+
+		OSCoreRequestState state = RequestDecryptor
+				.decryptRequest(serverDb, (Request) new UdpDataParser().parseMessage(data));
+		assertEquals(0, serverCtx.getReceiverSeq());
+		state.rollBack();
+		assertEquals(-1, serverCtx.getReceiverSeq());
+		state = RequestDecryptor.decryptRequest(serverDb, (Request) new UdpDataParser().parseMessage(data));
+		assertEquals(0, state.getSeq());
+	}
+
+	private static Token token(int index) {
+		return new Token(new byte[] { (byte) (index >> 8), (byte) index });
+	}
+}
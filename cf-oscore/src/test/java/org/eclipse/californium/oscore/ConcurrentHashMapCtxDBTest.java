@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.core.coap.Token;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.eclipse.californium.cose.AlgorithmID;
+
+public class ConcurrentHashMapCtxDBTest {
+
+	private final Token token = new Token(new byte[] { 0x09, 0x08, 0x07, 0x06 });
+	private final Token modifiedToken = new Token(new byte[] { 0x08, 0x07, 0x06, 0x05 });
+	private final String uri = "coap/hello/1";
+	private final String modifiedUri = "coap://localhost";
+	private final byte[] master_secret = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D,
+			0x0E, 0x0F, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18, 0x19, 0x1A, 0x1B, 0x1C, 0x1D, 0x1E, 0x1F,
+			0x20, 0x21, 0x22, 0x23 };
+	private final AlgorithmID alg = AlgorithmID.AES_CCM_16_64_128;
+	private final byte[] rid = new byte[] { 0x73, 0x65, 0x72, 0x76, 0x65, 0x72 };
+	private final byte[] sid = new byte[] { 0x63, 0x6C, 0x69, 0x65, 0x6E, 0x74 };
+	private final byte[] modifiedRid = new byte[] { 0x01, 0x65, 0x72, 0x76, 0x65, 0x72 };
+	private final Integer seq = 42;
+
+	private ConcurrentHashMapCtxDB db;
+
+	@Rule
+	public final ExpectedException exception = ExpectedException.none();
+
+	@Before
+	public void setUp() throws Exception {
+		db = new ConcurrentHashMapCtxDB();
+	}
+
+	@Test
+	public void testGetContextNull() throws OSException {
+		assertNull(db.getContext(rid));
+		assertNull(db.getContext(uri));
+		assertNull(db.getContextByToken(token));
+	}
+
+	@Test
+	public void testAddGetContextRid() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(ctx);
+
+		assertEquals(ctx, db.getContext(rid));
+		assertNull(db.getContext(modifiedRid));
+		assertNull(db.getContext(uri));
+		assertNull(db.getContextByToken(token));
+	}
+
+	@Test
+	public void testAddGetContextUri() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(uri, ctx);
+
+		assertEquals(ctx, db.getContext(rid));
+		assertNull(db.getContext(modifiedRid));
+		assertEquals(ctx, db.getContext(uri));
+		assertNull(db.getContext(modifiedUri));
+		assertNull(db.getContextByToken(token));
+	}
+
+	@Test
+	public void testAddGetContextToken() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(token, ctx);
+
+		assertEquals(ctx, db.getContext(rid));
+		assertNull(db.getContext(modifiedRid));
+		assertNull(db.getContext(uri));
+		assertEquals(ctx, db.getContextByToken(token));
+		assertNull(db.getContextByToken(modifiedToken));
+	}
+
+	@Test
+	public void testNullSeqByToken() throws OSException {
+		exception.expect(NullPointerException.class);
+
+		db.addSeqByToken(token, null);
+	}
+
+	@Test
+	public void testSeqByNullToken() throws OSException {
+		exception.expect(NullPointerException.class);
+
+		db.addSeqByToken(null, seq);
+	}
+
+	@Test
+	public void testSeqBytToken() throws OSException {
+		db.addSeqByToken(token, seq);
+
+		assertEquals(seq, db.getSeqByToken(token));
+		assertNull(db.getSeqByToken(modifiedToken));
+	}
+
+	@Test
+	public void testRemoveSeqBytToken() throws OSException {
+		db.addSeqByToken(token, seq);
+		db.removeSeqByToken(token);
+
+		assertNull(db.getSeqByToken(token));
+		assertFalse(db.tokenExist(token));
+	}
+
+	@Test
+	public void testRemoveSeqByTokenKeepsContext() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(token, ctx);
+		db.addSeqByToken(token, seq);
+		db.removeSeqByToken(token);
+
+		assertNull(db.getSeqByToken(token));
+		assertEquals(ctx, db.getContextByToken(token));
+		assertTrue(db.tokenExist(token));
+	}
+
+	@Test
+	public void testRemoveTokenKeepsGenerator() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(token, ctx);
+		db.addSeqByToken(token, seq);
+		db.removeToken(token);
+
+		assertNull(db.getSeqByToken(token));
+		assertNull(db.getContextByToken(token));
+		assertTrue(db.tokenExist(token));
+	}
+
+	@Test
+	public void testUpdateNonExistentSeqByToken() {
+		try {
+			db.updateSeqByToken(null, seq);
+			db.updateSeqByToken(token, 44);
+		} catch (NullPointerException e) {
+			assertEquals(ErrorDescriptions.TOKEN_NULL, e.getMessage());
+		}
+
+		try {
+			db.updateSeqByToken(token, -5);
+		} catch (Exception e) {
+			assertEquals(ErrorDescriptions.SEQ_NBR_INVALID, e.getMessage());
+		}
+
+		assertFalse(db.tokenExist(token));
+		assertNull(db.getSeqByToken(token));
+	}
+
+	@Test
+	public void testTokenExists() throws OSException {
+		db.addSeqByToken(token, seq);
+
+		assertTrue(db.tokenExist(token));
+		assertFalse(db.tokenExist(modifiedToken));
+	}
+
+	/**
+	 * Adds context and sequence number of the same tokens from different
+	 * threads and checks that no update is lost.
+	 */
+	@Test
+	public void testConcurrentTokenUpdates() throws Exception {
+		final OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32,
+				null, null);
+		final int tokens = 2000;
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(2);
+		final AtomicInteger errors = new AtomicInteger();
+
+		Thread contexts = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					start.await();
+					for (int i = 0; i < tokens; i++) {
+						db.addContext(createToken(i), ctx);
+					}
+				} catch (Throwable t) {
+					errors.incrementAndGet();
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		Thread sequences = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					start.await();
+					for (int i = 0; i < tokens; i++) {
+						db.addSeqByToken(createToken(i), i);
+					}
+				} catch (Throwable t) {
+					errors.incrementAndGet();
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		contexts.start();
+		sequences.start();
+		start.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, errors.get());
+
+		for (int i = 0; i < tokens; i++) {
+			Token token = createToken(i);
+			assertEquals(ctx, db.getContextByToken(token));
+			assertEquals(Integer.valueOf(i), db.getSeqByToken(token));
+		}
+	}
+
+	/**
+	 * Adds more contexts than derived by a single task and checks, that the
+	 * keys are the same as for contexts created one by one.
+	 */
+	@Test
+	public void testReusedRecipientId() throws OSException {
+		OSCoreCtxDB db = new ConcurrentHashMapCtxDB();
+		byte[] idContext1 = new byte[] { 0x11 };
+		byte[] idContext2 = new byte[] { 0x22 };
+		OSCoreCtx ctx1 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				idContext1);
+		OSCoreCtx ctx2 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				idContext2);
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(ctx1);
+		db.addContext(ctx2);
+
+		// by ID context, independent of the order
+		assertSame(ctx1, db.getContext(rid, idContext1));
+		assertSame(ctx2, db.getContext(rid, idContext2));
+		assertNull(db.getContext(rid, null));
+		// by recipient id only, the last added one
+		assertSame(ctx2, db.getContext(rid));
+
+		db.addContext(ctx);
+		assertSame(ctx, db.getContext(rid, null));
+		assertSame(ctx, db.getContext(rid));
+
+		// adding again makes it the last added one
+		db.addContext(ctx1);
+		assertSame(ctx1, db.getContext(rid));
+		assertSame(ctx1, db.getContext(rid, idContext1));
+		assertSame(ctx2, db.getContext(rid, idContext2));
+		assertSame(ctx, db.getContext(rid, null));
+	}
+
+	@Test
+	public void testAddContexts() throws OSException {
+		int count = 500;
+		List<OSCoreCtxParameters> parameters = new ArrayList<OSCoreCtxParameters>();
+		for (int i = 0; i < count; i++) {
+			parameters.add(new OSCoreCtxParameters(master_secret, false, alg, sid, createId(i),
+					AlgorithmID.HKDF_HMAC_SHA_256, 32, null, null));
+		}
+		List<OSCoreCtx> contexts = db.addContexts(parameters);
+		assertEquals(count, contexts.size());
+
+		for (int i = 0; i < count; i++) {
+			byte[] id = createId(i);
+			OSCoreCtx ctx = db.getContext(id);
+			assertSame(contexts.get(i), ctx);
+			OSCoreCtx expected = new OSCoreCtx(master_secret, false, alg, sid, id, AlgorithmID.HKDF_HMAC_SHA_256, 32,
+					null, null);
+			assertArrayEquals(expected.getSenderKey(), ctx.getSenderKey());
+			assertArrayEquals(expected.getRecipientKey(), ctx.getRecipientKey());
+			assertArrayEquals(expected.getCommonIV(), ctx.getCommonIV());
+		}
+	}
+
+	@Test
+	public void testAddContextsFailure() throws OSException {
+		List<OSCoreCtxParameters> parameters = new ArrayList<OSCoreCtxParameters>();
+		for (int i = 0; i < 200; i++) {
+			// invalid replay window size for the last context
+			Integer replaySize = i == 199 ? ReplayWindow.MAX_SIZE + 1 : null;
+			parameters.add(new OSCoreCtxParameters(master_secret, false, alg, sid, createId(i), null, replaySize,
+					null, null));
+		}
+		try {
+			db.addContexts(parameters);
+			fail("invalid replay window size not detected");
+		} catch (OSException e) {
+			assertEquals(ErrorDescriptions.REPLAY_WINDOW_SIZE_INVALID, e.getMessage());
+		}
+		assertNull(db.getContext(createId(0)));
+	}
+
+	private static byte[] createId(int index) {
+		return new byte[] { (byte) (index >> 16), (byte) (index >> 8), (byte) index };
+	}
+
+	private static Token createToken(int index) {
+		return new Token(new byte[] { (byte) (index >> 24), (byte) (index >> 16), (byte) (index >> 8), (byte) index });
+	}
+}
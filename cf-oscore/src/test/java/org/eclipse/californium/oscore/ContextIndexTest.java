@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContextIndexTest {
+
+	private final byte[] master_secret = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D,
+			0x0E, 0x0F, 0x10 };
+	private final byte[] sid = new byte[] { 0x00 };
+	private final byte[] rid = new byte[] { 0x01 };
+	private final byte[] idContext1 = new byte[] { 0x11, 0x12 };
+	private final byte[] idContext2 = new byte[] { 0x21, 0x22 };
+
+	private ContextIndex index;
+
+	@Before
+	public void setUp() {
+		index = new ContextIndex();
+	}
+
+	@Test
+	public void testSameRecipientIdWithDifferentIdContexts() throws OSException {
+		OSCoreCtx ctx = create(rid, null);
+		OSCoreCtx ctx1 = create(rid, idContext1);
+		OSCoreCtx ctx2 = create(rid, idContext2);
+		index.put(ctx);
+		index.put(ctx1);
+		index.put(ctx2);
+
+		assertEquals(3, index.size());
+		assertSame(ctx, index.get(rid, null));
+		assertSame(ctx1, index.get(rid, idContext1));
+		assertSame(ctx2, index.get(rid, idContext2));
+		assertNull(index.get(new byte[] { 0x02 }, idContext1));
+		assertNull(index.get(rid, new byte[] { 0x11 }));
+	}
+
+	@Test
+	public void testRangedGet() throws OSException {
+		OSCoreCtx ctx = create(rid, null);
+		OSCoreCtx ctx1 = create(rid, idContext1);
+		index.put(ctx);
+		index.put(ctx1);
+
+		// ID context and recipient id within a larger array
+		byte[] data = new byte[] { 0x09, 0x11, 0x12, 0x01, 0x09 };
+		assertSame(ctx1, index.get(data, 3, 1, data, 1, 2));
+		assertSame(ctx, index.get(data, 3, 1, null, -1, 0));
+		assertNull(index.get(data, 3, 1, data, 1, 1));
+		assertNull(index.get(data, 2, 2, data, 1, 2));
+		// last added context of the recipient id
+		assertSame(ctx1, index.getByRecipientId(data, 3, 1));
+		assertNull(index.getByRecipientId(data, 0, 1));
+	}
+
+	@Test
+	public void testReplace() throws OSException {
+		OSCoreCtx ctx = create(rid, idContext1);
+		OSCoreCtx replacement = create(rid, idContext1);
+		assertNull(index.put(ctx));
+		assertSame(ctx, index.put(replacement));
+
+		assertEquals(1, index.size());
+		assertSame(replacement, index.get(rid, idContext1));
+	}
+
+	@Test
+	public void testGrow() throws OSException {
+		int count = 5000;
+		OSCoreCtx[] contexts = new OSCoreCtx[count];
+		for (int i = 0; i < count; i++) {
+			byte[] id = new byte[] { (byte) (i >> 8), (byte) i };
+			contexts[i] = create(rid, id);
+			index.put(contexts[i]);
+		}
+		assertEquals(count, index.size());
+		for (int i = 0; i < count; i++) {
+			byte[] id = new byte[] { (byte) (i >> 8), (byte) i };
+			assertSame(contexts[i], index.get(rid, id));
+		}
+		index.clear();
+		assertEquals(0, index.size());
+		assertNull(index.get(rid, new byte[] { 0x00, 0x00 }));
+	}
+
+	@Test
+	public void testContextByOscoreOption() throws OSException {
+		OSCoreCtxDB db = new ConcurrentHashMapCtxDB();
+		OSCoreCtx ctx1 = create(rid, idContext1);
+		OSCoreCtx ctx2 = create(rid, idContext2);
+		db.addContext(ctx1);
+		db.addContext(ctx2);
+
+		byte[] option = new byte[] { 0x19, 0x05, 0x02, 0x11, 0x12, 0x01 };
+		assertSame(ctx1, Decryptor.getContext(db, Decryptor.decodeObjectSecurity(option, true)));
+		option = new byte[] { 0x19, 0x05, 0x02, 0x21, 0x22, 0x01 };
+		assertSame(ctx2, Decryptor.getContext(db, Decryptor.decodeObjectSecurity(option, true)));
+		// without kid context the last added context of the recipient id
+		option = new byte[] { 0x09, 0x05, 0x01 };
+		assertSame(ctx2, Decryptor.getContext(db, Decryptor.decodeObjectSecurity(option, true)));
+	}
+
+	@Test
+	public void testKidContextDoesNotMatchContextWithoutIdContext() throws OSException {
+		OSCoreCtxDB db = new ConcurrentHashMapCtxDB();
+		OSCoreCtx ctx = create(rid, null);
+		db.addContext(ctx);
+
+		byte[] option = new byte[] { 0x19, 0x05, 0x02, 0x11, 0x12, 0x01 };
+		assertNull(Decryptor.getContext(db, Decryptor.decodeObjectSecurity(option, true)));
+		option = new byte[] { 0x09, 0x05, 0x01 };
+		assertSame(ctx, Decryptor.getContext(db, Decryptor.decodeObjectSecurity(option, true)));
+	}
+
+	private OSCoreCtx create(byte[] rid, byte[] idContext) throws OSException {
+		return new OSCoreCtx(master_secret, false, null, sid, rid, null, null, null, idContext);
+	}
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.californium.oscore.Decryptor.DecodedOption;
+import org.junit.Test;
+
+/**
+ * Tests the decoding of the OSCORE option value, including malformed values.
+ *
+ */
+public class DecodedOptionTest {
+
+	/**
+	 * Number of random option values of the fuzz test.
+	 */
+	private static final int FUZZ_ITERATIONS = 100000;
+
+	@Test
+	public void testRequestOption() throws OSException {
+		// partial IV 0x14, kid 0x00
+		DecodedOption option = Decryptor.decodeObjectSecurity(new byte[] { 0x09, 0x14, 0x00 }, true);
+		assertTrue(option.hasPartialIV());
+		assertEquals(0x14, option.readPartialIV());
+		assertArrayEquals(new byte[] { 0x14 }, option.getPartialIV());
+		assertArrayEquals(new byte[] { 0x00 }, option.getKid());
+		assertNull(option.getKidContext());
+	}
+
+	@Test
+	public void testRequestOptionWithEmptyKid() throws OSException {
+		DecodedOption option = Decryptor.decodeObjectSecurity(new byte[] { 0x0a, 0x01, 0x02 }, true);
+		assertEquals(0x0102, option.readPartialIV());
+		assertArrayEquals(new byte[0], option.getKid());
+	}
+
+	@Test
+	public void testRequestOptionWithKidContext() throws OSException {
+		DecodedOption option = Decryptor.decodeObjectSecurity(
+				new byte[] { 0x19, 0x14, 0x03, 0x37, (byte) 0xcb, (byte) 0xf3, 0x01 }, true);
+		assertEquals(0x14, option.readPartialIV());
+		assertArrayEquals(new byte[] { 0x37, (byte) 0xcb, (byte) 0xf3 }, option.getKidContext());
+		assertArrayEquals(new byte[] { 0x01 }, option.getKid());
+	}
+
+	@Test
+	public void testEmptyResponseOption() throws OSException {
+		DecodedOption option = Decryptor.decodeObjectSecurity(new byte[0], false);
+		assertFalse(option.hasPartialIV());
+		assertNull(option.getPartialIV());
+		assertNull(option.getKid());
+		assertNull(option.getKidContext());
+	}
+
+	@Test
+	public void testResponseOptionWithPartialIV() throws OSException {
+		DecodedOption option = Decryptor.decodeObjectSecurity(new byte[] { 0x03, 0x01, 0x02, 0x03 }, false);
+		assertEquals(0x010203, option.readPartialIV());
+		assertNull(option.getKid());
+	}
+
+	@Test
+	public void testLongKidContext() throws OSException {
+		byte[] value = new byte[3 + 200 + 1];
+		value[0] = 0x18;
+		value[1] = (byte) 200;
+		value[value.length - 1] = 0x42;
+		DecodedOption option = Decryptor.decodeObjectSecurity(value, true);
+		assertEquals(200, option.getKidContext().length);
+		assertArrayEquals(new byte[] { 0x00, 0x42 }, option.getKid());
+	}
+
+	@Test(expected = OSException.class)
+	public void testEmptyRequestOption() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[0], true);
+	}
+
+	@Test(expected = OSException.class)
+	public void testRequestOptionWithoutKid() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[] { 0x01, 0x14 }, true);
+	}
+
+	@Test(expected = OSException.class)
+	public void testTruncatedPartialIV() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[] { 0x03, 0x01 }, false);
+	}
+
+	@Test(expected = OSException.class)
+	public void testReservedPartialIVLength() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[] { 0x0e, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x00 }, true);
+	}
+
+	@Test(expected = OSException.class)
+	public void testMissingKidContextLength() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[] { 0x11, 0x14 }, false);
+	}
+
+	@Test(expected = OSException.class)
+	public void testEmptyKidContext() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[] { 0x19, 0x14, 0x00, 0x01 }, true);
+	}
+
+	@Test(expected = OSException.class)
+	public void testTruncatedKidContext() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[] { 0x19, 0x14, 0x05, 0x01, 0x02 }, true);
+	}
+
+	@Test(expected = OSException.class)
+	public void testTruncatedLongKidContext() throws OSException {
+		// length 0x80 must not be interpreted as negative
+		Decryptor.decodeObjectSecurity(new byte[] { 0x19, 0x14, (byte) 0x80, 0x01, 0x02 }, true);
+	}
+
+	@Test(expected = OSException.class)
+	public void testTrailingDataWithoutKid() throws OSException {
+		Decryptor.decodeObjectSecurity(new byte[] { 0x01, 0x14, 0x00 }, false);
+	}
+
+	@Test(expected = OSException.class)
+	public void testPartialIVTooLong() throws OSException {
+		DecodedOption option = Decryptor.decodeObjectSecurity(new byte[] { 0x0d, 0x01, 0x02, 0x03, 0x04, 0x05 },
+				true);
+		option.readPartialIV();
+	}
+
+	/**
+	 * Decodes random option values. Each value must either be rejected with
+	 * an OSException or result in fields, which are within the value and
+	 * consistent with the flags.
+	 */
+	@Test
+	public void testFuzzedOptions() {
+		Random random = new Random(0x05C0AE);
+		for (int i = 0; i < FUZZ_ITERATIONS; i++) {
+			byte[] value = new byte[random.nextInt(24)];
+			random.nextBytes(value);
+			boolean request = random.nextBoolean();
+			byte[] original = value.clone();
+			try {
+				DecodedOption option = Decryptor.decodeObjectSecurity(value, request);
+				assertConsistent(value, request, option);
+			} catch (OSException e) {
+				// malformed value rejected
+			} catch (RuntimeException e) {
+				fail("unexpected " + e + " for " + Arrays.toString(original));
+			}
+			assertArrayEquals("option value modified", original, value);
+		}
+	}
+
+	private static void assertConsistent(byte[] value, boolean request, DecodedOption option) {
+		int flags = value.length == 0 ? 0 : value[0];
+		int n = flags & 0x07;
+		int length = 1 + n;
+		assertEquals(n > 0, option.hasPartialIV());
+		if (n > 0) {
+			assertArrayEquals(Arrays.copyOfRange(value, 1, 1 + n), option.getPartialIV());
+		}
+		byte[] kidContext = option.getKidContext();
+		if ((flags & 0x10) != 0) {
+			assertArrayEquals(Arrays.copyOfRange(value, length + 1, length + 1 + kidContext.length), kidContext);
+			assertEquals(value[length] & 0xff, kidContext.length);
+			length += 1 + kidContext.length;
+		} else {
+			assertNull(kidContext);
+		}
+		byte[] kid = option.getKid();
+		if ((flags & 0x08) != 0) {
+			assertArrayEquals(Arrays.copyOfRange(value, length, value.length), kid);
+		} else {
+			assertFalse(request);
+			assertNull(kid);
+			assertTrue(value.length <= length);
+		}
+	}
+}
@@ -17,6 +17,13 @@
 package org.eclipse.californium.oscore;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.network.serialization.UdpDataParser;
@@ -25,6 +32,13 @@ import org.eclipse.californium.core.coap.Message;
 import org.junit.After;
 import org.junit.Test;
 import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.cose.Attribute;
+import org.eclipse.californium.cose.CoseException;
+import org.eclipse.californium.cose.Encrypt0Message;
+import org.eclipse.californium.cose.HeaderKeys;
+import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
+
+import com.upokecenter.cbor.CBORObject;
 
 /**
  * Tests the encryption of request and response messages.
@@ -161,4 +175,185 @@ public class EncryptorTest {
 		
 	}
 
+
+	/**
+	 * Tests, that the directly encoded Enc_structure used as AAD is the same
+	 * as encoded with CBORObject, also for external AADs with longer length
+	 * encodings.
+	 *
+	 * @throws Exception if encryption fails
+	 */
+	@Test
+	public void testEncStructureEncoding() throws Exception {
+		ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, kdf, 32, null, null);
+		byte[] nonce = new byte[ctx.getIVLength()];
+		byte[] content = new byte[] { 0x01, 0x02, 0x03 };
+		int[] lengths = { 0, 9, 23, 24, 255, 256, 70000 };
+		for (int length : lengths) {
+			byte[] external = new byte[length];
+			for (int i = 0; i < length; i++) {
+				external[i] = (byte) i;
+			}
+			CBORObject encStructure = CBORObject.NewArray();
+			encStructure.Add("Encrypt0");
+			encStructure.Add(CBORObject.FromObject(new byte[0]));
+			encStructure.Add(CBORObject.FromObject(external));
+			byte[] expected = CCMBlockCipher.encrypt(new SecretKeySpec(ctx.getSenderKey(), "AES"), nonce,
+					encStructure.EncodeToBytes(), content, 8);
+
+			assertArrayEquals(expected, encrypt(content, external, nonce));
+		}
+	}
+
+	/**
+	 * Tests, that the streamlined OSCORE engine is interoperable with the
+	 * COSE Encrypt0Message.
+	 *
+	 * @throws Exception if en- or decryption fails
+	 */
+	@Test
+	public void testEngineMatchesEncrypt0Message() throws Exception {
+		ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, kdf, 32, null, null);
+		OSCoreCtx serverCtx = new OSCoreCtx(master_secret, false, alg, rid, sid, kdf, 32, null, null);
+		OptionSet options = new OptionSet();
+		byte[] content = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+		byte[] nonce = new byte[ctx.getIVLength()];
+		OSSerializer.nonceGeneration(seq, ctx.getSenderNonceBase(), nonce);
+
+		byte[] external = OSSerializer.serializeAAD(CoAP.VERSION, alg, seq, sid, options);
+		byte[] aad = OSSerializer.serializeEncStructure(CoAP.VERSION, alg, seq, sid, options);
+		byte[] expected = encrypt(content, external, nonce);
+		byte[] cipherText = OSCoreEngine.encrypt(ctx, nonce, aad, content);
+		assertArrayEquals(expected, cipherText);
+
+		assertArrayEquals(content, OSCoreEngine.decrypt(serverCtx, nonce, aad, cipherText));
+
+		Encrypt0Message dec = new Encrypt0Message(false, true);
+		dec.setEncryptedContent(cipherText);
+		dec.setExternal(external);
+		dec.addAttribute(HeaderKeys.IV, CBORObject.FromObject(nonce), Attribute.DO_NOT_SEND);
+		dec.addAttribute(HeaderKeys.Algorithm, alg.AsCBOR(), Attribute.DO_NOT_SEND);
+		assertArrayEquals(content, dec.decrypt(serverCtx.getRecipientKey()));
+	}
+
+	/**
+	 * Tests, that the OSCORE engine is interoperable with the COSE
+	 * Encrypt0Message for the additional AES-CCM and the AES-GCM algorithms.
+	 *
+	 * @throws Exception if en- or decryption fails
+	 */
+	@Test
+	public void testEngineAlgorithms() throws Exception {
+		AlgorithmID[] algorithms = { AlgorithmID.AES_CCM_16_64_256, AlgorithmID.AES_CCM_16_128_128,
+				AlgorithmID.AES_CCM_16_128_256, AlgorithmID.AES_CCM_64_64_128, AlgorithmID.AES_GCM_128,
+				AlgorithmID.AES_GCM_256 };
+		OptionSet options = new OptionSet();
+		byte[] content = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+		for (AlgorithmID algorithm : algorithms) {
+			OSCoreCtx clientCtx = new OSCoreCtx(master_secret, true, algorithm, sid, rid, kdf, 32, null, null);
+			OSCoreCtx serverCtx = new OSCoreCtx(master_secret, false, algorithm, rid, sid, kdf, 32, null, null);
+			assertEquals(algorithm.getKeySize() / 8, clientCtx.getSenderKey().length);
+			byte[] nonce = new byte[clientCtx.getIVLength()];
+			OSSerializer.nonceGeneration(seq, clientCtx.getSenderNonceBase(), nonce);
+
+			byte[] external = OSSerializer.serializeAAD(CoAP.VERSION, algorithm, seq, sid, options);
+			byte[] aad = OSSerializer.serializeEncStructure(CoAP.VERSION, algorithm, seq, sid, options);
+			byte[] cipherText = OSCoreEngine.encrypt(clientCtx, nonce, aad, content);
+			assertEquals(algorithm.name(), content.length + algorithm.getTagSize() / 8, cipherText.length);
+			if (!OSCoreEngine.isGcm(algorithm)) {
+				// encrypting twice with the same nonce is deterministic
+				assertArrayEquals(algorithm.name(), cipherText, OSCoreEngine.encrypt(clientCtx, nonce, aad, content));
+			}
+			assertArrayEquals(algorithm.name(), content, OSCoreEngine.decrypt(serverCtx, nonce, aad, cipherText));
+
+			Encrypt0Message dec = new Encrypt0Message(false, true);
+			dec.setEncryptedContent(cipherText);
+			dec.setExternal(external);
+			dec.addAttribute(HeaderKeys.IV, CBORObject.FromObject(nonce), Attribute.DO_NOT_SEND);
+			dec.addAttribute(HeaderKeys.Algorithm, algorithm.AsCBOR(), Attribute.DO_NOT_SEND);
+			assertArrayEquals(algorithm.name(), content, dec.decrypt(serverCtx.getRecipientKey()));
+
+			cipherText[0] ^= 0x01;
+			try {
+				OSCoreEngine.decrypt(serverCtx, nonce, aad, cipherText);
+				fail(algorithm.name() + " manipulation not detected");
+			} catch (OSException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Tests, that the OSCORE engine rejects manipulated ciphertexts.
+	 *
+	 * @throws OSException if encryption fails
+	 */
+	@Test(expected = OSException.class)
+	public void testEngineDetectsManipulation() throws OSException {
+		ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, kdf, 32, null, null);
+		OSCoreCtx serverCtx = new OSCoreCtx(master_secret, false, alg, rid, sid, kdf, 32, null, null);
+		byte[] nonce = new byte[ctx.getIVLength()];
+		byte[] aad = OSSerializer.serializeEncStructure(CoAP.VERSION, alg, seq, sid, new OptionSet());
+		byte[] cipherText = OSCoreEngine.encrypt(ctx, nonce, aad, new byte[] { 0x01, 0x02 });
+		cipherText[0] ^= 0x01;
+		OSCoreEngine.decrypt(serverCtx, nonce, aad, cipherText);
+	}
+
+	/**
+	 * Tests, that the OSCORE engine rejects to encrypt twice with the same
+	 * AES-GCM key and nonce.
+	 *
+	 * @throws OSException if the encryption fails
+	 */
+	@Test
+	public void testEngineRejectsGcmNonceReuse() throws OSException {
+		ctx = new OSCoreCtx(master_secret, true, AlgorithmID.AES_GCM_128, sid, rid, kdf, 32, null, null);
+		// other sequence number than the other tests
+		int seq = EncryptorTest.seq + 1;
+		byte[] nonce = new byte[ctx.getIVLength()];
+		OSSerializer.nonceGeneration(seq, ctx.getSenderNonceBase(), nonce);
+		byte[] aad = OSSerializer.serializeEncStructure(CoAP.VERSION, ctx.getAlg(), seq, sid, new OptionSet());
+		OSCoreEngine.encrypt(ctx, nonce, aad, new byte[] { 0x01, 0x02 });
+		try {
+			OSCoreEngine.encrypt(ctx, nonce, aad, new byte[] { 0x03, 0x04 });
+			fail("nonce reuse not rejected");
+		} catch (OSException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Tests, that only the first response for a request is protected with the
+	 * nonce of the request and further responses with a new partial IV.
+	 *
+	 * @throws OSException if the encryption fails
+	 */
+	@Test
+	public void testResponsesForSameRequestUseNewPartialIV() throws OSException {
+		for (AlgorithmID algorithm : new AlgorithmID[] { alg, AlgorithmID.AES_GCM_128 }) {
+			ctx = new OSCoreCtx(master_secret, false, algorithm, rid, sid, kdf, 32, null, null);
+			OSCoreRequestState state = new OSCoreRequestState(new Request(CoAP.Code.GET), ctx, seq, seq - 1,
+					CoAP.Code.GET);
+
+			Response response = new Response(CoAP.ResponseCode.CONTENT);
+			response.setPayload("first");
+			response = ResponseEncryptor.encrypt(response, state, false);
+			assertEquals(algorithm.name(), 0, response.getOptions().getOscore().length);
+
+			response = new Response(CoAP.ResponseCode.CONTENT);
+			response.setPayload("second");
+			response = ResponseEncryptor.encrypt(response, state, false);
+			assertArrayEquals(algorithm.name(), new byte[] { 0x01, 0x00 }, response.getOptions().getOscore());
+		}
+	}
+
+	private static byte[] encrypt(byte[] content, byte[] external, byte[] nonce) throws CoseException {
+		Encrypt0Message enc = new Encrypt0Message(false, true);
+		enc.SetContent(content);
+		enc.setExternal(external);
+		enc.addAttribute(HeaderKeys.IV, CBORObject.FromObject(nonce), Attribute.DO_NOT_SEND);
+		enc.addAttribute(HeaderKeys.Algorithm, alg.AsCBOR(), Attribute.DO_NOT_SEND);
+		enc.encrypt(ctx.getSenderKey());
+		return enc.getEncryptedContent();
+	}
 }
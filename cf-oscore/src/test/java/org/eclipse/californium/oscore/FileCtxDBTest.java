@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.eclipse.californium.cose.AlgorithmID;
+
+public class FileCtxDBTest {
+
+	private static final int INTERVAL = 16;
+
+	private final String uri = "coap://localhost/hello";
+	private final byte[] master_secret = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D,
+			0x0E, 0x0F, 0x10 };
+	private final byte[] master_salt = { (byte) 0x9e, 0x7c, (byte) 0xa9, 0x22, 0x23, 0x78, 0x63, 0x40 };
+	private final byte[] context_id = { 0x37, (byte) 0xcb, (byte) 0xf3, 0x21, 0x00, 0x17, (byte) 0xa2, (byte) 0xd3 };
+	private final byte[] rid = new byte[] { 0x73, 0x65, 0x72, 0x76, 0x65, 0x72 };
+	private final byte[] sid = new byte[] { 0x63, 0x6C, 0x69, 0x65, 0x6E, 0x74 };
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+	private FileCtxDB db;
+
+	@Before
+	public void setUp() throws Exception {
+		file = new File(folder.getRoot(), "contexts.db");
+		db = new FileCtxDB(file, INTERVAL);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		db.close();
+	}
+
+	@Test
+	public void testRestoreContext() throws Exception {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, AlgorithmID.AES_CCM_16_64_128, sid, rid,
+				AlgorithmID.HKDF_HMAC_SHA_256, 64, master_salt, context_id);
+		db.addContext(uri, ctx);
+		reopen();
+
+		OSCoreCtx restored = db.getContext(rid);
+		assertNotNull(restored);
+		assertSame(restored, db.getContext(uri));
+		assertArrayEquals(ctx.getSenderKey(), restored.getSenderKey());
+		assertArrayEquals(ctx.getRecipientKey(), restored.getRecipientKey());
+		assertArrayEquals(ctx.getCommonIV(), restored.getCommonIV());
+		assertArrayEquals(ctx.getSenderNonceBase(), restored.getSenderNonceBase());
+		assertArrayEquals(ctx.getSalt(), restored.getSalt());
+		assertArrayEquals(context_id, restored.getIdContext());
+		assertEquals(64, restored.getRecipientReplaySize());
+		assertEquals(AlgorithmID.HKDF_HMAC_SHA_256, restored.getKdf());
+	}
+
+	/**
+	 * Checks, that sequence numbers used before a restart are not used again
+	 * and that not more than the checkpoint interval is skipped.
+	 */
+	@Test
+	public void testSenderSeqCheckpoint() throws Exception {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, null);
+		db.addContext(ctx);
+		int last = 0;
+		for (int i = 0; i < 5 * INTERVAL + 3; i++) {
+			last = ctx.reserveSenderSeq();
+		}
+		reopen();
+
+		int seq = db.getContext(rid).reserveSenderSeq();
+		assertTrue("sequence number " + seq + " reused", seq > last);
+		assertTrue("sequence number " + seq + " skipped too many", seq <= last + 1 + INTERVAL);
+
+		// restart without sending
+		reopen();
+		int next = db.getContext(rid).reserveSenderSeq();
+		assertTrue("sequence number " + next + " reused", next > seq);
+	}
+
+	/**
+	 * Checks, that a burst of concurrent senders doesn't fail, if a write of
+	 * a checkpoint completes with a limit still below some of the reserved
+	 * sequence numbers.
+	 */
+	@Test
+	public void testConcurrentSenderSeqCheckpoints() throws Exception {
+		final int threads = 8;
+		final int sends = 2000;
+		db.close();
+		db = new FileCtxDB(file, 2);
+		final OSCoreCtx ctx = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, null);
+		db.addContext(ctx);
+		final Set<Integer> reserved = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> results = new ArrayList<>();
+			for (int thread = 0; thread < threads; ++thread) {
+				results.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						for (int index = 0; index < sends; ++index) {
+							assertTrue(reserved.add(ctx.reserveSenderSeq()));
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(threads * sends, reserved.size());
+		reopen();
+		int seq = db.getContext(rid).reserveSenderSeq();
+		assertTrue("sequence number " + seq + " reused", seq >= threads * sends);
+	}
+
+	@Test
+	public void testReplaceContext() throws Exception {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, null);
+		db.addContext(ctx);
+		OSCoreCtx replaced = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, master_salt, null);
+		db.addContext(replaced);
+		// already persisted
+		db.addContext(replaced);
+		long length = file.length();
+		reopen();
+
+		assertArrayEquals(master_salt, db.getContext(rid).getSalt());
+		assertTrue("not compacted", file.length() < length);
+	}
+
+	@Test
+	public void testRestoreContextsWithSameRecipientId() throws Exception {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, null);
+		db.addContext(ctx);
+		OSCoreCtx other = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, context_id);
+		db.addContext(other);
+		reopen();
+
+		assertNotNull(db.getContext(rid, null));
+		assertNull(db.getContext(rid, null).getIdContext());
+		assertArrayEquals(context_id, db.getContext(rid, context_id).getIdContext());
+	}
+
+	@Test
+	public void testFileIsOwnerOnly() throws Exception {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, null);
+		db.addContext(ctx);
+		assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file.toPath()));
+	}
+
+	@Test
+	public void testPurge() throws Exception {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, null);
+		db.addContext(ctx);
+		db.purge();
+		assertNull(db.getContext(rid));
+		reopen();
+		assertNull(db.getContext(rid));
+	}
+
+	@Test
+	public void testIncompleteContextDropped() throws Exception {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, null, sid, rid, null, null, null, null);
+		db.addContext(ctx);
+		db.close();
+
+		// simulate a crash while appending the second context
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.seek(out.length());
+			out.writeInt(100);
+			out.writeInt(0);
+		} finally {
+			out.close();
+		}
+		db = new FileCtxDB(file, INTERVAL);
+		assertNotNull(db.getContext(rid));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws Exception {
+		db.close();
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.writeInt(0x12345678);
+		} finally {
+			out.close();
+		}
+		db = new FileCtxDB(file, INTERVAL);
+	}
+
+	private void reopen() throws IOException {
+		db.close();
+		db = new FileCtxDB(file, INTERVAL);
+	}
+}
@@ -18,6 +18,9 @@ package org.eclipse.californium.oscore;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.oscore.HashMapCtxDB;
 import org.eclipse.californium.oscore.OSCoreCtx;
@@ -172,4 +175,106 @@ public class HashMapCtxDBTest {
 		assertTrue(db.tokenExist(token));
 		assertFalse(db.tokenExist(modifiedToken));
 	}
+
+	@Test
+	public void testReusedRecipientId() throws OSException {
+		OSCoreCtxDB db = new HashMapCtxDB();
+		byte[] idContext1 = new byte[] { 0x11 };
+		byte[] idContext2 = new byte[] { 0x22 };
+		OSCoreCtx ctx1 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				idContext1);
+		OSCoreCtx ctx2 = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				idContext2);
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32, null,
+				null);
+		db.addContext(ctx1);
+		db.addContext(ctx2);
+
+		// by ID context, independent of the order
+		assertSame(ctx1, db.getContext(rid, idContext1));
+		assertSame(ctx2, db.getContext(rid, idContext2));
+		assertNull(db.getContext(rid, null));
+		// by recipient id only, the last added one
+		assertSame(ctx2, db.getContext(rid));
+
+		db.addContext(ctx);
+		assertSame(ctx, db.getContext(rid, null));
+		assertSame(ctx, db.getContext(rid));
+
+		// adding again makes it the last added one
+		db.addContext(ctx1);
+		assertSame(ctx1, db.getContext(rid));
+		assertSame(ctx1, db.getContext(rid, idContext1));
+		assertSame(ctx2, db.getContext(rid, idContext2));
+		assertSame(ctx, db.getContext(rid, null));
+	}
+
+	@Test
+	public void testAddContexts() throws OSException {
+		HashMapCtxDB db = HashMapCtxDB.getInstance();
+		List<OSCoreCtxParameters> parameters = new ArrayList<OSCoreCtxParameters>();
+		parameters.add(new OSCoreCtxParameters(master_secret, true, alg, sid, rid, AlgorithmID.HKDF_HMAC_SHA_256, 32,
+				null, null));
+		parameters.add(new OSCoreCtxParameters(master_secret, true, alg, sid, modifiedRid,
+				AlgorithmID.HKDF_HMAC_SHA_256, 32, null, null));
+		List<OSCoreCtx> contexts = db.addContexts(parameters);
+
+		assertEquals(2, contexts.size());
+		assertEquals(contexts.get(0), db.getContext(rid));
+		assertEquals(contexts.get(1), db.getContext(modifiedRid));
+	}
+
+	@Test
+	public void testCachedUriNormalization() throws OSException {
+		NormalizedUriCache cache = new NormalizedUriCache();
+		String[] uris = { "coap://127.0.0.1/hello", "coap://[::1]:5684/hello", "coap://[0:0:0:0:0:0:0:1]",
+				"coap://[fe80::1%lo]/hello", uri };
+		for (String uri : uris) {
+			String normalized = HashMapCtxDB.resolveServerUri(uri);
+			assertEquals(normalized, cache.normalize(uri));
+			// cached
+			assertEquals(normalized, cache.normalize(uri));
+		}
+		assertEquals(cache.normalize("coap://[::1]"), cache.normalize("coap://[0:0:0:0:0:0:0:1]/hello"));
+		// cached by authority
+		assertEquals(6, cache.size());
+		cache.normalize("coap://127.0.0.1/other?query");
+		assertEquals(6, cache.size());
+		// uri without authority is cached by the uri
+		assertTrue(cache.isCached(uri));
+		assertFalse(cache.isCached("coap://127.0.0.2/hello"));
+	}
+
+	@Test
+	public void testNormalizedUriCacheIsBounded() throws OSException {
+		NormalizedUriCache cache = new NormalizedUriCache(2, 60);
+		cache.normalize("coap://127.0.0.1/hello");
+		cache.normalize("coap://127.0.0.2/hello");
+		assertEquals(2, cache.size());
+		cache.normalize("coap://127.0.0.3/hello");
+		assertEquals(2, cache.size());
+		// the oldest is evicted
+		assertFalse(cache.isCached("coap://127.0.0.1/hello"));
+		assertTrue(cache.isCached("coap://127.0.0.2/hello"));
+		assertTrue(cache.isCached("coap://127.0.0.3/hello"));
+	}
+
+	@Test
+	public void testNormalizedUriCacheEvictsExpired() throws Exception {
+		NormalizedUriCache cache = new NormalizedUriCache(2, 1);
+		cache.normalize("coap://127.0.0.1/hello");
+		cache.normalize("coap://127.0.0.2/hello");
+		Thread.sleep(1100);
+		cache.normalize("coap://127.0.0.3/hello");
+		assertEquals(1, cache.size());
+		assertTrue(cache.isCached("coap://127.0.0.3/hello"));
+	}
+
+	@Test
+	public void testUriAuthority() {
+		assertEquals("127.0.0.1", NormalizedUriCache.getAuthority("coap://127.0.0.1/hello"));
+		assertEquals("[::1]:5684", NormalizedUriCache.getAuthority("coaps://[::1]:5684?query"));
+		assertEquals("localhost", NormalizedUriCache.getAuthority("coap://localhost"));
+		assertNull(NormalizedUriCache.getAuthority(uri));
+	}
 }
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.core.coap.Request;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OSCoreCounterStatisticsTest {
+
+	private final byte[] master_secret = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D,
+			0x0E, 0x0F, 0x10 };
+
+	private OSCoreCounterStatistics statistics;
+	private OSCoreCtx ctx;
+
+	@Before
+	public void setUp() throws OSException {
+		statistics = new OSCoreCounterStatistics();
+		ctx = new OSCoreCtx(master_secret, true);
+	}
+
+	@Test
+	public void testCounters() {
+		statistics.protectedRequest(ctx, 1000);
+		statistics.protectedResponse(ctx, 1000);
+		statistics.verifiedRequest(ctx, 1000);
+		statistics.verifiedResponse(ctx, 1000);
+		statistics.verifiedResponse(ctx, 1000);
+		statistics.protectionFailed(ctx);
+		statistics.contextNotFound();
+		statistics.replayRejected();
+		statistics.replayRejected();
+		statistics.verificationFailed();
+
+		assertEquals(1, statistics.getProtectedRequests());
+		assertEquals(1, statistics.getProtectedResponses());
+		assertEquals(1, statistics.getVerifiedRequests());
+		assertEquals(2, statistics.getVerifiedResponses());
+		assertEquals(1, statistics.getProtectionFailures());
+		assertEquals(1, statistics.getContextsNotFound());
+		assertEquals(2, statistics.getReplaysRejected());
+		assertEquals(1, statistics.getVerificationFailures());
+		assertEquals(1, statistics.getContexts());
+		assertEquals(2, statistics.getStatistic(ctx).getProtectedMessages());
+		assertEquals(3, statistics.getStatistic(ctx).getVerifiedMessages());
+
+		statistics.reset();
+		assertEquals(0, statistics.getProtectedRequests());
+		assertEquals(0, statistics.getContexts());
+		assertNull(statistics.getStatistic(ctx));
+	}
+
+	@Test
+	public void testSenderSeqHeadroom() throws OSException {
+		ctx.setSeqMax(100);
+		ctx.setSenderSeq(40);
+		statistics.protectedRequest(ctx, 1000);
+		OSCoreCtx other = new OSCoreCtx(master_secret, false);
+		statistics.protectedRequest(other, 1000);
+
+		assertEquals(60, statistics.getStatistic(ctx).getSenderSeqHeadroom());
+		assertEquals(60, statistics.getMinimumSenderSeqHeadroom());
+	}
+
+	@Test
+	public void testCountersOfReleasedContextsAreRemoved() throws Exception {
+		OSCoreCtx released = new OSCoreCtx(master_secret, false);
+		statistics.protectedRequest(ctx, 1000);
+		statistics.protectedRequest(released, 1000);
+		assertEquals(2, statistics.getContexts());
+
+		released = null;
+		for (int i = 0; i < 100 && statistics.getContexts() > 1; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(1, statistics.getContexts());
+		assertEquals(1, statistics.getStatistic(ctx).getProtectedMessages());
+	}
+
+	@Test
+	public void testFailureReasons() throws Exception {
+		final OSCoreCtx client = new OSCoreCtx(master_secret, true);
+		final OSCoreCtx server = new OSCoreCtx(master_secret, false);
+		OSCoreCtxDB db = new ConcurrentHashMapCtxDB();
+		db.addContext(server);
+		int seq = client.reserveSenderSeq();
+		Request request = RequestEncryptor.encrypt(createRequest(), client, seq);
+		OptionSet options = new OptionSet(request.getOptions());
+		byte[] payload = request.getPayload();
+		RequestDecryptor.decryptRequest(db, copy(options, payload));
+		try {
+			RequestDecryptor.decryptRequest(db, copy(options, payload));
+			fail("replay not detected");
+		} catch (OSException e) {
+			assertEquals(OSException.Reason.REPLAY_DETECTED, e.getReason());
+		}
+		db.purge();
+		try {
+			RequestDecryptor.decryptRequest(db, copy(options, payload));
+			fail("missing context not detected");
+		} catch (OSException e) {
+			assertEquals(OSException.Reason.CONTEXT_NOT_FOUND, e.getReason());
+		}
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+		OSCoreCounterStatistics.LatencyHistogram histogram = new OSCoreCounterStatistics.LatencyHistogram();
+		assertEquals(0, histogram.getPercentileMicros(0.99));
+		for (int i = 0; i < 99; i++) {
+			histogram.add(TimeUnit.MICROSECONDS.toNanos(3));
+		}
+		histogram.add(TimeUnit.MILLISECONDS.toNanos(1));
+
+		long[] counts = histogram.getCounts();
+		assertEquals(99, counts[2]);
+		assertEquals(1, counts[10]);
+		assertEquals(4, histogram.getPercentileMicros(0.99));
+		assertEquals(1024, histogram.getPercentileMicros(1.0));
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("org.eclipse.californium.oscore:type=OSCoreCounterStatistics,name=test");
+		server.registerMBean(statistics, name);
+		try {
+			statistics.replayRejected();
+			assertEquals(1L, server.getAttribute(name, "ReplaysRejected"));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+
+	private static Request createRequest() {
+		Request request = new Request(Code.POST);
+		request.getOptions().setOscore(new byte[0]);
+		request.getOptions().addUriPath("hello");
+		return request;
+	}
+
+	private static Request copy(OptionSet options, byte[] payload) {
+		Request request = new Request(Code.POST);
+		request.setOptions(new OptionSet(options));
+		request.setPayload(payload);
+		return request;
+	}
+}
@@ -20,6 +20,8 @@ package org.eclipse.californium.oscore;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.eclipse.californium.oscore.OSCoreCtx;
 import org.eclipse.californium.oscore.OSException;
@@ -86,6 +88,27 @@ public class OSCoreCtxTest {
 		assertEquals(0, ctx.getSenderSeq());
 	}
 	
+	@Test
+	public void testAlgorithmLengths() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, AlgorithmID.AES_GCM_256, sid, rid, kdf, 32, null, null);
+		assertEquals(12, ctx.getIVLength());
+		assertEquals(32, ctx.getSenderKey().length);
+		assertEquals(12, ctx.getCommonIV().length);
+
+		ctx = new OSCoreCtx(master_secret, true, AlgorithmID.AES_CCM_16_128_128, sid, rid, kdf, 32, null, null);
+		assertEquals(13, ctx.getIVLength());
+		assertEquals(16, ctx.getSenderKey().length);
+
+		ctx = new OSCoreCtx(master_secret, true, AlgorithmID.AES_CCM_64_64_128, sid, rid, kdf, 32, null, null);
+		assertEquals(7, ctx.getIVLength());
+	}
+
+	@Test
+	public void testUnsupportedAlgorithm() throws OSException {
+		exception.expect(RuntimeException.class);
+		new OSCoreCtx(master_secret, true, AlgorithmID.HMAC_SHA_256, sid, rid, kdf, 32, null, null);
+	}
+
 	/**
 	 * Tests generation of sender key with salt, without salt and with context ID.
 	 * Test vectors are from OSCORE draft. (Test Vector 1-3)
@@ -184,4 +207,68 @@ public class OSCoreCtxTest {
 		
 		assertArrayEquals(predictedCommonIVContextID, ctx.getCommonIV());
 	}
+
+	@Test
+	public void testLargeReplayWindow() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, false, cipher, sid, rid, kdf, 1024, null, null);
+		assertEquals(1024, ctx.getRecipientReplaySize());
+		ctx.checkIncomingSeq(2000);
+		// reordered by more than 32
+		ctx.checkIncomingSeq(1500);
+		exception.expect(OSException.class);
+		ctx.checkIncomingSeq(1500);
+	}
+
+	@Test
+	public void testReplayWindowTooLarge() throws OSException {
+		exception.expect(OSException.class);
+		new OSCoreCtx(master_secret, false, cipher, sid, rid, kdf, ReplayWindow.MAX_SIZE + 1, null, null);
+	}
+
+	@Test
+	public void testReserveSenderSeq() throws OSException {
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true);
+		ctx.setSenderSeq(5);
+		assertEquals(5, ctx.reserveSenderSeq());
+		assertEquals(6, ctx.reserveSenderSeq());
+		assertEquals(7, ctx.getSenderSeq());
+	}
+
+	/**
+	 * Reserves sender sequence numbers concurrently. Each sequence number
+	 * must be reserved exactly once.
+	 */
+	@Test
+	public void testConcurrentReserveSenderSeq() throws Exception {
+		final int threads = 8;
+		final int count = 10000;
+		final OSCoreCtx ctx = new OSCoreCtx(master_secret, true);
+		final AtomicIntegerArray reserved = new AtomicIntegerArray(threads * count);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int thread = 0; thread < threads; thread++) {
+			new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int index = 0; index < count; index++) {
+							reserved.incrementAndGet(ctx.reserveSenderSeq());
+						}
+					} catch (Exception e) {
+						// fails below
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+		for (int seq = 0; seq < threads * count; seq++) {
+			assertEquals("seq " + seq, 1, reserved.get(seq));
+		}
+		assertEquals(threads * count, ctx.getSenderSeq());
+	}
 }
@@ -26,10 +26,16 @@
 package org.eclipse.californium.oscore;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.californium.category.Medium;
 import org.eclipse.californium.core.CoapServer;
@@ -37,9 +43,15 @@ import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Token;
 import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.CoapStackFactory;
 import org.eclipse.californium.core.network.EndpointManager;
 import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.Outbox;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
+import org.eclipse.californium.core.network.stack.CoapStack;
 import org.eclipse.californium.core.server.MessageDeliverer;
 import org.eclipse.californium.cose.AlgorithmID;
 import org.eclipse.californium.elements.AddressEndpointContext;
@@ -66,6 +78,14 @@ public class OSCoreServerClientTest {
 
 	private CoapServer server;
 
+	private CoapEndpoint clientEndpoint;
+
+	private OSCoreStack clientStack;
+
+	private volatile Token clientToken;
+
+	private DatagramSocket silentPeer;
+
 	private int serverPort;
 	
 	//OSCORE context information shared between server and client
@@ -94,6 +114,12 @@ public class OSCoreServerClientTest {
 		if (null != server) {
 			server.destroy();
 		}
+		if (null != clientEndpoint) {
+			clientEndpoint.destroy();
+		}
+		if (null != silentPeer) {
+			silentPeer.close();
+		}
 		System.out.println("End " + getClass().getSimpleName());
 	}
 
@@ -165,16 +191,247 @@ public class OSCoreServerClientTest {
 		assertEquals(response.getMID(), requestMID); //Response MID matches Request MID
 	}
 	
+	/**
+	 * Tests OSCORE with client and server endpoints using separate context
+	 * databases in the same process.
+	 */
+	@Test
+	public void testSeparateContextDatabases() throws Exception {
+		OSCoreCtxDB serverDb = new ConcurrentHashMapCtxDB();
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		createSimpleServer(serverDb);
+
+		//Set up OSCORE context information for request (client)
+		byte[] sid = new byte[0];
+		byte[] rid = new byte[] { 0x01 };
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, kdf, 32, master_salt, null);
+		clientDb.addContext("coap://" + InetAddress.getLoopbackAddress().getHostAddress(), ctx);
+
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		builder.setCoapStackFactory(new OSCoreCoapStackFactory(clientDb));
+		clientEndpoint = builder.build();
+		clientEndpoint.start();
+
+		// send request
+		Request request = new Request(CoAP.Code.POST);
+		request.getOptions().setOscore(new byte[0]); //Use OSCORE
+		request.setConfirmable(true);
+		request.setDestinationContext(new AddressEndpointContext(InetAddress.getLoopbackAddress(), serverPort));
+		request.setPayload("client says hi");
+		request.send(clientEndpoint);
+		System.out.println("client sent request");
+
+		// receive response and check
+		Response response = request.waitForResponse(1000);
+		assertNotNull("Client received no response", response);
+		System.out.println("client received response");
+		assertEquals(response.getPayloadString(), SERVER_RESPONSE);
+
+		//Contexts are only known by the database of their own endpoint
+		assertNull(serverDb.getContext(rid));
+		assertNull(clientDb.getContext(sid));
+		assertNotNull(clientDb.getContext(rid));
+	}
+
+	/**
+	 * Tests that the token of a request is released from the context
+	 * database, when the response is received.
+	 */
+	@Test
+	public void testTokenReleasedOnResponse() throws Exception {
+		createSimpleServer();
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		createClient(clientDb, NetworkConfig.createStandardWithoutFile());
+
+		Request request = createRequest(true, serverPort);
+		request.send(clientEndpoint);
+
+		Response response = request.waitForResponse(1000);
+		assertNotNull("Client received no response", response);
+		assertEquals(SERVER_RESPONSE, response.getPayloadString());
+
+		ObjectSecurityLayer layer = clientStack.getObjectSecurityLayer();
+		assertFalse(clientDb.tokenExist(clientToken));
+		assertEquals(0, layer.getPendingTokenCount());
+		assertEquals(1, layer.getReleasedTokenCount());
+		assertEquals(0, layer.getExpiredTokenCount());
+	}
+
+	/**
+	 * Tests that the token of a request is released from the context
+	 * database, when the request times out.
+	 */
+	@Test
+	public void testTokenReleasedOnTimeout() throws Exception {
+		silentPeer = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setInt(NetworkConfig.Keys.ACK_TIMEOUT, 100);
+		config.setFloat(NetworkConfig.Keys.ACK_RANDOM_FACTOR, 1.0F);
+		config.setInt(NetworkConfig.Keys.MAX_RETRANSMIT, 0);
+		createClient(clientDb, config);
+
+		Request request = createRequest(true, silentPeer.getLocalPort());
+		request.send(clientEndpoint);
+
+		ObjectSecurityLayer layer = clientStack.getObjectSecurityLayer();
+		assertNull(request.waitForResponse(1000));
+		assertTrue(waitForTokens(layer, 1, 0, 1000));
+		assertTrue(request.isTimedOut());
+		assertFalse(clientDb.tokenExist(clientToken));
+	}
+
+	/**
+	 * Tests that the token of a request without reported completion is
+	 * released from the context database after the exchange lifetime.
+	 */
+	@Test
+	public void testTokenExpires() throws Exception {
+		silentPeer = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setLong(NetworkConfig.Keys.EXCHANGE_LIFETIME, 200);
+		config.setLong(NetworkConfig.Keys.MARK_AND_SWEEP_INTERVAL, 100);
+		createClient(clientDb, config);
+
+		// non-confirmable requests without response never time out
+		Request request = createRequest(false, silentPeer.getLocalPort());
+		request.send(clientEndpoint);
+
+		ObjectSecurityLayer layer = clientStack.getObjectSecurityLayer();
+		assertNull(request.waitForResponse(100));
+		Token token = clientToken;
+		assertTrue(clientDb.tokenExist(token));
+		assertEquals(1, layer.getPendingTokenCount());
+
+		assertTrue(waitForTokens(layer, 0, 1, 2000));
+		assertFalse(clientDb.tokenExist(token));
+		assertEquals(0, layer.getPendingTokenCount());
+	}
+
+	/**
+	 * Tests OSCORE with client and server protecting and verifying the
+	 * messages by a crypto pool instead of the stack's thread.
+	 */
+	@Test
+	public void testAsynchronousCrypto() throws Exception {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setInt(NetworkConfig.Keys.OSCORE_CRYPTO_THREAD_COUNT, 2);
+		createSimpleServer(new ConcurrentHashMapCtxDB(), config);
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		createClient(clientDb, config);
+		ObjectSecurityLayer layer = clientStack.getObjectSecurityLayer();
+		assertTrue(layer.isAsynchronous());
+
+		List<Request> requests = new ArrayList<Request>();
+		for (int index = 0; index < 20; index++) {
+			Request request = createRequest(true, serverPort);
+			request.send(clientEndpoint);
+			requests.add(request);
+		}
+		for (Request request : requests) {
+			Response response = request.waitForResponse(2000);
+			assertNotNull("Client received no response", response);
+			assertEquals(SERVER_RESPONSE, response.getPayloadString());
+		}
+		assertTrue(waitForTokens(layer, requests.size(), 0, 1000));
+	}
+
+	@Test
+	public void testStatistics() throws Exception {
+		createSimpleServer();
+		OSCoreCtxDB clientDb = new ConcurrentHashMapCtxDB();
+		createClient(clientDb, NetworkConfig.createStandardWithoutFile());
+		OSCoreCounterStatistics statistics = new OSCoreCounterStatistics();
+		clientStack.getObjectSecurityLayer().setStatistics(statistics);
+
+		for (int index = 0; index < 5; index++) {
+			Request request = createRequest(true, serverPort);
+			request.send(clientEndpoint);
+			Response response = request.waitForResponse(2000);
+			assertNotNull("Client received no response", response);
+		}
+		assertEquals(5, statistics.getProtectedRequests());
+		assertEquals(5, statistics.getVerifiedResponses());
+		assertEquals(0, statistics.getVerificationFailures());
+		assertEquals(1, statistics.getContexts());
+		OSCoreCtx ctx = clientDb.getContext(new byte[] { 0x01 });
+		assertEquals(5, statistics.getStatistic(ctx).getProtectedMessages());
+		assertEquals(5, statistics.getStatistic(ctx).getVerifiedMessages());
+		assertEquals(Integer.MAX_VALUE - 5, statistics.getMinimumSenderSeqHeadroom());
+	}
+
+	private void createClient(final OSCoreCtxDB clientDb, NetworkConfig config) throws Exception {
+		//Set up OSCORE context information for request (client)
+		byte[] sid = new byte[0];
+		byte[] rid = new byte[] { 0x01 };
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, kdf, 32, master_salt, null);
+		clientDb.addContext("coap://" + InetAddress.getLoopbackAddress().getHostAddress(), ctx);
+
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		builder.setNetworkConfig(config);
+		builder.setCoapStackFactory(new CoapStackFactory() {
+
+			@Override
+			public CoapStack createCoapStack(String protocol, NetworkConfig config, Outbox outbox) {
+				clientStack = new OSCoreStack(config, outbox, clientDb);
+				return clientStack;
+			}
+		});
+		clientEndpoint = builder.build();
+		clientEndpoint.addInterceptor(new MessageInterceptorAdapter() {
+
+			@Override
+			public void sendRequest(Request request) {
+				clientToken = request.getToken();
+			}
+		});
+		clientEndpoint.start();
+	}
+
+	private static Request createRequest(boolean confirmable, int port) {
+		Request request = new Request(CoAP.Code.POST);
+		request.getOptions().setOscore(new byte[0]); //Use OSCORE
+		request.setConfirmable(confirmable);
+		request.setDestinationContext(new AddressEndpointContext(InetAddress.getLoopbackAddress(), port));
+		request.setPayload("client says hi");
+		return request;
+	}
+
+	private static boolean waitForTokens(ObjectSecurityLayer layer, long released, long expired, long timeout)
+			throws InterruptedException {
+		long end = System.nanoTime() + timeout * 1000000L;
+		while (layer.getReleasedTokenCount() != released || layer.getExpiredTokenCount() != expired) {
+			if (System.nanoTime() - end > 0) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
 	private void createSimpleServer() throws Exception {
+		createSimpleServer(db);
+	}
+
+	private void createSimpleServer(OSCoreCtxDB serverDb) throws Exception {
+		createSimpleServer(serverDb, NetworkConfig.getStandard());
+	}
+
+	private void createSimpleServer(OSCoreCtxDB serverDb, NetworkConfig config) throws Exception {
 		//Set up OSCORE context information for response (server)
 		byte[] sid = new byte[] { 0x01 };
 		byte[] rid = new byte[0];
 		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, kdf, 32, master_salt, null);
-		db.addContext("coap://" + InetAddress.getLoopbackAddress().getHostName(), ctx);
+		serverDb.addContext("coap://" + InetAddress.getLoopbackAddress().getHostName(), ctx);
 		
 		//Create server
 		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
 		builder.setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		builder.setNetworkConfig(config);
+		builder.setCoapStackFactory(new OSCoreCoapStackFactory(serverDb));
 		CoapEndpoint endpoint = builder.build();
 		server = new CoapServer();
 		server.addEndpoint(endpoint);
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.californium.category.Medium;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.CoapStackFactory;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.Outbox;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
+import org.eclipse.californium.core.network.stack.CoapStack;
+import org.eclipse.californium.core.server.MessageDeliverer;
+import org.eclipse.californium.cose.AlgorithmID;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.tcp.TcpClientConnector;
+import org.eclipse.californium.elements.tcp.TcpServerConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests OSCORE requests and responses over CoAP over TCP using the
+ * {@link OSCoreTcpStack}.
+ *
+ */
+@Category(Medium.class)
+public class OSCoreTcpServerClientTest {
+
+	private static final String SERVER_RESPONSE = "server responds hi";
+	private static final int TCP_THREADS = 1;
+	private static final int TCP_CONNECT_TIMEOUT_MILLIS = 2000;
+	private static final int TCP_IDLE_TIMEOUT_SECONDS = 10;
+
+	private final static AlgorithmID alg = AlgorithmID.AES_CCM_16_64_128;
+	private final static AlgorithmID kdf = AlgorithmID.HKDF_HMAC_SHA_256;
+	private final static byte[] master_secret = { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B,
+			0x0C, 0x0D, 0x0E, 0x0F, 0x10 };
+	private final static byte[] master_salt = { (byte) 0x9e, (byte) 0x7c, (byte) 0xa9, (byte) 0x22, (byte) 0x23,
+			(byte) 0x78, (byte) 0x63, (byte) 0x40 };
+
+	private CoapServer server;
+
+	private CoapEndpoint clientEndpoint;
+
+	private CoapStack clientStack;
+
+	private volatile Token clientToken;
+
+	private int serverPort;
+
+	private OSCoreCtxDB serverDb;
+
+	private OSCoreCtxDB clientDb;
+
+	@Before
+	public void setUp() {
+		serverDb = new ConcurrentHashMapCtxDB();
+		clientDb = new ConcurrentHashMapCtxDB();
+	}
+
+	@After
+	public void after() {
+		if (null != server) {
+			server.destroy();
+		}
+		if (null != clientEndpoint) {
+			clientEndpoint.destroy();
+		}
+	}
+
+	/**
+	 * Tests the stacks created by the {@link OSCoreCoapStackFactory} for the
+	 * TCP protocols.
+	 */
+	@Test
+	public void testStackFactory() {
+		OSCoreCoapStackFactory factory = new OSCoreCoapStackFactory(serverDb);
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		assertTrue(factory.createCoapStack(CoAP.PROTOCOL_TCP, config, null) instanceof OSCoreTcpStack);
+		assertTrue(factory.createCoapStack(CoAP.PROTOCOL_TLS, config, null) instanceof OSCoreTcpStack);
+		assertTrue(factory.createCoapStack(CoAP.PROTOCOL_UDP, config, null) instanceof OSCoreStack);
+	}
+
+	/**
+	 * Tests working OSCORE request and response over TCP.
+	 */
+	@Test
+	public void testRequestResponse() throws Exception {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		createSimpleServer(config);
+		createClient(new byte[0], config);
+
+		Request request = createRequest();
+		request.send(clientEndpoint);
+
+		Response response = request.waitForResponse(2000);
+		assertNotNull("Client received no response", response);
+		assertEquals(ResponseCode.CONTENT, response.getCode());
+		assertEquals(SERVER_RESPONSE, response.getPayloadString());
+
+		ObjectSecurityLayer layer = getObjectSecurityLayer();
+		assertFalse(clientDb.tokenExist(clientToken));
+		assertEquals(0, layer.getPendingTokenCount());
+		assertEquals(1, layer.getReleasedTokenCount());
+	}
+
+	/**
+	 * Tests the non-OSCORE error response of the server over TCP, if the
+	 * client uses an unknown sender ID.
+	 */
+	@Test
+	public void testErrorResponse() throws Exception {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		createSimpleServer(config);
+		// modified sender ID to be incorrect
+		createClient(new byte[] { 0x77 }, config);
+
+		Request request = createRequest();
+		request.send(clientEndpoint);
+
+		Response response = request.waitForResponse(2000);
+		assertNotNull("Client received no response", response);
+		assertNull(response.getOptions().getOscore());
+		assertEquals(ResponseCode.UNAUTHORIZED, response.getCode());
+		assertEquals(ErrorDescriptions.CONTEXT_NOT_FOUND, response.getPayloadString());
+	}
+
+	/**
+	 * Tests several OSCORE requests on the same TCP connection, protected and
+	 * verified by the crypto pool.
+	 */
+	@Test
+	public void testAsynchronousCrypto() throws Exception {
+		NetworkConfig config = NetworkConfig.createStandardWithoutFile();
+		config.setInt(NetworkConfig.Keys.OSCORE_CRYPTO_THREAD_COUNT, 2);
+		createSimpleServer(config);
+		createClient(new byte[0], config);
+
+		List<Request> requests = new ArrayList<Request>();
+		for (int index = 0; index < 20; index++) {
+			Request request = createRequest();
+			request.send(clientEndpoint);
+			requests.add(request);
+		}
+		for (Request request : requests) {
+			Response response = request.waitForResponse(2000);
+			assertNotNull("Client received no response", response);
+			assertEquals(SERVER_RESPONSE, response.getPayloadString());
+		}
+	}
+
+	private ObjectSecurityLayer getObjectSecurityLayer() {
+		return ((OSCoreTcpStack) clientStack).getObjectSecurityLayer();
+	}
+
+	private void createClient(byte[] sid, NetworkConfig config) throws Exception {
+		//Set up OSCORE context information for request (client)
+		byte[] rid = new byte[] { 0x01 };
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, true, alg, sid, rid, kdf, 32, master_salt, null);
+		clientDb.addContext("coap://" + InetAddress.getLoopbackAddress().getHostAddress(), ctx);
+
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setConnector(new TcpClientConnector(TCP_THREADS, TCP_CONNECT_TIMEOUT_MILLIS,
+				TCP_IDLE_TIMEOUT_SECONDS));
+		builder.setNetworkConfig(config);
+		builder.setCoapStackFactory(new CoapStackFactory() {
+
+			@Override
+			public CoapStack createCoapStack(String protocol, NetworkConfig config, Outbox outbox) {
+				clientStack = new OSCoreCoapStackFactory(clientDb).createCoapStack(protocol, config, outbox);
+				return clientStack;
+			}
+		});
+		clientEndpoint = builder.build();
+		clientEndpoint.addInterceptor(new MessageInterceptorAdapter() {
+
+			@Override
+			public void sendRequest(Request request) {
+				clientToken = request.getToken();
+			}
+		});
+		clientEndpoint.start();
+	}
+
+	private Request createRequest() {
+		Request request = new Request(CoAP.Code.POST);
+		request.getOptions().setOscore(new byte[0]); //Use OSCORE
+		request.setDestinationContext(new AddressEndpointContext(InetAddress.getLoopbackAddress(), serverPort));
+		request.setPayload("client says hi");
+		return request;
+	}
+
+	private void createSimpleServer(NetworkConfig config) throws Exception {
+		//Set up OSCORE context information for response (server)
+		byte[] sid = new byte[] { 0x01 };
+		byte[] rid = new byte[0];
+		OSCoreCtx ctx = new OSCoreCtx(master_secret, false, alg, sid, rid, kdf, 32, master_salt, null);
+		serverDb.addContext(ctx);
+
+		//Create server
+		CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+		builder.setConnector(new TcpServerConnector(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				TCP_THREADS, TCP_IDLE_TIMEOUT_SECONDS));
+		builder.setNetworkConfig(config);
+		builder.setCoapStackFactory(new OSCoreCoapStackFactory(serverDb));
+		CoapEndpoint endpoint = builder.build();
+		server = new CoapServer(config);
+		server.addEndpoint(endpoint);
+		server.setMessageDeliverer(new MessageDeliverer() {
+
+			@Override
+			public void deliverRequest(Exchange exchange) {
+				Response response = new Response(ResponseCode.CONTENT);
+				response.setPayload(SERVER_RESPONSE);
+				exchange.sendResponse(response);
+			}
+
+			@Override
+			public void deliverResponse(Exchange exchange, Response response) {
+			}
+		});
+		server.start();
+		serverPort = endpoint.getAddress().getPort();
+	}
+}
@@ -17,6 +17,8 @@
  ******************************************************************************/
 package org.eclipse.californium.oscore;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -31,6 +33,8 @@ import org.junit.rules.ExpectedException;
 
 import org.eclipse.californium.cose.AlgorithmID;
 
+import com.upokecenter.cbor.CBORObject;
+
 public class OSSerializerTest {
 
 	private final static byte[] payload = new byte[] { 0x01, 0x02 };
@@ -141,4 +145,87 @@ public class OSSerializerTest {
 
 		assertTrue(Arrays.equals(expected, updated));
 	}
+
+	@Test
+	public void testNonceGenerationWithNonceBase() throws OSException {
+		int[] seqs = { 0, 1, 0xff, 0x100, 0x12345, 0x7fffffff };
+		byte[] nonce = new byte[ctx.getIVLength()];
+		for (int seq : seqs) {
+			byte[] piv = OSSerializer.processPartialIV(seq);
+			OSSerializer.nonceGeneration(seq, ctx.getSenderNonceBase(), nonce);
+			assertArrayEquals(OSSerializer.nonceGeneration(piv, sid, ctx.getCommonIV(), ctx.getIVLength()), nonce);
+			OSSerializer.nonceGeneration(seq, ctx.getRecipientNonceBase(), nonce);
+			assertArrayEquals(OSSerializer.nonceGeneration(piv, rid, ctx.getCommonIV(), ctx.getIVLength()), nonce);
+		}
+	}
+
+	@Test
+	public void testPartialIV() throws OSException {
+		int[] seqs = { 0, 1, 0xff, 0x100, 0xffff, 0x10000, 0x1000000, 0x7fffffff };
+		int[] lengths = { 1, 1, 1, 2, 2, 3, 4, 4 };
+		byte[] buffer = new byte[6];
+		for (int i = 0; i < seqs.length; i++) {
+			byte[] piv = OSSerializer.processPartialIV(seqs[i]);
+			assertEquals(lengths[i], piv.length);
+			assertEquals(lengths[i], OSSerializer.partialIVLength(seqs[i]));
+			assertEquals(lengths[i], OSSerializer.writePartialIV(seqs[i], buffer, 1));
+			assertArrayEquals(piv, Arrays.copyOfRange(buffer, 1, 1 + lengths[i]));
+			assertEquals(seqs[i], OSSerializer.readPartialIV(piv));
+		}
+	}
+
+	@Test
+	public void testReadPartialIVTooLong() throws OSException {
+		exception.expect(OSException.class);
+		OSSerializer.readPartialIV(new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 });
+	}
+
+	/**
+	 * Tests, that the directly encoded external AAD is the same as encoded
+	 * with CBORObject.
+	 */
+	@Test
+	public void testSerializeAADEncoding() {
+		int[] seqs = { 0, 1, 23, 24, 0xff, 0x100, 0x12345, 0x7fffffff };
+		byte[][] ids = { null, new byte[0], new byte[] { 0x01 }, new byte[7], new byte[23], new byte[24],
+				new byte[300] };
+		// the kdf checks the encoding of negative algorithm ids
+		AlgorithmID[] algs = { alg, kdf };
+		for (int seq : seqs) {
+			for (byte[] id : ids) {
+				for (AlgorithmID algorithm : algs) {
+					CBORObject algorithms = CBORObject.NewArray();
+					algorithms.Add(algorithm.AsCBOR());
+
+					CBORObject aad = CBORObject.NewArray();
+					aad.Add(version);
+					aad.Add(algorithms);
+					aad.Add(id);
+					aad.Add(OSSerializer.processPartialIV(seq));
+					aad.Add(CBORObject.FromObject(new byte[0]));
+
+					assertArrayEquals(aad.EncodeToBytes(),
+							OSSerializer.serializeAAD(version, algorithm, seq, id, options));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests, that the directly encoded Enc_structure is the same as encoded
+	 * with CBORObject.
+	 */
+	@Test
+	public void testSerializeEncStructureEncoding() {
+		byte[][] ids = { null, new byte[0], new byte[] { 0x01 }, new byte[7], new byte[300] };
+		for (byte[] id : ids) {
+			CBORObject encStructure = CBORObject.NewArray();
+			encStructure.Add("Encrypt0");
+			encStructure.Add(CBORObject.FromObject(new byte[0]));
+			encStructure.Add(OSSerializer.serializeAAD(version, alg, seq, id, options));
+
+			assertArrayEquals(encStructure.EncodeToBytes(),
+					OSSerializer.serializeEncStructure(version, alg, seq, id, options));
+		}
+	}
 }
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.oscore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * Tests the replay window of the recipient context.
+ *
+ */
+public class ReplayWindowTest {
+
+	@Test
+	public void testInOrder() {
+		ReplayWindow window = new ReplayWindow(ReplayWindow.DEFAULT_SIZE);
+		assertEquals(-1, window.getHighest());
+		for (int seq = 0; seq < 1000; seq++) {
+			assertFalse(window.isReplay(seq));
+			window.update(seq);
+			assertTrue(window.isReplay(seq));
+			assertEquals(seq, window.getHighest());
+		}
+	}
+
+	@Test
+	public void testFormerHighestIsReplay() {
+		ReplayWindow window = new ReplayWindow(ReplayWindow.DEFAULT_SIZE);
+		window.update(5);
+		window.update(6);
+		assertTrue(window.isReplay(5));
+		window.update(100);
+		assertTrue(window.isReplay(6) || window.isTooOld(6));
+		assertTrue(window.isReplay(100));
+	}
+
+	@Test
+	public void testWindowBoundary() {
+		ReplayWindow window = new ReplayWindow(ReplayWindow.DEFAULT_SIZE);
+		window.update(100);
+		// the oldest sequence number within the window
+		assertFalse(window.isReplay(100 - ReplayWindow.DEFAULT_SIZE + 1));
+		assertTrue(window.isTooOld(100 - ReplayWindow.DEFAULT_SIZE));
+		assertTrue(window.isReplay(100 - ReplayWindow.DEFAULT_SIZE));
+	}
+
+	@Test
+	public void testLargeReordering() {
+		int size = 4096;
+		ReplayWindow window = new ReplayWindow(size);
+		window.update(10000);
+		for (int seq = 10000 - size + 1; seq < 10000; seq++) {
+			assertFalse(window.isReplay(seq));
+			window.update(seq);
+		}
+		for (int seq = 10000 - size + 1; seq <= 10000; seq++) {
+			assertTrue(window.isReplay(seq));
+		}
+		assertEquals(10000, window.getHighest());
+	}
+
+	@Test
+	public void testLargeAdvance() {
+		ReplayWindow window = new ReplayWindow(128);
+		window.update(1);
+		window.update(3);
+		window.update(1000000);
+		assertFalse(window.isReplay(1000000 - 64));
+		assertFalse(window.isReplay(1000000 - 1));
+		assertTrue(window.isReplay(3));
+	}
+
+	@Test
+	public void testUndo() {
+		ReplayWindow window = new ReplayWindow(64);
+		window.update(10);
+		assertTrue(window.update(200));
+		window.undo(200, 10);
+		assertEquals(10, window.getHighest());
+		assertFalse(window.isReplay(200));
+		assertTrue(window.isReplay(10));
+	}
+
+	@Test
+	public void testUpdateRejectsReplay() {
+		ReplayWindow window = new ReplayWindow(64);
+		assertTrue(window.update(10));
+		assertFalse(window.update(10));
+		assertTrue(window.update(100));
+		assertFalse(window.update(10));
+	}
+
+	/**
+	 * Updates the same sequence numbers concurrently. Each sequence number
+	 * must be accepted exactly once.
+	 */
+	@Test
+	public void testConcurrentUpdates() throws Exception {
+		final int threads = 8;
+		final int count = 20000;
+		final ReplayWindow window = new ReplayWindow(ReplayWindow.MAX_SIZE);
+		final AtomicIntegerArray accepted = new AtomicIntegerArray(count);
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int thread = 0; thread < threads; thread++) {
+			new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int seq = 0; seq < count; seq++) {
+							if (window.update(seq)) {
+								accepted.incrementAndGet(seq);
+							}
+						}
+					} catch (InterruptedException e) {
+						// fails below
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		start.countDown();
+		done.await();
+		for (int seq = 0; seq < count; seq++) {
+			assertEquals("seq " + seq, 1, accepted.get(seq));
+		}
+		assertEquals(count - 1, window.getHighest());
+	}
+
+	@Test
+	public void testReset() {
+		ReplayWindow window = new ReplayWindow(64);
+		window.update(10);
+		window.update(12);
+		window.reset(11);
+		assertEquals(11, window.getHighest());
+		assertTrue(window.isReplay(11));
+		assertFalse(window.isReplay(10));
+		assertFalse(window.isReplay(12));
+		window.reset(-1);
+		assertEquals(-1, window.getHighest());
+		assertFalse(window.isReplay(0));
+	}
+
+	@Test
+	public void testRecentWindow() {
+		ReplayWindow window = new ReplayWindow(64);
+		window.update(20);
+		window.update(19);
+		window.update(10);
+		assertEquals((1 << 1) | (1 << 10), window.getRecentWindow());
+	}
+
+	@Test
+	public void testNegativeSequenceNumber() {
+		ReplayWindow window = new ReplayWindow(64);
+		assertTrue(window.isReplay(-1));
+		assertTrue(window.isReplay(Integer.MIN_VALUE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooSmall() {
+		new ReplayWindow(ReplayWindow.MIN_SIZE - 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		new ReplayWindow(ReplayWindow.MAX_SIZE + 1);
+	}
+
+	/**
+	 * Compares the window for random reorderings with a plain bit set.
+	 */
+	@Test
+	public void testRandomReordering() {
+		Random random = new Random(4711);
+		int[] sizes = { 32, 100, 1024, 4096 };
+		for (int size : sizes) {
+			ReplayWindow window = new ReplayWindow(size);
+			BitSet received = new BitSet();
+			List<Integer> seqs = new ArrayList<Integer>();
+			for (int seq = 0; seq < 20000; seq++) {
+				seqs.add(seq);
+				// some duplicates
+				if (random.nextInt(10) == 0) {
+					seqs.add(seq);
+				}
+			}
+			// shuffle in chunks to reorder up to twice the window size
+			for (int index = 0; index < seqs.size(); index += size * 2) {
+				Collections.shuffle(seqs.subList(index, Math.min(seqs.size(), index + size * 2)), random);
+			}
+			int highest = -1;
+			for (int seq : seqs) {
+				boolean expected = seq <= highest - size || received.get(seq);
+				assertEquals("seq " + seq + ", size " + size, expected, window.isReplay(seq));
+				if (!expected) {
+					window.update(seq);
+					received.set(seq);
+					highest = Math.max(highest, seq);
+				}
+			}
+		}
+	}
+}
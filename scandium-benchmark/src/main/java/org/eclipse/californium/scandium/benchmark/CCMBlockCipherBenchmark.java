@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *    
+ ******************************************************************************/
+package org.eclipse.californium.scandium.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.eclipse.californium.scandium.dtls.cipher.CCMBlockCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Microbenchmark for the AES-CCM implementation of scandium, used by the DTLS
+ * CCM cipher suites and OSCORE.
+ *
+ * Compares the block by block processing with an already initialized block
+ * cipher ({@link CCMBlockCipher#CIPHER_NAME}) with the bulk CTR and CBC-MAC
+ * processing using the key, once allocating the result and once in-place.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CCMBlockCipherBenchmark {
+
+	private static final int TAG_LENGTH = 8;
+
+	@Param({ "16", "64", "256", "1024" })
+	public int payloadSize;
+
+	private SecretKey key;
+	private Cipher blockCipher;
+	private byte[] nonce;
+	private byte[] aad;
+	private byte[] payload;
+	private byte[] cipherText;
+	private byte[] buffer;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		key = new SecretKeySpec(new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x0B, 0x0C,
+				0x0D, 0x0E, 0x0F, 0x10 }, "AES");
+		blockCipher = Cipher.getInstance(CCMBlockCipher.CIPHER_NAME);
+		blockCipher.init(Cipher.ENCRYPT_MODE, key);
+		nonce = new byte[13];
+		aad = new byte[13];
+		payload = new byte[payloadSize];
+		cipherText = CCMBlockCipher.encrypt(key, nonce, aad, payload, TAG_LENGTH);
+		buffer = new byte[payloadSize + TAG_LENGTH];
+	}
+
+	@Benchmark
+	public byte[] encryptBlockCipher() throws Exception {
+		return CCMBlockCipher.encrypt(blockCipher, nonce, aad, payload, TAG_LENGTH);
+	}
+
+	@Benchmark
+	public byte[] decryptBlockCipher() throws Exception {
+		return CCMBlockCipher.decrypt(blockCipher, nonce, aad, cipherText, TAG_LENGTH);
+	}
+
+	@Benchmark
+	public byte[] encryptBulk() throws Exception {
+		return CCMBlockCipher.encrypt(key, nonce, aad, payload, TAG_LENGTH);
+	}
+
+	@Benchmark
+	public byte[] decryptBulk() throws Exception {
+		return CCMBlockCipher.decrypt(key, nonce, aad, cipherText, TAG_LENGTH);
+	}
+
+	@Benchmark
+	public byte[] encryptBulkInPlace() throws Exception {
+		System.arraycopy(payload, 0, buffer, 0, payloadSize);
+		CCMBlockCipher.encrypt(key, nonce, aad, buffer, 0, payloadSize, buffer, 0, TAG_LENGTH);
+		return buffer;
+	}
+
+	@Benchmark
+	public byte[] decryptBulkInPlace() throws Exception {
+		System.arraycopy(cipherText, 0, buffer, 0, cipherText.length);
+		CCMBlockCipher.decrypt(key, nonce, aad, buffer, 0, cipherText.length, buffer, 0, TAG_LENGTH);
+		return buffer;
+	}
+}
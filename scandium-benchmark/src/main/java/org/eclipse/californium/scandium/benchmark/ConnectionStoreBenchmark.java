@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *
+ ******************************************************************************/
+package org.eclipse.californium.scandium.benchmark;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.util.SerialExecutor;
+import org.eclipse.californium.scandium.dtls.ConcurrentInMemoryConnectionStore;
+import org.eclipse.californium.scandium.dtls.Connection;
+import org.eclipse.californium.scandium.dtls.ConnectionId;
+import org.eclipse.californium.scandium.dtls.InMemoryConnectionStore;
+import org.eclipse.californium.scandium.dtls.ResumptionSupportingConnectionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Microbenchmark for the lookups of the DTLS connection stores with many
+ * connections and multiple threads, as done by the receiver threads of the
+ * DTLS connector for every received datagram.
+ *
+ * Compares the {@link InMemoryConnectionStore} using a global lock with the
+ * segmented {@link ConcurrentInMemoryConnectionStore}.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ConnectionStoreBenchmark {
+
+	@Param({ "InMemory", "Concurrent" })
+	public String store;
+
+	@Param({ "100000", "1000000" })
+	public int connections;
+
+	private ResumptionSupportingConnectionStore connectionStore;
+	private ExecutorService executor;
+	private InetSocketAddress[] addresses;
+	private ConnectionId[] connectionIds;
+	private Connection[] connectionsByIndex;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		// the segments of the concurrent store are filled unevenly,
+		// use the same headroom for both stores
+		int capacity = connections + connections / 4;
+		if ("InMemory".equals(store)) {
+			connectionStore = new InMemoryConnectionStore(capacity, 60);
+		} else {
+			connectionStore = new ConcurrentInMemoryConnectionStore(capacity, 60);
+		}
+		connectionStore.attach(null);
+		executor = Executors.newSingleThreadExecutor();
+		addresses = new InetSocketAddress[connections];
+		connectionIds = new ConnectionId[connections];
+		connectionsByIndex = new Connection[connections];
+		for (int index = 0; index < connections; ++index) {
+			InetAddress address = InetAddress.getByAddress(
+					new byte[] { 10, (byte) (index >> 16), (byte) (index >> 8), (byte) index });
+			addresses[index] = new InetSocketAddress(address, 5684);
+			Connection connection = new Connection(addresses[index], new SerialExecutor(executor));
+			if (!connectionStore.put(connection)) {
+				throw new IllegalStateException(store + " store is full after " + index + " connections!");
+			}
+			connectionIds[index] = connection.getConnectionId();
+			connectionsByIndex[index] = connection;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public Connection getByAddress() {
+		return connectionStore.get(addresses[ThreadLocalRandom.current().nextInt(connections)]);
+	}
+
+	@Benchmark
+	public Connection getByConnectionId() {
+		return connectionStore.get(connectionIds[ThreadLocalRandom.current().nextInt(connections)]);
+	}
+
+	@Benchmark
+	public boolean update() {
+		int index = ThreadLocalRandom.current().nextInt(connections);
+		return connectionStore.update(connectionsByIndex[index], addresses[index]);
+	}
+}
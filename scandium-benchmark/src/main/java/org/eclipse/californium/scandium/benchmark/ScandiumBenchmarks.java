@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Bosch Software Innovations GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ ******************************************************************************/
+package org.eclipse.californium.scandium.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *
+ * Runs the Scandium microbenchmarks with allocation profiling.
+ *
+ * Accepts the JMH command line options, e.g. a regular expression to select
+ * benchmarks or {@code -p payloadSize=64}. The {@link GCProfiler} is always
+ * added, so the allocation rate per operation ({@code gc.alloc.rate.norm})
+ * is reported for every benchmark.
+ *
+ * Usage: java -jar benchmarks.jar [JMH options]
+ *
+ */
+public class ScandiumBenchmarks {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(commandLine);
+		if (commandLine.getIncludes().isEmpty()) {
+			options.include(ScandiumBenchmarks.class.getPackage().getName() + ".*");
+		}
+		options.addProfiler(GCProfiler.class);
+		new Runner(options.build()).run();
+	}
+}
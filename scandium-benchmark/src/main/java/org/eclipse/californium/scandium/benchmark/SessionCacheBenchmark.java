@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2018 RISE SICS and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ *
+ ******************************************************************************/
+package org.eclipse.californium.scandium.benchmark;
+
+import java.io.File;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.elements.auth.PreSharedKeyIdentity;
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.scandium.auth.PrincipalSerializer;
+import org.eclipse.californium.scandium.dtls.CompressionMethod;
+import org.eclipse.californium.scandium.dtls.FileSessionCache;
+import org.eclipse.californium.scandium.dtls.ProtocolVersion;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SessionTicket;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Benchmark for saving and loading the sessions of the
+ * {@link FileSessionCache}, as done on stop and start of the DTLS connector.
+ *
+ * The sessions use PSK identities and the AES-CCM-8 cipher suite.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SessionCacheBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int sessions;
+
+	private File file;
+	private FileSessionCache cache;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		file = File.createTempFile("sessions", ".bin");
+		cache = new FileSessionCache(file, sessions, FileSessionCache.DEFAULT_SESSION_LIFETIME_IN_SECONDS);
+		SecureRandom random = new SecureRandom();
+		byte[] masterSecret = new byte[48];
+		ProtocolVersion version = new ProtocolVersion();
+		long timestamp = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+		for (int index = 0; index < sessions; ++index) {
+			random.nextBytes(masterSecret);
+			DatagramWriter writer = new DatagramWriter();
+			writer.write(version.getMajor(), 8);
+			writer.write(version.getMinor(), 8);
+			writer.write(CipherSuite.TLS_PSK_WITH_AES_128_CCM_8.getCode(), CipherSuite.CIPHER_SUITE_BITS);
+			writer.write(CompressionMethod.NULL.getCode(), CompressionMethod.COMPRESSION_METHOD_BITS);
+			writer.writeBytes(masterSecret);
+			PrincipalSerializer.serialize(new PreSharedKeyIdentity("device-" + index), writer);
+			writer.writeLong(timestamp, 32);
+			SessionTicket ticket = SessionTicket.decode(new DatagramReader(writer.toByteArray()));
+			cache.put(new SessionId(), ticket);
+		}
+		cache.save();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public int load() throws Exception {
+		return new FileSessionCache(file, sessions, FileSessionCache.DEFAULT_SESSION_LIFETIME_IN_SECONDS).load();
+	}
+
+	@Benchmark
+	public int save() throws Exception {
+		return cache.save();
+	}
+}
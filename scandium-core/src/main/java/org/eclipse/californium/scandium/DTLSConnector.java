@@ -127,7 +127,11 @@ import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -168,6 +172,7 @@ import org.eclipse.californium.scandium.dtls.ApplicationMessage;
 import org.eclipse.californium.scandium.dtls.AvailableConnections;
 import org.eclipse.californium.scandium.dtls.ClientHandshaker;
 import org.eclipse.californium.scandium.dtls.ClientHello;
+import org.eclipse.californium.scandium.dtls.ConcurrentInMemoryConnectionStore;
 import org.eclipse.californium.scandium.dtls.Connection;
 import org.eclipse.californium.scandium.dtls.ConnectionId;
 import org.eclipse.californium.scandium.dtls.ConnectionIdGenerator;
@@ -181,6 +186,7 @@ import org.eclipse.californium.scandium.dtls.Handshaker;
 import org.eclipse.californium.scandium.dtls.HelloVerifyRequest;
 import org.eclipse.californium.scandium.dtls.InMemoryConnectionStore;
 import org.eclipse.californium.scandium.dtls.MaxFragmentLengthExtension;
+import org.eclipse.californium.scandium.dtls.PersistentSessionCache;
 import org.eclipse.californium.scandium.dtls.ProtocolVersion;
 import org.eclipse.californium.scandium.dtls.Record;
 import org.eclipse.californium.scandium.dtls.RecordLayer;
@@ -240,6 +246,13 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 	private final ResumptionSupportingConnectionStore connectionStore;
 
+	/**
+	 * The {@link #connectionStore}, if it's a
+	 * {@link ConcurrentInMemoryConnectionStore}. Connections are then created
+	 * without a global lock. {@code null}, otherwise.
+	 */
+	private final ConcurrentInMemoryConnectionStore concurrentConnectionStore;
+
 	/**
 	 * General auto resumption timeout in milliseconds. {@code null}, if auto
 	 * resumption is not used.
@@ -267,6 +280,19 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 	private final List<Thread> receiverThreads = new LinkedList<Thread>();
 
+	/**
+	 * Session cache to load on start and to save on stop. {@code null}, if
+	 * sessions are not persisted by the connector.
+	 */
+	private PersistentSessionCache persistentSessionCache;
+
+	/**
+	 * Channels bound to the same port using {@code SO_REUSEPORT}, one per
+	 * receiver thread. Empty, if {@link DtlsConnectorConfig#isPortReuseEnabled()}
+	 * is not enabled or not supported.
+	 */
+	private final List<DatagramChannel> receiverChannels = new ArrayList<DatagramChannel>();
+
 	/**
 	 * Configure connection id generator. May be {@code null}, if connection id
 	 * should not be supported.
@@ -325,6 +351,7 @@ public class DTLSConnector implements Connector, RecordLayer {
 	 *       Similarly, whenever a client wants to perform an abbreviated handshake based on an existing session
 	 *       the connection store will try to retrieve the session from this cache if it is
 	 *       not available from the connection store's in-memory (first-level) cache.
+	 *       A {@link PersistentSessionCache} is loaded on start and saved on stop.
 	 * @throws NullPointerException if the configuration is <code>null</code>.
 	 */
 	public DTLSConnector(final DtlsConnectorConfig configuration, final SessionCache sessionCache) {
@@ -333,6 +360,9 @@ public class DTLSConnector implements Connector, RecordLayer {
 						configuration.getMaxConnections(),
 						configuration.getStaleConnectionThreshold(),
 						sessionCache).setTag(configuration.getLoggingTag()));
+		if (sessionCache instanceof PersistentSessionCache) {
+			this.persistentSessionCache = (PersistentSessionCache) sessionCache;
+		}
 	}
 
 	/**
@@ -364,6 +394,11 @@ public class DTLSConnector implements Connector, RecordLayer {
 			this.useFilter = config.useAntiReplayFilter() || useWindowFilter;
 			this.connectionStore = connectionStore;
 			this.connectionStore.attach(connectionIdGenerator);
+			if (connectionStore instanceof ConcurrentInMemoryConnectionStore) {
+				this.concurrentConnectionStore = (ConcurrentInMemoryConnectionStore) connectionStore;
+			} else {
+				this.concurrentConnectionStore = null;
+			}
 			this.sessionListener = new SessionAdapter() {
 
 				@Override
@@ -544,6 +579,14 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 		pendingOutboundMessagesCountdown.set(config.getOutboundMessageBufferSize());
 
+		if (persistentSessionCache != null) {
+			try {
+				persistentSessionCache.load();
+			} catch (IOException ex) {
+				LOGGER.warn("Loading sessions failed!", ex);
+			}
+		}
+
 		if (executorService instanceof ScheduledExecutorService) {
 			timer = (ScheduledExecutorService) executorService;
 		} else {
@@ -561,17 +604,31 @@ public class DTLSConnector implements Connector, RecordLayer {
 			}
 			this.hasInternalExecutor = true;
 		}
-		socket = new DatagramSocket(null);
-		if (bindAddress.getPort() != 0 && config.isAddressReuseEnabled()) {
-			// make it easier to stop/start a server consecutively without delays
-			LOGGER.info("Enable address reuse for socket!");
-			socket.setReuseAddress(true);
-			if (!socket.getReuseAddress()) {
-				LOGGER.warn("Enable address reuse for socket failed!");
+		int receiverThreadCount = config.getReceiverThreadCount();
+		boolean reusePort = false;
+		if (config.isPortReuseEnabled()) {
+			reusePort = ReusePortChannels.isSupported();
+			if (!reusePort) {
+				LOGGER.warn("Port reuse is not supported, using a single socket!");
 			}
 		}
+		if (reusePort) {
+			DatagramChannel channel = ReusePortChannels.open(bindAddress, config.isAddressReuseEnabled());
+			receiverChannels.add(channel);
+			socket = channel.socket();
+		} else {
+			socket = new DatagramSocket(null);
+			if (bindAddress.getPort() != 0 && config.isAddressReuseEnabled()) {
+				// make it easier to stop/start a server consecutively without delays
+				LOGGER.info("Enable address reuse for socket!");
+				socket.setReuseAddress(true);
+				if (!socket.getReuseAddress()) {
+					LOGGER.warn("Enable address reuse for socket failed!");
+				}
+			}
 
-		socket.bind(bindAddress);
+			socket.bind(bindAddress);
+		}
 		if (lastBindAddress != null && (!socket.getLocalAddress().equals(lastBindAddress.getAddress()) || socket.getLocalPort() != lastBindAddress.getPort())){
 			if (connectionStore instanceof ResumptionSupportingConnectionStore) {
 				((ResumptionSupportingConnectionStore) connectionStore).markAllAsResumptionRequired();
@@ -620,10 +677,41 @@ public class DTLSConnector implements Connector, RecordLayer {
 		}
 
 		lastBindAddress = new InetSocketAddress(socket.getLocalAddress(), socket.getLocalPort());
+		if (reusePort) {
+			// bind the other channels to the port of the first one,
+			// which may have been chosen ephemeral
+			try {
+				for (int i = 1; i < receiverThreadCount; i++) {
+					receiverChannels.add(ReusePortChannels.open(lastBindAddress, config.isAddressReuseEnabled()));
+				}
+			} catch (IOException ex) {
+				for (DatagramChannel channel : receiverChannels) {
+					channel.close();
+				}
+				receiverChannels.clear();
+				socket = null;
+				throw ex;
+			}
+		}
 		running.set(true);
 
-		int receiverThreadCount = config.getReceiverThreadCount();
-		for (int i = 0; i < receiverThreadCount; i++) {
+		for (int i = 0; i < receiverChannels.size(); i++) {
+			final int index = i;
+			Worker receiver = new Worker("DTLS-Receiver-" + i + "-" + lastBindAddress) {
+
+				private final ByteBuffer receiverBuffer = ByteBuffer.wrap(new byte[inboundDatagramBufferSize]);
+
+				@Override
+				public void doWork() throws Exception {
+					receiveNextDatagramFromChannel(index, receiverBuffer);
+				}
+			};
+			receiver.setDaemon(true);
+			receiver.start();
+			receiverThreads.add(receiver);
+		}
+
+		for (int i = receiverThreads.size(); i < receiverThreadCount; i++) {
 			Worker receiver = new Worker("DTLS-Receiver-" + i + "-" + lastBindAddress) {
 
 				private final byte[] receiverBuffer = new byte[inboundDatagramBufferSize];
@@ -683,18 +771,80 @@ public class DTLSConnector implements Connector, RecordLayer {
 		return socket;
 	}
 
+	/**
+	 * Gets the number of channels bound with {@code SO_REUSEPORT}.
+	 * <p>
+	 * Intended for unit tests.
+	 * 
+	 * @return number of channels. {@code 0}, if the connector is stopped or
+	 *         receives with a single socket.
+	 */
+	final synchronized int getReusePortChannelCount() {
+		return receiverChannels.size();
+	}
+
+	/**
+	 * Gets the channel bound with {@code SO_REUSEPORT} of a receiver thread.
+	 * 
+	 * @param index index of the receiver thread
+	 * @return the channel, or {@code null}, if the connector is stopped.
+	 */
+	private final synchronized DatagramChannel getReceiverChannel(int index) {
+		return index < receiverChannels.size() ? receiverChannels.get(index) : null;
+	}
+
+	/**
+	 * Reopens a channel bound with {@code SO_REUSEPORT}, if it was closed while
+	 * the connector is running.
+	 * <p>
+	 * A {@link DatagramChannel} is closed, if a thread blocked in an I/O
+	 * operation on it is interrupted. The channel is then bound again to the
+	 * port, the other channels are still bound to. If the channel of the first
+	 * receiver thread is reopened, its socket replaces the socket used for
+	 * sending.
+	 * 
+	 * @param index index of the receiver thread
+	 * @return the open channel, or {@code null}, if the connector is stopped.
+	 * @throws IOException if the channel could not be bound again
+	 */
+	private final synchronized DatagramChannel reopenReceiverChannel(int index) throws IOException {
+		if (!running.get() || index >= receiverChannels.size()) {
+			return null;
+		}
+		DatagramChannel channel = receiverChannels.get(index);
+		if (!channel.isOpen()) {
+			LOGGER.warn("Channel {} on [{}] was closed, reopen it!", index, lastBindAddress);
+			channel = ReusePortChannels.open(lastBindAddress, config.isAddressReuseEnabled());
+			receiverChannels.set(index, channel);
+			if (index == 0) {
+				socket = channel.socket();
+			}
+		}
+		return channel;
+	}
+
 	@Override
 	public final void stop() {
 		ExecutorService shutdownTimer = null;
 		ExecutorService shutdown = null;
 		List<Runnable> pending = new ArrayList<>();
+		boolean stopped = false;
 		synchronized (this) {
 			if (running.compareAndSet(true, false)) {
+				stopped = true;
 				LOGGER.info("Stopping DTLS connector on [{}]", lastBindAddress);
 				for (Thread t : receiverThreads) {
 					t.interrupt();
 				}
 				receiverThreads.clear();
+				for (DatagramChannel channel : receiverChannels) {
+					try {
+						channel.close();
+					} catch (IOException e) {
+						LOGGER.debug("Closing channel on [{}] failed!", lastBindAddress, e);
+					}
+				}
+				receiverChannels.clear();
 				if (socket != null) {
 					socket.close();
 					socket = null;
@@ -733,6 +883,13 @@ public class DTLSConnector implements Connector, RecordLayer {
 		for (Runnable job : pending) {
 			job.run();
 		}
+		if (stopped && persistentSessionCache != null) {
+			try {
+				persistentSessionCache.save();
+			} catch (IOException ex) {
+				LOGGER.warn("Saving sessions failed!", ex);
+			}
+		}
 	}
 
 	/**
@@ -764,6 +921,9 @@ public class DTLSConnector implements Connector, RecordLayer {
 	 */
 	private final Connection getConnection(InetSocketAddress peerAddress, ConnectionId cid, boolean create) {
 		ExecutorService executor = getExecutorService();
+		if (concurrentConnectionStore != null) {
+			return getConcurrentConnection(peerAddress, cid, create, executor);
+		}
 		synchronized (connectionStore) {
 			Connection connection;
 			if (cid != null) {
@@ -794,6 +954,60 @@ public class DTLSConnector implements Connector, RecordLayer {
 		}
 	}
 
+	/**
+	 * Get connection to communication with peer from the
+	 * {@link #concurrentConnectionStore} without a global lock.
+	 * 
+	 * A new connection is added with
+	 * {@link ConcurrentInMemoryConnectionStore#putIfAbsent(Connection)}, so
+	 * concurrent receiver threads agree on the same connection for a new peer.
+	 * 
+	 * @param peerAddress socket address of peer
+	 * @param cid connection id. {@code null}, if cid extension is not used
+	 * @param create {@code true}, create new connection, if connection is not
+	 *            available.
+	 * @param executor executor for the serial executor of new or revived
+	 *            connections
+	 * @return connection to communication with peer. {@code null}, if store is
+	 *         exhausted or if the connection is not available and the provided
+	 *         parameter create is {@code false}.
+	 * @see #getConnection(InetSocketAddress, ConnectionId, boolean)
+	 */
+	private final Connection getConcurrentConnection(InetSocketAddress peerAddress, ConnectionId cid,
+			boolean create, ExecutorService executor) {
+		Connection connection;
+		if (cid != null) {
+			connection = concurrentConnectionStore.get(cid);
+		} else {
+			connection = concurrentConnectionStore.get(peerAddress);
+			if (connection == null && create) {
+				LOGGER.debug("create new connection for {}", peerAddress);
+				Connection newConnection = new Connection(peerAddress, new SerialExecutor(executor));
+				if (running.get()) {
+					// only add, if connector is running!
+					connection = concurrentConnectionStore.putIfAbsent(newConnection);
+					if (connection != newConnection) {
+						return connection;
+					}
+				}
+				return newConnection;
+			}
+		}
+		if (connection == null) {
+			LOGGER.debug("no connection available for {},{}", peerAddress, cid);
+		} else if (!connection.isExecuting() && running.get()) {
+			synchronized (connection) {
+				if (!connection.isExecuting()) {
+					LOGGER.debug("revive connection for {},{}", peerAddress, cid);
+					connection.setExecutor(new SerialExecutor(executor));
+				}
+			}
+		} else {
+			LOGGER.trace("connection available for {},{}", peerAddress, cid);
+		}
+		return connection;
+	}
+
 	private void receiveNextDatagramFromNetwork(DatagramPacket packet) throws IOException {
 
 		DatagramSocket currentSocket = getSocket();
@@ -810,8 +1024,64 @@ public class DTLSConnector implements Connector, RecordLayer {
 		}
 		InetSocketAddress peerAddress = new InetSocketAddress(packet.getAddress(), packet.getPort());
 
-		byte[] data = Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getLength());
-		List<Record> records = Record.fromByteArray(data, peerAddress, connectionIdGenerator);
+		processDatagram(peerAddress, packet.getData(), packet.getOffset(), packet.getLength());
+	}
+
+	/**
+	 * Receives the next datagram from a channel bound with port reuse.
+	 * 
+	 * The datagram is received into the heap buffer of the calling receiver
+	 * thread and parsed in place from its backing array. If the channel was
+	 * closed by an interrupted sender, it's reopened.
+	 * 
+	 * @param index index of the calling receiver thread
+	 * @param buffer the receive buffer of the calling receiver thread. Must
+	 *            have an accessible backing array.
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void receiveNextDatagramFromChannel(int index, ByteBuffer buffer) throws IOException {
+
+		DatagramChannel channel = getReceiverChannel(index);
+		if (channel == null) {
+			// very unlikely race condition.
+			return;
+		}
+		buffer.clear();
+		SocketAddress source;
+		try {
+			source = channel.receive(buffer);
+		} catch (ClosedChannelException ex) {
+			if (ex instanceof ClosedByInterruptException || reopenReceiverChannel(index) == null) {
+				throw ex;
+			}
+			return;
+		}
+		if (source == null) {
+			// non-blocking channel, no datagram available
+			return;
+		}
+		if (buffer.position() == 0) {
+			// nothing to do
+			return;
+		}
+
+		processDatagram((InetSocketAddress) source, buffer.array(), buffer.arrayOffset(), buffer.position());
+	}
+
+	/**
+	 * Process a received datagram.
+	 * 
+	 * The data is parsed into records before this method returns, so the
+	 * caller may reuse the data array afterwards.
+	 * 
+	 * @param peerAddress the address of the peer the datagram is received from
+	 * @param data the array containing the datagram
+	 * @param offset the offset of the datagram in the array
+	 * @param length the length of the datagram
+	 */
+	private void processDatagram(InetSocketAddress peerAddress, byte[] data, int offset, int length) {
+
+		List<Record> records = Record.fromByteArray(data, offset, length, peerAddress, connectionIdGenerator);
 		LOGGER.debug("Received {} DTLS records from {} using a {} byte datagram buffer",
 				records.size(), peerAddress, inboundDatagramBufferSize);
 
@@ -1969,12 +2239,27 @@ public class DTLSConnector implements Connector, RecordLayer {
 
 	protected void sendNextDatagramOverNetwork(final DatagramPacket datagramPacket) throws IOException {
 		DatagramSocket socket = getSocket();
+		if (socket != null && socket.isClosed()) {
+			// the socket of a channel bound with port reuse may have been
+			// closed by an interrupted sender
+			DatagramChannel channel = reopenReceiverChannel(0);
+			if (channel != null) {
+				socket = channel.socket();
+			}
+		}
 		if (socket != null && !socket.isClosed()) {
+			// sockets of channels are closed, if the sending thread is
+			// interrupted, therefore send with the interrupt status cleared
+			boolean interrupted = Thread.interrupted();
 			try {
 				socket.send(datagramPacket);
 			} catch(IOException e) {
 				LOGGER.warn("Could not send record", e);
 				throw e;
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
 			}
 		} else {
 			InetSocketAddress address = lastBindAddress;
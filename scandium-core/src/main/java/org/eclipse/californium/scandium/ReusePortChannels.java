@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Bosch Software Innovations GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ ******************************************************************************/
+package org.eclipse.californium.scandium;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+
+import org.eclipse.californium.elements.util.NotForAndroid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens datagram channels bound to the same port using {@code SO_REUSEPORT}.
+ * <p>
+ * Uses the {@code NetworkChannel} API, which is only available since Android
+ * API level 24. Therefore the {@link DTLSConnector} falls back to a single
+ * socket, if {@link #isSupported()} returns {@code false}.
+ */
+@NotForAndroid
+final class ReusePortChannels {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReusePortChannels.class.getName());
+
+	/**
+	 * The {@code SO_REUSEPORT} socket option. {@code null}, if not supported.
+	 */
+	private static final SocketOption<Boolean> SO_REUSEPORT = getReusePortOption();
+
+	private ReusePortChannels() {
+	}
+
+	/**
+	 * Checks, if port reuse is supported by the JVM and the platform.
+	 *
+	 * @return {@code true}, if supported, {@code false}, otherwise.
+	 */
+	static boolean isSupported() {
+		return SO_REUSEPORT != null;
+	}
+
+	/**
+	 * Opens a channel bound to the provided address with port reuse enabled.
+	 *
+	 * @param bindAddress the address to bind the channel to
+	 * @param reuseAddress {@code true}, to enable {@code SO_REUSEADDR} as well
+	 * @return the bound channel
+	 * @throws IOException if the channel could not be bound
+	 * @throws IllegalStateException if port reuse is not supported
+	 * @see #isSupported()
+	 */
+	static DatagramChannel open(InetSocketAddress bindAddress, boolean reuseAddress) throws IOException {
+		if (SO_REUSEPORT == null) {
+			throw new IllegalStateException("Port reuse is not supported!");
+		}
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.setOption(SO_REUSEPORT, true);
+			if (reuseAddress) {
+				channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			}
+			channel.bind(bindAddress);
+			return channel;
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Gets the {@code SO_REUSEPORT} socket option, if supported.
+	 * <p>
+	 * The option is available since Java 9 and is looked up by reflection to
+	 * keep the connector running on Java 7. Not all platforms support it for
+	 * datagram channels, that's checked with a not bound channel.
+	 *
+	 * @return the socket option, or {@code null}, if not available or not
+	 *         supported by the platform.
+	 */
+	@SuppressWarnings("unchecked")
+	private static SocketOption<Boolean> getReusePortOption() {
+		SocketOption<Boolean> reusePort;
+		try {
+			reusePort = (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+		} catch (Exception e) {
+			return null;
+		}
+		try {
+			DatagramChannel channel = DatagramChannel.open();
+			try {
+				if (channel.supportedOptions().contains(reusePort)) {
+					return reusePort;
+				}
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Checking port reuse failed!", e);
+		}
+		return null;
+	}
+}
@@ -143,6 +143,11 @@ public final class DtlsConnectorConfig {
 	 */
 	private Boolean enableReuseAddress;
 
+	/**
+	 * Enable to receive with multiple channels bound to the same port.
+	 */
+	private Boolean enableReusePort;
+
 	/**
 	 * The maximum fragment length this connector can process at once.
 	 */
@@ -375,6 +380,18 @@ public final class DtlsConnectorConfig {
 		return enableReuseAddress;
 	}
 
+	/**
+	 * Checks, whether the connector receives datagrams using one
+	 * {@link java.nio.channels.DatagramChannel} per receiver thread, all bound
+	 * to the same port using {@code SO_REUSEPORT}.
+	 * 
+	 * @return {@code true}, if port reuse is enabled for receiving.
+	 * @see #getReceiverThreadCount()
+	 */
+	public Boolean isPortReuseEnabled() {
+		return enableReusePort;
+	}
+
 	/**
 	 * Checks whether the connector should support the use of the TLS
 	 * <a href="https://tools.ietf.org/html/rfc6066#section-3"> Server Name
@@ -732,6 +749,7 @@ public final class DtlsConnectorConfig {
 		cloned.certificateVerifier = certificateVerifier;
 		cloned.earlyStopRetransmission = earlyStopRetransmission;
 		cloned.enableReuseAddress = enableReuseAddress;
+		cloned.enableReusePort = enableReusePort;
 		cloned.maxFragmentLengthCode = maxFragmentLengthCode;
 		cloned.maxFragmentedHandshakeMessageLength = maxFragmentedHandshakeMessageLength;
 		cloned.retransmissionTimeout = retransmissionTimeout;
@@ -849,6 +867,29 @@ public final class DtlsConnectorConfig {
 			return this;
 		}
 
+		/**
+		 * Enables port reuse for receiving.
+		 * <p>
+		 * If enabled, the connector opens one
+		 * {@link java.nio.channels.DatagramChannel} per receiver thread and
+		 * binds all of them to the same address using {@code SO_REUSEPORT}.
+		 * The operating system then distributes the incoming datagrams by
+		 * their source address among these channels, so the receiver threads
+		 * don't contend on a single socket. Requires a JVM and platform,
+		 * which support {@code SO_REUSEPORT}, otherwise a single socket is
+		 * used. Not intended for Android, which falls back to the single
+		 * socket. The default is {@code false}.
+		 * 
+		 * @param enable {@code true} if the port should be reused by multiple
+		 *            receiving channels.
+		 * @return this builder for command chaining
+		 * @see #setReceiverThreadCount(int)
+		 */
+		public Builder setEnablePortReuse(boolean enable) {
+			config.enableReusePort = enable;
+			return this;
+		}
+
 		/**
 		 * Set usage of extended cipher suites for default cipher suites, if
 		 * {@link #setSupportedCipherSuites} is not called.
@@ -1780,6 +1821,9 @@ public final class DtlsConnectorConfig {
 			if (config.enableReuseAddress == null) {
 				config.enableReuseAddress = false;
 			}
+			if (config.enableReusePort == null) {
+				config.enableReusePort = false;
+			}
 			if (config.earlyStopRetransmission == null) {
 				config.earlyStopRetransmission = true;
 			}
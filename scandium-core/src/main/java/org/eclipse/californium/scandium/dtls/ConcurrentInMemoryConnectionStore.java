@@ -0,0 +1,704 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Bosch Software Innovations GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.californium.elements.util.LeastRecentlyUsedCache;
+import org.eclipse.californium.elements.util.SerialExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory <code>ResumptionSupportingConnectionStore</code> intended for
+ * many connections and many threads accessing the store concurrently.
+ * <p>
+ * In difference to {@link InMemoryConnectionStore}, this store doesn't use a
+ * global lock. The connections are indexed by their connection id, peer
+ * address and session id using {@link ConcurrentHashMap}s, so
+ * {@link #get(ConnectionId)} and {@link #get(InetSocketAddress)} are lock
+ * free.
+ * </p>
+ * <p>
+ * The last-access order is kept in segments. The connection id selects the
+ * segment of a connection, and each segment is a
+ * {@link LeastRecentlyUsedCache} with its share of the capacity, guarded by
+ * its own lock. A new connection, which is put into an exhausted segment,
+ * evicts the least recently used <em>stale</em> connection of that segment
+ * only. The eviction is therefore an approximation of the global <em>least
+ * recently used</em> policy, and the store may reject a new connection before
+ * the total capacity is reached, if the segment of that connection has no
+ * stale connection.
+ * </p>
+ * <p>
+ * Storing and reading to/from the store is thread safe.
+ * </p>
+ */
+public class ConcurrentInMemoryConnectionStore implements ResumptionSupportingConnectionStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ConcurrentInMemoryConnectionStore.class.getName());
+	private static final int DEFAULT_EXTRA_CID_LENGTH = 2; // extra cid bytes additionally to required bytes for the capacity.
+	private static final int DEFAULT_CACHE_SIZE = 150000;
+	private static final long DEFAULT_EXPIRATION_THRESHOLD = 36 * 60 * 60; // 36h
+	/**
+	 * Default maximum number of segments.
+	 */
+	public static final int DEFAULT_SEGMENTS = 64;
+	/**
+	 * Minimum capacity of a segment. Limits the number of segments for small
+	 * stores.
+	 */
+	private static final int MIN_SEGMENT_CAPACITY = 1024;
+
+	private final SessionCache sessionCache;
+	private final int capacity;
+	private final LeastRecentlyUsedCache<ConnectionId, Connection>[] segments;
+	private final int segmentMask;
+	protected final ConcurrentMap<ConnectionId, Connection> connections;
+	protected final ConcurrentMap<InetSocketAddress, Connection> connectionsByAddress;
+	protected final ConcurrentMap<SessionId, Connection> connectionsByEstablishedSession;
+
+	/**
+	 * Connection id generator.
+	 *
+	 * @see #attach(ConnectionIdGenerator)
+	 */
+	private volatile ConnectionIdGenerator connectionIdGenerator;
+
+	protected volatile String tag = "";
+
+	/**
+	 * Creates a store with a capacity of 150000 connections and a connection
+	 * expiration threshold of 36 hours.
+	 */
+	public ConcurrentInMemoryConnectionStore() {
+		this(DEFAULT_CACHE_SIZE, DEFAULT_EXPIRATION_THRESHOLD, null);
+	}
+
+	/**
+	 * Creates a store based on given configuration parameters.
+	 *
+	 * @param capacity the maximum number of connections the store can manage
+	 * @param threshold the period of time of inactivity (in seconds) after
+	 *            which a connection is considered stale and can be evicted from
+	 *            the store if a new connection is to be added to the store
+	 */
+	public ConcurrentInMemoryConnectionStore(final int capacity, final long threshold) {
+		this(capacity, threshold, null);
+	}
+
+	/**
+	 * Creates a store based on given configuration parameters.
+	 *
+	 * @param capacity the maximum number of connections the store can manage
+	 * @param threshold the period of time of inactivity (in seconds) after
+	 *            which a connection is considered stale and can be evicted from
+	 *            the store if a new connection is to be added to the store
+	 * @param sessionCache a second level cache to use for <em>current</em>
+	 *            connection state of established DTLS sessions. If implements
+	 *            {@link ClientSessionCache}, restore connection from the cache
+	 *            and mark them to resume.
+	 */
+	public ConcurrentInMemoryConnectionStore(int capacity, long threshold, SessionCache sessionCache) {
+		this(capacity, threshold, sessionCache, DEFAULT_SEGMENTS);
+	}
+
+	/**
+	 * Creates a store based on given configuration parameters.
+	 *
+	 * @param capacity the maximum number of connections the store can manage
+	 * @param threshold the period of time of inactivity (in seconds) after
+	 *            which a connection is considered stale and can be evicted from
+	 *            the store if a new connection is to be added to the store
+	 * @param sessionCache a second level cache to use for <em>current</em>
+	 *            connection state of established DTLS sessions. If implements
+	 *            {@link ClientSessionCache}, restore connection from the cache
+	 *            and mark them to resume.
+	 * @param maxSegments the maximum number of segments. Rounded down to a
+	 *            power of two and reduced for small capacities, so that each
+	 *            segment manages at least 1024 connections.
+	 * @throws IllegalArgumentException if capacity or maxSegments is less
+	 *             than 1
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentInMemoryConnectionStore(int capacity, long threshold, SessionCache sessionCache,
+			int maxSegments) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1!");
+		}
+		if (maxSegments < 1) {
+			throw new IllegalArgumentException("segments must be at least 1!");
+		}
+		int numberOfSegments = Math.max(1, Math.min(maxSegments, capacity / MIN_SEGMENT_CAPACITY));
+		numberOfSegments = Integer.highestOneBit(numberOfSegments);
+
+		this.capacity = capacity;
+		this.sessionCache = sessionCache;
+		this.segmentMask = numberOfSegments - 1;
+		this.segments = new LeastRecentlyUsedCache[numberOfSegments];
+		this.connections = new ConcurrentHashMap<>(16, 0.75f, numberOfSegments);
+		this.connectionsByAddress = new ConcurrentHashMap<>(16, 0.75f, numberOfSegments);
+		this.connectionsByEstablishedSession = new ConcurrentHashMap<>(16, 0.75f, numberOfSegments);
+
+		LeastRecentlyUsedCache.EvictionListener<Connection> evictionListener = new LeastRecentlyUsedCache.EvictionListener<Connection>() {
+
+			@Override
+			public void onEviction(final Connection staleConnection) {
+				// called with the lock of the segment held,
+				// only update the concurrent indexes here
+				connections.remove(staleConnection.getConnectionId(), staleConnection);
+				Runnable remove = new Runnable() {
+
+					@Override
+					public void run() {
+						Handshaker handshaker = staleConnection.getOngoingHandshake();
+						if (handshaker != null) {
+							handshaker.handshakeFailed(new RuntimeException("Evicted!"));
+						}
+						removeFromAddressConnections(staleConnection);
+						removeFromEstablishedSessions(staleConnection);
+						removeSessionFromCache(staleConnection);
+					}
+				};
+				LOG.debug("{}connection: evicted {}", tag, staleConnection.getConnectionId());
+				if (staleConnection.isExecuting()) {
+					staleConnection.getExecutor().execute(remove);
+				} else {
+					remove.run();
+				}
+			}
+		};
+
+		int segmentCapacity = capacity / numberOfSegments;
+		int extra = capacity % numberOfSegments;
+		for (int index = 0; index < numberOfSegments; ++index) {
+			int size = index < extra ? segmentCapacity + 1 : segmentCapacity;
+			LeastRecentlyUsedCache<ConnectionId, Connection> segment = new LeastRecentlyUsedCache<>(
+					Math.min(size, LeastRecentlyUsedCache.DEFAULT_INITIAL_CAPACITY), size, threshold);
+			segment.setEvictingOnReadAccess(false);
+			segment.setUpdatingOnReadAccess(false);
+			segment.addEvictionListener(evictionListener);
+			segments[index] = segment;
+		}
+		LOG.info(
+				"Created new ConcurrentInMemoryConnectionStore [capacity: {}, segments: {}, connection expiration threshold: {}s]",
+				capacity, numberOfSegments, threshold);
+	}
+
+	/**
+	 * Set tag for logging outputs.
+	 *
+	 * @param tag tag for logging
+	 * @return this store for command chaining
+	 */
+	public ConcurrentInMemoryConnectionStore setTag(final String tag) {
+		if (tag.isEmpty() || tag.endsWith(" ")) {
+			this.tag = tag;
+		} else {
+			this.tag = tag + " ";
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the number of segments.
+	 *
+	 * @return number of segments
+	 */
+	public int getSegments() {
+		return segments.length;
+	}
+
+	/**
+	 * Gets the segment of the connection id.
+	 *
+	 * @param cid connection id
+	 * @return the segment. Access must be synchronized on the segment.
+	 */
+	private LeastRecentlyUsedCache<ConnectionId, Connection> getSegment(ConnectionId cid) {
+		int hash = cid.hashCode();
+		// spread higher bits, the hash of connection ids
+		// is calculated from few bytes
+		hash ^= (hash >>> 16);
+		return segments[hash & segmentMask];
+	}
+
+	/**
+	 * Adds the connection to its segment.
+	 *
+	 * @param cid connection id of the connection
+	 * @param connection connection
+	 * @return {@code true}, if added, {@code false}, if the segment is
+	 *         exhausted.
+	 */
+	private boolean addToSegment(ConnectionId cid, Connection connection) {
+		LeastRecentlyUsedCache<ConnectionId, Connection> segment = getSegment(cid);
+		synchronized (segment) {
+			return segment.put(cid, connection);
+		}
+	}
+
+	/**
+	 * Reserves a new unused connection id for the connection.
+	 *
+	 * @param connection connection to reserve the connection id for
+	 * @return connection id, or {@code null}, if no free connection id could
+	 *         created
+	 * @see ConnectionIdGenerator
+	 */
+	private ConnectionId reserveNewConnectionId(Connection connection) {
+		for (int i = 0; i < 10; ++i) {
+			ConnectionId cid = connectionIdGenerator.createConnectionId();
+			if (connections.putIfAbsent(cid, connection) == null) {
+				return cid;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized void attach(ConnectionIdGenerator connectionIdGenerator) {
+		if (this.connectionIdGenerator != null) {
+			throw new IllegalStateException("Connection id generator already attached!");
+		}
+		if (connectionIdGenerator == null || !connectionIdGenerator.useConnectionId()) {
+			int bits = Integer.SIZE - Integer.numberOfLeadingZeros(capacity);
+			int cidLength = ((bits + 7) / 8) + DEFAULT_EXTRA_CID_LENGTH;
+			this.connectionIdGenerator = new SingleNodeConnectionIdGenerator(cidLength);
+		} else {
+			this.connectionIdGenerator = connectionIdGenerator;
+		}
+		if (sessionCache instanceof ClientSessionCache) {
+			ClientSessionCache clientCache = (ClientSessionCache) sessionCache;
+			LOG.debug("resume client sessions {}", clientCache);
+			for (InetSocketAddress peer : clientCache) {
+				SessionTicket ticket = clientCache.getSessionTicket(peer);
+				SessionId id = clientCache.getSessionIdentity(peer);
+				if (ticket != null && id != null) {
+					// restore connection from session ticket
+					Connection connection = new Connection(ticket, id, peer);
+					ConnectionId connectionId = reserveNewConnectionId(connection);
+					if (connectionId != null) {
+						connection.setConnectionId(connectionId);
+						if (addToSegment(connectionId, connection)) {
+							connectionsByAddress.put(peer, connection);
+							LOG.debug("resume {} {}", peer, id);
+						} else {
+							connections.remove(connectionId, connection);
+							LOG.info("drop session {} {}, store is full!", peer, id);
+						}
+					} else {
+						LOG.info("drop session {} {}, could not allocated cid!", peer, id);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A connection can be successfully added to the store if any of the
+	 * following conditions is met:
+	 * <ul>
+	 * <li>The remaining capacity of the connection's segment is greater than
+	 * zero.</li>
+	 * <li>The connection's segment contains at least one <em>stale</em>
+	 * connection, i.e. a connection that has not been accessed for at least
+	 * the store's <em> connection expiration threshold</em> period. In such a
+	 * case the least- recently accessed stale connection of that segment gets
+	 * evicted from the store to make place for the new connection to be
+	 * added.</li>
+	 * </ul>
+	 */
+	@Override
+	public boolean put(final Connection connection) {
+
+		if (connection != null) {
+			if (!connection.isExecuting()) {
+				throw new IllegalStateException("Connection is not executing!");
+			}
+			ConnectionId connectionId = connection.getConnectionId();
+			if (connectionId == null) {
+				if (connectionIdGenerator == null) {
+					throw new IllegalStateException("Connection id generator must be attached before!");
+				}
+				connectionId = reserveNewConnectionId(connection);
+				if (connectionId == null) {
+					throw new IllegalStateException("Connection ids exhausted!");
+				}
+				connection.setConnectionId(connectionId);
+			} else if (connectionId.isEmpty()) {
+				throw new IllegalStateException("Connection must have a none empty connection id!");
+			} else if (connections.putIfAbsent(connectionId, connection) != null) {
+				throw new IllegalStateException("Connection id already used! " + connectionId);
+			}
+			if (addToSegment(connectionId, connection)) {
+				if (LOG.isTraceEnabled()) {
+					LOG.trace("{}connection: add {} (size {})", tag, connection, connections.size(), new Throwable("connection added!"));
+				} else {
+					LOG.debug("{}connection: add {} (size {})", tag, connectionId, connections.size());
+				}
+				addToAddressConnections(connection);
+				DTLSSession session = connection.getEstablishedSession();
+				if (session != null) {
+					putEstablishedSession(session, connection);
+				}
+				return true;
+			} else {
+				connections.remove(connectionId, connection);
+				LOG.info("{}connection store is full! {} max. entries.", tag, capacity);
+				return false;
+			}
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Puts a new connection into the store, if no other connection is
+	 * associated with its peer address.
+	 * <p>
+	 * Atomic with respect to the peer address, so concurrent receiver threads
+	 * are able to create the connection for a new peer without a global lock.
+	 * The first one adds its connection, all others get that connection
+	 * returned.
+	 * </p>
+	 *
+	 * @param connection the new connection to store. Must have a peer
+	 *            address, but neither a connection id nor an established
+	 *            session.
+	 * @return the connection associated with the peer address, either the
+	 *         provided connection, if added, or the one of an other thread.
+	 *         {@code null}, if the store is exhausted.
+	 * @throws IllegalArgumentException if the connection has no peer address
+	 *             or already a connection id
+	 * @throws IllegalStateException if the connection is not executing, the
+	 *             connection ids are exhausted, or the connection id generator
+	 *             is not {@link #attach(ConnectionIdGenerator)} before!
+	 */
+	public Connection putIfAbsent(final Connection connection) {
+		InetSocketAddress peerAddress = connection.getPeerAddress();
+		if (peerAddress == null) {
+			throw new IllegalArgumentException("Connection must have a peer address!");
+		} else if (connection.getConnectionId() != null) {
+			throw new IllegalArgumentException("Connection must not have a connection id!");
+		} else if (!connection.isExecuting()) {
+			throw new IllegalStateException("Connection is not executing!");
+		} else if (connectionIdGenerator == null) {
+			throw new IllegalStateException("Connection id generator must be attached before!");
+		}
+		ConnectionId connectionId = reserveNewConnectionId(connection);
+		if (connectionId == null) {
+			throw new IllegalStateException("Connection ids exhausted!");
+		}
+		connection.setConnectionId(connectionId);
+		Connection previous = connectionsByAddress.putIfAbsent(peerAddress, connection);
+		if (previous != null) {
+			connections.remove(connectionId, connection);
+			LOG.debug("{}connection: {} - {} already added!", tag, previous.getConnectionId(), peerAddress);
+			return previous;
+		}
+		if (addToSegment(connectionId, connection)) {
+			LOG.debug("{}connection: add {} - {} (size {})", tag, connectionId, peerAddress, connections.size());
+			return connection;
+		} else {
+			connectionsByAddress.remove(peerAddress, connection);
+			connections.remove(connectionId, connection);
+			LOG.info("{}connection store is full! {} max. entries.", tag, capacity);
+			return null;
+		}
+	}
+
+	@Override
+	public boolean update(final Connection connection, InetSocketAddress newPeerAddress) {
+		if (connection == null) {
+			return false;
+		}
+		ConnectionId connectionId = connection.getConnectionId();
+		boolean updated;
+		LeastRecentlyUsedCache<ConnectionId, Connection> segment = getSegment(connectionId);
+		synchronized (segment) {
+			updated = segment.update(connectionId);
+		}
+		if (updated) {
+			if (!connection.equalsPeerAddress(newPeerAddress)) {
+				InetSocketAddress oldPeerAddress = connection.getPeerAddress();
+				LOG.debug("{}connection: {} updated, address changed from {} to {}!", tag, connectionId,
+						oldPeerAddress, newPeerAddress);
+				if (oldPeerAddress != null) {
+					connectionsByAddress.remove(oldPeerAddress, connection);
+				}
+				connection.updatePeerAddress(null);
+				if (newPeerAddress != null) {
+					connection.updatePeerAddress(newPeerAddress);
+					addToAddressConnections(connection);
+				}
+			} else {
+				LOG.debug("{}connection: {} - {} updated!", tag, connectionId, newPeerAddress);
+			}
+			return true;
+		} else {
+			LOG.debug("{}connection: {} - {} update failed!", tag, connectionId, newPeerAddress);
+			return false;
+		}
+	}
+
+	@Override
+	public void putEstablishedSession(final DTLSSession session, final Connection connection) {
+		SessionId sessionId = session.getSessionIdentifier();
+		if (!sessionId.isEmpty()) {
+			if (sessionCache != null) {
+				sessionCache.put(session);
+			}
+			final Connection previous = connectionsByEstablishedSession.put(sessionId, connection);
+			if (previous != null && previous != connection) {
+				Runnable removePreviousConnection = new Runnable() {
+
+					@Override
+					public void run() {
+						remove(previous, false);
+					}
+				};
+				if (previous.isExecuting()) {
+					previous.getExecutor().execute(removePreviousConnection);
+				} else {
+					removePreviousConnection.run();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void removeFromEstablishedSessions(final DTLSSession session, final Connection connection) {
+		SessionId sessionId = session.getSessionIdentifier();
+		if (!sessionId.isEmpty()) {
+			connectionsByEstablishedSession.remove(sessionId, connection);
+		}
+	}
+
+	@Override
+	public Connection find(final SessionId id) {
+
+		if (id == null || id.isEmpty()) {
+			return null;
+		} else {
+			Connection conFromLocalCache = findLocally(id);
+
+			if (sessionCache == null) {
+
+				return conFromLocalCache;
+
+			} else {
+
+				// make sure a stale session cannot be resumed
+				SessionTicket ticket = sessionCache.get(id);
+				if (ticket == null) {
+					// either a session with the given ID has never been established (on other nodes)
+					// or another node has removed the session from the cache, e.g. because it became
+					// stale
+
+					if (conFromLocalCache != null) {
+						// remove corresponding connection from this store
+						remove(conFromLocalCache, false);
+					}
+
+					return null;
+
+				} else if (conFromLocalCache == null) {
+					// this probably means that we are taking over the session from a failed node
+					return new Connection(ticket, id, null);
+					// connection will be put to first level cache as part of
+					// the abbreviated handshake
+				} else {
+					// resume connection found in local cache (i.e. this store)
+					return conFromLocalCache;
+				}
+			}
+		}
+	}
+
+	private Connection findLocally(final SessionId id) {
+		Connection connection = connectionsByEstablishedSession.get(id);
+		if (connection != null) {
+			ConnectionId connectionId = connection.getConnectionId();
+			LeastRecentlyUsedCache<ConnectionId, Connection> segment = getSegment(connectionId);
+			synchronized (segment) {
+				segment.update(connectionId);
+			}
+		}
+		return connection;
+	}
+
+	@Override
+	public void markAllAsResumptionRequired() {
+		for (Connection connection : connections.values()) {
+			if (connection.getPeerAddress() != null && !connection.isResumptionRequired()) {
+				connection.setResumptionRequired(true);
+				LOG.debug("{}connection: mark for resumption {}!", tag, connection);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The total remaining capacity of all segments. A new connection may be
+	 * rejected even if this is greater than zero, when the segment of that
+	 * connection is exhausted.
+	 */
+	@Override
+	public int remainingCapacity() {
+		int remaining = capacity - connections.size();
+		if (remaining < 0) {
+			remaining = 0;
+		}
+		LOG.debug("{}connection: size {}, remaining {}!", tag, connections.size(), remaining);
+		return remaining;
+	}
+
+	@Override
+	public Connection get(final InetSocketAddress peerAddress) {
+		Connection connection = connectionsByAddress.get(peerAddress);
+		if (connection == null) {
+			LOG.debug("{}connection: missing connection for {}!", tag, peerAddress);
+		}
+		return connection;
+	}
+
+	@Override
+	public Connection get(final ConnectionId cid) {
+		Connection connection = connections.get(cid);
+		if (connection == null) {
+			LOG.debug("{}connection: missing connection for {}!", tag, cid);
+		}
+		return connection;
+	}
+
+	@Override
+	public boolean remove(final Connection connection) {
+		return remove(connection, true);
+	}
+
+	@Override
+	public boolean remove(final Connection connection, final boolean removeFromSessionCache) {
+		ConnectionId connectionId = connection.getConnectionId();
+		boolean removed = connections.remove(connectionId, connection);
+		if (removed) {
+			LeastRecentlyUsedCache<ConnectionId, Connection> segment = getSegment(connectionId);
+			synchronized (segment) {
+				segment.remove(connectionId, connection);
+			}
+			if (LOG.isTraceEnabled()) {
+				LOG.trace("{}connection: remove {} (size {})", tag, connection, connections.size(), new Throwable("connection removed!"));
+			} else {
+				LOG.debug("{}connection: remove {} (size {})", tag, connection, connections.size());
+			}
+			removeFromEstablishedSessions(connection);
+			removeFromAddressConnections(connection);
+			if (removeFromSessionCache) {
+				removeSessionFromCache(connection);
+			}
+		}
+		return removed;
+	}
+
+	private void removeFromEstablishedSessions(Connection connection) {
+		DTLSSession establishedSession = connection.getEstablishedSession();
+		if (establishedSession != null) {
+			SessionId sessionId = establishedSession.getSessionIdentifier();
+			connectionsByEstablishedSession.remove(sessionId, connection);
+		}
+	}
+
+	private void removeFromAddressConnections(Connection connection) {
+		InetSocketAddress peerAddress = connection.getPeerAddress();
+		if (peerAddress != null) {
+			connection.updatePeerAddress(null);
+			connectionsByAddress.remove(peerAddress, connection);
+		}
+	}
+
+	private void removeSessionFromCache(final Connection connection) {
+		if (sessionCache != null) {
+			DTLSSession establishedSession = connection.getEstablishedSession();
+			if (establishedSession != null) {
+				SessionId sessionId = establishedSession.getSessionIdentifier();
+				sessionCache.remove(sessionId);
+			}
+		}
+	}
+
+	private void addToAddressConnections(Connection connection) {
+		final InetSocketAddress peerAddress = connection.getPeerAddress();
+		if (peerAddress != null) {
+			final Connection previous = connectionsByAddress.put(peerAddress, connection);
+			if (previous != null && previous != connection) {
+				Runnable removeAddress = new Runnable() {
+
+					@Override
+					public void run() {
+						if (previous.equalsPeerAddress(peerAddress)) {
+							previous.updatePeerAddress(null);
+						}
+					}
+				};
+				LOG.debug("{}connection: {} - {} added! {} removed from address.", tag, connection.getConnectionId(),
+						peerAddress, previous.getConnectionId());
+				if (previous.isExecuting()) {
+					previous.getExecutor().execute(removeAddress);
+				} else {
+					removeAddress.run();
+				}
+			} else {
+				LOG.debug("{}connection: {} - {} added!", tag, connection.getConnectionId(), peerAddress);
+			}
+		} else {
+			LOG.debug("{}connection: {} - missing address!", tag, connection.getConnectionId());
+		}
+	}
+
+	@Override
+	public final void clear() {
+		for (Connection connection : connections.values()) {
+			SerialExecutor executor = connection.getExecutor();
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+		for (LeastRecentlyUsedCache<ConnectionId, Connection> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		connections.clear();
+		connectionsByEstablishedSession.clear();
+		connectionsByAddress.clear();
+	}
+
+	@Override
+	public final void stop(List<Runnable> pending) {
+		for (Connection connection : connections.values()) {
+			SerialExecutor executor = connection.getExecutor();
+			if (executor != null) {
+				executor.shutdownNow(pending);
+			}
+		}
+	}
+}
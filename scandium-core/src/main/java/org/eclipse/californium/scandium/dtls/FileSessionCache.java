@@ -0,0 +1,486 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Bosch Software Innovations GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.elements.util.NotForAndroid;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A session cache, which keeps the encoded {@code SessionTickets} in memory
+ * and persists them in a local file.
+ * <p>
+ * Intended to be passed to
+ * {@link org.eclipse.californium.scandium.DTLSConnector#DTLSConnector(org.eclipse.californium.scandium.config.DtlsConnectorConfig, SessionCache)}.
+ * The connector then {@link #load()}s the sessions on start and
+ * {@link #save()}s them on stop. After a restart, the peers are able to
+ * resume their sessions with an abbreviated handshake instead of a full one.
+ * Saving the sessions periodically in addition, e.g. to survive a crash, is
+ * supported by {@link #startPeriodicSave(ScheduledExecutorService, long, TimeUnit)}.
+ * </p>
+ * <p>
+ * Note: the file contains the master secrets of the sessions! It's created
+ * readable and writable for the owner only, where the file system supports
+ * POSIX permissions, but must be protected as any other private key material.
+ * </p>
+ * <p>
+ * The number of sessions is limited, if the cache is full, expired sessions
+ * are removed to cache new ones. If none is expired, new sessions are not
+ * cached. Sessions expire after their lifetime, counted from the creation of
+ * the session, not from the last resumption.
+ * </p>
+ * <p>
+ * Only server side sessions are supported, a {@link ClientSessionCache} is
+ * not implemented.
+ * </p>
+ * <p>
+ * Uses {@code java.nio.file}, which is only available since Android API
+ * level 26.
+ * </p>
+ */
+@NotForAndroid
+public class FileSessionCache implements PersistentSessionCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileSessionCache.class.getName());
+
+	/**
+	 * Default maximum number of sessions.
+	 */
+	public static final int DEFAULT_MAX_SESSIONS = DtlsConnectorConfig.DEFAULT_MAX_CONNECTIONS;
+	/**
+	 * Default lifetime of sessions in seconds. 24 hours, the upper limit
+	 * suggested by <a href="https://tools.ietf.org/html/rfc5246#appendix-F.1.4"
+	 * target="_blank">RFC 5246, F.1.4</a>.
+	 */
+	public static final long DEFAULT_SESSION_LIFETIME_IN_SECONDS = 24 * 60 * 60;
+
+	/**
+	 * Magic number of the file format, "DTLS".
+	 */
+	private static final int MAGIC = 0x44544c53;
+	/**
+	 * Version of the file format.
+	 */
+	private static final int VERSION = 2;
+	/**
+	 * Permissions of the file, readable and writable for the owner only.
+	 */
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+	private final File file;
+	private final ConcurrentMap<SessionId, Entry> cache = new ConcurrentHashMap<>();
+	private final int maxSessions;
+	private final long sessionLifetimeMillis;
+	/**
+	 * Earliest expiration of the cached sessions, determined when the cache
+	 * was full. Avoids to search for expired sessions with every put of a
+	 * full cache.
+	 */
+	private volatile long nextExpiration;
+	/**
+	 * Number of changes of the sessions.
+	 */
+	private final AtomicLong changes = new AtomicLong();
+	/**
+	 * Number of changes of the sessions with the last successful save.
+	 */
+	private volatile long savedChanges;
+	/**
+	 * Indicates, that the sessions are already loaded.
+	 */
+	private final AtomicBoolean loaded = new AtomicBoolean();
+
+	/**
+	 * Creates a session cache persisted in the provided file.
+	 * 
+	 * Uses {@link #DEFAULT_MAX_SESSIONS} and
+	 * {@link #DEFAULT_SESSION_LIFETIME_IN_SECONDS}.
+	 *
+	 * @param file file to load the sessions from and save them to.
+	 * @throws NullPointerException if file is {@code null}
+	 */
+	public FileSessionCache(File file) {
+		this(file, DEFAULT_MAX_SESSIONS, DEFAULT_SESSION_LIFETIME_IN_SECONDS);
+	}
+
+	/**
+	 * Creates a session cache persisted in the provided file.
+	 *
+	 * @param file file to load the sessions from and save them to.
+	 * @param maxSessions maximum number of sessions
+	 * @param sessionLifetimeInSeconds lifetime of sessions in seconds
+	 * @throws NullPointerException if file is {@code null}
+	 * @throws IllegalArgumentException if maxSessions or
+	 *             sessionLifetimeInSeconds is less than {@code 1}
+	 */
+	public FileSessionCache(File file, int maxSessions, long sessionLifetimeInSeconds) {
+		if (file == null) {
+			throw new NullPointerException("file must not be null!");
+		}
+		if (maxSessions < 1) {
+			throw new IllegalArgumentException("max. sessions must be at least 1!");
+		}
+		if (sessionLifetimeInSeconds < 1) {
+			throw new IllegalArgumentException("session lifetime must be at least 1s!");
+		}
+		this.file = file;
+		this.maxSessions = maxSessions;
+		this.sessionLifetimeMillis = TimeUnit.SECONDS.toMillis(sessionLifetimeInSeconds);
+	}
+
+	/**
+	 * Gets the file of this cache.
+	 *
+	 * @return file to load the sessions from and save them to.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the number of cached sessions.
+	 *
+	 * @return number of sessions
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Puts a ticket to the cache.
+	 * 
+	 * Expired tickets are not cached. If the cache is full and no ticket is
+	 * expired, a ticket with a new session id is not cached.
+	 *
+	 * @param id session id
+	 * @param ticket session ticket
+	 */
+	public void put(final SessionId id, final SessionTicket ticket) {
+		if (id != null && !id.isEmpty() && ticket != null) {
+			long now = System.currentTimeMillis();
+			long timestamp = ticket.getTimestamp();
+			if (isExpired(timestamp, now)) {
+				return;
+			}
+			if (!cache.containsKey(id) && !ensureCapacity(now)) {
+				LOGGER.debug("{} sessions, cache full, session {} not cached", cache.size(), id);
+				return;
+			}
+			DatagramWriter writer = new DatagramWriter();
+			ticket.encode(writer);
+			cache.put(id, new Entry(timestamp, writer.toByteArray()));
+			changes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void put(final DTLSSession session) {
+		if (session != null) {
+			put(session.getSessionIdentifier(), session.getSessionTicket());
+		}
+	}
+
+	@Override
+	public SessionTicket get(final SessionId id) {
+		if (id == null) {
+			return null;
+		}
+		Entry entry = cache.get(id);
+		if (entry == null) {
+			return null;
+		}
+		if (isExpired(entry.timestamp, System.currentTimeMillis())) {
+			if (cache.remove(id, entry)) {
+				changes.incrementAndGet();
+			}
+			return null;
+		}
+		return SessionTicket.decode(new DatagramReader(entry.ticket));
+	}
+
+	@Override
+	public void remove(final SessionId id) {
+		if (id != null && cache.remove(id) != null) {
+			changes.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Loads the sessions from the file.
+	 * <p>
+	 * Only the first call loads the sessions, following calls are ignored.
+	 * Sessions already in the cache are not replaced by loaded ones. Expired
+	 * sessions are dropped and loading stops, when the cache is full. If the
+	 * file is truncated, the sessions read before are kept.
+	 *
+	 * @return number of loaded sessions
+	 * @throws IOException if an i/o error occurred or the file has an
+	 *             unsupported format
+	 */
+	@Override
+	public int load() throws IOException {
+		if (!loaded.compareAndSet(false, true)) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		DataInputStream in;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+		} catch (FileNotFoundException ex) {
+			LOGGER.info("no sessions to load from {}", file);
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		int count = 0;
+		int expired = 0;
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("File " + file + " doesn't contain sessions!");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Version " + version + " of " + file + " is not supported!");
+			}
+			while (true) {
+				int idLength = in.readUnsignedByte();
+				if (idLength == 0) {
+					// end mark
+					break;
+				}
+				byte[] id = new byte[idLength];
+				in.readFully(id);
+				long timestamp = in.readLong();
+				byte[] ticket = new byte[in.readUnsignedShort()];
+				in.readFully(ticket);
+				if (isExpired(timestamp, now)) {
+					++expired;
+				} else if (cache.size() >= maxSessions) {
+					LOGGER.warn("cache full, further sessions of {} dropped", file);
+					break;
+				} else if (cache.putIfAbsent(new SessionId(id), new Entry(timestamp, ticket)) == null) {
+					++count;
+				}
+			}
+		} catch (EOFException ex) {
+			LOGGER.warn("{} is truncated, {} sessions loaded", file, count);
+		} finally {
+			in.close();
+		}
+		LOGGER.info("{} sessions loaded from {} in {}ms, {} expired", count, file,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), expired);
+		return count;
+	}
+
+	/**
+	 * Saves the sessions to the file.
+	 * <p>
+	 * The sessions are written to a temporary file first, which is created
+	 * readable and writable for the owner only and synchronized to the
+	 * storage device before it replaces the file. Expired sessions are not
+	 * saved.
+	 *
+	 * @return number of saved sessions
+	 * @throws IOException if an i/o error occurred
+	 */
+	@Override
+	public synchronized int save() throws IOException {
+		long start = System.nanoTime();
+		long currentChanges = changes.get();
+		long now = System.currentTimeMillis();
+		File temp = new File(file.getPath() + ".tmp");
+		createOwnerOnly(temp);
+		FileOutputStream fileOut = new FileOutputStream(temp);
+		int count = 0;
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for (Map.Entry<SessionId, Entry> entry : cache.entrySet()) {
+				Entry session = entry.getValue();
+				if (isExpired(session.timestamp, now)) {
+					continue;
+				}
+				byte[] id = entry.getKey().getBytes();
+				out.writeByte(id.length);
+				out.write(id);
+				out.writeLong(session.timestamp);
+				out.writeShort(session.ticket.length);
+				out.write(session.ticket);
+				++count;
+			}
+			// end mark
+			out.writeByte(0);
+			out.flush();
+			fileOut.getFD().sync();
+		} finally {
+			fileOut.close();
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		savedChanges = currentChanges;
+		LOGGER.info("{} sessions saved to {} in {}ms", count, file,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return count;
+	}
+
+	/**
+	 * Checks, if the sessions are changed since the last successful save.
+	 *
+	 * @return {@code true}, if changed, {@code false}, otherwise
+	 */
+	public boolean isChanged() {
+		return changes.get() != savedChanges;
+	}
+
+	/**
+	 * Starts to save the sessions periodically, if they have changed.
+	 *
+	 * @param executor executor to schedule the saving
+	 * @param interval interval to save the sessions
+	 * @param unit time unit of interval
+	 * @return future to cancel the periodic saving
+	 */
+	public ScheduledFuture<?> startPeriodicSave(ScheduledExecutorService executor, long interval, TimeUnit unit) {
+		return executor.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				if (isChanged()) {
+					try {
+						save();
+					} catch (IOException ex) {
+						LOGGER.warn("saving sessions to {} failed!", file, ex);
+					}
+				}
+			}
+		}, interval, interval, unit);
+	}
+
+	/**
+	 * Checks, if a session is expired.
+	 *
+	 * @param timestamp creation time of the session in milliseconds
+	 * @param now current time in milliseconds
+	 * @return {@code true}, if the session is expired, {@code false},
+	 *         otherwise
+	 */
+	private boolean isExpired(long timestamp, long now) {
+		return now - timestamp >= sessionLifetimeMillis;
+	}
+
+	/**
+	 * Ensures, that the cache is able to cache a new session. Removes the
+	 * expired sessions, if the cache is full.
+	 *
+	 * @param now current time in milliseconds
+	 * @return {@code true}, if a new session could be cached, {@code false},
+	 *         if the cache is full
+	 */
+	private boolean ensureCapacity(long now) {
+		if (cache.size() < maxSessions) {
+			return true;
+		}
+		if (now < nextExpiration) {
+			// no session expired since the last search
+			return false;
+		}
+		long earliest = now;
+		Iterator<Entry> iterator = cache.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (isExpired(entry.timestamp, now)) {
+				iterator.remove();
+				changes.incrementAndGet();
+			} else if (entry.timestamp < earliest) {
+				earliest = entry.timestamp;
+			}
+		}
+		nextExpiration = earliest + sessionLifetimeMillis;
+		return cache.size() < maxSessions;
+	}
+
+	/**
+	 * Creates a new empty file, readable and writable for the owner only.
+	 * Replaces an existing file.
+	 *
+	 * @param file file to create
+	 * @throws IOException if an i/o error occurred
+	 */
+	private static void createOwnerOnly(File file) throws IOException {
+		Path path = file.toPath();
+		Files.deleteIfExists(path);
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+		} catch (UnsupportedOperationException e) {
+			LOGGER.warn("{} doesn't support POSIX permissions, protect the sessions otherwise!", file);
+			Files.createFile(path);
+		}
+	}
+
+	/**
+	 * Encoded session ticket with the creation time of the session.
+	 */
+	private static class Entry {
+
+		/**
+		 * Creation time of the session in milliseconds.
+		 */
+		private final long timestamp;
+		/**
+		 * Encoded session ticket.
+		 */
+		private final byte[] ticket;
+
+		private Entry(long timestamp, byte[] ticket) {
+			this.timestamp = timestamp;
+			this.ticket = ticket;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Bosch Software Innovations GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import java.io.IOException;
+
+/**
+ * Second level cache for DTLS sessions, which persists the sessions.
+ * <p>
+ * If passed to
+ * {@link org.eclipse.californium.scandium.DTLSConnector#DTLSConnector(org.eclipse.californium.scandium.config.DtlsConnectorConfig, SessionCache)},
+ * the connector {@link #load()}s the sessions on start and {@link #save()}s
+ * them on stop. Applications, which use the cache with a custom connection
+ * store, call these methods on their own.
+ * </p>
+ */
+public interface PersistentSessionCache extends SessionCache {
+
+	/**
+	 * Loads the persisted sessions into the cache.
+	 * 
+	 * @return number of loaded sessions
+	 * @throws IOException if an i/o error occurred
+	 */
+	int load() throws IOException;
+
+	/**
+	 * Persists the sessions of the cache.
+	 * 
+	 * @return number of saved sessions
+	 * @throws IOException if an i/o error occurred
+	 */
+	int save() throws IOException;
+}
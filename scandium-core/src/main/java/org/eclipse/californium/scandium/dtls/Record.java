@@ -26,6 +26,7 @@
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
+import java.io.ByteArrayInputStream;
 import java.net.InetSocketAddress;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
@@ -302,6 +303,34 @@ public class Record {
 	 * @throws NullPointerException if either one of the byte array or peer address is {@code null}
 	 */
 	public static List<Record> fromByteArray(byte[] byteArray, InetSocketAddress peerAddress, ConnectionIdGenerator cidGenerator) {
+		if (byteArray == null) {
+			throw new NullPointerException("Byte array must not be null");
+		}
+		return fromByteArray(byteArray, 0, byteArray.length, peerAddress, cidGenerator);
+	}
+
+	/**
+	 * Parses a sequence of <em>DTLSCiphertext</em> structures from a range of
+	 * a byte array into {@code Record}> instances.
+	 * 
+	 * The range is read in place, the fragments of the records are copied.
+	 * Therefore the byte array may be reused, e.g. as receive buffer, after
+	 * this method returns.
+	 * 
+	 * @param byteArray the byte array containing one or more DTLSCiphertext
+	 *            structures
+	 * @param offset the offset of the first structure in the byte array
+	 * @param dataLength the number of bytes of the structures
+	 * @param peerAddress the IP address and port of the peer from which the
+	 *            bytes have been received
+	 * @param cidGenerator the connection id generator. May be {@code null}.
+	 * @return the {@code Record} instances
+	 * @throws NullPointerException if either one of the byte array or peer
+	 *             address is {@code null}
+	 * @see #fromByteArray(byte[], InetSocketAddress, ConnectionIdGenerator)
+	 */
+	public static List<Record> fromByteArray(byte[] byteArray, int offset, int dataLength, InetSocketAddress peerAddress,
+			ConnectionIdGenerator cidGenerator) {
 		if (byteArray == null) {
 			throw new NullPointerException("Byte array must not be null");
 		} else if (peerAddress == null) {
@@ -310,7 +339,7 @@ public class Record {
 
 		List<Record> records = new ArrayList<Record>();
 
-		DatagramReader reader = new DatagramReader(byteArray);
+		DatagramReader reader = new DatagramReader(new ByteArrayInputStream(byteArray, offset, dataLength));
 
 		while (reader.bytesAvailable()) {
 
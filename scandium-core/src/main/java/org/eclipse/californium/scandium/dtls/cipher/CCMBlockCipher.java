@@ -27,11 +27,20 @@ import java.util.Arrays;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
 
 /**
  * A generic authenticated encryption block cipher mode which uses the 128-bit
  * block cipher AES. See <a href="http://tools.ietf.org/html/rfc3610">RFC
  * 3610</a> for details.
+ * 
+ * The functions using a {@link SecretKey} generate the key stream with a
+ * single {@link #CTR_CIPHER_NAME} and the CBC-MAC with a single
+ * {@link #CBC_CIPHER_NAME} operation, which the JCE implements with
+ * intrinsics on most platforms. For short messages the initialization of
+ * these ciphers dominates, so messages shorter than {@link #BULK_THRESHOLD}
+ * are processed block by block, as the functions using an already
+ * initialized block cipher ({@link #CIPHER_NAME}) do.
  */
 public class CCMBlockCipher {
 
@@ -46,6 +55,48 @@ public class CCMBlockCipher {
 	 */
 	public static final String CIPHER_NAME = "AES/ECB/NoPadding";
 
+	/**
+	 * The cipher used to calculate the CBC-MAC in one pass.
+	 */
+	public static final String CBC_CIPHER_NAME = "AES/CBC/NoPadding";
+
+	/**
+	 * The cipher used to generate the key stream in one pass.
+	 */
+	public static final String CTR_CIPHER_NAME = "AES/CTR/NoPadding";
+
+	/**
+	 * Block size of AES.
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Minimum message length for the bulk processing.
+	 */
+	public static final int BULK_THRESHOLD = 32;
+
+	/**
+	 * Initial vector of the CBC-MAC.
+	 */
+	private static final IvParameterSpec ZERO_IV = new IvParameterSpec(new byte[BLOCK_SIZE]);
+
+	/**
+	 * Maximum size of the thread local buffer for the CBC-MAC. Larger
+	 * messages use a temporary buffer.
+	 */
+	private static final int MAX_MAC_BUFFER_SIZE = 4096;
+
+	/**
+	 * Thread local buffer for the CBC-MAC.
+	 */
+	private static final ThreadLocal<byte[]> MAC_BUFFER = new ThreadLocal<byte[]>() {
+
+		@Override
+		protected byte[] initialValue() {
+			return new byte[256];
+		}
+	};
+
 	private static abstract class Block {
 
 		protected final int blockSize;
@@ -148,16 +199,17 @@ public class CCMBlockCipher {
 		 * @param cipher the cipher.
 		 * @param nonce the nonce.
 		 * @param a the additional authenticated data.
-		 * @param m the message to authenticate and encrypt.
+		 * @param m buffer with the message to authenticate and encrypt.
+		 * @param mOffset offset of the message in the buffer
+		 * @param lengthM length of the message
 		 * @param numAuthenticationBytes Number of octets in authentication
 		 *            field.
 		 * @throws ShortBufferException if cipher can not be realized.
 		 */
-		private MacCipher(Cipher cipher, byte[] nonce, byte[] a, byte[] m, int numAuthenticationBytes)
-				throws ShortBufferException {
+		private MacCipher(Cipher cipher, byte[] nonce, byte[] a, byte[] m, int mOffset, int lengthM,
+				int numAuthenticationBytes) throws ShortBufferException {
 			super(cipher == null ? 0 : cipher.getBlockSize());
 			this.cipher = cipher;
-			int lengthM = m.length;
 			int lengthA = a.length;
 			int nonceL = nonce.length;
 			int L = blockSize - 1 - nonceL;
@@ -241,15 +293,16 @@ public class CCMBlockCipher {
 					offset = 6;
 				}
 
-				update(a, offset);
+				update(a, 0, lengthA, offset);
 			}
-			update(m, 0);
+			update(m, mOffset, lengthM, 0);
 			mac = Arrays.copyOf(block, numAuthenticationBytes);
 		}
 
-		private void update(byte[] data, int initialBlockOffset) throws ShortBufferException {
-			int length = data.length;
-			for (int i = 0; i < length;) {
+		private void update(byte[] data, int offset, int length, int initialBlockOffset)
+				throws ShortBufferException {
+			length += offset;
+			for (int i = offset; i < length;) {
 				int blockEnd = i + blockSize - initialBlockOffset;
 				if (blockEnd > length) {
 					blockEnd = length;
@@ -294,21 +347,168 @@ public class CCMBlockCipher {
 	 */
 	public final static byte[] decrypt(SecretKey key, byte[] nonce, byte[] a, byte[] c, int numAuthenticationBytes)
 			throws GeneralSecurityException {
+		if (c.length < numAuthenticationBytes) {
+			throw new GeneralSecurityException("Ciphertext too short");
+		}
+		byte[] decrypted = new byte[c.length - numAuthenticationBytes];
+		decrypt(key, nonce, a, c, 0, c.length, decrypted, 0, numAuthenticationBytes);
+		return decrypted;
+	}
+
+	/**
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.5">RFC 3610</a>
+	 * for details.
+	 * 
+	 * Decrypts into the provided buffer. The buffer may be the one of the
+	 * ciphertext, also with the same offset for in-place decryption. If the
+	 * message could not be authenticated, the decrypted range of the buffer
+	 * is cleared.
+	 * 
+	 * @param key the encryption key K.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data a.
+	 * @param c buffer with the encrypted and authenticated message c.
+	 * @param cOffset offset of the message c in the buffer
+	 * @param cLength length of the message c including the authentication
+	 *            field
+	 * @param out buffer for the decrypted message. Must provide
+	 *            {@code cLength - numAuthenticationBytes} bytes at the
+	 *            offset.
+	 * @param outOffset offset of the decrypted message in the buffer
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return the length of the decrypted message
+	 * 
+	 * @throws GeneralSecurityException if the message could not be de-crypted,
+	 *             e.g. because the ciphertext's block size is not correct
+	 * @throws InvalidMacException if the message could not be authenticated
+	 */
+	public final static int decrypt(SecretKey key, byte[] nonce, byte[] a, byte[] c, int cOffset, int cLength,
+			byte[] out, int outOffset, int numAuthenticationBytes) throws GeneralSecurityException {
+		int lengthM = cLength - numAuthenticationBytes;
+		if (lengthM < 0) {
+			throw new GeneralSecurityException("Ciphertext too short");
+		}
+		if (lengthM < BULK_THRESHOLD) {
+			Cipher cipher = CipherManager.getInstance(CIPHER_NAME);
+			cipher.init(Cipher.ENCRYPT_MODE, key);
+			return decrypt(cipher, nonce, a, c, cOffset, cLength, out, outOffset, numAuthenticationBytes);
+		}
+		if (out.length - outOffset < lengthM) {
+			throw new ShortBufferException("Output buffer too short, " + lengthM + " bytes required");
+		}
+		// separate T before a in-place decryption overwrites it
+		byte[] T = new byte[BLOCK_SIZE];
+		System.arraycopy(c, cOffset + lengthM, T, 0, numAuthenticationBytes);
+
+		Cipher ctr = CipherManager.getInstance(CTR_CIPHER_NAME);
+		ctr.init(Cipher.ENCRYPT_MODE, key, counterBlock(nonce));
+		// key stream block S_0 for the MAC, S_1 ... for the message
+		ctr.update(T, 0, BLOCK_SIZE, T, 0);
+		// update doesn't copy the input for in-place decryption, as doFinal does
+		ctr.update(c, cOffset, lengthM, out, outOffset);
+
+		/*
+		 * The message and additional authentication data is then used to
+		 * recompute the CBC-MAC value and check T.
+		 */
+		byte[] mac = mac(key, nonce, a, out, outOffset, lengthM, numAuthenticationBytes);
+
+		/*
+		 * If the T value is not correct, the receiver MUST NOT reveal any
+		 * information except for the fact that T is incorrect. The receiver
+		 * MUST NOT reveal the decrypted message, the value T, or any other
+		 * information.
+		 */
+		int diff = 0;
+		for (int i = 0; i < numAuthenticationBytes; ++i) {
+			diff |= mac[i] ^ T[i];
+		}
+		if (diff != 0) {
+			Arrays.fill(out, outOffset, outOffset + lengthM, (byte) 0);
+			throw new InvalidMacException(Arrays.copyOf(mac, numAuthenticationBytes),
+					Arrays.copyOf(T, numAuthenticationBytes));
+		}
+		return lengthM;
+	}
+
+	/**
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.5">RFC 3610</a>
+	 * for details.
+	 * 
+	 * Uses a block cipher, which is already initialized with the key. That
+	 * saves the initialization for every message, if the cipher is kept for a
+	 * key.
+	 * 
+	 * @param cipher the underlying block cipher ({@link #CIPHER_NAME}),
+	 *            initialized for encryption with the key K. Must not be used
+	 *            concurrently.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data a.
+	 * @param c the encrypted and authenticated message c.
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return the decrypted message
+	 * 
+	 * @throws GeneralSecurityException if the message could not be de-crypted,
+	 *             e.g. because the ciphertext's block size is not correct
+	 * @throws InvalidMacException if the message could not be authenticated
+	 */
+	public final static byte[] decrypt(Cipher cipher, byte[] nonce, byte[] a, byte[] c, int numAuthenticationBytes)
+			throws GeneralSecurityException {
+		if (c.length < numAuthenticationBytes) {
+			throw new GeneralSecurityException("Ciphertext too short");
+		}
+		byte[] decrypted = new byte[c.length - numAuthenticationBytes];
+		decrypt(cipher, nonce, a, c, 0, c.length, decrypted, 0, numAuthenticationBytes);
+		return decrypted;
+	}
+
+	/**
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.5">RFC 3610</a>
+	 * for details.
+	 * 
+	 * Uses a block cipher, which is already initialized with the key, and
+	 * decrypts into the provided buffer. The buffer may be the one of the
+	 * ciphertext, also with the same offset for in-place decryption. If the
+	 * message could not be authenticated, the decrypted range of the buffer
+	 * is cleared.
+	 * 
+	 * @param cipher the underlying block cipher ({@link #CIPHER_NAME}),
+	 *            initialized for encryption with the key K. Must not be used
+	 *            concurrently.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data a.
+	 * @param c buffer with the encrypted and authenticated message c.
+	 * @param cOffset offset of the message c in the buffer
+	 * @param cLength length of the message c including the authentication
+	 *            field
+	 * @param out buffer for the decrypted message. Must provide
+	 *            {@code cLength - numAuthenticationBytes} bytes at the
+	 *            offset.
+	 * @param outOffset offset of the decrypted message in the buffer
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return the length of the decrypted message
+	 * 
+	 * @throws GeneralSecurityException if the message could not be de-crypted,
+	 *             e.g. because the ciphertext's block size is not correct
+	 * @throws InvalidMacException if the message could not be authenticated
+	 */
+	public final static int decrypt(Cipher cipher, byte[] nonce, byte[] a, byte[] c, int cOffset, int cLength,
+			byte[] out, int outOffset, int numAuthenticationBytes) throws GeneralSecurityException {
 		/*
 		 * http://tools.ietf.org/html/draft-mcgrew-tls-aes-ccm-04#section-6.1:
 		 * "AEAD_AES_128_CCM_8 ciphertext is exactly 8 octets longer than its
 		 * corresponding plaintext"
 		 */
 
-		// instantiate the underlying block cipher
-		Cipher cipher = CipherManager.getInstance(CIPHER_NAME);
-		cipher.init(Cipher.ENCRYPT_MODE, key);
-
-		int lengthM = c.length - numAuthenticationBytes;
+		int lengthM = cLength - numAuthenticationBytes;
+		if (lengthM < 0) {
+			throw new GeneralSecurityException("Ciphertext too short");
+		}
+		if (out.length - outOffset < lengthM) {
+			throw new ShortBufferException("Output buffer too short, " + lengthM + " bytes required");
+		}
 		int blockSize = cipher.getBlockSize();
 
-		// decrypted data without MAC
-		byte[] decrypted = new byte[lengthM];
 		// separate MAC
 		byte[] T = new byte[numAuthenticationBytes];
 
@@ -317,7 +517,7 @@ public class CCMBlockCipher {
 		int blockNo = 0;
 		byte[] block = blockCiper.updateBlock(blockNo++);
 		for (int i = 0; i < numAuthenticationBytes; ++i) {
-			T[i] = (byte) (c[lengthM + i] ^ block[i]);
+			T[i] = (byte) (c[cOffset + lengthM + i] ^ block[i]);
 		}
 
 		for (int i = 0; i < lengthM;) {
@@ -327,7 +527,7 @@ public class CCMBlockCipher {
 				blockEnd = lengthM;
 			}
 			for (int j = 0; i < blockEnd; ++i, ++j) {
-				decrypted[i] = (byte) (c[i] ^ block[j]);
+				out[outOffset + i] = (byte) (c[cOffset + i] ^ block[j]);
 			}
 		}
 
@@ -335,7 +535,7 @@ public class CCMBlockCipher {
 		 * The message and additional authentication data is then used to
 		 * recompute the CBC-MAC value and check T.
 		 */
-		MacCipher macCipher = new MacCipher(cipher, nonce, a, decrypted, numAuthenticationBytes);
+		MacCipher macCipher = new MacCipher(cipher, nonce, a, out, outOffset, lengthM, numAuthenticationBytes);
 		byte[] mac = macCipher.getMac();
 
 		/*
@@ -345,8 +545,9 @@ public class CCMBlockCipher {
 		 * information.
 		 */
 		if (Arrays.equals(T, mac)) {
-			return decrypted;
+			return lengthM;
 		} else {
+			Arrays.fill(out, outOffset, outOffset + lengthM, (byte) 0);
 			throw new InvalidMacException(mac, T);
 		}
 
@@ -367,43 +568,270 @@ public class CCMBlockCipher {
 	 */
 	public final static byte[] encrypt(SecretKey key, byte[] nonce, byte[] a, byte[] m, int numAuthenticationBytes)
 			throws GeneralSecurityException {
+		byte[] encrypted = new byte[m.length + numAuthenticationBytes];
+		encrypt(key, nonce, a, m, 0, m.length, encrypted, 0, numAuthenticationBytes);
+		return encrypted;
+	}
+
+	/**
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.2">RFC 3610</a>
+	 * for details.
+	 * 
+	 * Encrypts into the provided buffer. The buffer may be the one of the
+	 * message, also with the same offset for in-place encryption.
+	 * 
+	 * @param key the encryption key K.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data a.
+	 * @param m buffer with the message to authenticate and encrypt.
+	 * @param mOffset offset of the message in the buffer
+	 * @param mLength length of the message
+	 * @param out buffer for the encrypted and authenticated message. Must
+	 *            provide {@code mLength + numAuthenticationBytes} bytes at the
+	 *            offset.
+	 * @param outOffset offset of the encrypted message in the buffer
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return the length of the encrypted and authenticated message.
+	 * @throws GeneralSecurityException if the data could not be encrypted, e.g.
+	 *             because the JVM does not support the AES cipher algorithm
+	 */
+	public final static int encrypt(SecretKey key, byte[] nonce, byte[] a, byte[] m, int mOffset, int mLength,
+			byte[] out, int outOffset, int numAuthenticationBytes) throws GeneralSecurityException {
+		if (mLength < BULK_THRESHOLD) {
+			Cipher cipher = CipherManager.getInstance(CIPHER_NAME);
+			cipher.init(Cipher.ENCRYPT_MODE, key);
+			return encrypt(cipher, nonce, a, m, mOffset, mLength, out, outOffset, numAuthenticationBytes);
+		}
+		if (out.length - outOffset < mLength + numAuthenticationBytes) {
+			throw new ShortBufferException(
+					"Output buffer too short, " + (mLength + numAuthenticationBytes) + " bytes required");
+		}
+		/*
+		 * First, authentication: http://tools.ietf.org/html/rfc3610#section-2.2
+		 */
+		byte[] mac = mac(key, nonce, a, m, mOffset, mLength, numAuthenticationBytes);
+
+		/*
+		 * Second, encryption http://tools.ietf.org/html/rfc3610#section-2.3
+		 */
+		Cipher ctr = CipherManager.getInstance(CTR_CIPHER_NAME);
+		ctr.init(Cipher.ENCRYPT_MODE, key, counterBlock(nonce));
+		// key stream block S_0 for the MAC, S_1 ... for the message
+		ctr.update(mac, 0, BLOCK_SIZE, mac, 0);
+		// update doesn't copy the input for in-place encryption, as doFinal does
+		ctr.update(m, mOffset, mLength, out, outOffset);
+		System.arraycopy(mac, 0, out, outOffset + mLength, numAuthenticationBytes);
+		return mLength + numAuthenticationBytes;
+	}
+
+	/**
+	 * Create the counter block A_0 for the key stream. The CTR cipher
+	 * increments the counter in the last L bytes for the following blocks.
+	 * 
+	 * @param nonce the nonce N.
+	 * @return the counter block A_0
+	 * @throws IllegalArgumentException if the nonce length is invalid
+	 */
+	private static IvParameterSpec counterBlock(byte[] nonce) {
+		int L = checkNonce(nonce);
+		// Octet Number Contents
+		// ------------ ---------
+		// 0 Flags
+		// 1 ... 15-L Nonce N
+		// 16-L ... 15 Counter i
+		byte[] block = new byte[BLOCK_SIZE];
+		block[0] = (byte) (L - 1);
+		System.arraycopy(nonce, 0, block, 1, nonce.length);
+		return new IvParameterSpec(block);
+	}
+
+	/**
+	 * Computes CBC-MAC in one pass. See
+	 * <a href="http://tools.ietf.org/html/rfc3610#section-2.2">RFC 3610 -
+	 * Authentication</a> for details.
+	 * 
+	 * @param key the encryption key K.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data a.
+	 * @param m buffer with the message to authenticate
+	 * @param mOffset offset of the message in the buffer
+	 * @param mLength length of the message
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return block with the authentication field T at the beginning
+	 * @throws GeneralSecurityException if the MAC could not be calculated
+	 * @throws IllegalArgumentException if the nonce length is invalid or the
+	 *             message too large for it
+	 */
+	private static byte[] mac(SecretKey key, byte[] nonce, byte[] a, byte[] m, int mOffset, int mLength,
+			int numAuthenticationBytes) throws GeneralSecurityException {
+		int L = checkNonce(nonce);
+		int nonceL = nonce.length;
+		int lengthA = a.length;
+		// 2^16 - 2^8
+		int headerA = lengthA == 0 ? 0 : (lengthA < 65280 ? 2 : 6);
+		int offsetM = BLOCK_SIZE + padded(headerA + lengthA);
+		int length = offsetM + padded(mLength);
+
+		byte[] buffer = MAC_BUFFER.get();
+		if (buffer.length < length) {
+			buffer = new byte[length];
+			if (length <= MAX_MAC_BUFFER_SIZE) {
+				MAC_BUFFER.set(buffer);
+			}
+		}
+		Arrays.fill(buffer, 0, length, (byte) 0);
+
+		// build first block B_0
+		// Flags = 64*Adata + 8*M' + L'
+		buffer[0] = (byte) ((lengthA > 0 ? 64 : 0) + 8 * ((numAuthenticationBytes - 2) / 2) + (L - 1));
+		// 1 ... 15-L Nonce N
+		System.arraycopy(nonce, 0, buffer, 1, nonceL);
+		// 16-L ... 15 l(m)
+		int number = mLength;
+		for (int index = BLOCK_SIZE - 1; index > nonceL; --index) {
+			buffer[index] = (byte) number;
+			number >>>= 8;
+		}
+		if (number != 0) {
+			throw new IllegalArgumentException(
+					"Length " + mLength + " too large for nonce " + nonceL + " and blocksize " + BLOCK_SIZE + " bytes.");
+		}
+
+		// l(a) followed by a, padded with zeros
+		if (headerA == 2) {
+			buffer[BLOCK_SIZE] = (byte) (lengthA >>> 8);
+			buffer[BLOCK_SIZE + 1] = (byte) lengthA;
+		} else if (headerA == 6) {
+			buffer[BLOCK_SIZE] = (byte) 0xff;
+			buffer[BLOCK_SIZE + 1] = (byte) 0xfe;
+			buffer[BLOCK_SIZE + 2] = (byte) (lengthA >>> 24);
+			buffer[BLOCK_SIZE + 3] = (byte) (lengthA >>> 16);
+			buffer[BLOCK_SIZE + 4] = (byte) (lengthA >>> 8);
+			buffer[BLOCK_SIZE + 5] = (byte) lengthA;
+		}
+		System.arraycopy(a, 0, buffer, BLOCK_SIZE + headerA, lengthA);
+		// m, padded with zeros
+		System.arraycopy(m, mOffset, buffer, offsetM, mLength);
+
+		Cipher cbc = CipherManager.getInstance(CBC_CIPHER_NAME);
+		cbc.init(Cipher.ENCRYPT_MODE, key, ZERO_IV);
+		// complete blocks, update processes all without copying the input
+		cbc.update(buffer, 0, length, buffer, 0);
+		return Arrays.copyOfRange(buffer, length - BLOCK_SIZE, length);
+	}
+
+	/**
+	 * Check the nonce length.
+	 * 
+	 * @param nonce the nonce N.
+	 * @return the size L of the length field
+	 * @throws IllegalArgumentException if the nonce length is invalid
+	 */
+	private static int checkNonce(byte[] nonce) {
+		int nonceL = nonce.length;
+		int L = BLOCK_SIZE - 1 - nonceL;
+		if (L < 2 || L > 8) {
+			throw new IllegalArgumentException("Nonce length " + nonceL + " invalid for blocksize " + BLOCK_SIZE
+					+ " (valid length [" + (BLOCK_SIZE - 9) + "-" + (BLOCK_SIZE - 3) + "])");
+		}
+		return L;
+	}
+
+	/**
+	 * @param length length of the data
+	 * @return length padded to the block size
+	 */
+	private static int padded(int length) {
+		return (length + BLOCK_SIZE - 1) & ~(BLOCK_SIZE - 1);
+	}
+
+	/**
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.2">RFC 3610</a>
+	 * for details.
+	 * 
+	 * Uses a block cipher, which is already initialized with the key. That
+	 * saves the initialization for every message, if the cipher is kept for a
+	 * key.
+	 * 
+	 * @param cipher the underlying block cipher ({@link #CIPHER_NAME}),
+	 *            initialized for encryption with the key K. Must not be used
+	 *            concurrently.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data a.
+	 * @param m the message to authenticate and encrypt.
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return the encrypted and authenticated message.
+	 * @throws GeneralSecurityException if the data could not be encrypted
+	 */
+	public final static byte[] encrypt(Cipher cipher, byte[] nonce, byte[] a, byte[] m, int numAuthenticationBytes)
+			throws GeneralSecurityException {
+		byte[] encrypted = new byte[m.length + numAuthenticationBytes];
+		encrypt(cipher, nonce, a, m, 0, m.length, encrypted, 0, numAuthenticationBytes);
+		return encrypted;
+	}
 
-		// instantiate the cipher
-		Cipher cipher = CipherManager.getInstance(CIPHER_NAME);
-		cipher.init(Cipher.ENCRYPT_MODE, key);
+	/**
+	 * See <a href="http://tools.ietf.org/html/rfc3610#section-2.2">RFC 3610</a>
+	 * for details.
+	 * 
+	 * Uses a block cipher, which is already initialized with the key, and
+	 * encrypts into the provided buffer. The buffer may be the one of the
+	 * message, also with the same offset for in-place encryption.
+	 * 
+	 * @param cipher the underlying block cipher ({@link #CIPHER_NAME}),
+	 *            initialized for encryption with the key K. Must not be used
+	 *            concurrently.
+	 * @param nonce the nonce N.
+	 * @param a the additional authenticated data a.
+	 * @param m buffer with the message to authenticate and encrypt.
+	 * @param mOffset offset of the message in the buffer
+	 * @param mLength length of the message
+	 * @param out buffer for the encrypted and authenticated message. Must
+	 *            provide {@code mLength + numAuthenticationBytes} bytes at the
+	 *            offset.
+	 * @param outOffset offset of the encrypted message in the buffer
+	 * @param numAuthenticationBytes Number of octets in authentication field.
+	 * @return the length of the encrypted and authenticated message.
+	 * @throws GeneralSecurityException if the data could not be encrypted
+	 */
+	public final static int encrypt(Cipher cipher, byte[] nonce, byte[] a, byte[] m, int mOffset, int mLength,
+			byte[] out, int outOffset, int numAuthenticationBytes) throws GeneralSecurityException {
+		if (out.length - outOffset < mLength + numAuthenticationBytes) {
+			throw new ShortBufferException(
+					"Output buffer too short, " + (mLength + numAuthenticationBytes) + " bytes required");
+		}
 		int blockSize = cipher.getBlockSize();
-		int lengthM = m.length;
 
 		/*
 		 * First, authentication: http://tools.ietf.org/html/rfc3610#section-2.2
 		 */
 		// compute the authentication field T
-		MacCipher macCipher = new MacCipher(cipher, nonce, a, m, numAuthenticationBytes);
+		MacCipher macCipher = new MacCipher(cipher, nonce, a, m, mOffset, mLength, numAuthenticationBytes);
 		byte[] mac = macCipher.getMac();
 
 		/*
 		 * Second, encryption http://tools.ietf.org/html/rfc3610#section-2.3
 		 */
-		// encrypted data with MAC
-		byte[] encrypted = new byte[lengthM + numAuthenticationBytes];
 		BlockCipher blockCiper = new BlockCipher(cipher, nonce);
 		// block 0 for MAC
 		int blockNo = 0;
 		byte[] block = blockCiper.updateBlock(blockNo++);
 		for (int i = 0; i < numAuthenticationBytes; ++i) {
-			encrypted[i + lengthM] = (byte) (mac[i] ^ block[i]);
+			mac[i] ^= block[i];
 		}
-		for (int i = 0; i < lengthM;) {
+		for (int i = 0; i < mLength;) {
 			block = blockCiper.updateBlock(blockNo++);
 			int blockEnd = i + blockSize;
-			if (blockEnd > lengthM) {
-				blockEnd = lengthM;
+			if (blockEnd > mLength) {
+				blockEnd = mLength;
 			}
 			for (int j = 0; i < blockEnd; ++i, ++j) {
-				encrypted[i] = (byte) (m[i] ^ block[j]);
+				out[outOffset + i] = (byte) (m[mOffset + i] ^ block[j]);
 			}
 		}
+		// encrypted MAC
+		System.arraycopy(mac, 0, out, outOffset + mLength, numAuthenticationBytes);
 
-		return encrypted;
+		return mLength + numAuthenticationBytes;
 	}
 }
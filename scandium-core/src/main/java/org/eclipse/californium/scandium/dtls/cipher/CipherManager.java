@@ -15,12 +15,15 @@
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls.cipher;
 
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
 
 /**
  * Cipher manager.
@@ -30,6 +33,27 @@ import javax.crypto.NoSuchPaddingException;
  */
 public class CipherManager {
 
+	/**
+	 * Maximum number of ciphers initialized with a key per thread.
+	 */
+	public static final int MAX_PREPARED_CIPHERS = 16;
+
+	private static final ThreadLocal<Map<SecretKey, Cipher>> threadLocalPreparedCipherMap = new ThreadLocal<Map<SecretKey, Cipher>>() {
+
+		@Override
+		protected Map<SecretKey, Cipher> initialValue() {
+			return new LinkedHashMap<SecretKey, Cipher>(MAX_PREPARED_CIPHERS * 2, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<SecretKey, Cipher> eldest) {
+					return size() > MAX_PREPARED_CIPHERS;
+				}
+			};
+		}
+	};
+
 	private static final ThreadLocal<Map<String, Cipher>> threadLocalCipherMap = new ThreadLocal<Map<String, Cipher>>() {
 
 		@Override
@@ -60,4 +84,34 @@ public class CipherManager {
 		}
 		return cipher;
 	}
+
+	/**
+	 * Get "thread local" instance of cipher for the provided transformation,
+	 * initialized for encryption with the provided key.
+	 * 
+	 * The ciphers of the {@link #MAX_PREPARED_CIPHERS} least recently used
+	 * keys are kept per thread, so the key schedule is only computed, if the
+	 * key is not used recently by the current thread. Intended for block
+	 * ciphers, which are used with the same key for many messages, e.g. the
+	 * block cipher of AES-CCM. The returned cipher must not be initialized
+	 * again.
+	 * 
+	 * @param transformation transformation. Passed to
+	 *            {@link Cipher#getInstance(String)}.
+	 * @param key the key to initialize the cipher for encryption
+	 * @return thread local cipher initialized with the key.
+	 * @throws GeneralSecurityException if {@link Cipher#getInstance(String)}
+	 *             or {@link Cipher#init(int, java.security.Key)} throws it.
+	 */
+	public static Cipher getInstance(final String transformation, final SecretKey key)
+			throws GeneralSecurityException {
+		Map<SecretKey, Cipher> map = threadLocalPreparedCipherMap.get();
+		Cipher cipher = map.get(key);
+		if (cipher == null || !cipher.getAlgorithm().equals(transformation)) {
+			cipher = Cipher.getInstance(transformation);
+			cipher.init(Cipher.ENCRYPT_MODE, key);
+			map.put(key, cipher);
+		}
+		return cipher;
+	}
 }
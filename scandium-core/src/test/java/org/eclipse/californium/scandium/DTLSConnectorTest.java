@@ -49,6 +49,7 @@ package org.eclipse.californium.scandium;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
@@ -68,6 +69,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.californium.elements.AddressEndpointContext;
@@ -91,6 +93,7 @@ import org.eclipse.californium.scandium.dtls.CertificateType;
 import org.eclipse.californium.scandium.dtls.ClientHello;
 import org.eclipse.californium.scandium.dtls.ClientKeyExchange;
 import org.eclipse.californium.scandium.dtls.CompressionMethod;
+import org.eclipse.californium.scandium.dtls.ConcurrentInMemoryConnectionStore;
 import org.eclipse.californium.scandium.dtls.Connection;
 import org.eclipse.californium.scandium.dtls.ContentType;
 import org.eclipse.californium.scandium.dtls.DTLSSession;
@@ -104,10 +107,12 @@ import org.eclipse.californium.scandium.dtls.HelloVerifyRequest;
 import org.eclipse.californium.scandium.dtls.InMemoryConnectionStore;
 import org.eclipse.californium.scandium.dtls.InMemorySessionCache;
 import org.eclipse.californium.scandium.dtls.PSKClientKeyExchange;
+import org.eclipse.californium.scandium.dtls.PersistentSessionCache;
 import org.eclipse.californium.scandium.dtls.ProtocolVersion;
 import org.eclipse.californium.scandium.dtls.PskPublicInformation;
 import org.eclipse.californium.scandium.dtls.Record;
 import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SessionTicket;
 import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
 import org.eclipse.californium.scandium.dtls.pskstore.InMemoryPskStore;
 import org.eclipse.californium.scandium.dtls.pskstore.PskStore;
@@ -767,6 +772,167 @@ public class DTLSConnectorTest {
 		assertClientIdentity(RawPublicKeyIdentity.class);
 	}
 
+	@Test
+	public void testStartStopWithSameAddressAndPortReuse() throws Exception {
+		// use a client with multiple receiving channels
+		client.destroy();
+		clientConnectionStore = new InMemoryConnectionStore(CLIENT_CONNECTION_STORE_CAPACITY, 60);
+		clientConnectionStore.setTag("client");
+		clientConfig = newStandardConfigBuilder(clientEndpoint)
+				.setEnablePortReuse(true)
+				.setReceiverThreadCount(2)
+				.build();
+		client = new DTLSConnector(clientConfig, clientConnectionStore);
+		client.setExecutor(executor);
+		// a channel per receiver thread, if the platform supports port reuse
+		int channels = ReusePortChannels.isSupported() ? 2 : 0;
+
+		// Do a first handshake
+		givenAnEstablishedSession(false);
+		byte[] sessionId = establishedServerSession.getSessionIdentifier().getBytes();
+		InetSocketAddress firstAddress = client.getAddress();
+		assertThat(client.getReusePortChannelCount(), is(channels));
+
+		// Stop the client
+		client.stop();
+		assertThat(client.getReusePortChannelCount(), is(0));
+
+		// Restart it
+		client.restart();
+		assertEquals(firstAddress, client.getAddress());
+		assertThat(client.getReusePortChannelCount(), is(channels));
+
+		// Prepare message sending
+		final String msg = "Hello Again";
+		CountDownLatch latch = new CountDownLatch(1);
+		clientRawDataChannel.setLatch(latch);
+
+		// send message
+		RawData data = RawData.outbound(msg.getBytes(), new AddressEndpointContext(serverEndpoint), null, false);
+		client.send(data);
+		assertTrue(latch.await(MAX_TIME_TO_WAIT_SECS, TimeUnit.SECONDS));
+
+		// check we use the same session id
+		Connection connection = clientConnectionStore.get(serverEndpoint);
+		assertArrayEquals(sessionId, connection.getEstablishedSession().getSessionIdentifier().getBytes());
+	}
+
+	@Test
+	public void testInterruptedSenderKeepsPortReuseChannelOpen() throws Exception {
+		assumeTrue(ReusePortChannels.isSupported());
+		// use a client with multiple receiving channels
+		client.destroy();
+		clientConnectionStore = new InMemoryConnectionStore(CLIENT_CONNECTION_STORE_CAPACITY, 60);
+		clientConnectionStore.setTag("client");
+		clientConfig = newStandardConfigBuilder(clientEndpoint)
+				.setEnablePortReuse(true)
+				.setReceiverThreadCount(2)
+				.build();
+		client = new DTLSConnector(clientConfig, clientConnectionStore);
+		client.setExecutor(executor);
+		givenAnEstablishedSession(false);
+		InetSocketAddress address = client.getAddress();
+
+		// send with an interrupted thread
+		byte[] garbage = new byte[] { 0x01 };
+		Thread.currentThread().interrupt();
+		try {
+			client.sendNextDatagramOverNetwork(new DatagramPacket(garbage, garbage.length, serverEndpoint));
+		} finally {
+			assertTrue(Thread.interrupted());
+		}
+
+		// messages are still exchanged on the same address
+		CountDownLatch latch = new CountDownLatch(1);
+		clientRawDataChannel.setLatch(latch);
+		RawData data = RawData.outbound("Hello Again".getBytes(), new AddressEndpointContext(serverEndpoint), null,
+				false);
+		client.send(data);
+		assertTrue(latch.await(MAX_TIME_TO_WAIT_SECS, TimeUnit.SECONDS));
+		assertEquals(address, client.getAddress());
+		assertThat(client.getReusePortChannelCount(), is(2));
+	}
+
+	@Test
+	public void testConnectorWithConcurrentConnectionStore() throws Exception {
+		// use a client, which creates connections without global lock
+		client.destroy();
+		ConcurrentInMemoryConnectionStore store = new ConcurrentInMemoryConnectionStore(
+				CLIENT_CONNECTION_STORE_CAPACITY, 60);
+		client = new DTLSConnector(clientConfig, store);
+		client.setExecutor(executor);
+		CountDownLatch latch = new CountDownLatch(1);
+		clientRawDataChannel.setLatch(latch);
+		client.setRawDataReceiver(clientRawDataChannel);
+		client.start();
+
+		RawData data = RawData.outbound("Hello World".getBytes(), new AddressEndpointContext(serverEndpoint), null,
+				false);
+		client.send(data);
+		assertTrue(latch.await(MAX_TIME_TO_WAIT_SECS, TimeUnit.SECONDS));
+
+		Connection con = store.get(serverEndpoint);
+		assertNotNull(con);
+		assertNotNull(con.getEstablishedSession());
+		assertThat(store.remainingCapacity(), is(CLIENT_CONNECTION_STORE_CAPACITY - 1));
+	}
+
+	@Test
+	public void testStartWithoutPortReuseUsesSingleSocket() throws Exception {
+		client.start();
+		assertThat(client.getReusePortChannelCount(), is(0));
+	}
+
+	@Test
+	public void testStartStopLoadsAndSavesPersistentSessionCache() throws Exception {
+		final InMemorySessionCache sessions = new InMemorySessionCache();
+		final AtomicInteger loads = new AtomicInteger();
+		final AtomicInteger saves = new AtomicInteger();
+		PersistentSessionCache sessionCache = new PersistentSessionCache() {
+
+			@Override
+			public void put(DTLSSession session) {
+				sessions.put(session);
+			}
+
+			@Override
+			public SessionTicket get(SessionId id) {
+				return sessions.get(id);
+			}
+
+			@Override
+			public void remove(SessionId id) {
+				sessions.remove(id);
+			}
+
+			@Override
+			public int load() throws IOException {
+				loads.incrementAndGet();
+				return 0;
+			}
+
+			@Override
+			public int save() throws IOException {
+				saves.incrementAndGet();
+				return 0;
+			}
+		};
+		DTLSConnector connector = new DTLSConnector(
+				newStandardConfig(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)), sessionCache);
+		try {
+			connector.start();
+			assertThat(loads.get(), is(1));
+			assertThat(saves.get(), is(0));
+			connector.stop();
+			assertThat(saves.get(), is(1));
+			// already stopped, not saved again
+			connector.stop();
+			assertThat(saves.get(), is(1));
+		} finally {
+			connector.destroy();
+		}
+	}
+
 	@Test
 	public void testStartStopWithSameAddressAndInternalExecutor() throws Exception {
 		// use internal executor
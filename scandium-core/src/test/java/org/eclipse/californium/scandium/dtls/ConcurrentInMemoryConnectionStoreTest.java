@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Bosch Software Innovations GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.scandium.category.Small;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Runs the tests of {@link InMemoryConnectionStoreTest} against the
+ * {@link ConcurrentInMemoryConnectionStore}, and adds tests for the
+ * segments and concurrent access.
+ */
+@Category(Small.class)
+public class ConcurrentInMemoryConnectionStoreTest extends InMemoryConnectionStoreTest {
+
+	@Override
+	protected ResumptionSupportingConnectionStore createConnectionStore(int capacity, long threshold,
+			SessionCache sessionCache) {
+		return new ConcurrentInMemoryConnectionStore(capacity, threshold, sessionCache);
+	}
+
+	@Test
+	public void testSegmentsLimitedByCapacity() {
+		assertThat(new ConcurrentInMemoryConnectionStore(INITIAL_CAPACITY, 1000).getSegments(), is(1));
+		assertThat(new ConcurrentInMemoryConnectionStore(4096, 1000, null, 64).getSegments(), is(4));
+		assertThat(new ConcurrentInMemoryConnectionStore(6000, 1000, null, 64).getSegments(), is(4));
+		assertThat(new ConcurrentInMemoryConnectionStore(1000000, 1000, null, 64).getSegments(), is(64));
+		assertThat(new ConcurrentInMemoryConnectionStore(1000000, 1000, null, 1).getSegments(), is(1));
+	}
+
+	@Test
+	public void testPutEvictsStaleConnection() throws Exception {
+		// given a full store with stale connections
+		store = new ConcurrentInMemoryConnectionStore(2, 0);
+		store.attach(null);
+		Connection con1 = newConnection(51L);
+		InetSocketAddress addr1 = con1.getPeerAddress();
+		SessionId session1 = con1.getEstablishedSession().getSessionIdentifier();
+		assertTrue(store.put(con1));
+		assertTrue(store.put(newConnection(52L)));
+		assertThat(store.remainingCapacity(), is(0));
+
+		// when adding a new connection to the store
+		Connection con3 = newConnection(53L);
+		assertTrue(store.put(con3));
+
+		// assert that the least recently used connection is evicted
+		// and removed from all indexes
+		assertThat(store.remainingCapacity(), is(0));
+		assertThat(store.get(con1.getConnectionId()), is(nullValue()));
+		assertThat(store.get(addr1), is(nullValue()));
+		assertThat(store.find(session1), is(nullValue()));
+		assertThat(store.get(con3.getConnectionId()), is(con3));
+	}
+
+	@Test
+	public void testPutIfAbsentReturnsConnectionOfAddress() throws Exception {
+		ConcurrentInMemoryConnectionStore store = new ConcurrentInMemoryConnectionStore(10, 1000);
+		store.attach(null);
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5684);
+		Connection con1 = new Connection(address, new TestSerialExecutor());
+		Connection con2 = new Connection(address, new TestSerialExecutor());
+
+		assertThat(store.putIfAbsent(con1), is(con1));
+		assertThat(store.putIfAbsent(con2), is(con1));
+
+		assertThat(store.get(address), is(con1));
+		assertThat(store.get(con1.getConnectionId()), is(con1));
+		assertThat(store.remainingCapacity(), is(9));
+	}
+
+	@Test
+	public void testPutIfAbsentFailsOnExhaustedStore() throws Exception {
+		ConcurrentInMemoryConnectionStore store = new ConcurrentInMemoryConnectionStore(1, 1000);
+		store.attach(null);
+		InetSocketAddress address1 = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5684);
+		InetSocketAddress address2 = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5685);
+		Connection con1 = new Connection(address1, new TestSerialExecutor());
+		assertThat(store.putIfAbsent(con1), is(con1));
+
+		assertThat(store.putIfAbsent(new Connection(address2, new TestSerialExecutor())), is(nullValue()));
+
+		assertThat(store.get(address2), is(nullValue()));
+		assertThat(store.get(address1), is(con1));
+		assertThat(store.remainingCapacity(), is(0));
+	}
+
+	@Test
+	public void testConcurrentPutIfAbsent() throws Exception {
+		final int threads = 4;
+		final ConcurrentInMemoryConnectionStore store = new ConcurrentInMemoryConnectionStore(100, 1000);
+		store.attach(null);
+		final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5684);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Connection>> results = new ArrayList<>();
+			for (int thread = 0; thread < threads; ++thread) {
+				results.add(executor.submit(new Callable<Connection>() {
+
+					@Override
+					public Connection call() throws Exception {
+						return store.putIfAbsent(new Connection(address, new TestSerialExecutor()));
+					}
+				}));
+			}
+			List<Connection> added = new ArrayList<>();
+			for (Future<Connection> result : results) {
+				added.add(result.get(10, TimeUnit.SECONDS));
+			}
+			// all threads agree on a single connection
+			Connection connection = store.get(address);
+			assertThat(connection, is(notNullValue()));
+			for (Connection con : added) {
+				assertThat(con, is(connection));
+			}
+			assertThat(store.remainingCapacity(), is(99));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testConcurrentPutAndGet() throws Exception {
+		final int threads = 4;
+		final int connectionsPerThread = 1000;
+		store = new ConcurrentInMemoryConnectionStore(threads * connectionsPerThread, 1000, null, 4);
+		store.attach(null);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int thread = 0; thread < threads; ++thread) {
+				final long base = 1000L + thread * connectionsPerThread;
+				results.add(executor.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() throws Exception {
+						int found = 0;
+						for (int index = 0; index < connectionsPerThread; ++index) {
+							Connection connection = newConnection(base + index);
+							if (store.put(connection) && store.get(connection.getPeerAddress()) == connection
+									&& store.get(connection.getConnectionId()) == connection) {
+								++found;
+							}
+						}
+						return found;
+					}
+				}));
+			}
+			int found = 0;
+			for (Future<Integer> result : results) {
+				found += result.get(10, TimeUnit.SECONDS);
+			}
+			// the segments may reject some connections before the
+			// capacity is reached, but all stored ones must be found
+			assertThat(found, is(threads * connectionsPerThread - store.remainingCapacity()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
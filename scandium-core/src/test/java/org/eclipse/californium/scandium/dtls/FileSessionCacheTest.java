@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Bosch Software Innovations GmbH and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *    initial implementation please refer gitlog
+ ******************************************************************************/
+package org.eclipse.californium.scandium.dtls;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.scandium.category.Small;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+@Category(Small.class)
+public class FileSessionCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	File file;
+	FileSessionCache cache;
+	DTLSSession session;
+
+	@Before
+	public void setUp() throws Exception {
+		file = new File(folder.getRoot(), "sessions");
+		cache = new FileSessionCache(file);
+		session = newSession(1);
+	}
+
+	@Test
+	public void testLoadWithoutFile() throws IOException {
+		assertThat(cache.load(), is(0));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		DTLSSession session2 = newSession(2);
+		cache.put(session);
+		cache.put(session2);
+		assertThat(cache.save(), is(2));
+
+		FileSessionCache loaded = new FileSessionCache(file);
+		assertThat(loaded.load(), is(2));
+		assertTicket(loaded.get(session.getSessionIdentifier()), session);
+		assertTicket(loaded.get(session2.getSessionIdentifier()), session2);
+
+		// load only once
+		assertThat(loaded.load(), is(0));
+		assertThat(loaded.size(), is(2));
+	}
+
+	@Test
+	public void testSaveRemovedSession() throws IOException {
+		cache.put(session);
+		cache.remove(session.getSessionIdentifier());
+		assertThat(cache.save(), is(0));
+
+		FileSessionCache loaded = new FileSessionCache(file);
+		assertThat(loaded.load(), is(0));
+		assertThat(loaded.get(session.getSessionIdentifier()), is(nullValue()));
+	}
+
+	@Test
+	public void testLoadTruncatedFile() throws IOException {
+		cache.put(session);
+		cache.put(newSession(2));
+		cache.save();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(raf.length() - 10);
+		} finally {
+			raf.close();
+		}
+
+		FileSessionCache loaded = new FileSessionCache(file);
+		assertThat(loaded.load(), is(1));
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadInvalidFile() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.writeInt(0x12345678);
+		} finally {
+			raf.close();
+		}
+		cache.load();
+	}
+
+	@Test
+	public void testChangedUntilSaved() throws IOException {
+		assertThat(cache.isChanged(), is(false));
+		cache.put(session);
+		assertThat(cache.isChanged(), is(true));
+		cache.save();
+		assertThat(cache.isChanged(), is(false));
+	}
+
+	@Test
+	public void testStillChangedAfterFailedSave() throws IOException {
+		// a not empty directory can't be replaced by the saved file
+		assertTrue(file.mkdir());
+		assertTrue(new File(file, "occupied").createNewFile());
+		cache.put(session);
+		try {
+			cache.save();
+			fail("save must fail");
+		} catch (IOException ex) {
+			// expected
+		}
+		assertThat(cache.isChanged(), is(true));
+	}
+
+	@Test
+	public void testFileIsOwnerOnly() throws IOException {
+		assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+		cache.put(session);
+		cache.save();
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())), is("rw-------"));
+	}
+
+	@Test
+	public void testExpiredSessionsAreDropped() throws IOException {
+		cache = new FileSessionCache(file, 10, 60);
+		SessionId id = session.getSessionIdentifier();
+		cache.put(id, createdBefore(session.getSessionTicket(), 30));
+		assertThat(cache.get(id), is(notNullValue()));
+		// expired tickets are not cached
+		cache.put(id, createdBefore(session.getSessionTicket(), 120));
+		assertThat(cache.get(id), is(notNullValue()));
+		cache.save();
+
+		// loaded tickets expire
+		FileSessionCache loaded = new FileSessionCache(file, 10, 20);
+		assertThat(loaded.load(), is(0));
+		assertThat(loaded.get(id), is(nullValue()));
+	}
+
+	@Test
+	public void testExpiredSessionIsRemovedOnGet() throws IOException {
+		cache = new FileSessionCache(file, 10, 60);
+		SessionId id = session.getSessionIdentifier();
+		cache.put(id, createdBefore(session.getSessionTicket(), 58));
+		cache.save();
+		assertThat(cache.isChanged(), is(false));
+		waitForExpiration();
+		assertThat(cache.get(id), is(nullValue()));
+		assertThat(cache.size(), is(0));
+		assertThat(cache.isChanged(), is(true));
+	}
+
+	@Test
+	public void testCapacity() throws IOException {
+		cache = new FileSessionCache(file, 2, 60);
+		DTLSSession session2 = newSession(2);
+		DTLSSession session3 = newSession(3);
+		cache.put(session.getSessionIdentifier(), createdBefore(session.getSessionTicket(), 58));
+		cache.put(session2);
+		// full, no session expired
+		cache.put(session3);
+		assertThat(cache.size(), is(2));
+		assertThat(cache.get(session3.getSessionIdentifier()), is(nullValue()));
+		// full, but replacing a cached session
+		cache.put(session2);
+		assertThat(cache.get(session2.getSessionIdentifier()), is(notNullValue()));
+		cache.save();
+
+		// the expired session is replaced
+		waitForExpiration();
+		cache.put(session3);
+		assertThat(cache.size(), is(2));
+		assertThat(cache.get(session.getSessionIdentifier()), is(nullValue()));
+		assertThat(cache.get(session3.getSessionIdentifier()), is(notNullValue()));
+
+		// loading stops at the capacity
+		FileSessionCache loaded = new FileSessionCache(file, 1, 60);
+		assertThat(loaded.load(), is(1));
+		assertThat(loaded.size(), is(1));
+	}
+
+	/**
+	 * Wait for the expiration of tickets created 58s before, with a lifetime
+	 * of 60s.
+	 */
+	private static void waitForExpiration() {
+		try {
+			Thread.sleep(3000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static SessionTicket createdBefore(SessionTicket ticket, long seconds) {
+		return new SessionTicket(ticket.getProtocolVersion(), ticket.getCipherSuite(),
+				ticket.getCompressionMethod(), ticket.getMasterSecret(), ticket.getServerNames(),
+				ticket.getClientIdentity(), System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(seconds));
+	}
+
+	private static void assertTicket(SessionTicket ticket, DTLSSession session) {
+		assertThat(ticket, is(notNullValue()));
+		// the timestamp is encoded in seconds, compare the other fields
+		SessionTicket expected = session.getSessionTicket();
+		assertThat(ticket.getMasterSecret(), is(expected.getMasterSecret()));
+		assertThat(ticket.getCipherSuite(), is(expected.getCipherSuite()));
+		assertThat(ticket.getClientIdentity(), is(expected.getClientIdentity()));
+	}
+
+	private static DTLSSession newSession(int host) throws IOException {
+		InetSocketAddress address = new InetSocketAddress(
+				InetAddress.getByAddress(new byte[] { 10, 0, 0, (byte) host }), 5684);
+		return DTLSSessionTest.newEstablishedServerSession(address, CipherSuite.TLS_PSK_WITH_AES_128_CCM_8, false);
+	}
+}
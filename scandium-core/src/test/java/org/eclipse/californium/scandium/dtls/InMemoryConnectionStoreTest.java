@@ -36,14 +36,14 @@ import org.junit.experimental.categories.Category;
 @Category(Small.class)
 public class InMemoryConnectionStoreTest {
 
-	private static final int INITIAL_CAPACITY = 10;
-	InMemoryConnectionStore store;
+	protected static final int INITIAL_CAPACITY = 10;
+	ResumptionSupportingConnectionStore store;
 	Connection con;
 	SessionId sessionId;
 
 	@Before
 	public void setUp() throws Exception {
-		store = new InMemoryConnectionStore(INITIAL_CAPACITY, 1000);
+		store = createConnectionStore(INITIAL_CAPACITY, 1000, null);
 		store.attach(null);
 		con = newConnection(50L);
 		sessionId = con.getEstablishedSession().getSessionIdentifier();
@@ -101,7 +101,7 @@ public class InMemoryConnectionStoreTest {
 		// GIVEN an empty connection store with a cached session shared by another node
 		SessionCache sessionCache = new InMemorySessionCache();
 		sessionCache.put(con.getEstablishedSession());
-		store = new InMemoryConnectionStore(INITIAL_CAPACITY, 1000, sessionCache);
+		store = createConnectionStore(INITIAL_CAPACITY, 1000, sessionCache);
 
 		// WHEN retrieving the connection for the given peer
 		Connection connectionWithPeer = store.find(sessionId);
@@ -120,7 +120,7 @@ public class InMemoryConnectionStoreTest {
 		// and a (local) connection based on this session
 		SessionCache sessionCache = new InMemorySessionCache();
 		sessionCache.put(con.getEstablishedSession());
-		store = new InMemoryConnectionStore(INITIAL_CAPACITY, 1000, sessionCache);
+		store = createConnectionStore(INITIAL_CAPACITY, 1000, sessionCache);
 		store.attach(null);
 		store.put(con);
 		store.putEstablishedSession(con.getEstablishedSession(), con);
@@ -274,7 +274,20 @@ public class InMemoryConnectionStoreTest {
 		assertThat(store.find(session.getSessionIdentifier()), is(con2));
 	}
 
-	private Connection newConnection(long ip) throws HandshakeException, UnknownHostException {
+	/**
+	 * Creates the connection store to test.
+	 * 
+	 * @param capacity the maximum number of connections
+	 * @param threshold the expiration threshold in seconds
+	 * @param sessionCache the session cache. May be {@code null}.
+	 * @return the connection store
+	 */
+	protected ResumptionSupportingConnectionStore createConnectionStore(int capacity, long threshold,
+			SessionCache sessionCache) {
+		return new InMemoryConnectionStore(capacity, threshold, sessionCache);
+	}
+
+	protected Connection newConnection(long ip) throws HandshakeException, UnknownHostException {
 		InetAddress addr = InetAddress.getByAddress(longToIp(ip));
 		InetSocketAddress peerAddress = new InetSocketAddress(addr, 0);
 		Connection con = new Connection(peerAddress, new TestSerialExecutor());
@@ -296,9 +309,9 @@ public class InMemoryConnectionStoreTest {
 		return result;
 	}
 
-	private static class TestSerialExecutor extends SerialExecutor {
+	static class TestSerialExecutor extends SerialExecutor {
 
-		private TestSerialExecutor() {
+		TestSerialExecutor() {
 			super(ExecutorsUtil.getScheduledExecutor());
 		}
 
@@ -19,6 +19,7 @@
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -127,6 +128,24 @@ public class RecordTest {
 		assertEquals(protocolVer.getMinor(), record.getVersion().getMinor());
 	}
 	
+	@Test
+	public void testFromByteArrayRange() throws GeneralSecurityException {
+
+		byte[] fragment = newGenericAEADCipherFragment();
+		byte[] application_record = DtlsTestTools.newDTLSRecord(TYPE_APPL_DATA, EPOCH, SEQUENCE_NO, fragment);
+		byte[] buffer = new byte[application_record.length + 20];
+		System.arraycopy(application_record, 0, buffer, 10, application_record.length);
+		List<Record> recordList = Record.fromByteArray(buffer, 10, application_record.length, session.getPeer(), null);
+		assertEquals(recordList.size(), 1);
+		// reuse of the buffer must not affect the parsed record
+		Arrays.fill(buffer, (byte) 0);
+		Record record = recordList.get(0);
+		assertEquals(ContentType.APPLICATION_DATA, record.getType());
+		assertEquals(EPOCH, record.getEpoch());
+		assertEquals(SEQUENCE_NO, record.getSequenceNumber());
+		assertArrayEquals(fragment, record.getFragmentBytes());
+	}
+
 	@Test
 	public void testFromByteArrayRejectsUnknownTypeCode() throws GeneralSecurityException {
 		
@@ -15,7 +15,9 @@
  ******************************************************************************/
 package org.eclipse.californium.scandium.dtls.cipher;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 
 import java.util.ArrayList;
@@ -184,6 +186,50 @@ public class CCMBlockCipherTest {
 		assertTrue(Arrays.equals(decryptedData, payloadData));
 	}
 
+	@Test
+	public void testInitializedCipherCryption() throws Exception {
+		Cipher cipher = Cipher.getInstance(CCMBlockCipher.CIPHER_NAME);
+		cipher.init(Cipher.ENCRYPT_MODE, aesKey);
+
+		byte[] encryptedData = CCMBlockCipher.encrypt(cipher, nonce, additionalData, payloadData, 8);
+		assertTrue(Arrays.equals(encryptedData, CCMBlockCipher.encrypt(aesKey, nonce, additionalData, payloadData, 8)));
+		// reuse cipher without initialization
+		byte[] decryptedData = CCMBlockCipher.decrypt(cipher, nonce, additionalData, encryptedData, 8);
+		assertTrue(Arrays.equals(decryptedData, payloadData));
+	}
+
+	@Test
+	public void testInPlaceCryption() throws Exception {
+		int offset = 3;
+		byte[] expected = CCMBlockCipher.encrypt(aesKey, nonce, additionalData, payloadData, 8);
+		byte[] buffer = new byte[offset + payloadLength + 8 + 2];
+		System.arraycopy(payloadData, 0, buffer, offset, payloadLength);
+
+		int length = CCMBlockCipher.encrypt(aesKey, nonce, additionalData, buffer, offset, payloadLength, buffer,
+				offset, 8);
+		assertEquals(expected.length, length);
+		assertTrue(Arrays.equals(expected, Arrays.copyOfRange(buffer, offset, offset + length)));
+
+		length = CCMBlockCipher.decrypt(aesKey, nonce, additionalData, buffer, offset, length, buffer, offset, 8);
+		assertEquals(payloadLength, length);
+		assertTrue(Arrays.equals(payloadData, Arrays.copyOfRange(buffer, offset, offset + length)));
+	}
+
+	@Test
+	public void testInvalidMacClearsOutput() throws Exception {
+		assumeTrue(payloadLength > 0);
+		byte[] encryptedData = CCMBlockCipher.encrypt(aesKey, nonce, additionalData, payloadData, 8);
+		encryptedData[encryptedData.length - 1] ^= 0x55;
+		byte[] decryptedData = new byte[payloadLength];
+		try {
+			CCMBlockCipher.decrypt(aesKey, nonce, additionalData, encryptedData, 0, encryptedData.length,
+					decryptedData, 0, 8);
+			fail("manipulated MAC not detected");
+		} catch (InvalidMacException ex) {
+			assertTrue(Arrays.equals(new byte[payloadLength], decryptedData));
+		}
+	}
+
 	@Test(expected = InvalidMacException.class)
 	public void testDifferentNonce() throws Exception {
 